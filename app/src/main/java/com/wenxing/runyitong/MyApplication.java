@@ -3,11 +3,16 @@ package com.wenxing.runyitong;
 import android.app.Application;
 import android.content.SharedPreferences;
 import android.util.Log;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatDelegate;
 
+import com.wenxing.runyitong.utils.AnalysisResultCache;
 import com.wenxing.runyitong.utils.CrashHandler;
 import com.wenxing.runyitong.api.ApiClient;
+import com.wenxing.runyitong.network.CoalescingCallAdapterFactory;
+import com.wenxing.runyitong.pdf.PageBitmapCache;
+import com.wenxing.runyitong.utils.SessionStore;
 import com.baidu.speech.EventListener;
 import com.baidu.speech.EventManager;
 import com.baidu.speech.EventManagerFactory;
@@ -35,6 +40,23 @@ public class MyApplication extends Application {
             ApiClient.initialize(this);
             Log.d(TAG, "ApiClient initialized");
 
+            // 登录过期时全局提示，具体页面可自行注册监听刷新界面
+            SessionStore.getInstance().addListener(new SessionStore.SessionListener() {
+                @Override
+                public void onLoginStateChanged(boolean isLoggedIn, int userId) {
+                    Log.d(TAG, "Login state changed: " + isLoggedIn + ", user id: " + userId);
+                    // 退出、过期或切换用户后，上一个用户的缓存数据不能再返回
+                    ApiClient.clearHttpCache();
+                    CoalescingCallAdapterFactory.getInstance().clear();
+                    AnalysisResultCache.getInstance(MyApplication.this).clear();
+                }
+
+                @Override
+                public void onSessionExpired() {
+                    Toast.makeText(MyApplication.this, "登录已过期，请重新登录", Toast.LENGTH_LONG).show();
+                }
+            });
+
             // 初始化全局异常处理器
             CrashHandler.getInstance().init(this);
             Log.d(TAG, "CrashHandler initialized");
@@ -148,6 +170,9 @@ public class MyApplication extends Application {
         long maxMemory = runtime.maxMemory();
         Log.w(TAG, "Low memory - Usage: " + (usedMemory / 1024 / 1024) + "MB / " + (maxMemory / 1024 / 1024) + "MB");
         
+        // 释放PDF页面缓存
+        PageBitmapCache.trimMemory(TRIM_MEMORY_COMPLETE);
+        
         // 强制垃圾回收
         System.gc();
     }
@@ -157,6 +182,9 @@ public class MyApplication extends Application {
         super.onTrimMemory(level);
         Log.w(TAG, "Application onTrimMemory called with level: " + level);
         
+        // PDF页面缓存按级别缩减，复用池直接释放
+        PageBitmapCache.trimMemory(level);
+        
         // 根据不同级别采取不同的内存清理策略
         switch (level) {
             case TRIM_MEMORY_UI_HIDDEN:
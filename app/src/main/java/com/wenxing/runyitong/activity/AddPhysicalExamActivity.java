@@ -6,7 +6,6 @@ import androidx.appcompat.widget.Toolbar;
 
 import android.app.DatePickerDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
@@ -22,6 +21,7 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.model.PhysicalExamReport;
+import com.wenxing.runyitong.utils.SessionStore;
 
 import retrofit2.Call;
 
@@ -426,11 +426,7 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
     // 清除登录状态
     private void clearLoginState() {
         try {
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.remove("access_token");
-            editor.remove("user_id");
-            editor.apply();
+            SessionStore.getInstance().logout();
             Log.d(TAG, "已清除登录状态");
         } catch (Exception e) {
             Log.e(TAG, "清除登录状态失败: " + e.getMessage());
@@ -440,8 +436,7 @@ public class AddPhysicalExamActivity extends AppCompatActivity {
     // 获取当前登录用户的ID
     private int getCurrentUserId() {
         try {
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            return sharedPreferences.getInt("user_id", -1);
+            return SessionStore.getInstance().getUserId();
         } catch (Exception e) {
             Log.e(TAG, "获取用户ID失败: " + e.getMessage());
             return -1;
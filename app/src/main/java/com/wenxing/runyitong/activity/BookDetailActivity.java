@@ -35,6 +35,13 @@ import com.wenxing.runyitong.adapter.DownloadedBookAdapter;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.model.Book;
 import com.wenxing.runyitong.model.BookPage;
+import com.wenxing.runyitong.model.LibraryBook;
+import com.wenxing.runyitong.network.EndpointProfile;
+import com.wenxing.runyitong.network.ResumableDownloader;
+import com.wenxing.runyitong.pdf.BookIndexer;
+import com.wenxing.runyitong.pdf.BookLibrary;
+import com.wenxing.runyitong.pdf.PdfThumbnailCache;
+import com.wenxing.runyitong.utils.BookmarkManager;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -52,13 +59,8 @@ import com.itextpdf.text.Font;
 import com.itextpdf.text.Paragraph;
 import com.itextpdf.text.pdf.PdfWriter;
 
-import retrofit2.Call;
-import retrofit2.Response;
-import okhttp3.ResponseBody;
-import java.io.InputStream;
 
 import com.wenxing.runyitong.api.ApiService;
-import okhttp3.Callback;
 
 public class BookDetailActivity extends AppCompatActivity {
     private static final String TAG = "BookDetailActivity";
@@ -68,9 +70,14 @@ public class BookDetailActivity extends AppCompatActivity {
     private Book book;
     private List<BookPage> bookPages;
     private BookPageAdapter pageAdapter;
-    private List<File> downloadedBooks;
+    private List<LibraryBook> downloadedBooks;
     private DownloadedBookAdapter downloadedBookAdapter;
+    // 书架索引，列表直接按索引显示，与下载目录的核对在后台进行
+    private BookLibrary bookLibrary;
+    private final BookLibrary.Listener libraryListener = this::onLibraryChanged;
+    private boolean exampleBooksChecked = false;
     private ApiService apiService;
+    private ResumableDownloader.DownloadTask currentDownloadTask;
     
     private ImageView bookCoverImageView;
     private TextView bookTitleTextView;
@@ -142,6 +149,9 @@ public class BookDetailActivity extends AppCompatActivity {
             book.setFileSize(10485760); // 10MB
         }
         
+        bookLibrary = BookLibrary.getInstance(this);
+        bookLibrary.addListener(libraryListener);
+        
         initViews();
         setupRecyclerView();
         displayBookInfo();
@@ -149,11 +159,6 @@ public class BookDetailActivity extends AppCompatActivity {
         
         // 初始化API服务
         apiService = ApiClient.getApiService();
-        
-        // 如果没有已下载的书籍，创建示例书籍
-        if (downloadedBooks.isEmpty()) {
-            copyExampleBooks();
-        }
     }
     
     private void initViews() {
@@ -399,6 +404,11 @@ public class BookDetailActivity extends AppCompatActivity {
         final boolean[] isCancelled = {false};
         cancelButton.setOnClickListener(v -> {
             isCancelled[0] = true;
+            if (currentDownloadTask != null) {
+                // 取消网络请求，已下载的分段进度保留用于续传
+                currentDownloadTask.cancel();
+                currentDownloadTask = null;
+            }
             progressDialog.dismiss();
             downloadButton.setEnabled(true);
             downloadButton.setText("下载并阅读PDF");
@@ -417,7 +427,8 @@ public class BookDetailActivity extends AppCompatActivity {
         // 创建PDF文件
         final String fileName;
         if (book.getName().startsWith("未知")) {
-            fileName = "书籍_" + System.currentTimeMillis() + ".pdf";
+            // 文件名按书籍ID固定，重试时能找到上次未完成的.part文件继续下载
+            fileName = "书籍_" + book.getId() + ".pdf";
         } else {
             fileName = book.getName() + ".pdf";
         }
@@ -433,7 +444,7 @@ public class BookDetailActivity extends AppCompatActivity {
         statusMessage.setText("正在从服务器下载PDF文件...");
         
         // 首先尝试从服务器下载PDF文件
-        attemptDownloadWithRetry(book.getId(), pdfFile, fileName, progressDialog, statusMessage, progressBar, progressText, downloadButton, isCancelled, 0);
+        startResumableDownload(book.getId(), pdfFile, fileName, progressDialog, statusMessage, progressBar, progressText, downloadButton, isCancelled);
     }
     
     // 检查网络连接状态
@@ -455,405 +466,74 @@ public class BookDetailActivity extends AppCompatActivity {
                 .show();
     }
     
-    private void attemptDownloadWithRetry(final int bookId, final File pdfFile, final String fileName, 
-                                         final AlertDialog progressDialog, final TextView statusMessage, 
-                                         final ProgressBar progressBar, final TextView progressText, 
-                                         final Button downloadButton, final boolean[] isCancelled, 
-                                         final int retryCount) {
-        final int MAX_RETRIES = 2;
-        
-        if (retryCount > 0) {
-            Log.i(TAG, "Attempting download retry " + retryCount + " of " + MAX_RETRIES);
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    if (!isCancelled[0]) {
-                        statusMessage.setText("连接中断，正在尝试重新下载...(" + retryCount + "/" + MAX_RETRIES + ")");
-                    }
-                }
-            });
-            
-            // 添加短暂延迟后重试
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        
-        Call<ResponseBody> call = apiService.downloadBookPdf(bookId);
-        call.enqueue(new retrofit2.Callback<ResponseBody>() {
-            @Override
-            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
-                if (isCancelled[0]) return;
-                
-                try {
-                    if (response.isSuccessful() && response.body() != null) {
-                        // 从服务器下载PDF文件
-                        final ResponseBody responseBody = response.body();
-                        final long contentLength = responseBody.contentLength();
-                        
-                        // 检查文件大小是否合理，避免无效下载
-                        if (contentLength <= 0) {
-                            Log.w(TAG, "Invalid content length: " + contentLength);
-                            responseBody.close(); // 确保及时关闭响应体
-                            if (retryCount < MAX_RETRIES) {
-                                attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                        progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                            } else {
-                                createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
-                                        progressText, downloadButton, isCancelled);
-                            }
-                            return;
-                        }
-                        
-                        // 创建后台线程执行文件下载操作
-                        new Thread(new Runnable() {
-                            @Override
-                            public void run() {
-                                // 优先使用较小的缓冲区，减少内存占用
-                                byte[] buffer = new byte[1024]; // 减小缓冲区大小到1KB
-                                int bytesRead;
-                                long totalRead = 0;
-                                long lastUpdateTime = System.currentTimeMillis();
-                                long lastGCTime = System.currentTimeMillis();
-                                
-                                // 确保responseBody不为null
-                                InputStream inputStream = null;
-                                FileOutputStream outputStream = null;
-                                
-                                try {
-                                    // 安全地获取输入流
-                                    if (responseBody != null) {
-                                        inputStream = responseBody.byteStream();
-                                        outputStream = new FileOutputStream(pdfFile);
-                                    } else {
-                                        Log.e(TAG, "ResponseBody is null when trying to get input stream");
-                                        throw new IOException("Response body is null");
-                                    }
-                                    
-                                    // 严格的流式处理，避免一次性读取大量数据
-                                    while (inputStream != null && !isCancelled[0]) {
-                                        try {
-                                            // 先检查inputStream是否仍然有效
-                                            if (inputStream.available() < 0) {
-                                                Log.e(TAG, "Input stream is not available");
-                                                isCancelled[0] = true;
-                                                break;
-                                            }
-                                            
-                                            // 在读取前检查流的状态
-                                            if (inputStream.markSupported()) {
-                                                inputStream.mark(1);
-                                                int testRead = inputStream.read();
-                                                if (testRead == -1) {
-                                                    Log.d(TAG, "Reached end of input stream, download completed successfully");
-                                                    break;
-                                                } else {
-                                                    inputStream.reset();
-                                                }
-                                            }
-                                            
-                                            // 安全地读取数据，避免单次读取过多
-                                            bytesRead = inputStream.read(buffer, 0, buffer.length);
-                                            
-                                            // 检查是否到达流末尾
-                                            if (bytesRead == -1) {
-                                                Log.d(TAG, "Reached end of input stream, download completed successfully");
-                                                break;
-                                            }
+    /**
+     * 通过可断点续传的分段下载器下载PDF
+     * 服务器支持Range时并行分段下载，中断后再次点击下载会从已保存的进度继续
+     */
+    private void startResumableDownload(final int bookId, final File pdfFile, final String fileName,
+                                        final AlertDialog progressDialog, final TextView statusMessage,
+                                        final ProgressBar progressBar, final TextView progressText,
+                                        final Button downloadButton, final boolean[] isCancelled) {
+        // 下载地址沿用ApiService中的定义，请求本身交给BULK_DOWNLOAD专用的连接池执行
+        String url = apiService.downloadBookPdf(bookId).request().url().toString();
+        Log.d(TAG, "Starting resumable download: " + url + " -> " + pdfFile.getAbsolutePath());
 
-                                            // 检查读取的数据量是否正常
-                                            if (bytesRead > 0) {
-                                                // 确保outputStream不为null再写入
-                                                if (outputStream != null) {
-                                                    outputStream.write(buffer, 0, bytesRead);
-                                                    outputStream.flush(); // 定期刷新缓冲区
-                                                    totalRead += bytesRead;
-                                                     
-                                                    Log.v(TAG, "Successfully read and wrote " + bytesRead + " bytes, total: " + totalRead);
-                                                } else {
-                                                    Log.e(TAG, "Output stream is null during write operation");
-                                                    isCancelled[0] = true;
-                                                    break;
-                                                }
-                                            }
-                                            
-                                            // 定期建议垃圾回收，每处理1MB数据尝试一次
-                                            long currentTime = System.currentTimeMillis();
-                                            if (currentTime - lastGCTime >= 5000) { // 每5秒尝试一次
-                                                lastGCTime = currentTime;
-                                                System.gc();
-                                            }
-                                            
-                                            // 进一步限制UI更新频率，减少内存压力
-                                            if (currentTime - lastUpdateTime >= 200 || totalRead >= contentLength) {
-                                                lastUpdateTime = currentTime;
-                                                final int progress = (int) (totalRead * 50 / contentLength);
-                                                final long currentProgress = totalRead;
-                                                final long totalSize = contentLength;
-                                                
-                                                // 避免在UI线程中执行过多计算
-                                                runOnUiThread(new Runnable() {
-                                                    @Override
-                                                    public void run() {
-                                                        if (!isCancelled[0]) {
-                                                            progressBar.setProgress(progress);
-                                                            progressText.setText(progress + "%");
-                                                            // 使用StringBuilder减少字符串对象创建
-                                                            StringBuilder sb = new StringBuilder();
-                                                            sb.append("正在从服务器下载PDF文件... ")
-                                                              .append(formatFileSize(currentProgress))
-                                                              .append("/")
-                                                              .append(formatFileSize(totalSize));
-                                                            statusMessage.setText(sb.toString());
-                                                        }
-                                                    }
-                                                });
-                                            }
-                                            
-                                            // 增加额外的检查，防止在内存受限设备上出现问题
-                                            if (Thread.interrupted()) {
-                                                throw new InterruptedException("Download operation interrupted");
-                                            }
-                                        } catch (IOException e) {
-                                            // 捕获read操作可能出现的异常
-                                            Log.e(TAG, "Error reading from input stream: " + e.getMessage(), e);
-                                             
-                                            // 检查异常类型，区分网络错误和其他IO错误
-                                            if (e instanceof java.net.SocketTimeoutException) {
-                                                Log.e(TAG, "Network timeout occurred during download");
-                                            } else if (e instanceof java.net.SocketException) {
-                                                Log.e(TAG, "Socket exception occurred, possibly network connection lost");
-                                            } else if (e instanceof java.net.UnknownHostException) {
-                                                Log.e(TAG, "Unknown host exception, check network connectivity");
-                                            }
-                                            
-                                            // 尝试重新建立连接并继续下载
-                                            if (retryCount < MAX_RETRIES) {
-                                                Log.i(TAG, "Attempting to retry download after IO exception");
-                                                isCancelled[0] = true; // 退出当前下载循环
-                                                break;
-                                            } else {
-                                                isCancelled[0] = true;
-                                                break;
-                                            }
-                                        } catch (NullPointerException e) {
-                                            // 捕获空指针异常，可能是因为inputStream已被关闭
-                                            Log.e(TAG, "NullPointerException during read operation, inputStream may be closed", e);
-                                            isCancelled[0] = true;
-                                            break;
-                                        } catch (IllegalStateException e) {
-                                            // 捕获非法状态异常，可能是因为流已被关闭或处于无效状态
-                                            Log.e(TAG, "IllegalStateException during read operation, stream may be in invalid state", e);
-                                            isCancelled[0] = true;
-                                            break;
-                                        } catch (Exception e) {
-                                            // 捕获其他所有异常
-                                            Log.e(TAG, "Unexpected exception during read operation: " + e.getMessage(), e);
-                                            isCancelled[0] = true;
-                                            break;
-                                        }
-                                    }
-                                } catch (IOException e) {
-                                    Log.e(TAG, "Error during file download: " + e.getMessage(), e);
-                                    isCancelled[0] = true;
-                                } finally {
-                                    // 确保所有资源都被正确关闭
-                                    try {
-                                        if (outputStream != null) {
-                                            outputStream.close();
-                                        }
-                                        if (inputStream != null) {
-                                            inputStream.close();
-                                        }
-                                        // 确保响应体关闭
-                                        if (responseBody != null) {
-                                            responseBody.close();
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "Error closing resources: " + e.getMessage());
-                                    }
-                                }
-                                
-                                if (!isCancelled[0]) {
-                                    // 验证下载的文件是否有效
-                                    if (pdfFile.exists() && pdfFile.length() > 0) {
-                                        Log.d(TAG, "Successfully downloaded PDF from server: " + fileName + ", size: " + pdfFile.length());
-                                        
-                                        // 调用内存友好的PDF文件处理方法
-                                        handleDownloadedPDF(pdfFile, fileName, progressDialog, statusMessage, 
-                                                progressBar, progressText, downloadButton, isCancelled);
-                                    } else {
-                                        Log.w(TAG, "Downloaded file is invalid or empty");
-                                        if (retryCount < MAX_RETRIES) {
-                                            attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                                    progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                                        } else {
-                                            createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
-                                                    progressText, downloadButton, isCancelled);
-                                        }
-                                    }
-                                } else {
-                                    // 如果取消了下载，检查是否是因为异常需要重试
-                                    if (retryCount < MAX_RETRIES) {
-                                        Log.i(TAG, "Download cancelled, attempting retry " + (retryCount + 1));
-                                        attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                                progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                                    } else {
-                                        // 如果取消了下载，删除文件
-                                        if (pdfFile.exists()) {
-                                            pdfFile.delete();
-                                        }
-                                        // 重新启用下载按钮
-                                        runOnUiThread(new Runnable() {
-                                            @Override
-                                            public void run() {
-                                                downloadButton.setEnabled(true);
-                                                downloadButton.setText("下载并阅读PDF");
-                                                progressDialog.dismiss();
-                                                Toast.makeText(BookDetailActivity.this, "下载失败，请检查网络连接后重试", Toast.LENGTH_LONG).show();
-                                            }
-                                        });
-                                    }
-                                }
-                            }
-                        }).start(); // 启动后台线程
-                    } else if (response.code() == 404) {
-                        // 服务器返回404，资源不存在
-                        Log.w(TAG, "PDF resource not found on server (404): " + fileName);
-                        
-                        runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (!isCancelled[0]) {
-                                    progressDialog.dismiss();
-                                    downloadButton.setEnabled(true);
-                                    showResourceNotFoundDialog();
-                                }
-                            }
-                        });
-                    } else {
-                        // 其他错误响应
-                        Log.w(TAG, "Server returned error code: " + response.code() + ", message: " + response.message());
-                        if (retryCount < MAX_RETRIES) {
-                            attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                    progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
+        currentDownloadTask = ResumableDownloader.getInstance().download(
+                ApiClient.getHttpClient(EndpointProfile.BULK_DOWNLOAD), url, pdfFile,
+                new ResumableDownloader.Listener() {
+                    @Override
+                    public void onProgress(long downloadedBytes, long totalBytes) {
+                        if (isCancelled[0] || isFinishing() || isDestroyed()) return;
+                        if (totalBytes > 0) {
+                            // 下载阶段占总进度的0-50%
+                            int progress = (int) (downloadedBytes * 50 / totalBytes);
+                            progressBar.setProgress(progress);
+                            progressText.setText(progress + "%");
+                            statusMessage.setText("正在下载: " + formatFileSize(downloadedBytes) + " / " + formatFileSize(totalBytes));
                         } else {
-                            createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
-                                    progressText, downloadButton, isCancelled);
+                            statusMessage.setText("正在下载: " + formatFileSize(downloadedBytes));
                         }
                     }
-                } catch (Exception e) {
-                    Log.e(TAG, "Error processing PDF download: " + e.getMessage(), e);
-                    if (retryCount < MAX_RETRIES) {
-                        attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                    } else {
-                        createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
+
+                    @Override
+                    public void onComplete(File file) {
+                        currentDownloadTask = null;
+                        if (isCancelled[0] || isFinishing() || isDestroyed()) return;
+                        Log.i(TAG, "PDF downloaded successfully: " + fileName + ", size: " + formatFileSize(file.length()));
+                        handleDownloadedPDF(file, fileName, progressDialog, statusMessage, progressBar,
                                 progressText, downloadButton, isCancelled);
                     }
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<ResponseBody> call, Throwable t) {
-                if (isCancelled[0]) return;
-                
-                // 详细记录失败原因
-                Log.e(TAG, "Failed to download PDF from server: " + t.getMessage(), t);
-                
-                // 检查是否是连接被中止的错误，如果是则尝试重试
-                if (t instanceof java.net.SocketException) {
-                    String errorMessage = t.getMessage();
-                    Log.e(TAG, "SocketException details: " + errorMessage);
-                    
-                    // 针对不同类型的SocketException提供更具体的重试策略
-                    // 特别关注大文件下载导致的连接中止错误
-                    boolean isConnectionAbort = errorMessage != null && 
-                            (errorMessage.contains("Software caused connection abort") || 
-                             errorMessage.contains("connection abort"));
-                    
-                    boolean isTimeout = errorMessage != null && errorMessage.contains("timeout");
-                    
-                    if (isConnectionAbort && retryCount < MAX_RETRIES) {
-                        // 连接被中止错误（大文件常见），进行重试
-                        runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (!isCancelled[0]) {
-                                    statusMessage.setText("大文件下载连接中断，正在尝试重新连接...");
-                                }
-                            }
-                        });
-                        
-                        // 大文件下载失败后需要更长的延迟来确保网络状态稳定
-                        try {
-                            Thread.sleep(3000); // 增加到3秒延迟
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
-                        
-                        attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                    } else if (isTimeout && retryCount < MAX_RETRIES) {
-                        // 超时错误，增加延迟后重试
-                        runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                if (!isCancelled[0]) {
-                                    statusMessage.setText("连接超时，正在尝试重新连接...");
-                                }
-                            }
-                        });
-                        
-                        try {
-                            Thread.sleep(2500); // 超时错误使用较长的延迟
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        }
-                        
-                        attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                    } else {
-                        // 其他SocketException，也尝试重试一次
-                        if (retryCount < MAX_RETRIES) {
-                            Log.d(TAG, "Other SocketException, attempting retry " + (retryCount + 1));
-                            runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    if (!isCancelled[0]) {
-                                        statusMessage.setText("网络连接异常，正在尝试重新连接...");
-                                    }
-                                }
-                            });
-                            
-                            try {
-                                Thread.sleep(2000);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-                            
-                            attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                                    progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
+
+                    @Override
+                    public void onError(Exception e) {
+                        currentDownloadTask = null;
+                        if (isCancelled[0] || isFinishing() || isDestroyed()) return;
+                        if (e instanceof ResumableDownloader.HttpStatusException
+                                && ((ResumableDownloader.HttpStatusException) e).getCode() == 404) {
+                            // 服务器返回404，资源不存在
+                            Log.w(TAG, "PDF resource not found on server (404): " + fileName);
+                            ResumableDownloader.discardPartial(pdfFile);
+                            progressDialog.dismiss();
+                            downloadButton.setEnabled(true);
+                            showResourceNotFoundDialog();
+                        } else if (e instanceof ResumableDownloader.HttpStatusException) {
+                            // 其他服务器错误：不生成替代文件，保留已下载的进度供稍后重试
+                            int code = ((ResumableDownloader.HttpStatusException) e).getCode();
+                            Log.w(TAG, "Server returned error code: " + code);
+                            progressDialog.dismiss();
+                            downloadButton.setEnabled(true);
+                            downloadButton.setText("继续下载");
+                            Toast.makeText(BookDetailActivity.this, "服务器暂时无法提供该文件（" + code + "），请稍后重试", Toast.LENGTH_LONG).show();
                         } else {
-                            // 所有重试都失败，创建本地PDF
-                            createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
-                                    progressText, downloadButton, isCancelled);
+                            // 网络错误：已下载的分段保留在.part文件中，下次下载时继续
+                            Log.e(TAG, "Failed to download PDF from server: " + e.getMessage(), e);
+                            progressDialog.dismiss();
+                            downloadButton.setEnabled(true);
+                            downloadButton.setText("继续下载");
+                            Toast.makeText(BookDetailActivity.this, "下载中断，已保存进度，请检查网络连接后点击继续下载", Toast.LENGTH_LONG).show();
                         }
                     }
-                } else if (retryCount < MAX_RETRIES) {
-                    // 其他类型的错误，也尝试重试
-                    Log.d(TAG, "Non-SocketException, attempting retry " + (retryCount + 1));
-                    attemptDownloadWithRetry(bookId, pdfFile, fileName, progressDialog, statusMessage, 
-                            progressBar, progressText, downloadButton, isCancelled, retryCount + 1);
-                } else {
-                    // 所有重试都失败，创建本地PDF
-                    createLocalPDF(pdfFile, fileName, progressDialog, statusMessage, progressBar, 
-                            progressText, downloadButton, isCancelled);
-                }
-            }
-        });
+                });
     }
     
     /**
@@ -867,14 +547,14 @@ public class BookDetailActivity extends AppCompatActivity {
     }
 
     private void openPDFReader(String pdfFilePath, String bookTitle) {
-        // 验证PDF文件是否存在和有效
-        if (!isValidPDFFile(pdfFilePath)) {
+        File pdfFile = new File(pdfFilePath);
+        // 书架中的书籍已在加入时校验过，由后台核对保持与文件一致；其他文件打开前验证
+        if (bookLibrary.getBook(pdfFile) == null && !isValidPDFFile(pdfFilePath)) {
             showResourceNotFoundDialog();
             return;
         }
         
         try {
-            File pdfFile = new File(pdfFilePath);
             
             // 使用FileProvider获取安全的URI
             Uri pdfUri = androidx.core.content.FileProvider.getUriForFile(
@@ -892,6 +572,7 @@ public class BookDetailActivity extends AppCompatActivity {
             // 检查是否有应用可以处理PDF文件
             if (intent.resolveActivity(getPackageManager()) != null) {
                 startActivity(intent);
+                bookLibrary.markOpened(pdfFile);
                 Log.d(TAG, "Opening PDF with system reader: " + pdfFilePath + ", title: " + bookTitle);
             } else {
                 // 如果没有PDF阅读器，提示用户安装
@@ -1011,85 +692,65 @@ public class BookDetailActivity extends AppCompatActivity {
         dialog.show();
     }
     
+    private File getDownloadDir() {
+        return new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "books");
+    }
+    
+    /**
+     * 按书架索引显示已下载书籍，再在后台与下载目录核对，有变化时通过onLibraryChanged刷新
+     */
     private void loadDownloadedBooks() {
         Log.d(TAG, "Loading downloaded books");
         
-        try {
-            // 获取下载目录
-            File downloadDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "books");
-            
-            Log.d(TAG, "Using download directory path: " + downloadDir.getAbsolutePath());
-            
-            // 确保目录存在
-            if (!downloadDir.exists()) {
-                Log.d(TAG, "Creating download directory");
-                if (!downloadDir.mkdirs()) {
-                    Log.e(TAG, "Failed to create download directory");
-                    Toast.makeText(this, "无法创建下载目录", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-            }
-            
-            // 检查目录权限
-            if (!downloadDir.canRead()) {
-                Log.e(TAG, "Cannot read download directory");
-                Toast.makeText(this, "无法读取下载目录，请检查权限", Toast.LENGTH_SHORT).show();
-                return;
-            }
-            
-            // 清空现有数据
-            downloadedBooks.clear();
-            
-            // 扫描PDF文件
-            File[] allFiles = downloadDir.listFiles();
-            if (allFiles != null) {
-                for (File file : allFiles) {
-                    if (file.isFile() && file.getName().toLowerCase().endsWith(".pdf")) {
-                        // 验证PDF文件有效性
-                        if (isValidPDFFile(file.getAbsolutePath())) {
-                            downloadedBooks.add(file);
-                            Log.d(TAG, "Added valid book: " + file.getName() + " (" + file.length() + " bytes)");
-                        } else {
-                            Log.w(TAG, "Skipped invalid PDF file: " + file.getName());
-                        }
-                    }
+        if (bookLibrary.isLoaded()) {
+            onLibraryChanged(bookLibrary.getBooks());
+        } else {
+            pageInfoTextView.setText("正在加载书架...");
+        }
+        
+        bookLibrary.reconcile(getDownloadDir(), () -> {
+            // 如果核对后仍没有已下载的书籍，创建示例书籍（只尝试一次）
+            if (!exampleBooksChecked && !isFinishing()) {
+                exampleBooksChecked = true;
+                if (downloadedBooks.isEmpty()) {
+                    copyExampleBooks();
                 }
-            } else {
-                Log.w(TAG, "No files found in download directory or directory is not accessible");
             }
-            
-            Log.d(TAG, "Found " + downloadedBooks.size() + " valid books");
-            
-            // 更新UI
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    downloadedBookAdapter.notifyDataSetChanged();
-                    
-                    if (downloadedBooks.size() > 0) {
-                        pageInfoTextView.setText(String.format("共找到 %d 本已下载的书籍", downloadedBooks.size()));
-                    } else {
-                        pageInfoTextView.setText("暂无已下载的书籍");
-                    }
-                }
-            });
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error loading downloaded books", e);
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    Toast.makeText(BookDetailActivity.this, "加载已下载书籍时出错：" + e.getMessage(), Toast.LENGTH_LONG).show();
-                    pageInfoTextView.setText("加载书籍列表失败");
-                }
-            });
+        });
+    }
+    
+    // 书架索引读入、核对或增删书籍后在主线程回调
+    private void onLibraryChanged(List<LibraryBook> books) {
+        downloadedBooks.clear();
+        downloadedBooks.addAll(books);
+        downloadedBookAdapter.notifyDataSetChanged();
+        updateBookCountInfo();
+        Log.d(TAG, "Library has " + downloadedBooks.size() + " books");
+        
+        // 继续上次中断的索引，已完成的书籍会直接跳过
+        List<File> files = new ArrayList<>(books.size());
+        for (LibraryBook libraryBook : books) {
+            files.add(new File(libraryBook.getPath()));
+        }
+        BookIndexer.getInstance(this).enqueueAll(files);
+    }
+    
+    private void updateBookCountInfo() {
+        if (downloadedBooks.size() > 0) {
+            pageInfoTextView.setText(String.format("共找到 %d 本已下载的书籍", downloadedBooks.size()));
+        } else {
+            pageInfoTextView.setText("暂无已下载的书籍");
         }
     }
     
     private void copyExampleBooks() {
         Log.d(TAG, "Creating example books");
-        
-        File downloadDir = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "books");
+        new Thread(this::createExampleBooks).start();
+    }
+    
+    // 在后台线程生成示例PDF，完成后重新核对书架
+    private void createExampleBooks() {
+        File downloadDir = getDownloadDir();
         if (!downloadDir.exists()) {
             downloadDir.mkdirs();
         }
@@ -1151,8 +812,8 @@ public class BookDetailActivity extends AppCompatActivity {
             }
         }
         
-        // 重新加载已下载的书籍
-        loadDownloadedBooks();
+        // 重新核对书架，新生成的示例书籍会加入索引
+        bookLibrary.reconcile(downloadDir, null);
     }
     
     @Override
@@ -1202,17 +863,18 @@ public class BookDetailActivity extends AppCompatActivity {
     
     private void deleteBook(File bookFile, int position) {
         try {
+            BookIndexer.getInstance(this).remove(bookFile);
+            PdfThumbnailCache.getInstance(this).delete(bookFile);
             if (bookFile.delete()) {
+                BookmarkManager.getInstance(this).clearBookmarks(bookFile.getAbsolutePath());
+                // 先从列表移除，书架索引随后的变化通知会得到相同的列表
                 downloadedBooks.remove(position);
                 downloadedBookAdapter.notifyItemRemoved(position);
                 downloadedBookAdapter.notifyItemRangeChanged(position, downloadedBooks.size());
+                bookLibrary.removeBook(bookFile);
                 
                 // 更新页面信息
-                if (downloadedBooks.size() > 0) {
-                    pageInfoTextView.setText(String.format("共找到 %d 本已下载的书籍", downloadedBooks.size()));
-                } else {
-                    pageInfoTextView.setText("暂无已下载的书籍");
-                }
+                updateBookCountInfo();
                 
                 Toast.makeText(this, "删除成功", Toast.LENGTH_SHORT).show();
             } else {
@@ -1251,8 +913,11 @@ public class BookDetailActivity extends AppCompatActivity {
                     // 设置书籍的PDF文件路径
                     book.setPdfFilePath(pdfFile.getAbsolutePath());
                     
-                    // 重新加载已下载书籍列表
-                    loadDownloadedBooks();
+                    // 后台建立全文索引，阅读时渲染页面会自动暂停
+                    BookIndexer.getInstance(BookDetailActivity.this).enqueue(pdfFile);
+                    
+                    // 加入书架索引，校验完成后列表自动刷新
+                    bookLibrary.addBook(pdfFile);
                     
                     // 打开PDF阅读器
                     openPDFReader(pdfFile.getAbsolutePath(), book.getName());
@@ -1584,5 +1249,11 @@ public class BookDetailActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        bookLibrary.removeListener(libraryListener);
+        if (currentDownloadTask != null) {
+            // 取消后下载器不再回调，已下载的分段保留用于续传
+            currentDownloadTask.cancel();
+            currentDownloadTask = null;
+        }
     }
 }
\ No newline at end of file
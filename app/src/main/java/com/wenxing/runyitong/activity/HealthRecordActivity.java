@@ -1,7 +1,6 @@
 package com.wenxing.runyitong.activity;
 
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.MenuItem;
@@ -24,6 +23,8 @@ import com.wenxing.runyitong.model.PhysicalExamReport;
 import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.network.ApiFutures;
+import com.wenxing.runyitong.utils.SessionStore;
 import retrofit2.Call;
 
 import java.util.ArrayList;
@@ -31,6 +32,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 健康档案Activity
@@ -547,10 +550,8 @@ public class HealthRecordActivity extends AppCompatActivity {
             android.util.Log.d(TAG, "Retrieved user ID: " + userId);
             
             // 添加额外的日志来检查access_token是否存在
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            String accessToken = sharedPreferences.getString("access_token", null);
+            final String accessToken = SessionStore.getInstance().getAccessToken();
             android.util.Log.d(TAG, "Access token exists: " + (accessToken != null ? "Yes" : "No"));
-            android.util.Log.d(TAG, "Access token length: " + (accessToken != null ? accessToken.length() : 0));
             
             if (userId <= 0) {
                 android.util.Log.e(TAG, "User is not logged in or invalid user ID: " + userId);
@@ -595,88 +596,87 @@ public class HealthRecordActivity extends AppCompatActivity {
             
             android.util.Log.d(TAG, "ApiService is available, making API call");
             
-            // 使用API服务获取健康档案数据
-            Call<ApiResponse<HealthRecord>> call = apiService.getHealthRecord(userId);
-            android.util.Log.d(TAG, "API call created: " + call.request().url());
-            android.util.Log.d(TAG, "API call headers before interceptor: " + call.request().headers());
-            
-            call.enqueue(new retrofit2.Callback<ApiResponse<HealthRecord>>() {
-                @Override
-                public void onResponse(Call<ApiResponse<HealthRecord>> call, retrofit2.Response<ApiResponse<HealthRecord>> response) {
-                    try {
-                        android.util.Log.d(TAG, "API call onResponse executed");
-                        android.util.Log.d(TAG, "Response code: " + response.code());
-                        android.util.Log.d(TAG, "Response headers: " + response.headers());
-                        
-                        if (response.isSuccessful() && response.body() != null) {
-                            // 成功获取健康档案数据
-                            ApiResponse<HealthRecord> apiResponse = response.body();
-                            if(apiResponse.isSuccess() && apiResponse.getData() != null){
-                                currentHealthRecord = apiResponse.getData();
-                                android.util.Log.d(TAG, "Health record data successfully retrieved");
-                                updateHealthRecordUI();
-
-                                // 接着获取体检报告列表
-                                getPhysicalExamReports(userId);
-                            } else {
-                                android.util.Log.e(TAG, "API response success is false or data is null. Success: " + 
-                                        apiResponse.isSuccess() + ", Message: " + apiResponse.getMessage());
-                                loadMockData();
-                            }
+            // 健康档案与体检报告互不依赖，同时发起两个请求，页面销毁时自动取消
+            final CompletableFuture<retrofit2.Response<ApiResponse<List<PhysicalExamReport>>>> examsFuture =
+                    ApiFutures.bindTo(this, apiService.getPhysicalExamReportsAsync(userId, 0, 100));
+            CompletableFuture<retrofit2.Response<ApiResponse<HealthRecord>>> recordFuture =
+                    ApiFutures.bindTo(this, apiService.getHealthRecordAsync(userId));
+            android.util.Log.d(TAG, "Health record and physical exam requests started in parallel");
+            
+            recordFuture.whenComplete((response, t) -> {
+                if (t != null) {
+                    examsFuture.cancel(true);
+                    if (t instanceof CancellationException) {
+                        return;
+                    }
+                    android.util.Log.e(TAG, "Failed to call getHealthRecord API", t);
+                    android.util.Log.e(TAG, "Failure cause: " + (t.getCause() != null ? t.getCause().getMessage() : "Unknown"));
+                    android.util.Log.e(TAG, "Failure message: " + t.getMessage());
+                    
+                    // 网络请求失败，加载模拟数据作为备选
+                    loadMockData();
+                    return;
+                }
+                boolean recordLoaded = false;
+                try {
+                    android.util.Log.d(TAG, "Health record response received");
+                    android.util.Log.d(TAG, "Response code: " + response.code());
+                    
+                    if (response.isSuccessful() && response.body() != null) {
+                        // 成功获取健康档案数据
+                        ApiResponse<HealthRecord> apiResponse = response.body();
+                        if(apiResponse.isSuccess() && apiResponse.getData() != null){
+                            currentHealthRecord = apiResponse.getData();
+                            android.util.Log.d(TAG, "Health record data successfully retrieved");
+                            updateHealthRecordUI();
+                            recordLoaded = true;
 
+                            // 体检报告请求已在并发进行，完成后更新列表
+                            examsFuture.whenComplete(this::onPhysicalExamReportsLoaded);
                         } else {
-                            // API调用成功但返回了错误
-                            String errorMsg = "获取健康档案失败: " + (response.body() != null ? response.body().getMessage() : "未知错误");
-                            android.util.Log.e(TAG, errorMsg);
-                            if (response.errorBody() != null) {
-                                try {
-                                    android.util.Log.e(TAG, "Response error body: " + response.errorBody().string());
-                                } catch (java.io.IOException e) {
-                                    android.util.Log.e(TAG, "Failed to read error body", e);
-                                }
-                            }
-                            
-                            // 特别处理401错误
-                            if (response.code() == 401) {
-                                android.util.Log.e(TAG, "401 Unauthorized error detected. Possible reasons: token invalid/expired or user ID mismatch");
-                                android.util.Log.e(TAG, "Requesting user ID: " + userId);
-                                android.util.Log.e(TAG, "Access token exists: " + (accessToken != null ? "Yes" : "No"));
-                                
-                                // 清除可能无效的token并提示用户重新登录
-                                final SharedPreferences.Editor editor = sharedPreferences.edit();
-                                editor.remove("access_token");
-                                editor.apply();
+                            android.util.Log.e(TAG, "API response success is false or data is null. Success: " + 
+                                    apiResponse.isSuccess() + ", Message: " + apiResponse.getMessage());
+                            loadMockData();
+                        }
+
+                    } else {
+                        // API调用成功但返回了错误
+                        String errorMsg = "获取健康档案失败: " + (response.body() != null ? response.body().getMessage() : "未知错误");
+                        android.util.Log.e(TAG, errorMsg);
+                        if (response.errorBody() != null) {
+                            try {
+                                android.util.Log.e(TAG, "Response error body: " + response.errorBody().string());
+                            } catch (java.io.IOException e) {
+                                android.util.Log.e(TAG, "Failed to read error body", e);
                             }
+                        }
+                        
+                        // 特别处理401错误
+                        if (response.code() == 401) {
+                            android.util.Log.e(TAG, "401 Unauthorized error detected. Possible reasons: token invalid/expired or user ID mismatch");
+                            android.util.Log.e(TAG, "Requesting user ID: " + userId);
+                            android.util.Log.e(TAG, "Access token exists: " + (accessToken != null ? "Yes" : "No"));
                             
-                            // 加载模拟数据作为备选
-                            loadMockData();
+                            // 过期的token已由SessionAuthenticator统一清除并提示重新登录
                         }
-                    } catch (Exception e) {
-                        android.util.Log.e(TAG, "Error processing health record response", e);
+                        
                         // 加载模拟数据作为备选
                         loadMockData();
-                    } finally {
-                        // 确保隐藏加载状态
-                        runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                showLoading(false);
-                                if (swipeRefreshLayout != null) {
-                                    swipeRefreshLayout.setRefreshing(false);
-                                }
-                            }
-                        });
                     }
-                }
-                
-                @Override
-                public void onFailure(Call<ApiResponse<HealthRecord>> call, Throwable t) {
-                    android.util.Log.e(TAG, "Failed to call getHealthRecord API", t);
-                    android.util.Log.e(TAG, "Failure cause: " + (t.getCause() != null ? t.getCause().getMessage() : "Unknown"));
-                    android.util.Log.e(TAG, "Failure message: " + t.getMessage());
-                    
-                    // 网络请求失败，加载模拟数据作为备选
+                } catch (Exception e) {
+                    android.util.Log.e(TAG, "Error processing health record response", e);
+                    // 加载模拟数据作为备选
                     loadMockData();
+                } finally {
+                    if (!recordLoaded) {
+                        // 健康档案未加载成功时显示的是模拟数据，不再使用体检报告结果
+                        examsFuture.cancel(true);
+                    }
+                    // 确保隐藏加载状态
+                    showLoading(false);
+                    if (swipeRefreshLayout != null) {
+                        swipeRefreshLayout.setRefreshing(false);
+                    }
                 }
             });
         } catch (Exception e) {
@@ -696,107 +696,47 @@ public class HealthRecordActivity extends AppCompatActivity {
     }
     
     /**
-     * 获取体检报告列表
+     * 处理体检报告列表请求结果
      */
-    private void getPhysicalExamReports(int userId) {
+    private void onPhysicalExamReportsLoaded(retrofit2.Response<ApiResponse<List<PhysicalExamReport>>> response, Throwable t) {
+        if (t instanceof CancellationException || isFinishing() || isDestroyed()) {
+            return;
+        }
+        if (t != null) {
+            android.util.Log.e(TAG, "Failed to call getPhysicalExamReports API", t);
+            android.util.Log.e(TAG, "Failure message: " + t.getMessage());
+            // 网络请求失败，更新UI
+            updatePhysicalExamList();
+            return;
+        }
         try {
-            if (isFinishing() || isDestroyed()) {
-                android.util.Log.w(TAG, "Activity is finishing or destroyed, cannot get physical exam reports");
-                return;
-            }
-            
-            android.util.Log.d(TAG, "Getting physical exam reports for user ID: " + userId);
-            
-            // 获取SharedPreferences检查access_token
-            final SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            final String accessToken = sharedPreferences.getString("access_token", null);
-            
-            if (apiService == null) {
-                apiService = ApiClient.getApiService();
-                if (apiService == null) {
-                    android.util.Log.e(TAG, "ApiService is null after initialization, cannot call API for physical exam reports");
-                    updatePhysicalExamList();
-                    return;
-                }
-            }
-            
-            Call<ApiResponse<List<PhysicalExamReport>>> call = apiService.getPhysicalExamReports(userId, 0, 100);
-            android.util.Log.d(TAG, "API call created for physical exam reports: " + call.request().url());
-            android.util.Log.d(TAG, "API call headers before interceptor: " + call.request().headers());
-            
-            call.enqueue(new retrofit2.Callback<ApiResponse<List<PhysicalExamReport>>>() {
-                @Override
-                public void onResponse(Call<ApiResponse<List<PhysicalExamReport>>> call, retrofit2.Response<ApiResponse<List<PhysicalExamReport>>> response) {
+            android.util.Log.d(TAG, "Physical exam reports response code: " + response.code());
+            
+            // 清空现有列表
+            physicalExamList.clear();
+             
+            if (response.isSuccessful() && response.body() != null && response.body().isSuccess() && response.body().getData() != null) {
+                // 成功获取体检报告列表
+                physicalExamList.addAll(response.body().getData());
+                android.util.Log.d(TAG, "Successfully retrieved " + physicalExamList.size() + " physical exam reports");
+            } else {
+                // API调用成功但返回了错误
+                String errorMsg = "获取体检报告失败: " + (response.body() != null ? response.body().getMessage() : "未知错误");
+                android.util.Log.e(TAG, errorMsg);
+                
+                if (response.errorBody() != null) {
                     try {
-                        android.util.Log.d(TAG, "API call for physical exam reports onResponse executed");
-                        android.util.Log.d(TAG, "Response code: " + response.code());
-                        android.util.Log.d(TAG, "Response headers: " + response.headers());
-                        
-                        // 清空现有列表
-                        physicalExamList.clear();
-                         
-                        if (response.isSuccessful() && response.body() != null && response.body().isSuccess() && response.body().getData() != null) {
-                            // 成功获取体检报告列表
-                            physicalExamList.addAll(response.body().getData());
-                            updatePhysicalExamList();
-                            android.util.Log.d(TAG, "Successfully retrieved " + physicalExamList.size() + " physical exam reports");
-                        } else {
-                            // API调用成功但返回了错误
-                            String errorMsg = "获取体检报告失败: " + (response.body() != null ? response.body().getMessage() : "未知错误");
-                            android.util.Log.e(TAG, errorMsg);
-                            
-                            if (response.errorBody() != null) {
-                                try {
-                                    android.util.Log.e(TAG, "Response error body: " + response.errorBody().string());
-                                } catch (java.io.IOException e) {
-                                    android.util.Log.e(TAG, "Failed to read error body", e);
-                                }
-                            }
-                            
-                            // 特别处理401错误
-//                            if (response.code() == 401) {
-//                                android.util.Log.e(TAG, "401 Unauthorized error detected in physical exam reports request");
-//                                android.util.Log.e(TAG, "Requesting user ID: " + userId);
-//                                android.util.Log.e(TAG, "Access token exists: " + (accessToken != null ? "Yes" : "No"));
-//
-//                                // 清除可能无效的token
-//                                final SharedPreferences.Editor editor = sharedPreferences.edit();
-//                                editor.remove("access_token");
-//                                editor.apply();
-//
-//                                // 在主线程中提示用户重新登录
-//                                runOnUiThread(new Runnable() {
-//                                    @Override
-//                                    public void run() {
-//                                        showErrorMessage("认证失败，请重新登录");
-//                                    }
-//                                });
-//                            }
-                        }
-                         
-                        // 更新UI
-                        updatePhysicalExamList();
-                    } catch (Exception e) {
-                        android.util.Log.e(TAG, "Error processing physical exam reports response", e);
-                        // 更新UI
-                        updatePhysicalExamList();
+                        android.util.Log.e(TAG, "Response error body: " + response.errorBody().string());
+                    } catch (java.io.IOException e) {
+                        android.util.Log.e(TAG, "Failed to read error body", e);
                     }
                 }
-                 
-                @Override
-                public void onFailure(Call<ApiResponse<List<PhysicalExamReport>>> call, Throwable t) {
-                    android.util.Log.e(TAG, "Failed to call getPhysicalExamReports API", t);
-                    android.util.Log.e(TAG, "Failure cause: " + (t.getCause() != null ? t.getCause().getMessage() : "Unknown"));
-                    android.util.Log.e(TAG, "Failure message: " + t.getMessage());
-                    // 网络请求失败，更新UI
-                    updatePhysicalExamList();
-                }
-            });
+            }
         } catch (Exception e) {
-            android.util.Log.e(TAG, "Error getting physical exam reports", e);
-            // 更新UI
-            updatePhysicalExamList();
+            android.util.Log.e(TAG, "Error processing physical exam reports response", e);
         }
+        // 更新UI
+        updatePhysicalExamList();
     }
     
     /**
@@ -1070,8 +1010,7 @@ public class HealthRecordActivity extends AppCompatActivity {
             }
             
             // 检查access_token是否存在
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            String accessToken = sharedPreferences.getString("access_token", null);
+            String accessToken = SessionStore.getInstance().getAccessToken();
             android.util.Log.d(TAG, "Access token exists before API call: " + (accessToken != null ? "Yes" : "No"));
             
             // 检查apiService是否初始化成功
@@ -1442,8 +1381,6 @@ public class HealthRecordActivity extends AppCompatActivity {
      * @return 用户ID，如果未登录则返回-1
      */
     private int getCurrentUserId() {
-        // 从SharedPreferences获取用户ID
-        SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-        return sharedPreferences.getInt("user_id", -1);
+        return SessionStore.getInstance().getUserId();
     }
 }
\ No newline at end of file
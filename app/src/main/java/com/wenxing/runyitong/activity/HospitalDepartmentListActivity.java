@@ -30,6 +30,8 @@ import com.wenxing.runyitong.model.Doctor;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.wenxing.runyitong.network.CallScope;
+
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -75,6 +77,8 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
 
     // API服务
     private ApiService apiService;
+    // 页面请求作用域，页面关闭时取消未完成的请求
+    private final CallScope callScope = new CallScope();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -221,7 +225,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
             return;
         }
 
-        apiService.getHospitalDepartments(hospitalId).enqueue(new Callback<ApiResponse<DepartmentListResponse>>() {
+        callScope.track(apiService.getHospitalDepartments(hospitalId)).enqueue(new Callback<ApiResponse<DepartmentListResponse>>() {
             @Override
             public void onResponse(Call<ApiResponse<DepartmentListResponse>> call, Response<ApiResponse<DepartmentListResponse>> response) {
                 showLoading(false);
@@ -265,6 +269,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Call<ApiResponse<DepartmentListResponse>> call, Throwable t) {
+                if (call.isCanceled()) return;
                 showLoading(false);
                 Log.e(TAG, "网络错误：" + t.getMessage());
                 showError("网络错误：" + t.getMessage());
@@ -300,7 +305,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
             return;
         }
 
-        apiService.getDoctors(departmentId, hospitalId).enqueue(new Callback<ApiResponse<DoctorListResponse>>() {
+        callScope.track(apiService.getDoctors(departmentId, hospitalId)).enqueue(new Callback<ApiResponse<DoctorListResponse>>() {
             @Override
             public void onResponse(Call<ApiResponse<DoctorListResponse>> call, Response<ApiResponse<DoctorListResponse>> response) {
                 showLoading(false);
@@ -355,6 +360,7 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
 
             @Override
             public void onFailure(Call<ApiResponse<DoctorListResponse>> call, Throwable t) {
+                if (call.isCanceled()) return;
                 showLoading(false);
                 Log.e(TAG, "网络错误：" + t.getMessage());
                 showError("网络错误：" + t.getMessage());
@@ -392,6 +398,12 @@ public class HospitalDepartmentListActivity extends AppCompatActivity {
         progressBar.setVisibility(View.GONE);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        callScope.cancelAll();
+    }
+
     // 清除登录状态
     private void clearLoginState() {
         try {
@@ -42,6 +42,7 @@ import com.wenxing.runyitong.utils.SecurityManager;
 import com.wenxing.runyitong.utils.ErrorHandlingManager;
 import com.wenxing.runyitong.utils.PerformanceManager;
 import com.wenxing.runyitong.utils.AccessibilityManager;
+import com.wenxing.runyitong.utils.SessionStore;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -1659,34 +1660,19 @@ public class LoginActivity extends AppCompatActivity {
     }
     
     /**
-     * 保存登录状态到SharedPreferences
+     * 保存登录状态到会话存储
      */
     private void saveLoginState(boolean isLoggedIn, String username) {
-        if (sharedPreferences != null) {
-            sharedPreferences.edit()
-                    .putBoolean(KEY_IS_LOGGED_IN, isLoggedIn)
-                    .putString(KEY_USERNAME, username)
-                    .apply();
-            Log.d("LoginActivity", "登录状态已保存: " + isLoggedIn + ", 用户名: " + username);
-        }
+        SessionStore.getInstance().setLoginState(isLoggedIn, username);
+        Log.d("LoginActivity", "登录状态已保存: " + isLoggedIn + ", 用户名: " + username);
     }
     
     /**
-     * 保存用户详细信息到SharedPreferences
+     * 保存用户详细信息到会话存储
      */
     private void saveUserInfo(LoginResponse loginData) {
-        if (sharedPreferences != null && loginData != null) {
-            sharedPreferences.edit()
-                    .putInt("user_id", loginData.getUserId())
-                    .putString("username", loginData.getUsername())
-                    .putString("email", loginData.getEmail())
-                    .putString("full_name", loginData.getFullName())
-                    .putString("phone", loginData.getPhone())
-                    .putString("avatar_url", loginData.getAvatarUrl())
-                    .putString("access_token", loginData.getAccessToken())
-                    .putString("token_type", loginData.getTokenType())
-                    .apply();
-            Log.d("LoginActivity", "Token已保存: " + loginData.getAccessToken());
+        if (loginData != null) {
+            SessionStore.getInstance().saveLogin(loginData);
             Log.d("LoginActivity", "用户名已保存: " + loginData.getUsername());
         }
     }
@@ -1,6 +1,5 @@
 package com.wenxing.runyitong.activity;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.MenuItem;
@@ -22,6 +21,7 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.AppointmentListResponse;
+import com.wenxing.runyitong.utils.SessionStore;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -362,11 +362,7 @@ public class MyAppointmentsActivity extends AppCompatActivity {
      */
     private int getCurrentUserId() {
         try {
-            // 从SharedPreferences获取用户ID
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            int userId = sharedPreferences.getInt("user_id", -1);
-            Log.d(TAG, "Retrieved user ID: " + userId);
-            return userId;
+            return SessionStore.getInstance().getUserId();
         } catch (Exception e) {
             Log.e(TAG, "Failed to get current user ID", e);
             return -1;
@@ -378,11 +374,7 @@ public class MyAppointmentsActivity extends AppCompatActivity {
      */
     private void clearLoginState() {
         try {
-            SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            SharedPreferences.Editor editor = sharedPreferences.edit();
-            editor.remove("access_token");
-            editor.remove("user_id");
-            editor.apply();
+            SessionStore.getInstance().logout();
             Log.d(TAG, "Login state and token cleared due to authentication failure");
         } catch (Exception e) {
             Log.e(TAG, "Failed to clear login state", e);
@@ -0,0 +1,93 @@
+package com.wenxing.runyitong.activity;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.FileProvider;
+
+import com.wenxing.runyitong.BuildConfig;
+import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.network.NetworkMetrics;
+
+import java.io.File;
+
+/**
+ * 网络耗时调试页面
+ * 显示各接口分阶段耗时直方图摘要，可重置或导出为文本文件
+ */
+public class NetworkMetricsActivity extends AppCompatActivity {
+
+    private TextView tvReport;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // 页面包含接口地址和耗时，只在调试版开放
+        if (!BuildConfig.DEBUG) {
+            finish();
+            return;
+        }
+        setContentView(R.layout.activity_network_metrics);
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        setSupportActionBar(toolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle("网络耗时统计");
+        }
+
+        tvReport = findViewById(R.id.tv_report);
+        Button btnRefresh = findViewById(R.id.btn_refresh);
+        Button btnReset = findViewById(R.id.btn_reset);
+        Button btnExport = findViewById(R.id.btn_export);
+
+        btnRefresh.setOnClickListener(v -> refresh());
+        btnReset.setOnClickListener(v -> {
+            NetworkMetrics.getInstance().reset();
+            refresh();
+        });
+        btnExport.setOnClickListener(v -> exportReport());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        tvReport.setText(NetworkMetrics.getInstance().buildReport());
+    }
+
+    private void exportReport() {
+        try {
+            File dir = new File(getExternalFilesDir(null), "Downloads");
+            File file = NetworkMetrics.getInstance().exportReport(dir);
+            Uri uri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", file);
+            Intent intent = new Intent(Intent.ACTION_SEND);
+            intent.setType("text/plain");
+            intent.putExtra(Intent.EXTRA_STREAM, uri);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+            startActivity(Intent.createChooser(intent, "导出网络耗时统计"));
+            Toast.makeText(this, "已导出到 " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+        } catch (Exception e) {
+            Toast.makeText(this, "导出失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
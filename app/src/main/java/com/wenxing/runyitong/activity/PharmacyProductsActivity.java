@@ -19,6 +19,7 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ProductListResponse;
 import com.wenxing.runyitong.model.Product;
+import com.wenxing.runyitong.network.CallScope;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +42,8 @@ public class PharmacyProductsActivity extends AppCompatActivity {
     private ProductAdapter productAdapter;
     private List<Product> productList;
     private String pharmacyName;
+    // 页面请求作用域，页面关闭时取消未完成的请求
+    private final CallScope callScope = new CallScope();
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -114,8 +117,8 @@ public class PharmacyProductsActivity extends AppCompatActivity {
         }
         
         // 调用API获取指定药店的商品列表，参数名与ApiService接口保持一致
-        Call<ApiResponse<ProductListResponse>> call = ApiClient.getApiService()
-                .getProductsByPharmacy(pharmacyName);
+        Call<ApiResponse<ProductListResponse>> call = callScope.track(ApiClient.getApiService()
+                .getProductsByPharmacy(pharmacyName));
         
         call.enqueue(new Callback<ApiResponse<ProductListResponse>>() {
             @Override
@@ -152,6 +155,7 @@ public class PharmacyProductsActivity extends AppCompatActivity {
             
             @Override
             public void onFailure(Call<ApiResponse<ProductListResponse>> call, Throwable t) {
+                if (call.isCanceled()) return;
                 if (swipeRefreshLayout != null) {
                     swipeRefreshLayout.setRefreshing(false);
                 }
@@ -162,4 +166,10 @@ public class PharmacyProductsActivity extends AppCompatActivity {
             }
         });
     }
-}
\ No newline at end of file
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        callScope.cancelAll();
+    }
+}
@@ -15,6 +15,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.utils.SecurityManager;
+import com.wenxing.runyitong.utils.SessionStore;
 
 /**
  * 账号与安全设置页面
@@ -140,16 +141,8 @@ public class SecuritySettingsActivity extends AppCompatActivity {
      */
     private void performLogout() {
         try {
-            // 获取SharedPreferences
-            android.content.SharedPreferences sharedPreferences = getSharedPreferences("user_login_state", MODE_PRIVATE);
-            
             // 清除登录状态
-            sharedPreferences.edit()
-                    .putBoolean("is_logged_in", false)
-                    .putString("username", "")
-                    .putInt("user_id", -1)
-                    .putString("access_token", "")
-                    .apply();
+            SessionStore.getInstance().logout();
             
             // 显示退出成功提示
             Toast.makeText(this, "已成功退出登录", Toast.LENGTH_SHORT).show();
@@ -9,6 +9,7 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.cardview.widget.CardView;
+import com.wenxing.runyitong.BuildConfig;
 import com.wenxing.runyitong.R;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -83,6 +84,14 @@ public class SettingsActivity extends AppCompatActivity {
             showAboutDialog();
         });
         
+        // 调试版长按关于我们进入网络耗时统计调试页面，正式版不提供入口
+        if (BuildConfig.DEBUG) {
+            cardAbout.setOnLongClickListener(v -> {
+                startActivity(new Intent(this, NetworkMetricsActivity.class));
+                return true;
+            });
+        }
+        
         // 隐私政策
         cardPrivacy.setOnClickListener(v -> {
             // 打开隐私政策页面
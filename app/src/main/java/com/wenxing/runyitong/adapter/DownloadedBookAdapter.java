@@ -1,6 +1,7 @@
 package com.wenxing.runyitong.adapter;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,6 +12,8 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.model.LibraryBook;
+import com.wenxing.runyitong.pdf.BookLibrary;
 
 import java.io.File;
 import java.text.SimpleDateFormat;
@@ -18,21 +21,27 @@ import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
+/**
+ * 已下载书籍列表，数据来自BookLibrary的书架索引，绑定时不访问文件
+ */
 public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAdapter.DownloadedBookViewHolder> {
     private Context context;
-    private List<File> downloadedBooks;
+    private List<LibraryBook> downloadedBooks;
     private OnBookClickListener onBookClickListener;
+    private final BookLibrary library;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
 
     public interface OnBookClickListener {
         void onBookClick(File bookFile);
         void onBookDelete(File bookFile, int position);
     }
 
-    public DownloadedBookAdapter(Context context, List<File> downloadedBooks) {
+    public DownloadedBookAdapter(Context context, List<LibraryBook> downloadedBooks) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
         }
         this.context = context;
+        this.library = BookLibrary.getInstance(context);
         this.downloadedBooks = downloadedBooks != null ? downloadedBooks : new java.util.ArrayList<>();
     }
 
@@ -50,7 +59,7 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
     }
     
     // 更新书籍列表
-    public void updateBooks(List<File> newBooks) {
+    public void updateBooks(List<LibraryBook> newBooks) {
         if (newBooks == null) {
             this.downloadedBooks = new java.util.ArrayList<>();
         } else {
@@ -60,9 +69,9 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
     }
     
     // 添加单本书籍
-    public void addBook(File bookFile) {
-        if (downloadedBooks != null && bookFile != null && bookFile.exists()) {
-            downloadedBooks.add(bookFile);
+    public void addBook(LibraryBook book) {
+        if (downloadedBooks != null && book != null) {
+            downloadedBooks.add(book);
             notifyItemInserted(downloadedBooks.size() - 1);
         }
     }
@@ -77,7 +86,7 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
     }
     
     // 获取指定位置的书籍
-    public File getBook(int position) {
+    public LibraryBook getBook(int position) {
         if (downloadedBooks != null && position >= 0 && position < downloadedBooks.size()) {
             return downloadedBooks.get(position);
         }
@@ -105,12 +114,13 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
                 return;
             }
             
-            File bookFile = downloadedBooks.get(position);
-            if (bookFile == null || !bookFile.exists()) {
-                android.util.Log.e("DownloadedBookAdapter", "Book file is null or does not exist at position " + position);
+            LibraryBook book = downloadedBooks.get(position);
+            if (book == null || book.getPath() == null) {
+                android.util.Log.e("DownloadedBookAdapter", "Book is null at position " + position);
                 return;
             }
-            android.util.Log.d("DownloadedBookAdapter", "Binding book at position " + position + ": " + bookFile.getName());
+            // 只构造路径对象，不访问文件；文件是否存在由书架索引在后台核对
+            File bookFile = new File(book.getPath());
             
             // 检查ViewHolder的TextView是否为null
             if (holder.bookNameTextView == null) {
@@ -127,25 +137,23 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             }
             
             // 设置书籍名称（去掉.pdf扩展名）
-            String fileName = bookFile.getName();
-            if (fileName.endsWith(".pdf")) {
-                fileName = fileName.substring(0, fileName.length() - 4);
-            }
-            holder.bookNameTextView.setText(fileName);
-            android.util.Log.d("DownloadedBookAdapter", "Set book name: " + fileName);
+            holder.bookNameTextView.setText(book.getName() != null ? book.getName() : LibraryBook.displayName(bookFile.getName()));
             
-            // 设置文件大小
-            long fileSize = bookFile.length();
-            String fileSizeText = formatFileSize(fileSize);
+            // 设置文件大小和页数
+            String fileSizeText = formatFileSize(book.getFileSize());
+            if (book.getPageCount() > 0) {
+                fileSizeText += " · " + book.getPageCount() + " 页";
+            }
             holder.fileSizeTextView.setText(fileSizeText);
-            android.util.Log.d("DownloadedBookAdapter", "Set file size: " + fileSizeText);
             
-            // 设置下载时间（文件修改时间）
-            long lastModified = bookFile.lastModified();
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
-            String downloadTime = sdf.format(new Date(lastModified));
-            holder.downloadTimeTextView.setText("下载时间: " + downloadTime);
-            android.util.Log.d("DownloadedBookAdapter", "Set download time: " + downloadTime);
+            // 读过的书显示阅读进度，否则显示下载时间（加入书架时的文件修改时间）
+            if (book.hasReadProgress()) {
+                holder.downloadTimeTextView.setText("读到第 " + (book.getLastReadPage() + 1) + " 页");
+            } else {
+                holder.downloadTimeTextView.setText("下载时间: " + dateFormat.format(new Date(book.getAddedTime())));
+            }
+            
+            bindCover(holder, book);
             
             // 确保卡片可见
             holder.itemView.setVisibility(android.view.View.VISIBLE);
@@ -153,7 +161,7 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             // 设置打开按钮点击事件
             if (holder.openButton != null) {
                 holder.openButton.setOnClickListener(v -> {
-                    if (onBookClickListener != null && bookFile != null && bookFile.exists()) {
+                    if (onBookClickListener != null) {
                         onBookClickListener.onBookClick(bookFile);
                     }
                 });
@@ -172,13 +180,11 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             
             // 保留整个item的点击事件（用于打开书籍）
             holder.itemView.setOnClickListener(v -> {
-                if (onBookClickListener != null && bookFile != null && bookFile.exists()) {
+                if (onBookClickListener != null) {
                     onBookClickListener.onBookClick(bookFile);
                 }
             });
             
-            android.util.Log.d("DownloadedBookAdapter", "Successfully bound book at position " + position);
-            
         } catch (Exception e) {
             android.util.Log.e("DownloadedBookAdapter", "Error binding book at position " + position, e);
         }
@@ -189,6 +195,41 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
         return downloadedBooks != null ? downloadedBooks.size() : 0;
     }
 
+    // 封面先查内存，未命中时先显示默认图标，后台解码完成后替换
+    private void bindCover(DownloadedBookViewHolder holder, LibraryBook book) {
+        if (holder.bookIconImageView == null) {
+            return;
+        }
+        holder.boundPath = book.getPath();
+        Bitmap cover = library.getCoverFromMemory(book);
+        if (cover != null) {
+            showCover(holder, cover);
+            return;
+        }
+        showPlaceholder(holder);
+        if (book.getCoverPath() == null) {
+            return;
+        }
+        library.loadCover(book, (loadedBook, loadedCover) -> {
+            // 条目可能已被复用到其他书籍
+            if (loadedCover != null && loadedBook.getPath().equals(holder.boundPath)) {
+                showCover(holder, loadedCover);
+            }
+        });
+    }
+
+    private void showCover(DownloadedBookViewHolder holder, Bitmap cover) {
+        holder.bookIconImageView.setImageTintList(null);
+        holder.bookIconImageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
+        holder.bookIconImageView.setImageBitmap(cover);
+    }
+
+    private void showPlaceholder(DownloadedBookViewHolder holder) {
+        holder.bookIconImageView.setImageTintList(holder.placeholderTint);
+        holder.bookIconImageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+        holder.bookIconImageView.setImageResource(R.drawable.ic_book_placeholder);
+    }
+
     private String formatFileSize(long bytes) {
         if (bytes < 1024) {
             return bytes + " B";
@@ -206,6 +247,10 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
         TextView downloadTimeTextView;
         ImageView deleteButton;
         ImageView openButton;
+        // 布局中默认图标的着色，显示封面时去掉
+        android.content.res.ColorStateList placeholderTint;
+        // 当前绑定的书籍路径，用于丢弃过期的封面回调
+        String boundPath;
 
         public DownloadedBookViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -217,6 +262,9 @@ public class DownloadedBookAdapter extends RecyclerView.Adapter<DownloadedBookAd
             downloadTimeTextView = itemView.findViewById(R.id.download_time);
             deleteButton = itemView.findViewById(R.id.delete_button);
             openButton = itemView.findViewById(R.id.open_button);
+            if (bookIconImageView != null) {
+                placeholderTint = bookIconImageView.getImageTintList();
+            }
             
             // 检查所有View是否找到
             android.util.Log.d("DownloadedBookAdapter", "bookIconImageView: " + (bookIconImageView != null ? "found" : "NULL"));
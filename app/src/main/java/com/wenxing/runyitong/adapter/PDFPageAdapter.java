@@ -3,17 +3,19 @@ package com.wenxing.runyitong.adapter;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.pdf.PdfRenderer;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.AccelerateDecelerateInterpolator;
-import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -23,24 +25,65 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.wenxing.runyitong.R;
 import com.wenxing.runyitong.model.PDFPageModel;
+import com.wenxing.runyitong.pdf.PageBitmapCache;
+import com.wenxing.runyitong.pdf.PdfRenderScheduler;
+import com.wenxing.runyitong.pdf.PdfThumbnailCache;
+import com.wenxing.runyitong.pdf.PdfTileRenderer;
+import com.wenxing.runyitong.pdf.TiledPageView;
+import com.wenxing.runyitong.utils.BookmarkManager;
 import com.wenxing.runyitong.utils.PDFSearchUtils;
 import com.wenxing.runyitong.utils.PDFZoomUtils;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageViewHolder> {
     private static final String TAG = "PDFPageAdapter";
     private static final int BITMAP_QUALITY = 85;
     private static final float DEFAULT_ZOOM = 1.0f;
     private static final int ANIMATION_DURATION = 300;
+    // 底图最大宽度：底图只作为图块未就绪时的占位，放大后的清晰内容由图块提供
+    private static final int BASE_MAX_WIDTH = 1024;
+    private static final int BASE_MAX_HEIGHT = 2048;
+    // 预加载当前页前后各1页；距离当前页超过4页的预加载视为过期
+    private static final int PREFETCH_DISTANCE = 1;
+    private static final int STALE_PREFETCH_DISTANCE = 4;
+    // 预览图为底图的1/4，先显示预览再替换为完整底图
+    private static final int PREVIEW_SCALE = 4;
+    // 渲染结果的局部刷新：带payload时RecyclerView复用同一个ViewHolder，替换底图不会触发交叉淡入
+    private static final Object PAYLOAD_RENDER_STATE = new Object();
+    // 缩放确定后的局部刷新：只更新页面视图的缩放，不重新绑定页面内容
+    private static final Object PAYLOAD_ZOOM = new Object();
+    // 缩放停止变化后等待的时间，期间连续的缩放合并为一次图块渲染
+    private static final long ZOOM_SETTLE_DELAY_MS = 150;
     
     private Context context;
     private List<PDFPageModel> pages;
     private PdfRenderer pdfRenderer;
-    private ExecutorService executorService;
+    private PdfRenderScheduler renderScheduler;
+    private PdfTileRenderer tileRenderer;
+    // 页面底图和图块的共享缓存，documentKey区分不同文档
+    private final PageBitmapCache bitmapCache;
+    private String documentKey;
+    // 磁盘缩略图缓存，按文件指纹区分文档；未设置文档文件时不使用
+    private final PdfThumbnailCache thumbnailCache;
+    private String thumbnailKey;
+    // 书签存储；bookmarkedPages为当前文档有书签的页码，绑定时只查此位图，未设置文档文件时为空
+    private final BookmarkManager bookmarkManager;
+    private String bookmarkPath;
+    private BitSet bookmarkedPages = new BitSet();
+    // 各页面尚未完成的底图渲染任务，只在主线程访问
+    private final Map<Integer, PdfRenderScheduler.RenderTask<PageRenderResult>> renderTasks = new HashMap<>();
+    // 各页面尚未完成的预览渲染任务，只在主线程访问
+    private final Map<Integer, PdfRenderScheduler.RenderTask<PageRenderResult>> previewTasks = new HashMap<>();
     private Handler mainHandler;
     private OnPageClickListener onPageClickListener;
     
@@ -51,6 +94,12 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     private OnPageLongClickListener onPageLongClickListener;
     private float currentZoom = DEFAULT_ZOOM;
     private boolean isZoomEnabled = true;
+    // 尚未确定的缩放，等待ZOOM_SETTLE_DELAY_MS后生效
+    private float pendingZoom = DEFAULT_ZOOM;
+    private final Runnable zoomSettleRunnable = this::commitPendingZoom;
+    // 已附加到列表的ViewHolder，缩放手势进行中直接变换这些页面
+    private final Set<PDFPageViewHolder> attachedHolders = new HashSet<>();
+    private ScaleGestureDetector scaleGestureDetector;
     
     // 接口定义
     public interface OnPageClickListener {
@@ -69,12 +118,15 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.context = context;
         this.pdfRenderer = pdfRenderer;
         this.pages = new ArrayList<>();
-        this.executorService = Executors.newFixedThreadPool(3); // 限制并发线程数
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.bitmapCache = PageBitmapCache.getInstance(context);
+        this.thumbnailCache = PdfThumbnailCache.getInstance(context);
+        this.bookmarkManager = BookmarkManager.getInstance(context);
         this.searchResults = new ArrayList<>();
         
         // 如果pdfRenderer不为空，立即初始化页面
         if (pdfRenderer != null) {
+            createRenderers(pdfRenderer);
             initializePages();
         }
         
@@ -90,8 +142,10 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.context = context;
         this.pdfRenderer = null; // 稍后通过setPdfRenderer设置
         this.pages = pages != null ? new ArrayList<>(pages) : new ArrayList<>();
-        this.executorService = Executors.newFixedThreadPool(3);
         this.mainHandler = new Handler(Looper.getMainLooper());
+        this.bitmapCache = PageBitmapCache.getInstance(context);
+        this.thumbnailCache = PdfThumbnailCache.getInstance(context);
+        this.bookmarkManager = BookmarkManager.getInstance(context);
         this.searchResults = new ArrayList<>();
         
         Log.d(TAG, "PDFPageAdapter 构造完成，页面数: " + this.pages.size());
@@ -160,6 +214,99 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         holder.bind(page, position);
     }
     
+    @Override
+    public void onBindViewHolder(@NonNull PDFPageViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !onlyZoomPayloads(payloads)) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        holder.applyZoom();
+    }
+    
+    private static boolean onlyZoomPayloads(List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_ZOOM) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public void onViewAttachedToWindow(@NonNull PDFPageViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        attachedHolders.add(holder);
+    }
+    
+    @Override
+    public void onViewDetachedFromWindow(@NonNull PDFPageViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        attachedHolders.remove(holder);
+    }
+    
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        scaleGestureDetector = new ScaleGestureDetector(recyclerView.getContext(), scaleGestureListener);
+        recyclerView.addOnItemTouchListener(zoomTouchListener);
+    }
+    
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnItemTouchListener(zoomTouchListener);
+        mainHandler.removeCallbacks(zoomSettleRunnable);
+        attachedHolders.clear();
+        scaleGestureDetector = null;
+    }
+    
+    // 双指缩放：手势开始后由列表拦截触摸事件，避免缩放过程中列表滚动
+    private final RecyclerView.OnItemTouchListener zoomTouchListener = new RecyclerView.OnItemTouchListener() {
+        @Override
+        public boolean onInterceptTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+            if (!isZoomEnabled || scaleGestureDetector == null) {
+                return false;
+            }
+            scaleGestureDetector.onTouchEvent(e);
+            return scaleGestureDetector.isInProgress();
+        }
+        
+        @Override
+        public void onTouchEvent(@NonNull RecyclerView rv, @NonNull MotionEvent e) {
+            if (scaleGestureDetector != null) {
+                scaleGestureDetector.onTouchEvent(e);
+            }
+        }
+        
+        @Override
+        public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        }
+    };
+    
+    private final ScaleGestureDetector.SimpleOnScaleGestureListener scaleGestureListener =
+            new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+        @Override
+        public boolean onScaleBegin(@NonNull ScaleGestureDetector detector) {
+            if (!isZoomEnabled) {
+                return false;
+            }
+            // 上一次缩放尚未确定时在其基础上继续
+            mainHandler.removeCallbacks(zoomSettleRunnable);
+            return true;
+        }
+        
+        @Override
+        public boolean onScale(@NonNull ScaleGestureDetector detector) {
+            setGestureZoom(pendingZoom * detector.getScaleFactor());
+            return true;
+        }
+        
+        @Override
+        public void onScaleEnd(@NonNull ScaleGestureDetector detector) {
+            scheduleZoomCommit();
+        }
+    };
+    
     @Override
     public int getItemCount() {
         return pages != null ? pages.size() : 0;
@@ -168,6 +315,10 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     @Override
     public void onViewRecycled(@NonNull PDFPageViewHolder holder) {
         super.onViewRecycled(holder);
+        // 页面已滑出屏幕，取消尚未开始的渲染
+        if (holder.currentPage != null) {
+            cancelPageRender(holder.currentPage);
+        }
         holder.cleanup();
     }
     
@@ -175,13 +326,15 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     public class PDFPageViewHolder extends RecyclerView.ViewHolder {
         private TextView pageHeaderNumber;
         private TextView pageHeaderSize;
-        private ImageView pageImageView;
+        private TiledPageView pageImageView;
         private ProgressBar loadingProgress;
         private View loadingContainer;
         private View errorContainer;
         private TextView errorMessage;
         private TextView retryButton;
         private View pageOverlay;
+        // 当前显示并pin住的底图缓存键
+        private String pinnedCacheKey;
         
         private PDFPageModel currentPage;
         private int currentPosition;
@@ -224,7 +377,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             // 重试按钮
             retryButton.setOnClickListener(v -> {
                 if (currentPage != null) {
-                    loadPageBitmap(currentPage, currentPosition);
+                    loadPageBitmap(currentPage, currentPosition, PdfRenderScheduler.Priority.VISIBLE);
                 }
             });
         }
@@ -244,16 +397,31 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                     pageHeaderNumber.setText(page.getPageTitle());
                 }
                 
-                // 根据加载状态更新UI
-                updateUIForLoadingState(page.getLoadingState());
+                // 底图已被缓存淘汰时重置为待加载
+                Bitmap cachedBitmap = getCachedBaseBitmap(page);
+                if (cachedBitmap == null && page.getLoadingState() == PDFPageModel.LoadingState.LOADED) {
+                    page.resetLoadingState();
+                }
                 
-                // 如果页面未加载，开始加载
-                if (!page.isLoaded() && !page.isLoading()) {
-                    loadPageBitmap(page, position);
-                } else if (page.isLoaded()) {
-                    displayPageBitmap(page);
+                // 完整底图可用时直接显示；否则依次尝试内存中的预览图、磁盘缩略图，都没有才显示加载状态
+                Bitmap previewBitmap = cachedBitmap == null && !page.hasError() ? getCachedPreviewBitmap(page) : null;
+                Bitmap thumbnail = cachedBitmap == null && previewBitmap == null && !page.hasError()
+                        ? getThumbnail(page) : null;
+                if (cachedBitmap != null && page.getLoadingState() == PDFPageModel.LoadingState.LOADED) {
+                    displayPageBitmap(page, cachedBitmap, false, getBaseCacheKey(page));
+                } else if (previewBitmap != null) {
+                    displayPageBitmap(page, previewBitmap, true, getPreviewCacheKey(page));
+                } else if (thumbnail != null) {
+                    // 缩略图缓存不会复用位图，无需pin
+                    displayPageBitmap(page, thumbnail, true, null);
+                } else {
+                    updateUIForLoadingState(page.getLoadingState());
+                    loadDiskThumbnail(page, position);
                 }
                 
+                // 如果页面未加载，以可见优先级开始加载
+                requestVisiblePage(page, position);
+                
                 // 更新页脚信息
                 updateFooterInfo(page);
             } catch (Exception e) {
@@ -294,6 +462,9 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         private void showContent() {
             loadingContainer.setVisibility(View.GONE);
             errorContainer.setVisibility(View.GONE);
+            if (pageImageView.getVisibility() == View.VISIBLE) {
+                return; // 预览替换为完整底图时不再淡入，避免闪烁
+            }
             pageImageView.setVisibility(View.VISIBLE);
             
             // 添加淡入动画
@@ -317,7 +488,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             }
         }
         
-        private void displayPageBitmap(PDFPageModel page) {
+        private void displayPageBitmap(PDFPageModel page, Bitmap bitmap, boolean preview, String cacheKey) {
             try {
                 if (page == null) {
                     Log.w(TAG, "页面为空，无法显示bitmap");
@@ -325,26 +496,29 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                     return;
                 }
                 
-                Bitmap bitmap = page.getPageBitmap();
                 if (bitmap != null && !bitmap.isRecycled()) {
                     // 验证bitmap尺寸
                     if (bitmap.getWidth() > 0 && bitmap.getHeight() > 0) {
-                        pageImageView.setImageBitmap(bitmap);
+                        // 显示期间pin住缓存项，被淘汰时不会进入复用池被覆盖
+                        pinBaseBitmap(cacheKey);
+                        
+                        // 底图铺满页面，放大时由视图按可见区域叠加高清图块；
+                        // 重新打开文档时页面尺寸未知，先按磁盘缩略图的宽高比显示
+                        boolean sizeKnown = page.getOriginalWidth() > 0 && page.getOriginalHeight() > 0;
+                        page.setZoomLevel(getEffectiveZoom());
+                        pageImageView.setPage(tileRenderer, page.getPageNumber(),
+                                sizeKnown ? page.getOriginalWidth() : bitmap.getWidth(),
+                                sizeKnown ? page.getOriginalHeight() : bitmap.getHeight());
+                        pageImageView.setBaseBitmap(bitmap, preview);
+                        pageImageView.setZoom(page.getZoomLevel());
                         
                         // 更新页面大小信息
-                        if (pageHeaderSize != null) {
-                            String sizeInfo = page.getOriginalWidth() + "×" + page.getOriginalHeight();
-                            if (page.getZoomLevel() != 1.0f) {
-                                sizeInfo += String.format(" (%.1fx)", page.getZoomLevel());
-                            }
-                            pageHeaderSize.setText(sizeInfo);
-                            pageHeaderSize.setVisibility(View.VISIBLE);
-                        }
+                        updateSizeInfo(page);
                         
                         // 显示内容
                         showContent();
                         
-                        Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + " bitmap显示成功");
+                        Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + (preview ? " 预览" : " bitmap") + "显示成功");
                     } else {
                         Log.w(TAG, "页面 " + (page.getPageNumber() + 1) + " bitmap尺寸无效: " + bitmap.getWidth() + "x" + bitmap.getHeight());
                         page.setErrorMessage("图像尺寸无效");
@@ -371,7 +545,11 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             StringBuilder info = new StringBuilder();
             
             if (page.getLoadDuration() > 0) {
-                info.append("加载时间: ").append(page.getLoadDurationString());
+                info.append("加载时间: ");
+                if (page.getPreviewDuration() > 0) {
+                    info.append("预览 ").append(page.getPreviewDuration()).append("ms / 完整 ");
+                }
+                info.append(page.getLoadDurationString());
             }
             
             if (page.getZoomLevel() != 1.0f) {
@@ -379,7 +557,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
                 info.append(String.format("缩放: %.1fx", page.getZoomLevel()));
             }
             
-            if (page.isBookmarked()) {
+            if (page.isBookmarked() || bookmarkedPages.get(page.getPageNumber())) {
                 if (info.length() > 0) info.append(" | ");
                 info.append("★ 已收藏");
             }
@@ -392,20 +570,50 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             }
         }
         
+        private void pinBaseBitmap(String cacheKey) {
+            if (cacheKey != null && cacheKey.equals(pinnedCacheKey)) {
+                return;
+            }
+            if (pinnedCacheKey != null) {
+                bitmapCache.unpin(pinnedCacheKey);
+            }
+            pinnedCacheKey = cacheKey;
+            if (cacheKey != null) {
+                bitmapCache.pin(cacheKey);
+            }
+        }
+        
+        private void updateSizeInfo(PDFPageModel page) {
+            if (pageHeaderSize == null || page.getOriginalWidth() <= 0 || page.getOriginalHeight() <= 0) {
+                return;
+            }
+            String sizeInfo = page.getOriginalWidth() + "×" + page.getOriginalHeight();
+            if (page.getZoomLevel() != 1.0f) {
+                sizeInfo += String.format(" (%.1fx)", page.getZoomLevel());
+            }
+            pageHeaderSize.setText(sizeInfo);
+            pageHeaderSize.setVisibility(View.VISIBLE);
+        }
+        
+        /**
+         * 缩放确定后更新页面，底图不变，只由页面视图按新缩放补齐可见图块
+         */
+        void applyZoom() {
+            float zoom = getEffectiveZoom();
+            pageImageView.setZoom(zoom);
+            if (currentPage != null) {
+                currentPage.setZoomLevel(zoom);
+                updateSizeInfo(currentPage);
+            }
+        }
+        
         public void cleanup() {
             try {
-                // 清理ImageView
+                // 清理页面视图，底图由PageBitmapCache管理，这里只释放引用、解除pin并取消未完成的图块
                 if (pageImageView != null) {
-                    Drawable drawable = pageImageView.getDrawable();
-                    if (drawable instanceof BitmapDrawable) {
-                        Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
-                        if (bitmap != null && !bitmap.isRecycled()) {
-                            // 不在这里回收bitmap，因为它可能被PDFPageModel管理
-                            Log.d(TAG, "清理ViewHolder中的bitmap引用");
-                        }
-                    }
-                    pageImageView.setImageBitmap(null);
+                    pageImageView.clear();
                 }
+                pinBaseBitmap(null);
                 
                 // 停止所有动画
                 if (loadingProgress != null) {
@@ -422,8 +630,8 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         }
     }
     
-    // 加载页面位图
-    private void loadPageBitmap(PDFPageModel page, int position) {
+    // 加载页面位图，按优先级提交到文档的渲染调度器
+    private void loadPageBitmap(PDFPageModel page, int position, PdfRenderScheduler.Priority priority) {
         if (page == null) {
             Log.w(TAG, "页面为空，无法加载");
             return;
@@ -438,13 +646,13 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         }
         
         // 如果页面已经加载或正在加载，跳过
-        if (page.isLoaded() || page.isLoading()) {
+        if (isPageReady(page) || page.isLoading()) {
             return;
         }
         
-        // 检查executorService是否可用
-        if (executorService == null || executorService.isShutdown()) {
-            Log.w(TAG, "ExecutorService不可用，无法加载页面");
+        // 检查渲染调度器是否可用
+        if (renderScheduler == null || renderScheduler.isShutdown()) {
+            Log.w(TAG, "渲染调度器不可用，无法加载页面");
             page.setErrorMessage("服务不可用");
             page.setLoadingState(PDFPageModel.LoadingState.ERROR);
             notifyItemChanged(position);
@@ -452,167 +660,363 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         }
         
         page.setLoadingState(PDFPageModel.LoadingState.LOADING);
-        notifyItemChanged(position);
+        boolean visible = priority == PdfRenderScheduler.Priority.VISIBLE;
+        if (visible) {
+            notifyItemChanged(position, PAYLOAD_RENDER_STATE);
+        }
         
-        executorService.execute(() -> {
-            PdfRenderer.Page pdfPage = null;
-            Bitmap bitmap = null;
-            try {
-                // 检查页面索引是否有效
-                if (page.getPageNumber() < 0 || page.getPageNumber() >= pdfRenderer.getPageCount()) {
-                    throw new IllegalArgumentException("页面索引超出范围: " + page.getPageNumber());
-                }
-                
-                pdfPage = pdfRenderer.openPage(page.getPageNumber());
-                
-                // 先获取原始尺寸，避免在close后访问
-                int originalWidth = pdfPage.getWidth();
-                int originalHeight = pdfPage.getHeight();
-                
-                // 验证原始尺寸
-                if (originalWidth <= 0 || originalHeight <= 0) {
-                    throw new IllegalStateException("页面尺寸无效: " + originalWidth + "x" + originalHeight);
-                }
-                
-                // 使用新的缩放级别计算尺寸
-                float effectiveZoom = Math.max(0.1f, Math.min(5.0f, Math.max(zoomLevel, currentZoom)));
-                int width = Math.max(1, (int) (originalWidth * effectiveZoom));
-                int height = Math.max(1, (int) (originalHeight * effectiveZoom));
-                
-                // 限制最大尺寸以避免内存问题
-                final int MAX_SIZE = 2048;
-                if (width > MAX_SIZE || height > MAX_SIZE) {
-                    float scale = Math.min((float) MAX_SIZE / width, (float) MAX_SIZE / height);
-                    width = Math.max(1, (int) (width * scale));
-                    height = Math.max(1, (int) (height * scale));
-                }
-                
-                // 检查内存使用情况
-                long requiredMemory = (long) width * height * 4; // ARGB_8888 = 4 bytes per pixel
-                Runtime runtime = Runtime.getRuntime();
-                long availableMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
-                
-                if (requiredMemory > availableMemory * 0.8) { // 使用80%的可用内存作为阈值
-                    throw new OutOfMemoryError("内存不足，无法创建bitmap: 需要 " + (requiredMemory / 1024 / 1024) + "MB");
-                }
-                
-                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-                pdfPage.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
-                
-                // 检查是否有搜索结果需要高亮
-                if (searchResults != null) {
-                    for (PDFSearchUtils.SearchResult result : searchResults) {
-                        if (result.getPageNumber() == page.getPageNumber()) {
-                            page.setBookmarked(true); // 临时用书签状态表示搜索高亮
-                            break;
+        final int pageNumber = page.getPageNumber();
+        final int baseWidth = getBaseWidth();
+        final String cacheKey = getBaseCacheKey(page);
+        final String previewKey = getPreviewCacheKey(page);
+        final PageBitmapCache cache = bitmapCache;
+        
+        // 屏幕上的页面先渲染预览尽快显示，已有磁盘缩略图时不再渲染预览；
+        // 预加载页面在完整渲染后顺带缩出预览图，回看时可立即显示
+        final String thumbnailKey = this.thumbnailKey;
+        boolean hasThumbnail = thumbnailKey != null && thumbnailCache.hasThumbnail(thumbnailKey, pageNumber);
+        boolean previewCached = bitmapCache.get(previewKey) != null;
+        boolean renderPreview = visible && !previewCached && !hasThumbnail;
+        if (renderPreview) {
+            loadPagePreview(page, position, baseWidth, previewKey, thumbnailKey);
+        }
+        final boolean derivePreview = !visible && !previewCached;
+        // 缩略图由预览渲染生成；没有预览渲染时由完整渲染缩小得到
+        final boolean makeThumbnail = thumbnailKey != null && !hasThumbnail && !renderPreview;
+        PdfRenderScheduler.Priority fullPriority = visible ? PdfRenderScheduler.Priority.REFINE : priority;
+        
+        PdfRenderScheduler.RenderTask<PageRenderResult> task = renderScheduler.submit(pageNumber, fullPriority,
+                pdfPage -> renderBasePage(pdfPage, baseWidth, false, derivePreview, makeThumbnail, cache),
+                new PdfRenderScheduler.Callback<PageRenderResult>() {
+                    @Override
+                    public void onRendered(PageRenderResult result) {
+                        renderTasks.remove(pageNumber);
+                        if (renderScheduler == null) {
+                            return; // 适配器已清理
                         }
+                        
+                        // 检查是否有搜索结果需要高亮
+                        if (searchResults != null) {
+                            for (PDFSearchUtils.SearchResult searchResult : searchResults) {
+                                if (searchResult.getPageNumber() == pageNumber) {
+                                    page.setBookmarked(true); // 临时用书签状态表示搜索高亮
+                                    break;
+                                }
+                            }
+                        }
+                        
+                        bitmapCache.put(cacheKey, result.bitmap);
+                        if (result.preview != null) {
+                            bitmapCache.put(previewKey, result.preview);
+                        }
+                        if (result.thumbnail != null) {
+                            thumbnailCache.put(thumbnailKey, pageNumber, result.thumbnail);
+                        }
+                        page.setOriginalWidth(result.originalWidth);
+                        page.setOriginalHeight(result.originalHeight);
+                        page.setLoadingState(PDFPageModel.LoadingState.LOADED);
+                        notifyItemChanged(position, PAYLOAD_RENDER_STATE);
+                        
+                        Log.d(TAG, "页面 " + (pageNumber + 1) + " 加载完成，耗时: " + page.getLoadDurationString()
+                                + (page.getPreviewDuration() > 0 ? "，预览耗时: " + page.getPreviewDuration() + "ms" : ""));
                     }
-                }
-                
-                final Bitmap finalBitmap = bitmap;
-                final int finalOriginalWidth = originalWidth;
-                final int finalOriginalHeight = originalHeight;
-                final float finalEffectiveZoom = effectiveZoom;
-                
-                // 在主线程更新UI
-                mainHandler.post(() -> {
-                    try {
-                        if (finalBitmap != null && !finalBitmap.isRecycled()) {
-                            page.setPageBitmap(finalBitmap);
-                            page.setOriginalWidth(finalOriginalWidth);
-                            page.setOriginalHeight(finalOriginalHeight);
-                            page.setZoomLevel(finalEffectiveZoom);
-                            page.setLoadingState(PDFPageModel.LoadingState.LOADED);
-                            notifyItemChanged(position);
-                            
-                            Log.d(TAG, "页面 " + (page.getPageNumber() + 1) + " 加载完成，耗时: " + page.getLoadDurationString());
+                    
+                    @Override
+                    public void onError(Throwable error) {
+                        renderTasks.remove(pageNumber);
+                        if (renderScheduler == null) {
+                            return;
+                        }
+                        
+                        Log.e(TAG, "加载页面 " + (pageNumber + 1) + " 失败", error);
+                        if (error instanceof OutOfMemoryError) {
+                            page.setErrorMessage("内存不足");
                         } else {
-                            throw new IllegalStateException("Bitmap无效或已回收");
+                            page.setErrorMessage("加载失败: " + error.getMessage());
                         }
-                    } catch (Exception e) {
-                        Log.e(TAG, "UI更新失败", e);
-                        page.setErrorMessage("UI更新失败: " + e.getMessage());
                         page.setLoadingState(PDFPageModel.LoadingState.ERROR);
                         notifyItemChanged(position);
-                        // 回收bitmap
-                        if (finalBitmap != null && !finalBitmap.isRecycled()) {
-                            finalBitmap.recycle();
-                        }
                     }
                 });
-                
-            } catch (OutOfMemoryError e) {
-                Log.e(TAG, "内存不足，无法加载页面 " + (page.getPageNumber() + 1), e);
-                
-                mainHandler.post(() -> {
-                    page.setErrorMessage("内存不足");
-                    page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-                    notifyItemChanged(position);
-                });
-                
-                // 回收bitmap
-                if (bitmap != null && !bitmap.isRecycled()) {
-                    bitmap.recycle();
-                }
-            } catch (Exception e) {
-                Log.e(TAG, "加载页面 " + (page.getPageNumber() + 1) + " 失败", e);
-                
-                mainHandler.post(() -> {
-                    page.setErrorMessage("加载失败: " + e.getMessage());
-                    page.setLoadingState(PDFPageModel.LoadingState.ERROR);
-                    notifyItemChanged(position);
-                });
-                
-                // 回收bitmap
-                if (bitmap != null && !bitmap.isRecycled()) {
-                    bitmap.recycle();
-                }
-            } finally {
-                if (pdfPage != null) {
-                    try {
-                        pdfPage.close();
-                    } catch (Exception e) {
-                        Log.w(TAG, "关闭PDF页面时发生错误", e);
+        if (task != null) {
+            renderTasks.put(pageNumber, task);
+        }
+    }
+    
+    // 第一遍：以1/4分辨率快速渲染预览，完整底图仍在排队
+    private void loadPagePreview(PDFPageModel page, int position, int baseWidth, String previewKey,
+                                 String thumbnailKey) {
+        final int pageNumber = page.getPageNumber();
+        final PageBitmapCache cache = bitmapCache;
+        PdfRenderScheduler.RenderTask<PageRenderResult> task = renderScheduler.submit(pageNumber,
+                PdfRenderScheduler.Priority.VISIBLE,
+                pdfPage -> renderBasePage(pdfPage, baseWidth, true, false, thumbnailKey != null, cache),
+                new PdfRenderScheduler.Callback<PageRenderResult>() {
+                    @Override
+                    public void onRendered(PageRenderResult result) {
+                        previewTasks.remove(pageNumber);
+                        if (renderScheduler == null) {
+                            return;
+                        }
+                        bitmapCache.put(previewKey, result.bitmap);
+                        if (result.thumbnail != null) {
+                            thumbnailCache.put(thumbnailKey, pageNumber, result.thumbnail);
+                        }
+                        if (!page.isLoading()) {
+                            return; // 完整底图已先完成，或加载已取消
+                        }
+                        page.setOriginalWidth(result.originalWidth);
+                        page.setOriginalHeight(result.originalHeight);
+                        page.markPreviewLoaded();
+                        notifyItemChanged(position, PAYLOAD_RENDER_STATE);
+                        
+                        Log.d(TAG, "页面 " + (pageNumber + 1) + " 预览完成，耗时: " + page.getPreviewDuration() + "ms");
                     }
-                }
+                    
+                    @Override
+                    public void onError(Throwable error) {
+                        // 预览失败不影响完整渲染，错误由完整渲染报告
+                        previewTasks.remove(pageNumber);
+                        Log.w(TAG, "页面 " + (pageNumber + 1) + " 预览渲染失败: " + error.getMessage());
+                    }
+                });
+        if (task != null) {
+            previewTasks.put(pageNumber, task);
+        }
+    }
+    
+    // 在渲染线程执行，页面已由调度器打开
+    private static PageRenderResult renderBasePage(PdfRenderer.Page pdfPage, int baseWidth, boolean preview,
+                                                   boolean derivePreview, boolean makeThumbnail,
+                                                   PageBitmapCache cache) {
+        int originalWidth = pdfPage.getWidth();
+        int originalHeight = pdfPage.getHeight();
+        
+        // 验证原始尺寸
+        if (originalWidth <= 0 || originalHeight <= 0) {
+            throw new IllegalStateException("页面尺寸无效: " + originalWidth + "x" + originalHeight);
+        }
+        
+        int width = baseWidth;
+        int height = Math.max(1, Math.round(width * (float) originalHeight / originalWidth));
+        if (height > BASE_MAX_HEIGHT) {
+            width = Math.max(1, Math.round(width * (float) BASE_MAX_HEIGHT / height));
+            height = BASE_MAX_HEIGHT;
+        }
+        if (preview) {
+            width = Math.max(1, width / PREVIEW_SCALE);
+            height = Math.max(1, height / PREVIEW_SCALE);
+        }
+        
+        // 同一文档的页面尺寸基本一致，优先复用被淘汰页面的位图
+        Bitmap bitmap = cache.acquireRenderTarget(width, height);
+        pdfPage.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+        Bitmap previewBitmap = derivePreview ? scaleToPreview(bitmap, cache) : null;
+        // 磁盘缩略图与预览同尺寸，需在位图可能被放回复用池之前复制
+        Bitmap thumbnail = makeThumbnail
+                ? PdfThumbnailCache.createThumbnail(bitmap, preview ? 1 : PREVIEW_SCALE) : null;
+        return new PageRenderResult(cache.compactIfTextOnly(bitmap), previewBitmap, thumbnail,
+                originalWidth, originalHeight);
+    }
+    
+    // 从完整底图缩小出预览图，比重新渲染一遍页面快得多
+    private static Bitmap scaleToPreview(Bitmap source, PageBitmapCache cache) {
+        int width = Math.max(1, source.getWidth() / PREVIEW_SCALE);
+        int height = Math.max(1, source.getHeight() / PREVIEW_SCALE);
+        Bitmap preview = cache.acquireRenderTarget(width, height);
+        new Canvas(preview).drawBitmap(source, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        return preview;
+    }
+    
+    // 页面绑定到屏幕：排队中的预加载任务提升为可见优先级，并预加载相邻页面
+    private void requestVisiblePage(PDFPageModel page, int position) {
+        PdfRenderScheduler.RenderTask<PageRenderResult> task = renderTasks.get(page.getPageNumber());
+        if (task != null && task.getPriority() == PdfRenderScheduler.Priority.PREFETCH && task.cancel()) {
+            renderTasks.remove(page.getPageNumber());
+            page.resetLoadingState();
+        }
+        if (!isPageReady(page) && !page.isLoading()) {
+            loadPageBitmap(page, position, PdfRenderScheduler.Priority.VISIBLE);
+        }
+        
+        cancelStalePrefetches(position);
+        for (int offset = 1; offset <= PREFETCH_DISTANCE; offset++) {
+            prefetchPage(position + offset);
+            prefetchPage(position - offset);
+        }
+    }
+    
+    private void prefetchPage(int position) {
+        if (pages == null || position < 0 || position >= pages.size()) {
+            return;
+        }
+        PDFPageModel page = pages.get(position);
+        if (page != null && !isPageReady(page) && !page.isLoading() && !page.hasError()) {
+            loadPageBitmap(page, position, PdfRenderScheduler.Priority.PREFETCH);
+        }
+    }
+    
+    // 快速滑动后远离当前位置的预加载已无意义，直接从队列移除
+    private void cancelStalePrefetches(int position) {
+        Iterator<Map.Entry<Integer, PdfRenderScheduler.RenderTask<PageRenderResult>>> iterator =
+                renderTasks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, PdfRenderScheduler.RenderTask<PageRenderResult>> entry = iterator.next();
+            PdfRenderScheduler.RenderTask<PageRenderResult> task = entry.getValue();
+            if (task.getPriority() == PdfRenderScheduler.Priority.PREFETCH
+                    && Math.abs(entry.getKey() - position) > STALE_PREFETCH_DISTANCE
+                    && task.cancel()) {
+                iterator.remove();
+                resetPendingPage(entry.getKey());
+            }
+        }
+    }
+    
+    // 取消页面排队中的渲染，已开始的渲染照常完成
+    private void cancelPageRender(PDFPageModel page) {
+        int pageNumber = page.getPageNumber();
+        PdfRenderScheduler.RenderTask<PageRenderResult> task = renderTasks.get(pageNumber);
+        if (task != null && task.cancel()) {
+            renderTasks.remove(pageNumber);
+            page.resetLoadingState();
+        }
+        PdfRenderScheduler.RenderTask<PageRenderResult> previewTask = previewTasks.get(pageNumber);
+        if (previewTask != null && previewTask.cancel()) {
+            previewTasks.remove(pageNumber);
+        }
+        if (tileRenderer != null) {
+            tileRenderer.cancelPage(pageNumber);
+        }
+    }
+    
+    private void resetPendingPage(int pageNumber) {
+        if (pages != null && pageNumber >= 0 && pageNumber < pages.size()) {
+            PDFPageModel page = pages.get(pageNumber);
+            if (page != null && page.isLoading()) {
+                page.resetLoadingState();
+            }
+        }
+    }
+    
+    // 底图按屏幕宽度渲染且与缩放级别无关，放大后的清晰度由图块保证
+    private int getBaseWidth() {
+        return Math.min(BASE_MAX_WIDTH, context.getResources().getDisplayMetrics().widthPixels);
+    }
+    
+    // 底图缓存键：文档 + 页码 + 底图宽度档位
+    private String getBaseCacheKey(PDFPageModel page) {
+        return PageBitmapCache.pageKey(documentKey, page.getPageNumber(), getBaseWidth());
+    }
+    
+    private Bitmap getCachedBaseBitmap(PDFPageModel page) {
+        if (documentKey == null || page.getOriginalWidth() <= 0) {
+            return null;
+        }
+        return bitmapCache.get(getBaseCacheKey(page));
+    }
+    
+    // 预览图缓存键：与底图相同，宽度档位为底图的1/4
+    private String getPreviewCacheKey(PDFPageModel page) {
+        return PageBitmapCache.pageKey(documentKey, page.getPageNumber(), getBaseWidth() / PREVIEW_SCALE);
+    }
+    
+    private Bitmap getCachedPreviewBitmap(PDFPageModel page) {
+        if (documentKey == null || page.getOriginalWidth() <= 0) {
+            return null;
+        }
+        return bitmapCache.get(getPreviewCacheKey(page));
+    }
+    
+    private Bitmap getThumbnail(PDFPageModel page) {
+        return thumbnailKey != null ? thumbnailCache.getFromMemory(thumbnailKey, page.getPageNumber()) : null;
+    }
+    
+    // 磁盘上有缩略图时在后台解码，完成后局部刷新以预览方式显示
+    private void loadDiskThumbnail(PDFPageModel page, int position) {
+        if (thumbnailKey == null || !thumbnailCache.hasThumbnail(thumbnailKey, page.getPageNumber())) {
+            return;
+        }
+        thumbnailCache.load(thumbnailKey, page.getPageNumber(), null, (pageNumber, thumbnail) -> {
+            if (thumbnail != null && !isPageReady(page) && !page.hasError()) {
+                notifyItemChanged(position, PAYLOAD_RENDER_STATE);
             }
         });
     }
     
+    // 页面已加载且底图仍在缓存中
+    private boolean isPageReady(PDFPageModel page) {
+        return page.getLoadingState() == PDFPageModel.LoadingState.LOADED && getCachedBaseBitmap(page) != null;
+    }
+    
+    // 页面底图渲染结果
+    private static class PageRenderResult {
+        final Bitmap bitmap;
+        // 顺带缩出的预览图，可为null
+        final Bitmap preview;
+        // 待写入磁盘的缩略图，可为null
+        final Bitmap thumbnail;
+        final int originalWidth;
+        final int originalHeight;
+        
+        PageRenderResult(Bitmap bitmap, Bitmap preview, Bitmap thumbnail, int originalWidth, int originalHeight) {
+            this.bitmap = bitmap;
+            this.preview = preview;
+            this.thumbnail = thumbnail;
+            this.originalWidth = originalWidth;
+            this.originalHeight = originalHeight;
+        }
+    }
+    
     // 公共方法
+    /**
+     * 设置缩放级别：可见页面立即按新缩放变换显示，停止变化ZOOM_SETTLE_DELAY_MS后才按最终缩放渲染图块，
+     * 连续调用（如连续点击放大按钮）只触发一次渲染
+     */
     public void setZoom(float zoom) {
         if (zoom <= 0) {
             Log.w(TAG, "无效的缩放值: " + zoom + "，使用默认值1.0");
             zoom = 1.0f;
         }
-        
-        // 限制缩放范围
-        zoom = Math.max(0.1f, Math.min(5.0f, zoom));
-        
-        if (zoom != currentZoom) {
-            this.currentZoom = zoom;
-            this.zoomLevel = zoom;
-            
+        setGestureZoom(zoom);
+        scheduleZoomCommit();
+    }
+    
+    // 缩放进行中：只变换已附加页面的现有底图和图块，不重新绑定也不提交渲染
+    private void setGestureZoom(float zoom) {
+        pendingZoom = PDFZoomUtils.clampZoomLevel(zoom);
+        for (PDFPageViewHolder holder : attachedHolders) {
+            holder.pageImageView.setGestureZoom(pendingZoom);
+        }
+    }
+    
+    private void scheduleZoomCommit() {
+        mainHandler.removeCallbacks(zoomSettleRunnable);
+        mainHandler.postDelayed(zoomSettleRunnable, ZOOM_SETTLE_DELAY_MS);
+    }
+    
+    // 缩放确定：按最终缩放局部刷新所有页面，底图与缩放无关无需重新加载
+    private void commitPendingZoom() {
+        float zoom = PDFZoomUtils.clampZoomLevel(pendingZoom);
+        boolean changed = zoom != currentZoom;
+        this.currentZoom = zoom;
+        this.zoomLevel = zoom;
+        if (changed) {
             Log.d(TAG, "设置缩放级别: " + zoom);
-            
-            // 清理所有已加载的页面，强制重新加载
-            if (pages != null) {
-                for (PDFPageModel page : pages) {
-                    if (page != null) {
-                        page.cleanup();
-                        page.setLoadingState(PDFPageModel.LoadingState.PENDING);
-                    }
-                }
-            }
-            
-            notifyDataSetChanged();
         }
+        // 缩放未变化时也需要刷新，结束手势中页面的临时缩放
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_ZOOM);
     }
     
     public float getCurrentZoom() {
         return currentZoom;
     }
     
+    // 页面实际显示的缩放级别
+    private float getEffectiveZoom() {
+        return PDFZoomUtils.clampZoomLevel(Math.max(zoomLevel, currentZoom));
+    }
+    
     public void setZoomEnabled(boolean enabled) {
         this.isZoomEnabled = enabled;
     }
@@ -624,6 +1028,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     public void refreshPage(int pageNumber) {
         if (pageNumber >= 0 && pageNumber < pages.size()) {
             PDFPageModel page = pages.get(pageNumber);
+            evictPageBitmap(page);
             page.cleanup();
             page.setLoadingState(PDFPageModel.LoadingState.PENDING);
             notifyItemChanged(pageNumber);
@@ -634,6 +1039,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         if (pages != null) {
             for (PDFPageModel page : pages) {
                 if (page != null) {
+                    evictPageBitmap(page);
                     page.cleanup();
                     page.setLoadingState(PDFPageModel.LoadingState.PENDING);
                 }
@@ -642,6 +1048,13 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         notifyDataSetChanged();
     }
     
+    private void evictPageBitmap(PDFPageModel page) {
+        if (documentKey != null) {
+            bitmapCache.remove(getBaseCacheKey(page));
+            bitmapCache.remove(getPreviewCacheKey(page));
+        }
+    }
+    
     // 更新页面列表
     public void updatePages(List<PDFPageModel> newPages) {
         if (pages != null) {
@@ -674,10 +1087,23 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     public void toggleBookmark(int pageNumber) {
         if (pageNumber >= 0 && pageNumber < pages.size()) {
             PDFPageModel page = pages.get(pageNumber);
-            page.setBookmarked(!page.isBookmarked());
-            notifyItemChanged(pageNumber);
+            boolean bookmarked;
+            if (bookmarkPath != null) {
+                // 写入书签存储，只追加一条记录
+                bookmarked = !bookmarkedPages.get(pageNumber);
+                if (bookmarked) {
+                    bookmarkManager.addBookmark(bookmarkPath, pageNumber, "第" + (pageNumber + 1) + "页", null);
+                } else {
+                    bookmarkManager.removeBookmark(bookmarkPath, pageNumber);
+                }
+                bookmarkedPages.set(pageNumber, bookmarked);
+            } else {
+                page.setBookmarked(!page.isBookmarked());
+                bookmarked = page.isBookmarked();
+            }
+            notifyItemChanged(pageNumber, PAYLOAD_RENDER_STATE);
             
-            String message = page.isBookmarked() ? "已添加书签" : "已移除书签";
+            String message = bookmarked ? "已添加书签" : "已移除书签";
             Toast.makeText(context, message, Toast.LENGTH_SHORT).show();
         }
     }
@@ -689,6 +1115,7 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
     
     public void setZoomLevel(float zoomLevel) {
         this.zoomLevel = PDFZoomUtils.clampZoomLevel(zoomLevel);
+        this.pendingZoom = getEffectiveZoom();
     }
     
     public void setSearchResults(List<PDFSearchUtils.SearchResult> searchResults) {
@@ -703,9 +1130,48 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         this.onPageLongClickListener = listener;
     }
     
+    /**
+     * 设置当前文档对应的文件，启用磁盘缩略图和书签：重新打开时先显示缩略图，阅读时渲染的预览写入磁盘。
+     * 需在页面开始渲染之前调用
+     */
+    public void setDocumentFile(File pdfFile) {
+        thumbnailKey = pdfFile != null ? PdfThumbnailCache.fileKey(pdfFile) : null;
+        if (thumbnailKey != null) {
+            thumbnailCache.openDocument(thumbnailKey);
+        }
+        
+        // 后台读入书签，完成后刷新有书签的页面
+        bookmarkPath = pdfFile != null ? pdfFile.getAbsolutePath() : null;
+        bookmarkedPages = new BitSet();
+        if (bookmarkPath != null) {
+            bookmarkManager.loadAsync(bookmarkPath, (path, loadedPages) -> {
+                if (!path.equals(bookmarkPath)) {
+                    return; // 已切换文档
+                }
+                bookmarkedPages = loadedPages;
+                for (int page = loadedPages.nextSetBit(0); page >= 0 && page < getItemCount();
+                        page = loadedPages.nextSetBit(page + 1)) {
+                    notifyItemChanged(page, PAYLOAD_RENDER_STATE);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 创建与当前文档共用渲染调度器的缩略图条适配器，未设置文档文件时返回null
+     */
+    public PdfThumbnailAdapter createThumbnailAdapter() {
+        if (thumbnailKey == null) {
+            return null;
+        }
+        return new PdfThumbnailAdapter(context, thumbnailKey, getItemCount(), renderScheduler);
+    }
+    
     public void setPdfRenderer(PdfRenderer pdfRenderer) {
         this.pdfRenderer = pdfRenderer;
+        releaseRenderers();
         if (pdfRenderer != null) {
+            createRenderers(pdfRenderer);
             initializePages();
             Log.d(TAG, "PdfRenderer 已设置，页面已初始化");
         } else {
@@ -714,6 +1180,54 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
         }
     }
     
+    private void createRenderers(PdfRenderer pdfRenderer) {
+        documentKey = "pdf@" + Integer.toHexString(System.identityHashCode(pdfRenderer));
+        renderScheduler = new PdfRenderScheduler(pdfRenderer);
+        tileRenderer = new PdfTileRenderer(renderScheduler, bitmapCache, documentKey);
+    }
+    
+    private void releaseRenderers() {
+        renderTasks.clear();
+        previewTasks.clear();
+        if (documentKey != null) {
+            // 文档关闭后缓存项不会再命中，移出缓存后位图进入复用池供下一本书使用
+            bitmapCache.removeDocument(documentKey);
+            documentKey = null;
+        }
+        if (tileRenderer != null) {
+            tileRenderer.release();
+            tileRenderer = null;
+        }
+        if (renderScheduler != null) {
+            PdfRenderScheduler scheduler = renderScheduler;
+            renderScheduler = null;
+            scheduler.shutdown();
+            try {
+                // 等待正在执行的渲染完成，调用方随后可以安全关闭PdfRenderer
+                if (!scheduler.awaitTermination(2, TimeUnit.SECONDS)) {
+                    Log.w(TAG, "等待渲染任务结束超时");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * 设置纯文字页面是否使用RGB_565存储，内存占用减半，对已缓存的页面不生效
+     */
+    public void setRgb565ForTextPages(boolean enabled) {
+        bitmapCache.setRgb565ForTextPages(enabled);
+    }
+    
+    /**
+     * 获取渲染统计：页面渲染耗时、队列深度、缓存命中与位图复用等
+     */
+    public String getRenderStats() {
+        String cacheStats = bitmapCache.getStatsSummary();
+        return renderScheduler != null ? renderScheduler.getStatsSummary() + "\n" + cacheStats : cacheStats;
+    }
+    
     // 清理资源
     public void cleanup() {
         Log.d(TAG, "开始清理PDFPageAdapter资源");
@@ -728,19 +1242,9 @@ public class PDFPageAdapter extends RecyclerView.Adapter<PDFPageAdapter.PDFPageV
             pages.clear();
         }
         
-        // 关闭线程池
-        if (executorService != null && !executorService.isShutdown()) {
-            try {
-                executorService.shutdown();
-                // 等待正在执行的任务完成
-                if (!executorService.awaitTermination(2, java.util.concurrent.TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+        // 关闭渲染调度器
+        mainHandler.removeCallbacks(zoomSettleRunnable);
+        releaseRenderers();
         
         // 清理其他引用
         pdfRenderer = null;
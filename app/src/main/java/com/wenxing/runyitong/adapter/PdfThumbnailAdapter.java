@@ -0,0 +1,147 @@
+package com.wenxing.runyitong.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.wenxing.runyitong.R;
+import com.wenxing.runyitong.pdf.PdfRenderScheduler;
+import com.wenxing.runyitong.pdf.PdfThumbnailCache;
+
+/**
+ * PDF缩略图条，用于快速跳转页面
+ * 缩略图优先从PdfThumbnailCache的内存和磁盘读取，缺失时以最低优先级渲染，不影响正文页面的渲染。
+ */
+public class PdfThumbnailAdapter extends RecyclerView.Adapter<PdfThumbnailAdapter.ThumbnailViewHolder> {
+
+    private final Context context;
+    private final PdfThumbnailCache thumbnailCache;
+    private final String fileKey;
+    private final int pageCount;
+    private final PdfRenderScheduler renderScheduler;
+    private OnThumbnailClickListener listener;
+    private int currentPage = -1;
+
+    public interface OnThumbnailClickListener {
+        void onThumbnailClick(int pageIndex);
+    }
+
+    /**
+     * @param fileKey PdfThumbnailCache.fileKey得到的文档标识
+     * @param renderScheduler 文档的渲染调度器，为null时只显示已缓存的缩略图
+     */
+    public PdfThumbnailAdapter(Context context, String fileKey, int pageCount, PdfRenderScheduler renderScheduler) {
+        this.context = context;
+        this.thumbnailCache = PdfThumbnailCache.getInstance(context);
+        this.fileKey = fileKey;
+        this.pageCount = pageCount;
+        this.renderScheduler = renderScheduler;
+        thumbnailCache.openDocument(fileKey);
+    }
+
+    public void setOnThumbnailClickListener(OnThumbnailClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 高亮当前阅读的页面
+     */
+    public void setCurrentPage(int pageIndex) {
+        if (pageIndex == currentPage) {
+            return;
+        }
+        int previous = currentPage;
+        currentPage = pageIndex;
+        if (previous >= 0 && previous < pageCount) {
+            notifyItemChanged(previous);
+        }
+        if (pageIndex >= 0 && pageIndex < pageCount) {
+            notifyItemChanged(pageIndex);
+        }
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    @NonNull
+    @Override
+    public ThumbnailViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.pdf_thumbnail_item, parent, false);
+        return new ThumbnailViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ThumbnailViewHolder holder, int position) {
+        holder.bind(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return pageCount;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ThumbnailViewHolder holder) {
+        super.onViewRecycled(holder);
+        // 快速滑动时已滑出的缩略图不再渲染
+        if (holder.page >= 0) {
+            thumbnailCache.cancel(fileKey, holder.page);
+        }
+        holder.page = -1;
+        holder.thumbnailImage.setImageDrawable(null);
+    }
+
+    class ThumbnailViewHolder extends RecyclerView.ViewHolder {
+        private final ImageView thumbnailImage;
+        private final TextView pageNumberText;
+        private int page = -1;
+
+        ThumbnailViewHolder(@NonNull View itemView) {
+            super(itemView);
+            thumbnailImage = itemView.findViewById(R.id.thumbnail_image);
+            pageNumberText = itemView.findViewById(R.id.thumbnail_page_number);
+            itemView.setOnClickListener(v -> {
+                if (listener != null && page >= 0) {
+                    listener.onThumbnailClick(page);
+                }
+            });
+        }
+
+        void bind(int pageIndex) {
+            boolean samePage = page == pageIndex;
+            page = pageIndex;
+            pageNumberText.setText(String.valueOf(pageIndex + 1));
+
+            boolean selected = pageIndex == currentPage;
+            itemView.setSelected(selected);
+            pageNumberText.setTypeface(null, selected ? Typeface.BOLD : Typeface.NORMAL);
+            pageNumberText.setTextColor(context.getResources().getColor(
+                    selected ? R.color.primary_color : R.color.text_secondary));
+            thumbnailImage.setAlpha(selected ? 1f : 0.8f);
+
+            Bitmap cached = thumbnailCache.getFromMemory(fileKey, pageIndex);
+            if (cached != null) {
+                thumbnailImage.setImageBitmap(cached);
+                return;
+            }
+            if (!samePage) {
+                thumbnailImage.setImageDrawable(null);
+            }
+            thumbnailCache.load(fileKey, pageIndex, renderScheduler, (loadedPage, thumbnail) -> {
+                // 条目可能已被复用到其他页面
+                if (loadedPage == page && thumbnail != null) {
+                    thumbnailImage.setImageBitmap(thumbnail);
+                }
+            });
+        }
+    }
+}
@@ -1,29 +1,39 @@
 package com.wenxing.runyitong.api;
 
+import okhttp3.Cache;
+import okhttp3.CacheControl;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.Response;
-import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.TlsVersion;
-import okhttp3.Protocol;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.Arrays;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
 import java.util.Date;
-import java.text.SimpleDateFormat;
-import java.text.ParseException;
-import java.util.Locale;
 import java.io.IOException;
 import android.util.Log;
 import android.content.Context;
-import android.content.SharedPreferences;
+import com.wenxing.runyitong.network.CacheControlInterceptor;
+import com.wenxing.runyitong.network.CircuitBreaker;
+import com.wenxing.runyitong.network.CoalescingCallAdapterFactory;
+import com.wenxing.runyitong.network.EndpointCallFactory;
+import com.wenxing.runyitong.network.EndpointProfile;
+import com.wenxing.runyitong.network.FutureCallAdapterFactory;
+import com.wenxing.runyitong.network.NetworkMetrics;
+import com.wenxing.runyitong.network.RetryCallAdapterFactory;
+import com.wenxing.runyitong.network.SessionAuthenticator;
+import com.wenxing.runyitong.utils.SessionStore;
+import com.wenxing.runyitong.network.OfflineCacheInterceptor;
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ApiClient {
     // 根据运行环境选择合适的服务器地址
@@ -54,12 +64,25 @@ public class ApiClient {
     }
     private static Retrofit retrofit = null;
     private static ApiService apiService = null;
+    private static Cache httpCache = null;
+    private static EndpointCallFactory endpointCallFactory = null;
+    private static final SessionAuthenticator sessionAuthenticator = new SessionAuthenticator();
+    
+    // HTTP磁盘缓存大小：20MB
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024;
+    
+    // 清空缓存的后台线程，多次清空按调用顺序执行
+    private static final ExecutorService httpCacheExecutor = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "http-cache-io"));
+    // 最近一次清空缓存，完成前的请求不读缓存
+    private static volatile CompletableFuture<Void> httpCacheEviction = CompletableFuture.completedFuture(null);
     
     /**
      * 初始化ApiClient，需要传入ApplicationContext
      */
     public static void initialize(Context context) {
         appContext = context.getApplicationContext();
+        SessionStore.init(appContext);
     }
 
     public static Context getAppContext() {
@@ -67,37 +90,63 @@ public class ApiClient {
     }
 
     /**
-     * 从SharedPreferences获取access_token（公开实例方法）
+     * 获取当前access_token（公开实例方法）
      */
     public String getAccessToken() {
         return getAccessTokenStatic();
     }
     
     /**
-     * 从SharedPreferences获取access_token（私有静态方法，供内部使用）
+     * 从内存会话中获取access_token（私有静态方法，供内部使用），每次请求都会调用，不访问磁盘
      */
     private static String getAccessTokenStatic() {
-        if (appContext == null) {
-            Log.w("ApiClient", "App context is null when trying to get access token");
+        if (!SessionStore.isInitialized()) {
+            Log.w("ApiClient", "SessionStore is not initialized when trying to get access token");
             return null;
         }
-        
-        try {
-            // 直接使用appContext变量，避免额外的方法调用
-            SharedPreferences sharedPreferences = appContext.getSharedPreferences("user_login_state", Context.MODE_PRIVATE);
-            String strAccessToken = sharedPreferences.getString("access_token", null);
-            Log.d("ApiClient", "Access token retrieved: " + (strAccessToken != null ? "available" : "null"));
-            return strAccessToken;
-        } catch (Exception e) {
-            Log.e("ApiClient", "Failed to get access token: " + e.getMessage(), e);
-            return null;
+        return SessionStore.getInstance().getAccessToken();
+    }
+    
+    /**
+     * 获取401认证处理器，可用于接入token刷新接口
+     */
+    public static SessionAuthenticator getSessionAuthenticator() {
+        return sessionAuthenticator;
+    }
+    
+    /**
+     * 获取HTTP磁盘缓存，ApiClient未初始化时返回null
+     */
+    public static synchronized Cache getHttpCache() {
+        if (httpCache == null && appContext != null) {
+            httpCache = new Cache(new File(appContext.getCacheDir(), "http_cache"), HTTP_CACHE_SIZE);
+        }
+        return httpCache;
+    }
+    
+    /**
+     * 清空HTTP磁盘缓存，在后台线程删除缓存文件，可在主线程调用
+     * 退出登录或会话过期时调用，避免下一个用户读到上一个用户的缓存响应；
+     * 清空完成前发出的请求强制走网络，不会读到尚未删除的缓存
+     */
+    public static void clearHttpCache() {
+        Cache cache = getHttpCache();
+        if (cache == null) {
+            return;
         }
+        httpCacheEviction = CompletableFuture.runAsync(() -> {
+            try {
+                cache.evictAll();
+            } catch (IOException e) {
+                Log.e("ApiClient", "Failed to clear http cache: " + e.getMessage(), e);
+            }
+        }, httpCacheExecutor);
     }
     
     /**
      * 获取Retrofit实例
      */
-    public static Retrofit getRetrofitInstance() {
+    public static synchronized Retrofit getRetrofitInstance() {
         if (retrofit == null) {
             // 创建日志拦截器，针对大文件下载进行优化
             HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
@@ -127,103 +176,6 @@ public class ApiClient {
                 }
             };
             
-            // 创建重试拦截器，特别针对大文件下载的连接中断错误进行优化
-            Interceptor retryInterceptor = new Interceptor() {
-                @Override
-                public Response intercept(Chain chain) throws IOException {
-                    Request request = chain.request();
-                    Response response = null;
-                    IOException exception = null;
-                    
-                    // 针对大文件下载的最大重试次数增加到5次
-                    int maxRetries = 5;
-                    
-                    // 检查是否是下载请求（URL中包含download或返回类型为流）
-                    boolean isDownloadRequest = request.url().toString().contains("download") || 
-                            request.header("Accept") != null && request.header("Accept").contains("application/octet-stream");
-                    
-                    for (int i = 0; i < maxRetries; i++) {
-                        try {
-                            response = chain.proceed(request);
-                            
-                            // 如果响应成功或者是客户端错误（4xx），不需要重试
-                            if (response.isSuccessful() || (response.code() >= 400 && response.code() < 500)) {
-                                return response;
-                            }
-                            
-                            // 服务器错误（5xx）或网络错误，进行重试
-                            if (i < maxRetries - 1) {
-                                Log.w("ApiClient", "Request failed, retrying... (" + (i + 1) + "/" + maxRetries + ")");
-                                response.close();
-                                
-                                // 等待一段时间再重试（指数退避策略）
-                                try {
-                                    long waitTime = calculateBackoffTime(i, isDownloadRequest);
-                                    Thread.sleep(waitTime);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    throw new IOException("Request interrupted", e);
-                                }
-                            }
-                        } catch (IOException e) {
-                            exception = e;
-                            
-                            // 特别处理大文件下载时的连接中止错误
-                            boolean isConnectionAbortError = e.getMessage() != null && 
-                                    (e.getMessage().contains("Software caused connection abort") || 
-                                     e.getMessage().contains("connection abort"));
-                            
-                            // 特别处理大文件下载时的错误
-                            if (isDownloadRequest && isConnectionAbortError) {
-                                Log.e("ApiClient", "Connection aborted during large file download, attempting retry (" + (i + 1) + "/" + maxRetries + ")", e);
-                                
-                                // 大文件下载连接中断需要更长的恢复时间
-                                if (i < maxRetries - 1) {
-                                    // 对于大文件下载的连接中断，使用更长的延迟时间
-                                    try {
-                                        Thread.sleep(3000 + (i * 1000)); // 3秒基础延迟，每次增加1秒
-                                    } catch (InterruptedException ie) {
-                                        Thread.currentThread().interrupt();
-                                        throw new IOException("Request interrupted", ie);
-                                    }
-                                }
-                            } else if (i < maxRetries - 1) {
-                                Log.w("ApiClient", "Network error, retrying... (" + (i + 1) + "/" + maxRetries + "): " + e.getMessage());
-                                
-                                // 普通网络错误使用标准退避策略
-                                try {
-                                    long waitTime = calculateBackoffTime(i, isDownloadRequest);
-                                    Thread.sleep(waitTime);
-                                } catch (InterruptedException ie) {
-                                    Thread.currentThread().interrupt();
-                                    throw new IOException("Request interrupted", ie);
-                                }
-                            }
-                        }
-                    }
-                    
-                    // 如果所有重试都失败了
-                    if (response != null) {
-                        return response;
-                    } else if (exception != null) {
-                        throw exception;
-                    } else {
-                        throw new IOException("Unknown error occurred");
-                    }
-                }
-                
-                /**
-                 * 计算退避时间，针对下载请求使用更长的延迟
-                 */
-                private long calculateBackoffTime(int retryCount, boolean isDownloadRequest) {
-                    // 基础延迟时间：普通请求1秒，下载请求2秒
-                    long baseDelay = isDownloadRequest ? 2000 : 1000;
-                    // 指数退避，最大延迟限制
-                    return Math.min((long) (baseDelay * Math.pow(2, retryCount)), 
-                            isDownloadRequest ? 10000 : 5000);
-                }
-            };
-            
             // 创建认证拦截器
             Interceptor authInterceptor = new Interceptor() {
                 @Override
@@ -246,69 +198,90 @@ public class ApiClient {
                 }
             };
             
-            // 配置连接池
-            ConnectionPool connectionPool = new ConnectionPool(
-                    10,  // 最大空闲连接数
-                    5, TimeUnit.MINUTES  // 连接最大空闲时间
-            );
+            // 清空缓存期间的请求强制走网络，避免读到上一个用户的缓存
+            Interceptor cacheEvictionInterceptor = new Interceptor() {
+                @Override
+                public Response intercept(Chain chain) throws IOException {
+                    Request request = chain.request();
+                    if (!httpCacheEviction.isDone()) {
+                        request = request.newBuilder()
+                                .cacheControl(CacheControl.FORCE_NETWORK)
+                                .build();
+                    }
+                    return chain.proceed(request);
+                }
+            };
             
             // 配置TLS和连接规范，增强安全性和兼容性
             ConnectionSpec spec = new ConnectionSpec.Builder(ConnectionSpec.MODERN_TLS)
                     .tlsVersions(TlsVersion.TLS_1_2, TlsVersion.TLS_1_3)
                     .build();
             
-            // 创建OkHttpClient，增强网络连接稳定性，特别优化大文件下载
-            OkHttpClient okHttpClient = new OkHttpClient.Builder()
+            // 创建基础OkHttpClient，超时、协议和连接池由各接口类别单独配置
+            OkHttpClient.Builder clientBuilder = new OkHttpClient.Builder()
                     .addInterceptor(authInterceptor)  // 添加认证拦截器
                     .addInterceptor(downloadInterceptor)  // 添加下载特殊处理拦截器
-                    .addInterceptor(retryInterceptor)
+                    .addInterceptor(cacheEvictionInterceptor)  // 清空缓存期间不读缓存
+                    .addInterceptor(new OfflineCacheInterceptor())  // 断网时回退到过期缓存
+                    .addInterceptor(CircuitBreaker.getInstance())  // 按主机熔断，后端故障时快速失败
                     .addInterceptor(loggingInterceptor)
-                    // 为大文件下载调整超时设置
-                    .connectTimeout(300, TimeUnit.SECONDS)  // 增加连接超时时间到5分钟
-                    .readTimeout(1800, TimeUnit.SECONDS)    // 增加读取超时时间到30分钟，适合大文件下载
-                    .writeTimeout(600, TimeUnit.SECONDS)    // 增加写入超时时间到10分钟
+                    .addNetworkInterceptor(new CacheControlInterceptor())  // 按接口缓存策略补充Cache-Control
+                    .eventListenerFactory(NetworkMetrics.getInstance().eventListenerFactory())  // 按接口记录分阶段耗时
+                    .authenticator(sessionAuthenticator)  // 并发401只处理一次token刷新或会话过期
                     // 网络连接优化设置
-                    .connectionPool(connectionPool)  // 使用自定义连接池
                     .retryOnConnectionFailure(true)  // 自动重试连接失败的请求
-                    .pingInterval(30, TimeUnit.SECONDS)  // 设置ping间隔，保持连接活跃
+                    .pingInterval(30, TimeUnit.SECONDS)  // 设置ping间隔，保持HTTP/2连接活跃
                     .connectionSpecs(Arrays.asList(spec, ConnectionSpec.CLEARTEXT))  // 配置连接规范
-                    // 针对大文件下载的额外优化
                     .followRedirects(true)  // 跟随重定向
-                    .followSslRedirects(true)  // 跟随SSL重定向
-                    .protocols(Arrays.asList(Protocol.HTTP_1_1))  // 使用HTTP/1.1协议，对大文件更稳定
-                    .build();
+                    .followSslRedirects(true);  // 跟随SSL重定向
+            
+            // 目录数据接口的磁盘缓存，支持ETag条件请求与离线读取
+            Cache cache = getHttpCache();
+            if (cache != null) {
+                clientBuilder.cache(cache);
+            } else {
+                Log.w("ApiClient", "App context is null, http cache disabled");
+            }
             
-            // 创建自定义Gson实例处理日期格式
+            // 按ApiService方法上的@EndpointClass分发到对应超时、协议和连接池的客户端
+            endpointCallFactory = new EndpointCallFactory(clientBuilder.build());
+            
+            // 创建自定义Gson实例：日期字段使用流式解析，高频列表模型使用手写解析器，避免反射
             Gson gson = new GsonBuilder()
-                    .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS")
-                    .registerTypeAdapter(Date.class, (JsonDeserializer<Date>) (json, typeOfT, context) -> {
-                        try {
-                            String dateString = json.getAsString();
-                            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS", Locale.getDefault());
-                            return format.parse(dateString);
-                        } catch (ParseException e) {
-                            try {
-                                // 尝试另一种格式
-                                String dateString = json.getAsString();
-                                SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.getDefault());
-                                return format.parse(dateString);
-                            } catch (ParseException ex) {
-                                return null;
-                            }
-                        }
-                    })
+                    .registerTypeAdapter(Date.class, new IsoDateAdapter())
+                    .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
                     .create();
             
             // 创建Retrofit实例
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
-                    .client(okHttpClient)
+                    .callFactory(endpointCallFactory)
+                    .addCallAdapterFactory(RetryCallAdapterFactory.create())  // 非阻塞重试
+                    .addCallAdapterFactory(CoalescingCallAdapterFactory.getInstance())  // 合并相同的并发请求
+                    .addCallAdapterFactory(FutureCallAdapterFactory.create())  // 支持返回CompletableFuture的接口
                     .addConverterFactory(GsonConverterFactory.create(gson))
                     .build();
         }
         return retrofit;
     }
     
+    /**
+     * 获取指定接口类别使用的OkHttpClient，用于不经过Retrofit的请求
+     * @param profile 接口类别
+     */
+    public static OkHttpClient getHttpClient(EndpointProfile profile) {
+        getRetrofitInstance();
+        return endpointCallFactory.clientFor(profile);
+    }
+    
+    /**
+     * 获取按接口类别分发请求的Call工厂，用于查询或取消各调度通道中的请求
+     */
+    public static EndpointCallFactory getEndpointCallFactory() {
+        getRetrofitInstance();
+        return endpointCallFactory;
+    }
+    
     /**
      * 获取ApiClient实例
      */
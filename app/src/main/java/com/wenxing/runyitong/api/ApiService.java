@@ -11,6 +11,7 @@ import com.wenxing.runyitong.model.OCRResult;
 import com.wenxing.runyitong.model.PrescriptionAnalysis;
 import com.wenxing.runyitong.model.MedicalImageAnalysis;
 import com.wenxing.runyitong.model.ImageUploadResult;
+import com.wenxing.runyitong.model.ChunkedUploadStatus;
 import com.wenxing.runyitong.model.TongueDiagnosisResult;
 import com.wenxing.runyitong.model.FaceDiagnosisResult;
 import com.wenxing.runyitong.model.Department;
@@ -22,8 +23,15 @@ import com.wenxing.runyitong.model.PaymentOrderResponse;
 import com.wenxing.runyitong.model.Address;
 import com.wenxing.runyitong.model.Order;
 import com.wenxing.runyitong.api.OrderListResponse;
+import com.wenxing.runyitong.network.CachePolicy;
+import com.wenxing.runyitong.network.Coalesce;
+import com.wenxing.runyitong.network.EndpointClass;
+import com.wenxing.runyitong.network.EndpointProfile;
+import java.util.concurrent.CompletableFuture;
+
 import okhttp3.MultipartBody;
 import retrofit2.Call;
+import retrofit2.Response;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
@@ -33,6 +41,7 @@ import retrofit2.http.Query;
 import retrofit2.http.Body;
 import retrofit2.http.Field;
 import retrofit2.http.FormUrlEncoded;
+import retrofit2.http.Header;
 import retrofit2.http.Multipart;
 import retrofit2.http.Part;
 import retrofit2.http.Streaming;
@@ -57,6 +66,7 @@ public interface ApiService {
      * @param category 商品分类
      * @return 商品列表响应
      */
+    @CachePolicy(maxAge = 5 * 60)
     @GET("api/v1/products/")
     Call<ApiResponse<ProductListResponse>> getProducts(
         @Query("skip") int skip,
@@ -86,6 +96,7 @@ public interface ApiService {
      * 获取中医古籍列表
      * @return 中医古籍列表响应
      */
+    @CachePolicy(maxAge = 30 * 60)
     @GET("api/v1/books/chinese-medicine")
     Call<ApiResponse<List<Book>>> getChineseMedicineBooks();
     
@@ -93,6 +104,7 @@ public interface ApiService {
      * 获取西医经典列表
      * @return 西医经典列表响应
      */
+    @CachePolicy(maxAge = 30 * 60)
     @GET("api/v1/books/western-medicine")
     Call<ApiResponse<List<Book>>> getWesternMedicineBooks();
     
@@ -100,6 +112,7 @@ public interface ApiService {
      * 获取医学视频列表
      * @return 医学视频列表响应
      */
+    @CachePolicy(maxAge = 30 * 60)
     @GET("api/v1/videos/")
     Call<ApiResponse<List<Video>>> getVideos();
     
@@ -130,6 +143,7 @@ public interface ApiService {
      * @param bookId 书籍ID
      * @return PDF文件流
      */
+    @EndpointClass(EndpointProfile.BULK_DOWNLOAD)
     @Streaming
     @GET("api/v1/books/{id}/download")
     Call<ResponseBody> downloadBookPdf(@Path("id") int bookId);
@@ -139,6 +153,7 @@ public interface ApiService {
      * @param symptoms 症状描述
      * @return 分析结果响应
      */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
     @FormUrlEncoded
     @POST("api/v1/prescriptions/analyze-symptoms")
     Call<ApiResponse<SymptomAnalysis>> analyzeSymptoms(@Field("symptoms") String symptoms);
@@ -148,6 +163,7 @@ public interface ApiService {
      * @param image 图片文件
      * @return OCR识别结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/ocr-text-recognition")
     Call<ApiResponse<OCRResult>> ocrTextRecognition(@Part MultipartBody.Part image);
@@ -157,6 +173,7 @@ public interface ApiService {
      * @param image 处方图片文件
      * @return 智能分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-prescription-image")
     Call<ApiResponse<PrescriptionAnalysis>> analyzePrescriptionImage(@Part MultipartBody.Part image);
@@ -166,6 +183,7 @@ public interface ApiService {
      * @param image 图片文件
      * @return 上传结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/upload-image")
     Call<ApiResponse<ImageUploadResult>> uploadImage(@Part MultipartBody.Part image);
@@ -175,6 +193,7 @@ public interface ApiService {
      * @param image X光影像文件
      * @return X光分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-xray")
     Call<ApiResponse<MedicalImageAnalysis>> analyzeXRayImage(@Part MultipartBody.Part image);
@@ -184,6 +203,7 @@ public interface ApiService {
      * @param image CT影像文件
      * @return CT分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-ct")
     Call<ApiResponse<MedicalImageAnalysis>> analyzeCTImage(@Part MultipartBody.Part image);
@@ -193,6 +213,7 @@ public interface ApiService {
      * @param image B超影像文件
      * @return B超分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-ultrasound")
     Call<ApiResponse<MedicalImageAnalysis>> analyzeUltrasoundImage(@Part MultipartBody.Part image);
@@ -202,6 +223,7 @@ public interface ApiService {
      * @param image MRI影像文件
      * @return MRI分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-mri")
     Call<ApiResponse<MedicalImageAnalysis>> analyzeMRIImage(@Part MultipartBody.Part image);
@@ -211,6 +233,7 @@ public interface ApiService {
      * @param image PET-CT影像文件
      * @return PET-CT分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-petct")
     Call<ApiResponse<MedicalImageAnalysis>> analyzePETCTImage(@Part MultipartBody.Part image);
@@ -220,6 +243,7 @@ public interface ApiService {
      * @param image 舌诊图片文件
      * @return 舌诊分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-tongue")
     Call<ApiResponse<TongueDiagnosisResult>> analyzeTongueImage(@Part MultipartBody.Part image);
@@ -229,14 +253,122 @@ public interface ApiService {
      * @param image 面诊图片文件
      * @return 面诊分析结果
      */
+    @EndpointClass(EndpointProfile.UPLOAD)
     @Multipart
     @POST("api/v1/prescriptions/analyze-face")
     Call<ApiResponse<FaceDiagnosisResult>> analyzeFaceImage(@Part MultipartBody.Part image);
     
+    /**
+     * 按图片ID进行OCR文字识别，图片需先通过uploadImage上传
+     * @param imageId uploadImage返回的图片ID
+     * @return OCR识别结果，图片ID不存在或已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/ocr-text-recognition/by-id")
+    Call<ApiResponse<OCRResult>> ocrTextRecognitionById(@Field("image_id") String imageId);
+    
+    /**
+     * 按图片ID进行处方图片智能分析
+     * @param imageId uploadImage返回的图片ID
+     * @return 智能分析结果，图片ID不存在或已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/analyze-prescription-image/by-id")
+    Call<ApiResponse<PrescriptionAnalysis>> analyzePrescriptionImageById(@Field("image_id") String imageId);
+    
+    /**
+     * 按图片ID进行医学影像智能分析
+     * @param imageType 影像类型："xray", "ct", "ultrasound", "mri", "petct"
+     * @param imageId uploadImage返回的图片ID
+     * @return 影像分析结果，图片ID不存在或已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/analyze-{image_type}/by-id")
+    Call<ApiResponse<MedicalImageAnalysis>> analyzeMedicalImageById(@Path("image_type") String imageType,
+                                                                    @Field("image_id") String imageId);
+    
+    /**
+     * 按图片ID进行中医舌诊智能分析
+     * @param imageId uploadImage返回的图片ID
+     * @return 舌诊分析结果，图片ID不存在或已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/analyze-tongue/by-id")
+    Call<ApiResponse<TongueDiagnosisResult>> analyzeTongueImageById(@Field("image_id") String imageId);
+    
+    /**
+     * 按图片ID进行中医面诊智能分析
+     * @param imageId uploadImage返回的图片ID
+     * @return 面诊分析结果，图片ID不存在或已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/analyze-face/by-id")
+    Call<ApiResponse<FaceDiagnosisResult>> analyzeFaceImageById(@Field("image_id") String imageId);
+    
+    /**
+     * 创建分块上传，用于CT、MRI、PET-CT等大图片
+     * @param fileName 文件名
+     * @param fileSize 文件总字节数
+     * @param chunkSize 客户端建议的分块大小，以服务端返回的为准
+     * @param sha256 整个文件的SHA-256，提交时校验
+     * @param contentType 文件类型
+     * @return 分块上传状态，服务端不支持分块上传时返回404
+     */
+    @EndpointClass(EndpointProfile.UPLOAD)
+    @FormUrlEncoded
+    @POST("api/v1/prescriptions/chunked-uploads")
+    Call<ApiResponse<ChunkedUploadStatus>> createChunkedUpload(
+            @Field("file_name") String fileName,
+            @Field("file_size") long fileSize,
+            @Field("chunk_size") int chunkSize,
+            @Field("sha256") String sha256,
+            @Field("content_type") String contentType);
+    
+    /**
+     * 查询分块上传状态，续传前用于确认服务端已收到的分块
+     * @param uploadId 分块上传ID
+     * @return 分块上传状态，上传已过期时返回404
+     */
+    @EndpointClass(EndpointProfile.UPLOAD)
+    @GET("api/v1/prescriptions/chunked-uploads/{upload_id}")
+    Call<ApiResponse<ChunkedUploadStatus>> getChunkedUploadStatus(@Path("upload_id") String uploadId);
+    
+    /**
+     * 上传单个分块，重复上传同一分块是幂等的
+     * @param uploadId 分块上传ID
+     * @param index 分块序号，从0开始
+     * @param chunkSha256 分块内容的SHA-256，服务端校验失败时返回422
+     * @param chunk 分块内容
+     * @return 分块上传状态
+     */
+    @EndpointClass(EndpointProfile.UPLOAD)
+    @PUT("api/v1/prescriptions/chunked-uploads/{upload_id}/chunks/{index}")
+    Call<ApiResponse<ChunkedUploadStatus>> uploadChunk(
+            @Path("upload_id") String uploadId,
+            @Path("index") int index,
+            @Header("X-Chunk-SHA256") String chunkSha256,
+            @Body RequestBody chunk);
+    
+    /**
+     * 提交分块上传：服务端拼接全部分块并校验整个文件的SHA-256
+     * @param uploadId 分块上传ID
+     * @return 上传结果，包含供后续分析引用的图片ID
+     */
+    @EndpointClass(EndpointProfile.UPLOAD)
+    @POST("api/v1/prescriptions/chunked-uploads/{upload_id}/commit")
+    Call<ApiResponse<ImageUploadResult>> commitChunkedUpload(@Path("upload_id") String uploadId);
+    
     /**
      * 获取科室列表
      * @return 科室列表响应
      */
+    @Coalesce(ttlSeconds = 300)
+    @CachePolicy(maxAge = 60 * 60)
     @GET("api/v1/appointments/departments")
     Call<ApiResponse<DepartmentListResponse>> getDepartments();
     
@@ -244,6 +376,8 @@ public interface ApiService {
      * 获取医院列表
      * @return 医院列表响应
      */
+    @Coalesce(ttlSeconds = 300)
+    @CachePolicy(maxAge = 60 * 60)
     @GET("api/v1/appointments/hospitals")
     Call<ApiResponse<HospitalListResponse>> getHospitals();
     
@@ -253,6 +387,7 @@ public interface ApiService {
      * @param hospitalId 医院ID（可选）
      * @return 医生列表响应
      */
+    @Coalesce(ttlSeconds = 60)
     @GET("api/v1/appointments/doctors")
     Call<ApiResponse<DoctorListResponse>> getDoctors(
         @Query("department_id") Integer departmentId,
@@ -264,6 +399,8 @@ public interface ApiService {
      * @param hospitalId 医院ID
      * @return 科室列表响应
      */
+    @Coalesce(ttlSeconds = 300)
+    @CachePolicy(maxAge = 60 * 60)
     @GET("api/v1/appointments/hospitals/{hospital_id}/departments")
     Call<ApiResponse<DepartmentListResponse>> getHospitalDepartments(@Path("hospital_id") int hospitalId);
     
@@ -272,6 +409,7 @@ public interface ApiService {
      * @param hospitalId 医院ID
      * @return 科室列表
      */
+    @Coalesce(ttlSeconds = 300)
     @GET("api/v1/appointments/hospitals/{hospital_id}/departments")
     Call<List<Department>> getDepartmentsByHospital(@Path("hospital_id") int hospitalId);
     
@@ -588,6 +726,14 @@ public interface ApiService {
     @GET("api/v1/health-records/{user_id}")
     Call<ApiResponse<HealthRecord>> getHealthRecord(@Path("user_id") int userId);
     
+    /**
+     * 获取用户健康档案（CompletableFuture版本，可与体检报告并发请求）
+     * @param userId 用户ID
+     * @return 健康档案响应
+     */
+    @GET("api/v1/health-records/{user_id}")
+    CompletableFuture<Response<ApiResponse<HealthRecord>>> getHealthRecordAsync(@Path("user_id") int userId);
+    
     /**
      * 更新用户健康档案
      * @param userId 用户ID
@@ -614,6 +760,20 @@ public interface ApiService {
             @Query("limit") int limit
     );
     
+    /**
+     * 获取用户体检报告列表（CompletableFuture版本，可与健康档案并发请求）
+     * @param userId 用户ID
+     * @param skip 跳过数量
+     * @param limit 限制数量
+     * @return 体检报告列表响应
+     */
+    @GET("api/v1/health-records/{user_id}/physical-exams")
+    CompletableFuture<Response<ApiResponse<List<PhysicalExamReport>>>> getPhysicalExamReportsAsync(
+            @Path("user_id") int userId,
+            @Query("skip") int skip,
+            @Query("limit") int limit
+    );
+    
     /**
      * 添加新的体检报告
      * @param userId 用户ID
@@ -656,6 +816,7 @@ public interface ApiService {
      * @param query 查询关键词
      * @return 药品查询结果
      */
+    @EndpointClass(EndpointProfile.AI_ANALYSIS)
     @FormUrlEncoded
     @POST("api/v1/products/ai-search")
     Call<ApiResponse<Map<String, Object>>> aiSearchProducts(@Field("query") String query);
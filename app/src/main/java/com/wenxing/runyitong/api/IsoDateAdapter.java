@@ -0,0 +1,206 @@
+package com.wenxing.runyitong.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * 后端日期字段的流式解析器
+ * 支持 yyyy-MM-dd、yyyy-MM-ddTHH:mm:ss 以及任意位数的小数秒（.SSS / .SSSSSS）和可选的时区后缀（Z / ±HH:mm）。
+ * 逐字符解析，复用线程内的Calendar，不再为每个日期字段创建SimpleDateFormat。
+ * 无时区后缀时按设备默认时区解释，与原有行为一致；无法解析时返回null。
+ */
+public class IsoDateAdapter extends TypeAdapter<Date> {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final ThreadLocal<Calendar> LOCAL_CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return new GregorianCalendar();
+        }
+    };
+
+    private static final ThreadLocal<Calendar> UTC_CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return new GregorianCalendar(UTC);
+        }
+    };
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (in.peek() == JsonToken.NUMBER) {
+            // 兼容时间戳（毫秒）
+            return new Date(in.nextLong());
+        }
+        return parse(in.nextString());
+    }
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(format(value));
+    }
+
+    /**
+     * 解析日期字符串
+     * @param text 日期字符串
+     * @return 日期，格式不正确时返回null
+     */
+    public static Date parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        if (length < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millis = 0;
+        int pos = 10;
+
+        if (pos < length && (text.charAt(pos) == 'T' || text.charAt(pos) == ' ')) {
+            if (length < pos + 9 || text.charAt(pos + 3) != ':' || text.charAt(pos + 6) != ':') {
+                return null;
+            }
+            hour = digits(text, pos + 1, pos + 3);
+            minute = digits(text, pos + 4, pos + 6);
+            second = digits(text, pos + 7, pos + 9);
+            pos += 9;
+
+            // 小数秒：只取前三位作为毫秒，其余位（微秒）忽略
+            if (pos < length && text.charAt(pos) == '.') {
+                pos++;
+                int fractionDigits = 0;
+                while (pos < length && isDigit(text.charAt(pos))) {
+                    if (fractionDigits < 3) {
+                        millis = millis * 10 + (text.charAt(pos) - '0');
+                    }
+                    fractionDigits++;
+                    pos++;
+                }
+                if (fractionDigits == 0) {
+                    return null;
+                }
+                for (int i = fractionDigits; i < 3; i++) {
+                    millis *= 10;
+                }
+            }
+        }
+
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return null;
+        }
+
+        // 时区后缀
+        boolean hasOffset = false;
+        int offsetMillis = 0;
+        if (pos < length) {
+            char c = text.charAt(pos);
+            if (c == 'Z' && pos + 1 == length) {
+                hasOffset = true;
+            } else if ((c == '+' || c == '-') && (length == pos + 6 || length == pos + 5 || length == pos + 3)) {
+                int offsetHour = digits(text, pos + 1, pos + 3);
+                int offsetMinute = 0;
+                if (length == pos + 6 && text.charAt(pos + 3) == ':') {
+                    offsetMinute = digits(text, pos + 4, pos + 6);
+                } else if (length == pos + 5) {
+                    offsetMinute = digits(text, pos + 3, pos + 5);
+                } else if (length != pos + 3) {
+                    return null;
+                }
+                if (offsetHour < 0 || offsetMinute < 0) {
+                    return null;
+                }
+                hasOffset = true;
+                offsetMillis = (offsetHour * 60 + offsetMinute) * 60 * 1000;
+                if (c == '-') {
+                    offsetMillis = -offsetMillis;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        Calendar calendar = hasOffset ? UTC_CALENDAR.get() : LOCAL_CALENDAR.get();
+        if (!hasOffset) {
+            // 设备时区可能在运行期间变化
+            calendar.setTimeZone(TimeZone.getDefault());
+        }
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return new Date(calendar.getTimeInMillis() - offsetMillis);
+    }
+
+    /**
+     * 按 yyyy-MM-ddTHH:mm:ss.SSSSSS（设备默认时区）格式化日期
+     */
+    public static String format(Date date) {
+        Calendar calendar = LOCAL_CALENDAR.get();
+        calendar.setTimeZone(TimeZone.getDefault());
+        calendar.setTime(date);
+        StringBuilder builder = new StringBuilder(26);
+        pad(builder, calendar.get(Calendar.YEAR), 4).append('-');
+        pad(builder, calendar.get(Calendar.MONTH) + 1, 2).append('-');
+        pad(builder, calendar.get(Calendar.DAY_OF_MONTH), 2).append('T');
+        pad(builder, calendar.get(Calendar.HOUR_OF_DAY), 2).append(':');
+        pad(builder, calendar.get(Calendar.MINUTE), 2).append(':');
+        pad(builder, calendar.get(Calendar.SECOND), 2).append('.');
+        pad(builder, calendar.get(Calendar.MILLISECOND) * 1000, 6);
+        return builder.toString();
+    }
+
+    private static StringBuilder pad(StringBuilder builder, int value, int width) {
+        for (int limit = 1, i = 1; i < width; i++) {
+            limit *= 10;
+            if (value < limit) {
+                builder.append('0');
+            }
+        }
+        return builder.append(value);
+    }
+
+    /**
+     * 读取[start, end)之间的十进制数字，包含非数字字符时返回-1
+     */
+    private static int digits(String text, int start, int end) {
+        if (end > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,862 @@
+package com.wenxing.runyitong.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.wenxing.runyitong.model.Book;
+import com.wenxing.runyitong.model.Department;
+import com.wenxing.runyitong.model.Doctor;
+import com.wenxing.runyitong.model.Hospital;
+import com.wenxing.runyitong.model.Product;
+import com.wenxing.runyitong.model.Video;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 模型类流式解析工厂
+ * 为启动时首先加载的列表接口（商品、医院、科室、医生、书籍、视频）及ApiResponse包装类
+ * 提供手写的流式TypeAdapter，解析时不经过反射，也不构建中间JsonElement树。
+ * 序列化（write）较少使用，按需延迟交给Gson默认的反射适配器。
+ * 其余模型类仍使用反射解析，新增高频接口时在此补充对应的解析器。
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == ApiResponse.class) {
+            Type dataType = Object.class;
+            if (type.getType() instanceof ParameterizedType) {
+                dataType = ((ParameterizedType) type.getType()).getActualTypeArguments()[0];
+            }
+            return (TypeAdapter<T>) new ApiResponseAdapter<>(gson, this, type,
+                    gson.getAdapter(TypeToken.get(dataType)));
+        }
+
+        TypeAdapter<Date> dateAdapter = gson.getAdapter(Date.class);
+        if (rawType == Product.class) {
+            return (TypeAdapter<T>) new ProductAdapter(gson, this,
+                    dateAdapter,
+                    gson.getAdapter(new TypeToken<List<String>>() {}));
+        }
+        if (rawType == Hospital.class) {
+            return (TypeAdapter<T>) new HospitalAdapter(gson, this,
+                    dateAdapter,
+                    gson.getAdapter(new TypeToken<List<String>>() {}));
+        }
+        if (rawType == Department.class) {
+            return (TypeAdapter<T>) new DepartmentAdapter(gson, this);
+        }
+        if (rawType == Doctor.class) {
+            return (TypeAdapter<T>) new DoctorAdapter(gson, this,
+                    gson.getAdapter(new TypeToken<List<String>>() {}));
+        }
+        if (rawType == Book.class) {
+            return (TypeAdapter<T>) new BookAdapter(gson, this,
+                    dateAdapter);
+        }
+        if (rawType == Video.class) {
+            return (TypeAdapter<T>) new VideoAdapter(gson, this,
+                    dateAdapter);
+        }
+        if (rawType == ProductListResponse.class) {
+            return (TypeAdapter<T>) new ProductListResponseAdapter(gson, this,
+                    gson.getAdapter(new TypeToken<List<Product>>() {}));
+        }
+        if (rawType == HospitalListResponse.class) {
+            return (TypeAdapter<T>) new HospitalListResponseAdapter(gson, this,
+                    gson.getAdapter(new TypeToken<List<Hospital>>() {}));
+        }
+        if (rawType == DepartmentListResponse.class) {
+            return (TypeAdapter<T>) new DepartmentListResponseAdapter(gson, this,
+                    gson.getAdapter(new TypeToken<List<Department>>() {}));
+        }
+        if (rawType == DoctorListResponse.class) {
+            return (TypeAdapter<T>) new DoctorListResponseAdapter(gson, this,
+                    gson.getAdapter(new TypeToken<List<Doctor>>() {}));
+        }
+        return null;
+    }
+
+    /**
+     * 读取字符串，兼容数字和布尔值（与Gson默认String解析行为一致）
+     */
+    static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * 读取布尔值，兼容"true"/"false"字符串（与Gson默认boolean解析行为一致）
+     */
+    static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * 手写解析器基类，序列化时延迟获取Gson反射适配器
+     */
+    private abstract static class ModelAdapter<T> extends TypeAdapter<T> {
+        private final Gson gson;
+        private final TypeAdapterFactory skipPast;
+        private final TypeToken<T> typeToken;
+        private volatile TypeAdapter<T> delegate;
+
+        ModelAdapter(Gson gson, TypeAdapterFactory skipPast, Class<T> type) {
+            this(gson, skipPast, TypeToken.get(type));
+        }
+
+        ModelAdapter(Gson gson, TypeAdapterFactory skipPast, TypeToken<T> typeToken) {
+            this.gson = gson;
+            this.skipPast = skipPast;
+            this.typeToken = typeToken;
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            TypeAdapter<T> adapter = delegate;
+            if (adapter == null) {
+                adapter = gson.getDelegateAdapter(skipPast, typeToken);
+                delegate = adapter;
+            }
+            adapter.write(out, value);
+        }
+    }
+
+    /**
+     * ApiResponse 流式解析器，data字段交给对应类型的解析器
+     */
+    private static final class ApiResponseAdapter<D> extends ModelAdapter<ApiResponse<D>> {
+        private final TypeAdapter<D> dataAdapter;
+
+        @SuppressWarnings("unchecked")
+        ApiResponseAdapter(Gson gson, TypeAdapterFactory skipPast, TypeToken<?> type, TypeAdapter<D> dataAdapter) {
+            super(gson, skipPast, (TypeToken<ApiResponse<D>>) type);
+            this.dataAdapter = dataAdapter;
+        }
+
+        @Override
+        public ApiResponse<D> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ApiResponse<D> response = new ApiResponse<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "success":
+                        response.setSuccess(readBoolean(in));
+                        break;
+                    case "message":
+                        response.setMessage(readString(in));
+                        break;
+                    case "data":
+                        response.setData(dataAdapter.read(in));
+                        break;
+                    case "error_code":
+                        response.setErrorCode(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+    }
+
+    /**
+     * Product 流式解析器
+     */
+    private static final class ProductAdapter extends ModelAdapter<Product> {
+        private final TypeAdapter<Date> dateAdapter;
+        private final TypeAdapter<List<String>> stringListAdapter;
+
+        ProductAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<Date> dateAdapter, TypeAdapter<List<String>> stringListAdapter) {
+            super(gson, skipPast, Product.class);
+            this.dateAdapter = dateAdapter;
+            this.stringListAdapter = stringListAdapter;
+        }
+
+        @Override
+        public Product read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Product product = new Product();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        product.setId(in.nextInt());
+                        break;
+                    case "name":
+                        product.setName(readString(in));
+                        break;
+                    case "slug":
+                        product.setSlug(readString(in));
+                        break;
+                    case "price":
+                        product.setPrice(in.nextDouble());
+                        break;
+                    case "original_price":
+                        product.setOriginalPrice(in.nextDouble());
+                        break;
+                    case "description":
+                        product.setDescription(readString(in));
+                        break;
+                    case "short_description":
+                        product.setShortDescription(readString(in));
+                        break;
+                    case "featured_image_file":
+                        product.setFeaturedImageFile(readString(in));
+                        break;
+                    case "category_id":
+                        product.setCategoryId(in.nextInt());
+                        break;
+                    case "category":
+                        product.setCategory(readString(in));
+                        break;
+                    case "category_name":
+                        product.setCategoryName(readString(in));
+                        break;
+                    case "department_id":
+                        product.setDepartmentId(in.nextInt());
+                        break;
+                    case "stock_quantity":
+                        product.setStockQuantity(in.nextInt());
+                        break;
+                    case "min_stock_level":
+                        product.setMinStockLevel(in.nextInt());
+                        break;
+                    case "sku":
+                        product.setSku(readString(in));
+                        break;
+                    case "barcode":
+                        product.setBarcode(readString(in));
+                        break;
+                    case "weight":
+                        product.setWeight(in.nextDouble());
+                        break;
+                    case "dimensions":
+                        product.setDimensions(readString(in));
+                        break;
+                    case "gallery_images":
+                        product.setGalleryImages(stringListAdapter.read(in));
+                        break;
+                    case "tags":
+                        product.setTags(readString(in));
+                        break;
+                    case "status":
+                        product.setStatus(readString(in));
+                        break;
+                    case "is_featured":
+                        product.setFeatured(readBoolean(in));
+                        break;
+                    case "is_prescription_required":
+                        product.setPrescriptionRequired(readBoolean(in));
+                        break;
+                    case "manufacturer":
+                        product.setManufacturer(readString(in));
+                        break;
+                    case "pharmacy_name":
+                        product.setPharmacyName(readString(in));
+                        break;
+                    case "expiry_date":
+                        product.setExpiryDate(dateAdapter.read(in));
+                        break;
+                    case "usage_instructions":
+                        product.setUsageInstructions(readString(in));
+                        break;
+                    case "side_effects":
+                        product.setSideEffects(readString(in));
+                        break;
+                    case "contraindications":
+                        product.setContraindications(readString(in));
+                        break;
+                    case "views_count":
+                        product.setViewsCount(in.nextInt());
+                        break;
+                    case "sales_count":
+                        product.setSalesCount(in.nextInt());
+                        break;
+                    case "created_at":
+                        product.setCreatedAt(dateAdapter.read(in));
+                        break;
+                    case "updated_at":
+                        product.setUpdatedAt(dateAdapter.read(in));
+                        break;
+                    case "specification":
+                        product.setSpecification(readString(in));
+                        break;
+                    case "purchase_count":
+                        product.setPurchaseCount(in.nextInt());
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return product;
+        }
+    }
+
+    /**
+     * Hospital 流式解析器
+     */
+    private static final class HospitalAdapter extends ModelAdapter<Hospital> {
+        private final TypeAdapter<Date> dateAdapter;
+        private final TypeAdapter<List<String>> stringListAdapter;
+
+        HospitalAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<Date> dateAdapter, TypeAdapter<List<String>> stringListAdapter) {
+            super(gson, skipPast, Hospital.class);
+            this.dateAdapter = dateAdapter;
+            this.stringListAdapter = stringListAdapter;
+        }
+
+        @Override
+        public Hospital read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Hospital hospital = new Hospital();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        hospital.setId(in.nextInt());
+                        break;
+                    case "name":
+                        hospital.setName(readString(in));
+                        break;
+                    case "address":
+                        hospital.setAddress(readString(in));
+                        break;
+                    case "phone":
+                        hospital.setPhone(readString(in));
+                        break;
+                    case "level":
+                        hospital.setLevel(readString(in));
+                        break;
+                    case "description":
+                        hospital.setDescription(readString(in));
+                        break;
+                    case "departments":
+                        hospital.setDepartments(stringListAdapter.read(in));
+                        break;
+                    case "official_account_id":
+                        hospital.setOfficialAccountId(readString(in));
+                        break;
+                    case "wechat_id":
+                        hospital.setWechatId(readString(in));
+                        break;
+                    case "created_time":
+                        hospital.setCreatedTime(dateAdapter.read(in));
+                        break;
+                    case "updated_time":
+                        hospital.setUpdatedTime(dateAdapter.read(in));
+                        break;
+                    case "slug":
+                        hospital.setSlug(readString(in));
+                        break;
+                    case "short_description":
+                        hospital.setShortDescription(readString(in));
+                        break;
+                    case "category_id":
+                        hospital.setCategoryId(in.nextInt());
+                        break;
+                    case "department_id":
+                        hospital.setDepartmentId(in.nextInt());
+                        break;
+                    case "email":
+                        hospital.setEmail(readString(in));
+                        break;
+                    case "website":
+                        hospital.setWebsite(readString(in));
+                        break;
+                    case "rating":
+                        hospital.setRating((float) in.nextDouble());
+                        break;
+                    case "featured_image_url":
+                        hospital.setFeaturedImageUrl(readString(in));
+                        break;
+                    case "services_offered":
+                        hospital.setServicesOffered(readString(in));
+                        break;
+                    case "tags":
+                        hospital.setTags(readString(in));
+                        break;
+                    case "status":
+                        hospital.setStatus(readString(in));
+                        break;
+                    case "is_featured":
+                        hospital.setFeatured(readBoolean(in));
+                        break;
+                    case "is_affiliated":
+                        hospital.setAffiliated(readBoolean(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return hospital;
+        }
+    }
+
+    /**
+     * Department 流式解析器
+     */
+    private static final class DepartmentAdapter extends ModelAdapter<Department> {
+
+        DepartmentAdapter(Gson gson, TypeAdapterFactory skipPast) {
+            super(gson, skipPast, Department.class);
+        }
+
+        @Override
+        public Department read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Department department = new Department();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        department.setId(in.nextInt());
+                        break;
+                    case "name":
+                        department.setName(readString(in));
+                        break;
+                    case "description":
+                        department.setDescription(readString(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return department;
+        }
+    }
+
+    /**
+     * Doctor 流式解析器
+     */
+    private static final class DoctorAdapter extends ModelAdapter<Doctor> {
+        private final TypeAdapter<List<String>> stringListAdapter;
+
+        DoctorAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<List<String>> stringListAdapter) {
+            super(gson, skipPast, Doctor.class);
+            this.stringListAdapter = stringListAdapter;
+        }
+
+        @Override
+        public Doctor read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Doctor doctor = new Doctor();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        doctor.setId(in.nextInt());
+                        break;
+                    case "name":
+                        doctor.setName(readString(in));
+                        break;
+                    case "title":
+                        doctor.setTitle(readString(in));
+                        break;
+                    case "department_id":
+                        doctor.setDepartmentId(in.nextInt());
+                        break;
+                    case "department_name":
+                        doctor.setDepartmentName(readString(in));
+                        break;
+                    case "hospital_id":
+                        doctor.setHospitalId(in.nextInt());
+                        break;
+                    case "hospital_name":
+                        doctor.setHospitalName(readString(in));
+                        break;
+                    case "specialties":
+                        doctor.setSpecialties(stringListAdapter.read(in));
+                        break;
+                    case "experience_years":
+                        doctor.setExperienceYears(in.nextInt());
+                        break;
+                    case "education":
+                        doctor.setEducation(readString(in));
+                        break;
+                    case "introduction":
+                        doctor.setIntroduction(readString(in));
+                        break;
+                    case "available_times":
+                        doctor.setAvailableTimes(stringListAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return doctor;
+        }
+    }
+
+    /**
+     * Book 流式解析器
+     */
+    private static final class BookAdapter extends ModelAdapter<Book> {
+        private final TypeAdapter<Date> dateAdapter;
+
+        BookAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<Date> dateAdapter) {
+            super(gson, skipPast, Book.class);
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        public Book read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Book book = new Book();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        book.setId(in.nextInt());
+                        break;
+                    case "name":
+                        book.setName(readString(in));
+                        break;
+                    case "author":
+                        book.setAuthor(readString(in));
+                        break;
+                    case "category":
+                        book.setCategory(readString(in));
+                        break;
+                    case "description":
+                        book.setDescription(readString(in));
+                        break;
+                    case "cover_url":
+                        book.setCoverUrl(readString(in));
+                        break;
+                    case "publish_date":
+                        book.setPublishDate(dateAdapter.read(in));
+                        break;
+                    case "created_time":
+                        book.setCreatedTime(dateAdapter.read(in));
+                        break;
+                    case "updated_time":
+                        book.setUpdatedTime(dateAdapter.read(in));
+                        break;
+                    case "pdf_file_path":
+                        book.setPdfFilePath(readString(in));
+                        break;
+                    case "file_size":
+                        book.setFileSize(in.nextInt());
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return book;
+        }
+    }
+
+    /**
+     * Video 流式解析器
+     */
+    private static final class VideoAdapter extends ModelAdapter<Video> {
+        private final TypeAdapter<Date> dateAdapter;
+
+        VideoAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<Date> dateAdapter) {
+            super(gson, skipPast, Video.class);
+            this.dateAdapter = dateAdapter;
+        }
+
+        @Override
+        public Video read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Video video = new Video();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        video.setId(in.nextInt());
+                        break;
+                    case "title":
+                        video.setTitle(readString(in));
+                        break;
+                    case "url":
+                        video.setUrl(readString(in));
+                        break;
+                    case "cover_image":
+                        video.setCoverImage(readString(in));
+                        break;
+                    case "duration":
+                        video.setDuration(in.nextInt());
+                        break;
+                    case "description":
+                        video.setDescription(readString(in));
+                        break;
+                    case "tags":
+                        video.setTags(readString(in));
+                        break;
+                    case "category":
+                        video.setCategory(readString(in));
+                        break;
+                    case "upload_time":
+                        video.setUploadTime(readString(in));
+                        break;
+                    case "view_count":
+                        video.setViewCount(in.nextInt());
+                        break;
+                    case "created_at":
+                        video.setCreatedAt(dateAdapter.read(in));
+                        break;
+                    case "updated_at":
+                        video.setUpdatedAt(dateAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return video;
+        }
+    }
+
+    /**
+     * ProductListResponse 流式解析器
+     */
+    private static final class ProductListResponseAdapter extends ModelAdapter<ProductListResponse> {
+        private final TypeAdapter<List<Product>> productListAdapter;
+
+        ProductListResponseAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<List<Product>> productListAdapter) {
+            super(gson, skipPast, ProductListResponse.class);
+            this.productListAdapter = productListAdapter;
+        }
+
+        @Override
+        public ProductListResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ProductListResponse productListResponse = new ProductListResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "items":
+                        productListResponse.setItems(productListAdapter.read(in));
+                        break;
+                    case "total":
+                        productListResponse.setTotal(in.nextInt());
+                        break;
+                    case "skip":
+                        productListResponse.setSkip(in.nextInt());
+                        break;
+                    case "limit":
+                        productListResponse.setLimit(in.nextInt());
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return productListResponse;
+        }
+    }
+
+    /**
+     * HospitalListResponse 流式解析器
+     */
+    private static final class HospitalListResponseAdapter extends ModelAdapter<HospitalListResponse> {
+        private final TypeAdapter<List<Hospital>> hospitalListAdapter;
+
+        HospitalListResponseAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<List<Hospital>> hospitalListAdapter) {
+            super(gson, skipPast, HospitalListResponse.class);
+            this.hospitalListAdapter = hospitalListAdapter;
+        }
+
+        @Override
+        public HospitalListResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            HospitalListResponse hospitalListResponse = new HospitalListResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "hospitals":
+                        hospitalListResponse.setHospitals(hospitalListAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return hospitalListResponse;
+        }
+    }
+
+    /**
+     * DepartmentListResponse 流式解析器
+     */
+    private static final class DepartmentListResponseAdapter extends ModelAdapter<DepartmentListResponse> {
+        private final TypeAdapter<List<Department>> departmentListAdapter;
+
+        DepartmentListResponseAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<List<Department>> departmentListAdapter) {
+            super(gson, skipPast, DepartmentListResponse.class);
+            this.departmentListAdapter = departmentListAdapter;
+        }
+
+        @Override
+        public DepartmentListResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            DepartmentListResponse departmentListResponse = new DepartmentListResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "departments":
+                        departmentListResponse.setDepartments(departmentListAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return departmentListResponse;
+        }
+    }
+
+    /**
+     * DoctorListResponse 流式解析器
+     */
+    private static final class DoctorListResponseAdapter extends ModelAdapter<DoctorListResponse> {
+        private final TypeAdapter<List<Doctor>> doctorListAdapter;
+
+        DoctorListResponseAdapter(Gson gson, TypeAdapterFactory skipPast, TypeAdapter<List<Doctor>> doctorListAdapter) {
+            super(gson, skipPast, DoctorListResponse.class);
+            this.doctorListAdapter = doctorListAdapter;
+        }
+
+        @Override
+        public DoctorListResponse read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            DoctorListResponse doctorListResponse = new DoctorListResponse();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.skipValue();
+                    continue;
+                }
+                switch (name) {
+                    case "doctors":
+                        doctorListResponse.setDoctors(doctorListAdapter.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return doctorListResponse;
+        }
+    }
+}
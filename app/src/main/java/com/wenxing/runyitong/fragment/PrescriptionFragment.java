@@ -40,6 +40,9 @@ import androidx.core.content.FileProvider;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import com.google.android.material.snackbar.Snackbar;
+import android.text.format.DateUtils;
+import java.util.function.Consumer;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -81,6 +84,10 @@ import com.wenxing.runyitong.model.FacialRegions;
 import com.wenxing.runyitong.model.TCMFaceDiagnosis;
 import com.wenxing.runyitong.model.TCMFaceRecommendations;
 import com.wenxing.runyitong.utils.ImageUtils;
+import com.wenxing.runyitong.utils.ImageUploadProfile;
+import com.wenxing.runyitong.network.CallScope;
+import com.wenxing.runyitong.network.ImageAnalysisSession;
+import com.wenxing.runyitong.utils.AnalysisResultCache;
 import com.wenxing.runyitong.model.PrescriptionCreate;
 import com.wenxing.runyitong.model.Prescription;
 import android.content.SharedPreferences;
@@ -127,6 +134,11 @@ public class PrescriptionFragment extends Fragment {
     private Call<ApiResponse<FaceDiagnosisResult>> faceDiagnosisCall;
     private Call<ApiResponse<TongueDiagnosisResult>> tongueDiagnosisCall;
     private Call<ApiResponse<ImageUploadResult>> uploadCall;
+    // 本页面发起的请求，离开页面时取消
+    private final CallScope callScope = new CallScope();
+    private AnalysisResultCache analysisResultCache;
+    // 当前图片的分析会话，图片只上传一次，多次分析按图片ID引用
+    private ImageAnalysisSession imageSession;
     private Uri selectedImageUri;
     private String imageSource = "unknown"; // 记录图片来源："camera" 或 "gallery"
     
@@ -186,6 +198,7 @@ public class PrescriptionFragment extends Fragment {
         
         // 初始化API服务
         apiService = ApiClient.getApiService();
+        analysisResultCache = AnalysisResultCache.getInstance(getContext());
         timeoutHandler = new Handler(Looper.getMainLooper());
         
         // 初始化控件
@@ -1019,37 +1032,29 @@ public class PrescriptionFragment extends Fragment {
         };
     }
     
+    @Override
+    public void onStop() {
+        super.onStop();
+        // 页面即将关闭时先取消仍在上传通道中排队的请求，让出通道给其他页面
+        if (isRemoving() || (getActivity() != null && getActivity().isFinishing())) {
+            int cancelled = callScope.cancelQueued();
+            if (cancelled > 0) {
+                Log.d(TAG, "已取消排队中的请求: " + cancelled);
+            }
+        }
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
-        // 清理资源
-        if (currentCall != null && !currentCall.isCanceled()) {
-            currentCall.cancel();
-        }
-        if (ocrCall != null && !ocrCall.isCanceled()) {
-            ocrCall.cancel();
-        }
-        if (analysisCall != null && !analysisCall.isCanceled()) {
-            analysisCall.cancel();
-        }
-        if (medicalImageAnalysisCall != null && !medicalImageAnalysisCall.isCanceled()) {
-            medicalImageAnalysisCall.cancel();
-        }
+        // 清理资源：取消本页面发起的全部请求
+        callScope.cancelAll();
         // 销毁时释放语音识别资源
         if (asr != null && asrListener != null) {
             asr.unregisterListener(asrListener);
             asr = null;
             asrListener = null;
         }
-        if (faceDiagnosisCall != null && !faceDiagnosisCall.isCanceled()) {
-            faceDiagnosisCall.cancel();
-        }
-        if (tongueDiagnosisCall != null && !tongueDiagnosisCall.isCanceled()) {
-            tongueDiagnosisCall.cancel();
-        }
-        if (uploadCall != null && !uploadCall.isCanceled()) {
-            uploadCall.cancel();
-        }
         if (timeoutHandler != null) {
             if (timeoutRunnable != null) {
                 timeoutHandler.removeCallbacks(timeoutRunnable);
@@ -1131,7 +1136,7 @@ public class PrescriptionFragment extends Fragment {
         final long startTime = System.currentTimeMillis();
         
         // 调用API分析症状
-        currentCall = apiService.analyzeSymptoms(symptoms);
+        currentCall = callScope.track(apiService.analyzeSymptoms(symptoms));
         Log.d(TAG, "API请求已发送，等待响应...");
         
         currentCall.enqueue(new Callback<ApiResponse<SymptomAnalysis>>() {
@@ -2782,10 +2787,100 @@ public class PrescriptionFragment extends Fragment {
         }
     }
     
+    /**
+     * 图片分析的上传步骤
+     */
+    private interface ImageAnalysisUpload {
+        /**
+         * @param session 计算缓存键时使用的分析会话，上传的必须是这个会话的图片
+         * @param cacheKey 分析结果的缓存键，成功后用它保存结果；无法计算时为null
+         */
+        void upload(ImageAnalysisSession session, String cacheKey);
+    }
+    
+    /**
+     * 当前所选图片的分析会话，更换图片后重新创建
+     */
+    private ImageAnalysisSession getImageSession() {
+        if (selectedImageUri == null || getContext() == null) {
+            return null;
+        }
+        if (imageSession == null || !selectedImageUri.equals(imageSession.getImageUri())) {
+            imageSession = new ImageAnalysisSession(getContext(), apiService, selectedImageUri);
+            // CT、MRI、PET-CT等影像分块上传，显示已确认的分块数
+            imageSession.setUploadProgressListener((confirmedChunks, totalChunks) -> {
+                if (isAdded() && tvLoadingText != null && llLoading.getVisibility() == View.VISIBLE) {
+                    tvLoadingText.setText("正在上传影像 " + confirmedChunks + "/" + totalChunks);
+                }
+            });
+        }
+        return imageSession;
+    }
+    
+    /**
+     * 先查分析结果缓存，命中时直接显示缓存结果并提供"重新分析"，未命中时再上传分析
+     * 缓存键按该分析的编码参数计算，编码结果保存在分析会话中，由上传直接复用
+     * @param reanalyze 为true时跳过缓存结果，直接上传分析
+     * @param displayCached 显示缓存结果
+     * @param upload 上传分析
+     * @param reanalyzeAction 用户选择重新分析时执行
+     */
+    private <T> void analyzeImageWithCache(AnalysisResultCache.AnalysisType analysisType, ImageUploadProfile profile,
+                                           Class<T> resultClass, boolean reanalyze, Consumer<T> displayCached,
+                                           ImageAnalysisUpload upload, Runnable reanalyzeAction) {
+        ImageAnalysisSession session = getImageSession();
+        if (session == null) {
+            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        showLoading(true);
+        tvLoadingText.setText("正在处理图片...");
+        
+        analysisResultCache.lookup(session.getImageBody(profile), analysisType, resultClass, reanalyze, (cacheKey, cached, cachedTime) -> {
+            if (!isAdded() || getView() == null) {
+                return;
+            }
+            if (!session.getImageUri().equals(selectedImageUri)) {
+                // 查询期间已更换图片，丢弃旧图片的结果，避免新图片的分析结果存到旧图片的缓存键下
+                Log.d(TAG, "图片已更换，忽略旧图片的分析: " + analysisType.id);
+                showLoading(false);
+                return;
+            }
+            if (cached == null) {
+                upload.upload(session, cacheKey);
+                return;
+            }
+            Log.d(TAG, "使用缓存的分析结果: " + analysisType.id);
+            showLoading(false);
+            displayCached.accept(cached);
+            showCachedResultNotice(cachedTime, reanalyzeAction);
+        });
+    }
+    
+    /**
+     * 提示当前显示的是缓存结果，并提供重新分析
+     */
+    private void showCachedResultNotice(long cachedTime, Runnable reanalyzeAction) {
+        CharSequence when = DateUtils.getRelativeTimeSpanString(cachedTime, System.currentTimeMillis(),
+                DateUtils.MINUTE_IN_MILLIS);
+        Snackbar.make(getView(), "已显示" + when + "的分析结果", Snackbar.LENGTH_LONG)
+                .setAction("重新分析", v -> reanalyzeAction.run())
+                .show();
+    }
+    
     /**
      * 执行OCR文字识别
      */
     private void performOCRRecognition() {
+        performOCRRecognition(false);
+    }
+    
+    /**
+     * 执行OCR文字识别
+     * @param reanalyze 为true时忽略缓存的识别结果，重新上传识别
+     */
+    private void performOCRRecognition(boolean reanalyze) {
         if (selectedImageUri == null) {
             Toast.makeText(getContext(), "请先选择图片", Toast.LENGTH_SHORT).show();
             return;
@@ -2796,17 +2891,21 @@ public class PrescriptionFragment extends Fragment {
             Toast.makeText(getContext(), "图片过大，正在压缩...", Toast.LENGTH_SHORT).show();
         }
         
-        // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
+        analyzeImageWithCache(AnalysisResultCache.AnalysisType.OCR, ImageUploadProfile.OCR, OCRResult.class,
+                reanalyze, this::displayOCRResult, this::uploadForOCRRecognition,
+                () -> performOCRRecognition(true));
+    }
+    
+    /**
+     * 上传图片进行OCR文字识别
+     * @param session 图片的分析会话
+     * @param cacheKey 识别结果的缓存键
+     */
+    private void uploadForOCRRecognition(ImageAnalysisSession session, String cacheKey) {
         showLoading(true);
         tvLoadingText.setText("正在识别文字...");
         
-        ocrCall = apiService.ocrTextRecognition(imagePart);
+        ocrCall = callScope.track(session.ocrTextRecognition());
         ocrCall.enqueue(new Callback<ApiResponse<OCRResult>>() {
             @Override
             public void onResponse(Call<ApiResponse<OCRResult>> call, Response<ApiResponse<OCRResult>> response) {
@@ -2815,6 +2914,7 @@ public class PrescriptionFragment extends Fragment {
                 if (response.isSuccessful() && response.body() != null) {
                     ApiResponse<OCRResult> apiResponse = response.body();
                     if (apiResponse.isSuccess()) {
+                        analysisResultCache.put(cacheKey, apiResponse.getData());
                         displayOCRResult(apiResponse.getData());
                     } else {
                         Toast.makeText(getContext(), "OCR识别失败: " + apiResponse.getMessage(), Toast.LENGTH_LONG).show();
@@ -2838,22 +2938,34 @@ public class PrescriptionFragment extends Fragment {
      * 执行处方智能分析
      */
     private void performPrescriptionAnalysis() {
+        performPrescriptionAnalysis(false);
+    }
+    
+    /**
+     * 执行处方智能分析
+     * @param reanalyze 为true时忽略缓存的分析结果，重新上传分析
+     */
+    private void performPrescriptionAnalysis(boolean reanalyze) {
         if (selectedImageUri == null) {
             Toast.makeText(getContext(), "请先选择图片", Toast.LENGTH_SHORT).show();
             return;
         }
         
-        // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
+        analyzeImageWithCache(AnalysisResultCache.AnalysisType.PRESCRIPTION, ImageUploadProfile.PRESCRIPTION,
+                PrescriptionAnalysis.class, reanalyze, this::displayPrescriptionAnalysis,
+                this::uploadForPrescriptionAnalysis, () -> performPrescriptionAnalysis(true));
+    }
+    
+    /**
+     * 上传图片进行处方智能分析
+     * @param session 图片的分析会话
+     * @param cacheKey 分析结果的缓存键
+     */
+    private void uploadForPrescriptionAnalysis(ImageAnalysisSession session, String cacheKey) {
         showLoading(true);
         tvLoadingText.setText("正在分析处方...");
         
-        analysisCall = apiService.analyzePrescriptionImage(imagePart);
+        analysisCall = callScope.track(session.analyzePrescriptionImage());
         analysisCall.enqueue(new Callback<ApiResponse<PrescriptionAnalysis>>() {
             @Override
             public void onResponse(Call<ApiResponse<PrescriptionAnalysis>> call, Response<ApiResponse<PrescriptionAnalysis>> response) {
@@ -2862,6 +2974,7 @@ public class PrescriptionFragment extends Fragment {
                 if (response.isSuccessful() && response.body() != null) {
                     ApiResponse<PrescriptionAnalysis> apiResponse = response.body();
                     if (apiResponse.isSuccess()) {
+                        analysisResultCache.put(cacheKey, apiResponse.getData());
                         displayPrescriptionAnalysis(apiResponse.getData());
                     } else {
                         Toast.makeText(getContext(), "处方分析失败: " + apiResponse.getMessage(), Toast.LENGTH_LONG).show();
@@ -2886,6 +2999,15 @@ public class PrescriptionFragment extends Fragment {
      * @param imageType 影像类型："xray", "ct", "ultrasound", "mri", "petct"
      */
     private void performMedicalImageAnalysis(String imageType) {
+        performMedicalImageAnalysis(imageType, false);
+    }
+    
+    /**
+     * 执行医学影像分析
+     * @param imageType 影像类型："xray", "ct", "ultrasound", "mri", "petct"
+     * @param reanalyze 为true时忽略缓存的分析结果，重新上传分析
+     */
+    private void performMedicalImageAnalysis(String imageType, boolean reanalyze) {
         Log.d("PrescriptionFragment", "开始执行医学影像分析，类型: " + imageType);
         
         if (selectedImageUri == null) {
@@ -2893,13 +3015,26 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
+        AnalysisResultCache.AnalysisType analysisType = AnalysisResultCache.AnalysisType.forMedicalImageType(imageType);
+        if (analysisType == null) {
+            Toast.makeText(getContext(), "不支持的影像类型", Toast.LENGTH_SHORT).show();
             return;
         }
         
+        analyzeImageWithCache(analysisType, ImageUploadProfile.forMedicalImageType(imageType),
+                MedicalImageAnalysis.class, reanalyze,
+                analysis -> displayMedicalImageAnalysis(analysis, imageType),
+                (session, cacheKey) -> uploadForMedicalImageAnalysis(session, imageType, cacheKey),
+                () -> performMedicalImageAnalysis(imageType, true));
+    }
+    
+    /**
+     * 上传图片进行医学影像分析
+     * @param session 图片的分析会话
+     * @param imageType 影像类型
+     * @param cacheKey 分析结果的缓存键
+     */
+    private void uploadForMedicalImageAnalysis(ImageAnalysisSession session, String imageType, String cacheKey) {
         // 显示加载界面但不启动普通的进度更新
         llLoading.setVisibility(View.VISIBLE);
         tvAnalysisResult.setVisibility(View.GONE);
@@ -2911,28 +3046,14 @@ public class PrescriptionFragment extends Fragment {
         // 启动医学影像分析专用的进度更新，显示分析过程的不同阶段
 //        startMedicalImageAnalysisProgressUpdate(imageType);
         
-        // 调用相应的API接口进行医学影像分析
-        switch (imageType) {
-            case "xray":
-                medicalImageAnalysisCall = apiService.analyzeXRayImage(imagePart);
-                break;
-            case "ct":
-                medicalImageAnalysisCall = apiService.analyzeCTImage(imagePart);
-                break;
-            case "ultrasound":
-                medicalImageAnalysisCall = apiService.analyzeUltrasoundImage(imagePart);
-                break;
-            case "mri":
-                medicalImageAnalysisCall = apiService.analyzeMRIImage(imagePart);
-                break;
-            case "petct":
-                medicalImageAnalysisCall = apiService.analyzePETCTImage(imagePart);
-                break;
-            default:
-                showLoading(false);
-                Toast.makeText(getContext(), "不支持的影像类型", Toast.LENGTH_SHORT).show();
-                return;
+        // 调用相应的API接口进行医学影像分析，已上传过的图片按图片ID引用
+        Call<ApiResponse<MedicalImageAnalysis>> medicalCall = session.analyzeMedicalImage(imageType);
+        if (medicalCall == null) {
+            showLoading(false);
+            Toast.makeText(getContext(), "不支持的影像类型", Toast.LENGTH_SHORT).show();
+            return;
         }
+        medicalImageAnalysisCall = callScope.track(medicalCall);
         
         if (medicalImageAnalysisCall != null) {
             medicalImageAnalysisCall.enqueue(new Callback<ApiResponse<MedicalImageAnalysis>>() {
@@ -2950,6 +3071,7 @@ public class PrescriptionFragment extends Fragment {
                             
                             if (analysisData != null) {
                                 Log.d("PrescriptionFragment", "显示医学影像分析结果");
+                                analysisResultCache.put(cacheKey, analysisData);
                                 // 显示医学影像分析结果
                                 displayMedicalImageAnalysis(analysisData, imageType);
                                 Toast.makeText(getContext(), getImageTypeDisplayName(imageType) + "影像分析完成", Toast.LENGTH_SHORT).show();
@@ -3414,6 +3536,14 @@ public class PrescriptionFragment extends Fragment {
      * 专门处理舌诊图像的AI分析功能
      */
     private void performTongueDiagnosis() {
+        performTongueDiagnosis(false);
+    }
+    
+    /**
+     * 执行中医舌诊分析
+     * @param reanalyze 为true时忽略缓存的分析结果，重新上传分析
+     */
+    private void performTongueDiagnosis(boolean reanalyze) {
         Log.d("PrescriptionFragment", "开始执行中医舌诊分析");
         
         if (selectedImageUri == null) {
@@ -3421,13 +3551,17 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传舌诊图片
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "舌诊图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
+        analyzeImageWithCache(AnalysisResultCache.AnalysisType.TONGUE, ImageUploadProfile.TONGUE,
+                TongueDiagnosisResult.class, reanalyze, this::displayTongueDiagnosisResult,
+                this::uploadForTongueDiagnosis, () -> performTongueDiagnosis(true));
+    }
+    
+    /**
+     * 上传舌诊图片进行分析
+     * @param session 图片的分析会话
+     * @param cacheKey 分析结果的缓存键
+     */
+    private void uploadForTongueDiagnosis(ImageAnalysisSession session, String cacheKey) {
         // 显示加载界面
         llLoading.setVisibility(View.VISIBLE);
         tvAnalysisResult.setVisibility(View.GONE);
@@ -3440,7 +3574,7 @@ public class PrescriptionFragment extends Fragment {
 //        startTongueDiagnosisProgressUpdate();
         
         // 调用中医舌诊API接口
-        tongueDiagnosisCall = apiService.analyzeTongueImage(imagePart);
+        tongueDiagnosisCall = callScope.track(session.analyzeTongueImage());
         
         if (tongueDiagnosisCall != null) {
             tongueDiagnosisCall.enqueue(new Callback<ApiResponse<TongueDiagnosisResult>>() {
@@ -3458,6 +3592,7 @@ public class PrescriptionFragment extends Fragment {
                             
                             if (analysisData != null) {
                                 Log.d("PrescriptionFragment", "显示中医舌诊分析结果");
+                                analysisResultCache.put(cacheKey, analysisData);
                                 // 显示中医舌诊分析结果
                                 displayTongueDiagnosisResult(analysisData);
                                 Toast.makeText(getContext(), "中医舌诊分析完成", Toast.LENGTH_SHORT).show();
@@ -3742,6 +3877,14 @@ public class PrescriptionFragment extends Fragment {
      * 专门处理面诊图像的AI分析功能
      */
     private void performFaceDiagnosis() {
+        performFaceDiagnosis(false);
+    }
+    
+    /**
+     * 执行中医面诊分析
+     * @param reanalyze 为true时忽略缓存的分析结果，重新上传分析
+     */
+    private void performFaceDiagnosis(boolean reanalyze) {
         Log.d("PrescriptionFragment", "开始执行中医面诊分析");
         
         if (selectedImageUri == null) {
@@ -3749,13 +3892,17 @@ public class PrescriptionFragment extends Fragment {
             return;
         }
         
-        // 创建MultipartBody.Part用于上传面诊图片
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
-        if (imagePart == null) {
-            Toast.makeText(getContext(), "面诊图片处理失败", Toast.LENGTH_SHORT).show();
-            return;
-        }
-        
+        analyzeImageWithCache(AnalysisResultCache.AnalysisType.FACE, ImageUploadProfile.FACE,
+                FaceDiagnosisResult.class, reanalyze, this::displayFaceDiagnosisResult,
+                this::uploadForFaceDiagnosis, () -> performFaceDiagnosis(true));
+    }
+    
+    /**
+     * 上传面诊图片进行分析
+     * @param session 图片的分析会话
+     * @param cacheKey 分析结果的缓存键
+     */
+    private void uploadForFaceDiagnosis(ImageAnalysisSession session, String cacheKey) {
         // 显示加载界面
         llLoading.setVisibility(View.VISIBLE);
         tvAnalysisResult.setVisibility(View.GONE);
@@ -3768,7 +3915,7 @@ public class PrescriptionFragment extends Fragment {
 //        startFaceDiagnosisProgressUpdate();
         
         // 调用中医面诊API接口
-        faceDiagnosisCall = apiService.analyzeFaceImage(imagePart);
+        faceDiagnosisCall = callScope.track(session.analyzeFaceImage());
         
         if (faceDiagnosisCall != null) {
             faceDiagnosisCall.enqueue(new Callback<ApiResponse<FaceDiagnosisResult>>() {
@@ -3786,6 +3933,7 @@ public class PrescriptionFragment extends Fragment {
                             
                             if (analysisData != null) {
                                 Log.d("PrescriptionFragment", "显示中医面诊分析结果");
+                                analysisResultCache.put(cacheKey, analysisData);
                                 // 显示中医面诊分析结果
                                 displayFaceDiagnosisResult(analysisData);
                                 Toast.makeText(getContext(), "中医面诊分析完成", Toast.LENGTH_SHORT).show();
@@ -4141,7 +4289,8 @@ public class PrescriptionFragment extends Fragment {
         }
         
         // 创建MultipartBody.Part
-        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image");
+        MultipartBody.Part imagePart = ImageUtils.createImagePart(getContext(), selectedImageUri, "image",
+                ImageUploadProfile.GENERIC);
         if (imagePart == null) {
             Toast.makeText(getContext(), "图片处理失败", Toast.LENGTH_SHORT).show();
             return;
@@ -4150,7 +4299,7 @@ public class PrescriptionFragment extends Fragment {
         showLoading(true);
         tvLoadingText.setText("正在上传图片...");
         
-        uploadCall = apiService.uploadImage(imagePart);
+        uploadCall = callScope.track(apiService.uploadImage(imagePart));
         uploadCall.enqueue(new Callback<ApiResponse<ImageUploadResult>>() {
             @Override
             public void onResponse(Call<ApiResponse<ImageUploadResult>> call, Response<ApiResponse<ImageUploadResult>> response) {
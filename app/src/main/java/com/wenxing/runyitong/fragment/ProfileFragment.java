@@ -27,6 +27,7 @@ import com.wenxing.runyitong.activity.MyAppointmentsActivity;
 import com.wenxing.runyitong.activity.MyPrescriptionsActivity;
 import com.wenxing.runyitong.activity.HealthRecordActivity;
 import com.wenxing.runyitong.activity.MemberRegistrationActivity;
+import com.wenxing.runyitong.utils.SessionStore;
 
 public class ProfileFragment extends Fragment {
 
@@ -42,6 +43,12 @@ public class ProfileFragment extends Fragment {
 
     private static final String USER_ID = "user_id";
 
+    private final SessionStore.SessionListener sessionListener = (isLoggedIn, userId) -> {
+        if (isAdded() && tvUsername != null) {
+            updateLoginStatus();
+        }
+    };
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -50,9 +57,18 @@ public class ProfileFragment extends Fragment {
         initViews(view);
         setupClickListeners();
         
+        // 登录状态变化（登录、退出、会话过期）时刷新界面
+        SessionStore.getInstance().addListener(sessionListener);
+        
         return view;
     }
     
+    @Override
+    public void onDestroyView() {
+        SessionStore.getInstance().removeListener(sessionListener);
+        super.onDestroyView();
+    }
+    
     private void initViews(View view) {
         btnExpressOrders = view.findViewById(R.id.btn_express_orders);
         btnLogin = view.findViewById(R.id.btn_login);
@@ -419,8 +435,7 @@ public class ProfileFragment extends Fragment {
      */
     private void performLogout() {
         // 清除登录状态
-        saveLoginState(false, "");
-        saveUserId(-1);
+        SessionStore.getInstance().logout();
         updateLoginStatus();
         
         if (getActivity() != null) {
@@ -431,16 +446,11 @@ public class ProfileFragment extends Fragment {
     }
     
     /**
-     * 保存登录状态到SharedPreferences
+     * 保存登录状态到会话存储
      */
     private void saveLoginState(boolean isLoggedIn, String username) {
-        if (sharedPreferences != null) {
-            sharedPreferences.edit()
-                    .putBoolean(KEY_IS_LOGGED_IN, isLoggedIn)
-                    .putString(KEY_USERNAME, username)
-                    .apply();
-            android.util.Log.d("ProfileFragment", "登录状态已保存: " + isLoggedIn + ", 用户名: " + username);
-        }
+        SessionStore.getInstance().setLoginState(isLoggedIn, username);
+        android.util.Log.d("ProfileFragment", "登录状态已保存: " + isLoggedIn + ", 用户名: " + username);
     }
 
     /**
@@ -456,23 +466,18 @@ public class ProfileFragment extends Fragment {
     }
     
     /**
-     * 从SharedPreferences读取登录状态
+     * 从会话存储读取登录状态
      */
     private boolean getLoginState() {
-        if (sharedPreferences != null) {
-            return sharedPreferences.getBoolean(KEY_IS_LOGGED_IN, false);
-        }
-        return false;
+        return SessionStore.getInstance().isLoggedIn();
     }
     
     /**
-     * 从SharedPreferences读取用户名
+     * 从会话存储读取用户名
      */
     private String getSavedUsername() {
-        if (sharedPreferences != null) {
-            return sharedPreferences.getString(KEY_USERNAME, "未登录");
-        }
-        return "未登录";
+        String username = SessionStore.getInstance().getUsername();
+        return username != null ? username : "未登录";
     }
     
     /**
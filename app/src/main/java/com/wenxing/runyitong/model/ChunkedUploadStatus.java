@@ -0,0 +1,48 @@
+package com.wenxing.runyitong.model;
+
+import java.util.List;
+
+/**
+ * 分块上传的服务端状态
+ */
+public class ChunkedUploadStatus {
+    private String upload_id;
+    private int chunk_size;
+    private int total_chunks;
+    // 服务端已确认（校验通过）的分块序号
+    private List<Integer> received_chunks;
+    private String expires_at;
+    
+    public ChunkedUploadStatus() {}
+    
+    public String getUploadId() {
+        return upload_id;
+    }
+    
+    public int getChunkSize() {
+        return chunk_size;
+    }
+    
+    public int getTotalChunks() {
+        return total_chunks;
+    }
+    
+    public List<Integer> getReceivedChunks() {
+        return received_chunks;
+    }
+    
+    public String getExpiresAt() {
+        return expires_at;
+    }
+    
+    @Override
+    public String toString() {
+        return "ChunkedUploadStatus{" +
+                "upload_id='" + upload_id + '\'' +
+                ", chunk_size=" + chunk_size +
+                ", total_chunks=" + total_chunks +
+                ", received_chunks=" + (received_chunks != null ? received_chunks.size() : 0) +
+                ", expires_at='" + expires_at + '\'' +
+                '}';
+    }
+}
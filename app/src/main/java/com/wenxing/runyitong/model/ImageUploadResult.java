@@ -1,6 +1,8 @@
 package com.wenxing.runyitong.model;
 
 public class ImageUploadResult {
+    // 服务端图片ID，后续分析可按ID引用已上传的图片
+    private String image_id;
     private String filename;
     private String url;
     private String file_size;
@@ -19,6 +21,14 @@ public class ImageUploadResult {
     }
     
     // Getter和Setter方法
+    public String getImageId() {
+        return image_id;
+    }
+    
+    public void setImageId(String image_id) {
+        this.image_id = image_id;
+    }
+    
     public String getFilename() {
         return filename;
     }
@@ -70,7 +80,8 @@ public class ImageUploadResult {
     @Override
     public String toString() {
         return "ImageUploadResult{" +
-                "filename='" + filename + '\'' +
+                "image_id='" + image_id + '\'' +
+                ", filename='" + filename + '\'' +
                 ", url='" + url + '\'' +
                 ", file_size='" + file_size + '\'' +
                 ", upload_time='" + upload_time + '\'' +
@@ -0,0 +1,143 @@
+package com.wenxing.runyitong.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * 书架索引中的一本已下载书籍
+ * 文件信息在下载或后台核对时记录，书架显示时直接使用，不再访问文件。
+ */
+public class LibraryBook {
+    @SerializedName("path")
+    private String path;
+
+    @SerializedName("name")
+    private String name;
+
+    @SerializedName("file_size")
+    private long fileSize;
+
+    @SerializedName("last_modified")
+    private long lastModified;
+
+    @SerializedName("page_count")
+    private int pageCount;
+
+    @SerializedName("content_hash")
+    private String contentHash;
+
+    @SerializedName("cover_path")
+    private String coverPath;
+
+    @SerializedName("added_time")
+    private long addedTime;
+
+    @SerializedName("last_read_page")
+    private int lastReadPage = -1;
+
+    @SerializedName("last_read_time")
+    private long lastReadTime;
+
+    public LibraryBook() {
+    }
+
+    public LibraryBook(String path) {
+        this.path = path;
+    }
+
+    /**
+     * 显示用的书名：文件名去掉.pdf扩展名
+     */
+    public static String displayName(String fileName) {
+        if (fileName != null && fileName.toLowerCase().endsWith(".pdf")) {
+            return fileName.substring(0, fileName.length() - 4);
+        }
+        return fileName;
+    }
+
+    /**
+     * 是否读过，lastReadPage为读到的页码（从0开始）
+     */
+    public boolean hasReadProgress() {
+        return lastReadPage >= 0;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getCoverPath() {
+        return coverPath;
+    }
+
+    public void setCoverPath(String coverPath) {
+        this.coverPath = coverPath;
+    }
+
+    public long getAddedTime() {
+        return addedTime;
+    }
+
+    public void setAddedTime(long addedTime) {
+        this.addedTime = addedTime;
+    }
+
+    public int getLastReadPage() {
+        return lastReadPage;
+    }
+
+    public void setLastReadPage(int lastReadPage) {
+        this.lastReadPage = lastReadPage;
+    }
+
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    public void setLastReadTime(long lastReadTime) {
+        this.lastReadTime = lastReadTime;
+    }
+}
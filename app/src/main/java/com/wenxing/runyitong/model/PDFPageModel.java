@@ -12,11 +12,14 @@ public class PDFPageModel {
     
     private int pageNumber;
     private String pageTitle;
+    // PDFPageAdapter的页面位图由PageBitmapCache统一管理，不再存放在这里
     private Bitmap pageBitmap;
     private LoadingState loadingState;
     private String errorMessage;
     private long loadStartTime;
     private long loadEndTime;
+    // 低分辨率预览显示的时间，两遍渲染时用于统计预览耗时
+    private long previewEndTime;
     private float zoomLevel = 1.0f;
     private int originalWidth;
     private int originalHeight;
@@ -83,6 +86,7 @@ public class PDFPageModel {
         if (loadingState == LoadingState.LOADING) {
             this.loadStartTime = System.currentTimeMillis();
             this.loadEndTime = 0; // 重置结束时间
+            this.previewEndTime = 0;
             this.errorMessage = null; // 清除之前的错误信息
         } else if (loadingState == LoadingState.LOADED || loadingState == LoadingState.ERROR) {
             this.loadEndTime = System.currentTimeMillis();
@@ -113,6 +117,19 @@ public class PDFPageModel {
         this.loadEndTime = loadEndTime;
     }
     
+    /**
+     * 记录预览已显示，页面仍处于加载中
+     */
+    public void markPreviewLoaded() {
+        if (loadingState == LoadingState.LOADING && previewEndTime == 0) {
+            this.previewEndTime = System.currentTimeMillis();
+        }
+    }
+    
+    public long getPreviewEndTime() {
+        return previewEndTime;
+    }
+    
     public float getZoomLevel() {
         return zoomLevel;
     }
@@ -160,6 +177,16 @@ public class PDFPageModel {
         return 0;
     }
     
+    /**
+     * 从开始加载到预览显示的耗时，没有经过预览阶段时返回0
+     */
+    public long getPreviewDuration() {
+        if (loadStartTime > 0 && previewEndTime > 0 && previewEndTime >= loadStartTime) {
+            return previewEndTime - loadStartTime;
+        }
+        return 0;
+    }
+    
     public String getLoadDurationString() {
         long duration = getLoadDuration();
         if (duration > 0) {
@@ -176,6 +203,7 @@ public class PDFPageModel {
         this.loadingState = LoadingState.PENDING;
         this.loadStartTime = 0;
         this.loadEndTime = 0;
+        this.previewEndTime = 0;
         this.errorMessage = null;
     }
     
@@ -215,6 +243,7 @@ public class PDFPageModel {
         errorMessage = null;
         loadStartTime = 0;
         loadEndTime = 0;
+        previewEndTime = 0;
         originalWidth = 0;
         originalHeight = 0;
     }
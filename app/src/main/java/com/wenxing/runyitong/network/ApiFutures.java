@@ -0,0 +1,152 @@
+package com.wenxing.runyitong.network;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * CompletableFuture请求组合工具
+ * 配合{@link FutureCallAdapterFactory}使用：并发发起相互独立的请求，再统一汇总结果，
+ * 并支持超时和随页面生命周期自动取消。
+ */
+public final class ApiFutures {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    // 超时计时线程，只负责触发超时，不执行业务回调
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ApiFutures-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ApiFutures() {
+    }
+
+    /**
+     * 将仍返回Call的接口转换为future，结果在主线程完成
+     */
+    public static <T> CompletableFuture<Response<T>> from(Call<T> call) {
+        return FutureCallAdapterFactory.fromCall(call);
+    }
+
+    /**
+     * 汇总多个future的结果，顺序与输入一致
+     * 任一失败时立即以该异常完成，并取消其余尚未完成的请求；取消汇总结果也会取消全部请求。
+     */
+    public static <T> CompletableFuture<List<T>> all(List<? extends CompletableFuture<? extends T>> futures) {
+        return collect(futures, true);
+    }
+
+    /**
+     * 汇总多个future的结果，顺序与输入一致，失败的请求对应位置为null
+     * 适合逐项补充数据的场景，单个请求失败不影响其他结果；取消汇总结果会取消全部请求。
+     */
+    public static <T> CompletableFuture<List<T>> allSettled(List<? extends CompletableFuture<? extends T>> futures) {
+        return collect(futures, false);
+    }
+
+    private static <T> CompletableFuture<List<T>> collect(final List<? extends CompletableFuture<? extends T>> futures,
+                                                        final boolean failFast) {
+        final CompletableFuture<List<T>> result = new FutureCallAdapterFactory.CancellableFuture<>(() -> cancelAll(futures));
+        final int size = futures.size();
+        if (size == 0) {
+            result.complete(new ArrayList<>());
+            return result;
+        }
+        final List<T> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(null);
+        }
+        final AtomicInteger remaining = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            futures.get(i).whenComplete((value, error) -> {
+                if (error != null && failFast) {
+                    if (result.completeExceptionally(error)) {
+                        cancelAll(futures);
+                    }
+                    return;
+                }
+                if (error == null) {
+                    synchronized (values) {
+                        values.set(index, value);
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(values);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 为future设置超时，超时后以TimeoutException完成并取消底层请求
+     */
+    public static <T> CompletableFuture<T> withTimeout(final CompletableFuture<T> future, final long timeout, final TimeUnit unit) {
+        final CompletableFuture<T> result = new FutureCallAdapterFactory.CancellableFuture<>(() -> future.cancel(true));
+        final ScheduledFuture<?> timer = TIMER.schedule(() -> {
+            // 超时回调切回主线程，与请求结果在同一线程完成
+            MAIN_HANDLER.post(() -> {
+                if (result.completeExceptionally(new TimeoutException("Request timed out after " + timeout + " " + unit))) {
+                    future.cancel(true);
+                }
+            });
+        }, timeout, unit);
+        future.whenComplete((value, error) -> {
+            timer.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 将future绑定到页面生命周期，页面销毁时自动取消
+     * 需在主线程调用
+     */
+    public static <T> CompletableFuture<T> bindTo(final LifecycleOwner owner, final CompletableFuture<T> future) {
+        final Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            future.cancel(true);
+            return future;
+        }
+        final LifecycleEventObserver observer = (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                future.cancel(true);
+            }
+        };
+        lifecycle.addObserver(observer);
+        // 完成后移除观察者，Lifecycle要求在主线程操作
+        future.whenComplete((value, error) -> MAIN_HANDLER.post(() -> lifecycle.removeObserver(observer)));
+        return future;
+    }
+
+    private static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            if (!future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+}
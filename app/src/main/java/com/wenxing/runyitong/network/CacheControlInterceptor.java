@@ -0,0 +1,72 @@
+package com.wenxing.runyitong.network;
+
+import java.io.IOException;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+/**
+ * 缓存控制网络拦截器
+ * 后端接口默认不返回Cache-Control，OkHttp因此不会缓存响应。
+ * 该拦截器根据ApiService方法上的{@link CachePolicy}为响应补充新鲜期，
+ * 同时保留服务器返回的ETag/Last-Modified，供过期后的条件请求使用。
+ * 必须通过addNetworkInterceptor注册，才能作用于写入缓存的响应和304响应。
+ */
+public class CacheControlInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+
+        CachePolicy policy = policyOf(request);
+        if (policy == null) {
+            return response;
+        }
+
+        // 只处理成功响应和304，错误响应不应被缓存
+        if (!response.isSuccessful() && response.code() != 304) {
+            return response;
+        }
+
+        // 服务器已声明缓存策略（新鲜期、禁止缓存或仅限私有缓存）时以服务器为准
+        if (declaresCachePolicy(response.cacheControl())) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "private, max-age=" + policy.maxAge())
+                .build();
+    }
+
+    /**
+     * 服务器的Cache-Control是否包含需要遵守的指令
+     */
+    static boolean declaresCachePolicy(CacheControl cacheControl) {
+        return cacheControl.noStore()
+                || cacheControl.noCache()
+                || cacheControl.isPrivate()
+                || cacheControl.maxAgeSeconds() != -1
+                || cacheControl.sMaxAgeSeconds() != -1;
+    }
+
+    /**
+     * 获取请求对应的ApiService方法上的缓存策略，仅GET请求生效
+     * @param request 请求
+     * @return 缓存策略，未声明时返回null
+     */
+    static CachePolicy policyOf(Request request) {
+        if (!"GET".equals(request.method())) {
+            return null;
+        }
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return null;
+        }
+        return invocation.method().getAnnotation(CachePolicy.class);
+    }
+}
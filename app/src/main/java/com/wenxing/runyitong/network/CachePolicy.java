@@ -0,0 +1,31 @@
+package com.wenxing.runyitong.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口缓存策略注解
+ * 标注在ApiService的GET方法上，声明该接口响应在磁盘缓存中的新鲜期和离线可用期
+ *
+ * 新鲜期内直接从缓存返回，不产生网络请求；
+ * 过期后由OkHttp携带If-None-Match/If-Modified-Since发起条件请求，服务器返回304时复用缓存内容；
+ * 网络不可用时，在离线可用期内返回过期缓存。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachePolicy {
+
+    /**
+     * 新鲜期（秒），服务器未返回Cache-Control时使用
+     */
+    int maxAge();
+
+    /**
+     * 离线时允许使用过期缓存的最长时间（秒），默认7天
+     */
+    int maxStale() default 7 * 24 * 60 * 60;
+}
@@ -0,0 +1,141 @@
+package com.wenxing.runyitong.network;
+
+import com.wenxing.runyitong.api.ApiClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 页面级请求作用域
+ * 页面发起的请求通过track登记，页面关闭时统一取消；
+ * cancelQueued只取消仍在调度通道中排队、尚未开始发送的请求，正在上传的请求不受影响。
+ * 请求完成（回调或execute返回）后自动移出作用域，长生命周期页面中的列表不会持续增长。
+ */
+public class CallScope {
+
+    private final List<Call<?>> calls = new ArrayList<>();
+    private boolean cancelled;
+
+    /**
+     * 登记请求，返回的Call应替代原请求使用，完成后自动移出作用域
+     */
+    public synchronized <T> Call<T> track(Call<T> call) {
+        if (cancelled) {
+            // 作用域已结束，新请求直接取消
+            call.cancel();
+            return call;
+        }
+        ScopedCall<T> scoped = new ScopedCall<>(call);
+        calls.add(scoped);
+        return scoped;
+    }
+
+    /**
+     * 取消仍在排队的请求
+     * @return 取消的数量
+     */
+    public synchronized int cancelQueued() {
+        EndpointCallFactory factory = ApiClient.getEndpointCallFactory();
+        int count = 0;
+        Iterator<Call<?>> iterator = calls.iterator();
+        while (iterator.hasNext()) {
+            Call<?> call = iterator.next();
+            if (call.isExecuted() && !call.isCanceled() && factory.isQueued(call.request())) {
+                call.cancel();
+                iterator.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 取消全部已登记的请求，之后登记的请求也会被立即取消，一般在onDestroy中调用
+     */
+    public synchronized void cancelAll() {
+        cancelled = true;
+        for (Call<?> call : new ArrayList<>(calls)) {
+            call.cancel();
+        }
+        calls.clear();
+    }
+
+    private synchronized void release(Call<?> call) {
+        calls.remove(call);
+    }
+
+    /**
+     * 完成时从作用域移除自身的Call包装，回调中的Call参数为包装本身
+     */
+    private final class ScopedCall<T> implements Call<T> {
+        private final Call<T> delegate;
+
+        ScopedCall(Call<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            delegate.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> call, Response<T> response) {
+                    release(ScopedCall.this);
+                    callback.onResponse(ScopedCall.this, response);
+                }
+
+                @Override
+                public void onFailure(Call<T> call, Throwable t) {
+                    release(ScopedCall.this);
+                    callback.onFailure(ScopedCall.this, t);
+                }
+            });
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            try {
+                return delegate.execute();
+            } finally {
+                release(this);
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return delegate.isExecuted();
+        }
+
+        @Override
+        public void cancel() {
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return delegate.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return track(delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.wenxing.runyitong.network;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.model.ChunkedUploadStatus;
+import com.wenxing.runyitong.model.ImageUploadResult;
+import com.wenxing.runyitong.utils.AdaptiveImageEncoder;
+import com.wenxing.runyitong.utils.ImageRequestBody;
+import com.wenxing.runyitong.utils.ImageUploadProfile;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import retrofit2.Response;
+
+/**
+ * 可断点续传的分块图片上传器，用于CT、MRI、PET-CT等大图片
+ * 1. 编码后的图片先写入应用私有目录，进度按图片Uri和编码参数记录；之后继续上传同一图片时
+ *    直接使用已保存的数据，不再读取和编码原图，进程被杀、相册授权失效后仍可续传。
+ * 2. 按固定大小切分，每个分块附带自己的SHA-256，服务端校验失败的分块单独重传。
+ * 3. 每个分块确认后立即保存进度；续传前先向服务端查询已确认的分块，只上传缺少的分块。
+ * 4. 分块以有限的并发上传，全部确认后提交，服务端校验整个文件的SHA-256后返回图片ID，
+ *    调用方再按图片ID发起分析。
+ */
+public class ChunkedImageUploader {
+
+    private static final String TAG = "ChunkedImageUploader";
+
+    private static final String UPLOAD_DIR = "chunked_uploads";
+    private static final MediaType CHUNK_MEDIA_TYPE = MediaType.parse("application/octet-stream");
+    // 分块大小，服务端可在创建时调整
+    private static final int CHUNK_SIZE = 256 * 1024;
+    // 同时上传的分块数，与UPLOAD通道的单主机并发上限一致
+    private static final int MAX_PARALLEL_CHUNKS = 2;
+    // 单个分块的最大重试次数
+    private static final int MAX_CHUNK_RETRIES = 3;
+    // 本地保存的上传数据和进度的最长保留时间
+    private static final long STATE_TTL_MS = 24L * 60 * 60 * 1000;
+
+    private static final Gson GSON = new Gson();
+
+    private static volatile ChunkedImageUploader instance;
+
+    private final File uploadDir;
+    private final ExecutorService coordinatorExecutor;
+    private final ExecutorService chunkExecutor;
+    private final Handler mainHandler;
+
+    /**
+     * 上传进度回调，在主线程执行
+     */
+    public interface ProgressListener {
+        void onProgress(int confirmedChunks, int totalChunks);
+    }
+
+    /**
+     * 持久化的上传状态
+     */
+    static class UploadState {
+        String sha256;
+        long file_size;
+        String upload_id;
+        int chunk_size;
+        int total_chunks;
+        boolean[] confirmed;
+        // 提交成功后保存，之后的分析直接引用
+        String image_id;
+        long created_time;
+        // 图片来源：Uri和编码参数，续传时据此找到已保存的数据，不需要重新解码图片
+        String source;
+
+        int confirmedCount() {
+            int count = 0;
+            if (confirmed != null) {
+                for (boolean chunk : confirmed) {
+                    if (chunk) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private ChunkedImageUploader(Context context) {
+        this.uploadDir = new File(context.getFilesDir(), UPLOAD_DIR);
+        this.coordinatorExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "chunked-upload-io"));
+        this.chunkExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_CHUNKS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        coordinatorExecutor.execute(this::deleteExpired);
+    }
+
+    public static ChunkedImageUploader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ChunkedImageUploader.class) {
+                if (instance == null) {
+                    instance = new ChunkedImageUploader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 上传图片或继续未完成的上传，同一份编码数据按SHA-256识别
+     * @param progressListener 进度回调，可为null
+     * @return 在主线程完成的future，结果包含图片ID；服务端不支持分块上传时以
+     *         {@link ResumableDownloader.HttpStatusException}（404）失败
+     */
+    public CompletableFuture<ImageUploadResult> upload(ApiService apiService, ImageRequestBody imageBody,
+                                                       ProgressListener progressListener) {
+        CompletableFuture<ImageUploadResult> future = new CompletableFuture<>();
+        coordinatorExecutor.execute(() -> {
+            try {
+                ImageUploadResult result = runUpload(apiService, imageBody, progressListener);
+                mainHandler.post(() -> future.complete(result));
+            } catch (Exception e) {
+                Log.e(TAG, "分块上传失败，已保留进度以便续传: " + e.getMessage(), e);
+                mainHandler.post(() -> future.completeExceptionally(e));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 已提交的上传对应的图片ID在服务端失效时调用，下次上传同一图片时重新上传
+     */
+    public void discard(String imageId) {
+        coordinatorExecutor.execute(() -> {
+            File[] stateFiles = uploadDir.listFiles((dir, name) -> name.endsWith(".state"));
+            if (stateFiles == null) {
+                return;
+            }
+            for (File stateFile : stateFiles) {
+                UploadState state = loadState(stateFile);
+                if (state != null && imageId.equals(state.image_id)) {
+                    deleteUpload(state.sha256);
+                }
+            }
+        });
+    }
+
+    private ImageUploadResult runUpload(ApiService apiService, ImageRequestBody imageBody,
+                                        ProgressListener progressListener) throws IOException {
+        String source = sourceOf(imageBody);
+        UploadState state = findBySource(source);
+        String sha256;
+        if (state != null) {
+            // 同一图片已有保存的数据，直接续传，不再读取原图
+            sha256 = state.sha256;
+        } else {
+            sha256 = imageBody.sha256();
+            stageData(imageBody, dataFile(sha256));
+            state = loadState(stateFile(sha256));
+        }
+        File dataFile = dataFile(sha256);
+        File stateFile = stateFile(sha256);
+
+        if (state != null && state.image_id != null) {
+            Log.i(TAG, "图片已上传，直接引用: " + state.image_id);
+            ImageUploadResult result = new ImageUploadResult();
+            result.setImageId(state.image_id);
+            return result;
+        }
+
+        state = resumeOrCreate(apiService, imageBody.getProfile(), state, sha256, dataFile.length());
+        state.source = source;
+        saveState(stateFile, state);
+        reportProgress(progressListener, state);
+
+        uploadMissingChunks(apiService, state, dataFile, stateFile, progressListener);
+
+        Response<ApiResponse<ImageUploadResult>> response = apiService.commitChunkedUpload(state.upload_id).execute();
+        ImageUploadResult result = requireData(response, "提交");
+        if (result.getImageId() == null) {
+            throw new IOException("提交分块上传未返回图片ID");
+        }
+        state.image_id = result.getImageId();
+        saveState(stateFile, state);
+        // 已提交的数据不再需要
+        dataFile.delete();
+        Log.i(TAG, "分块上传已提交: " + state.image_id + "（" + state.total_chunks + "个分块）");
+        return result;
+    }
+
+    /**
+     * 查找同一图片来源的上传：已提交的，或本地数据仍完整的未完成上传
+     */
+    private UploadState findBySource(String source) {
+        File[] stateFiles = uploadDir.listFiles((dir, name) -> name.endsWith(".state"));
+        if (stateFiles == null) {
+            return null;
+        }
+        UploadState latest = null;
+        for (File stateFile : stateFiles) {
+            UploadState state = loadState(stateFile);
+            if (state == null || !source.equals(state.source)) {
+                continue;
+            }
+            boolean usable = state.image_id != null || dataFile(state.sha256).length() == state.file_size;
+            if (usable && (latest == null || state.created_time > latest.created_time)) {
+                latest = state;
+            }
+        }
+        return latest;
+    }
+
+    private static String sourceOf(ImageRequestBody imageBody) {
+        return imageBody.getImageUri() + "#" + imageBody.getProfile().name();
+    }
+
+    /**
+     * 有未完成的上传时按服务端确认的分块续传，服务端已过期时重新创建
+     */
+    private UploadState resumeOrCreate(ApiService apiService, ImageUploadProfile profile, UploadState saved,
+                                       String sha256, long fileSize)
+            throws IOException {
+        if (saved != null && saved.upload_id != null && saved.file_size == fileSize) {
+            Response<ApiResponse<ChunkedUploadStatus>> response =
+                    apiService.getChunkedUploadStatus(saved.upload_id).execute();
+            if (response.code() != 404) {
+                ChunkedUploadStatus status = requireData(response, "查询状态");
+                // 以服务端确认的分块为准
+                saved.confirmed = new boolean[saved.total_chunks];
+                applyReceived(saved, status);
+                Log.i(TAG, "继续上传 " + saved.upload_id + "，已确认 "
+                        + saved.confirmedCount() + "/" + saved.total_chunks + " 个分块");
+                return saved;
+            }
+            Log.w(TAG, "服务端上传已过期，重新上传: " + saved.upload_id);
+        }
+
+        String fileName = "image_" + sha256.substring(0, 16) + AdaptiveImageEncoder.fileExtension(profile);
+        Response<ApiResponse<ChunkedUploadStatus>> response = apiService.createChunkedUpload(
+                fileName, fileSize, CHUNK_SIZE, sha256, AdaptiveImageEncoder.mimeType(profile)).execute();
+        ChunkedUploadStatus status = requireData(response, "创建");
+        UploadState state = new UploadState();
+        state.sha256 = sha256;
+        state.file_size = fileSize;
+        state.upload_id = status.getUploadId();
+        state.chunk_size = status.getChunkSize() > 0 ? status.getChunkSize() : CHUNK_SIZE;
+        state.total_chunks = (int) ((fileSize + state.chunk_size - 1) / state.chunk_size);
+        state.confirmed = new boolean[state.total_chunks];
+        state.created_time = System.currentTimeMillis();
+        applyReceived(state, status);
+        return state;
+    }
+
+    private void uploadMissingChunks(ApiService apiService, UploadState state, File dataFile, File stateFile,
+                                     ProgressListener progressListener) throws IOException {
+        AtomicBoolean failed = new AtomicBoolean();
+        IOException[] firstError = new IOException[1];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < state.total_chunks; i++) {
+            if (state.confirmed[i]) {
+                continue;
+            }
+            final int index = i;
+            futures.add(chunkExecutor.submit(() -> {
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    uploadChunk(apiService, state, dataFile, index, failed);
+                    synchronized (state) {
+                        state.confirmed[index] = true;
+                    }
+                    saveState(stateFile, state);
+                    reportProgress(progressListener, state);
+                } catch (IOException e) {
+                    // 一个分块彻底失败后停止其他分块，已确认的进度已保存
+                    failed.set(true);
+                    synchronized (firstError) {
+                        if (firstError[0] == null) {
+                            firstError[0] = e;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new IOException("分块上传线程异常", e);
+            }
+        }
+        if (failed.get()) {
+            throw firstError[0];
+        }
+    }
+
+    /**
+     * 上传单个分块，网络错误、服务端5xx和校验失败时退避重试
+     */
+    private void uploadChunk(ApiService apiService, UploadState state, File dataFile, int index,
+                             AtomicBoolean failed) throws IOException {
+        byte[] chunk = readChunk(dataFile, state, index);
+        String chunkSha256 = sha256Hex(chunk);
+        RequestBody body = RequestBody.create(CHUNK_MEDIA_TYPE, chunk);
+        int attempt = 0;
+        while (true) {
+            IOException error;
+            try {
+                Response<ApiResponse<ChunkedUploadStatus>> response =
+                        apiService.uploadChunk(state.upload_id, index, chunkSha256, body).execute();
+                if (response.isSuccessful()) {
+                    return;
+                }
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                // 422为分块校验失败，与5xx一样可以重传；其余4xx重试无意义
+                if (response.code() < 500 && response.code() != 422) {
+                    throw new ResumableDownloader.HttpStatusException(response.code());
+                }
+                error = new ResumableDownloader.HttpStatusException(response.code());
+            } catch (ResumableDownloader.HttpStatusException e) {
+                throw e;
+            } catch (IOException e) {
+                error = e;
+            }
+            if (failed.get() || ++attempt > MAX_CHUNK_RETRIES) {
+                throw error;
+            }
+            Log.w(TAG, "分块 " + index + "/" + state.total_chunks + " 上传失败（" + error.getMessage()
+                    + "），重试 " + attempt + "/" + MAX_CHUNK_RETRIES);
+            try {
+                Thread.sleep(RetryEngine.backoffMillis(attempt - 1, false));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("上传被中断", e);
+            }
+        }
+    }
+
+    static byte[] readChunk(File dataFile, UploadState state, int index) throws IOException {
+        long offset = (long) index * state.chunk_size;
+        int length = (int) Math.min(state.chunk_size, state.file_size - offset);
+        byte[] chunk = new byte[length];
+        try (RandomAccessFile file = new RandomAccessFile(dataFile, "r")) {
+            file.seek(offset);
+            file.readFully(chunk);
+        }
+        return chunk;
+    }
+
+    static void applyReceived(UploadState state, ChunkedUploadStatus status) {
+        if (status.getReceivedChunks() == null) {
+            return;
+        }
+        for (Integer index : status.getReceivedChunks()) {
+            if (index != null && index >= 0 && index < state.total_chunks) {
+                state.confirmed[index] = true;
+            }
+        }
+    }
+
+    private static <T> T requireData(Response<ApiResponse<T>> response, String step) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+            throw new ResumableDownloader.HttpStatusException(response.code());
+        }
+        ApiResponse<T> body = response.body();
+        if (body == null || !body.isSuccess() || body.getData() == null) {
+            throw new IOException("分块上传" + step + "失败: "
+                    + (body != null ? body.getMessage() : "响应为空"));
+        }
+        return body.getData();
+    }
+
+    /**
+     * 把编码后的图片写入私有目录，已存在且大小一致时复用
+     */
+    private void stageData(ImageRequestBody imageBody, File dataFile) throws IOException {
+        long length = imageBody.contentLength();
+        if (dataFile.exists() && dataFile.length() == length) {
+            return;
+        }
+        if (!uploadDir.exists() && !uploadDir.mkdirs()) {
+            throw new IOException("无法创建目录: " + uploadDir);
+        }
+        File tmp = new File(dataFile.getPath() + ".tmp");
+        try (BufferedSink sink = Okio.buffer(Okio.sink(tmp))) {
+            imageBody.writeTo(sink);
+        }
+        if (!tmp.renameTo(dataFile)) {
+            tmp.delete();
+            throw new IOException("无法保存上传数据");
+        }
+    }
+
+    private void reportProgress(ProgressListener listener, UploadState state) {
+        if (listener == null) {
+            return;
+        }
+        int confirmed;
+        synchronized (state) {
+            confirmed = state.confirmedCount();
+        }
+        int total = state.total_chunks;
+        mainHandler.post(() -> listener.onProgress(confirmed, total));
+    }
+
+    private void saveState(File stateFile, UploadState state) throws IOException {
+        synchronized (state) {
+            File tmp = new File(stateFile.getPath() + ".tmp");
+            try (Writer writer = new FileWriter(tmp)) {
+                GSON.toJson(state, writer);
+            }
+            if (!tmp.renameTo(stateFile)) {
+                throw new IOException("无法保存上传进度");
+            }
+        }
+    }
+
+    static UploadState loadState(File stateFile) {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(stateFile)) {
+            UploadState state = GSON.fromJson(reader, UploadState.class);
+            if (state != null && state.sha256 != null && state.confirmed != null
+                    && state.confirmed.length == state.total_chunks) {
+                return state;
+            }
+        } catch (IOException | JsonSyntaxException e) {
+            Log.w(TAG, "上传进度文件无法读取，已忽略: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 删除超过保留时间的上传数据和进度
+     */
+    private void deleteExpired() {
+        File[] files = uploadDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            if (now - file.lastModified() > STATE_TTL_MS) {
+                file.delete();
+            }
+        }
+    }
+
+    private void deleteUpload(String sha256) {
+        dataFile(sha256).delete();
+        stateFile(sha256).delete();
+    }
+
+    private File dataFile(String sha256) {
+        return new File(uploadDir, sha256 + ".bin");
+    }
+
+    private File stateFile(String sha256) {
+        return new File(uploadDir, sha256 + ".state");
+    }
+
+    private static String sha256Hex(byte[] data) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest(data);
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 按主机划分的熔断器拦截器
+ * 连续失败达到阈值后进入熔断状态，熔断期内该主机的请求直接失败，
+ * 熔断期结束后放行一个探测请求，成功则恢复，失败则继续熔断。
+ */
+public class CircuitBreaker implements Interceptor {
+
+    private static final String TAG = "CircuitBreaker";
+
+    // 连续失败多少次后熔断
+    private static final int FAILURE_THRESHOLD = 5;
+    // 熔断持续时间
+    private static final long OPEN_DURATION_MS = 30 * 1000;
+
+    private static volatile CircuitBreaker instance;
+
+    private final ConcurrentHashMap<String, HostState> hostStates = new ConcurrentHashMap<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * 熔断状态下请求被拒绝时抛出的异常
+     */
+    public static class CircuitOpenException extends IOException {
+        public CircuitOpenException(String host) {
+            super("Circuit open for host " + host + ", failing fast");
+        }
+    }
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * 单个主机的熔断状态
+     */
+    private static class HostState {
+        State state = State.CLOSED;
+        int consecutiveFailures = 0;
+        long openedAt = 0;
+    }
+
+    private CircuitBreaker() {
+    }
+
+    public static CircuitBreaker getInstance() {
+        if (instance == null) {
+            synchronized (CircuitBreaker.class) {
+                if (instance == null) {
+                    instance = new CircuitBreaker();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+
+        // 只读缓存的请求不会访问网络，无需熔断
+        if (request.cacheControl().onlyIfCached()) {
+            return chain.proceed(request);
+        }
+
+        String host = request.url().host();
+        if (!allowRequest(host)) {
+            rejectedCount.incrementAndGet();
+            throw new CircuitOpenException(host);
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            // 主动取消不代表后端故障
+            if (!chain.call().isCanceled()) {
+                recordFailure(host);
+            }
+            throw e;
+        }
+
+        if (response.code() >= 500) {
+            recordFailure(host);
+        } else {
+            recordSuccess(host);
+        }
+        return response;
+    }
+
+    private boolean allowRequest(String host) {
+        HostState hostState = hostStates.computeIfAbsent(host, key -> new HostState());
+        synchronized (hostState) {
+            switch (hostState.state) {
+                case OPEN:
+                    if (System.currentTimeMillis() - hostState.openedAt >= OPEN_DURATION_MS) {
+                        // 熔断期结束，放行一个探测请求
+                        hostState.state = State.HALF_OPEN;
+                        hostState.openedAt = System.currentTimeMillis();
+                        Log.i(TAG, "Circuit half-open for host " + host + ", sending probe");
+                        return true;
+                    }
+                    return false;
+                case HALF_OPEN:
+                    // 探测请求未完成前拒绝其他请求；探测请求被取消而迟迟没有结果时，重新放行一个
+                    if (System.currentTimeMillis() - hostState.openedAt >= OPEN_DURATION_MS) {
+                        hostState.openedAt = System.currentTimeMillis();
+                        return true;
+                    }
+                    return false;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    private void recordSuccess(String host) {
+        HostState hostState = hostStates.get(host);
+        if (hostState == null) {
+            return;
+        }
+        synchronized (hostState) {
+            if (hostState.state != State.CLOSED) {
+                Log.i(TAG, "Circuit closed for host " + host);
+            }
+            hostState.state = State.CLOSED;
+            hostState.consecutiveFailures = 0;
+        }
+    }
+
+    private void recordFailure(String host) {
+        HostState hostState = hostStates.get(host);
+        if (hostState == null) {
+            return;
+        }
+        synchronized (hostState) {
+            hostState.consecutiveFailures++;
+            if (hostState.state == State.HALF_OPEN
+                    || hostState.consecutiveFailures >= FAILURE_THRESHOLD) {
+                if (hostState.state != State.OPEN) {
+                    Log.w(TAG, "Circuit opened for host " + host + " after "
+                            + hostState.consecutiveFailures + " consecutive failures");
+                }
+                hostState.state = State.OPEN;
+                hostState.openedAt = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * 获取因熔断被直接拒绝的请求数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,23 @@
+package com.wenxing.runyitong.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 请求合并注解
+ * 标注在ApiService的GET方法上：同一URL的并发请求只发出一次网络调用，结果分发给所有调用方，
+ * 成功结果在内存中保留ttlSeconds秒，期间的重复请求直接返回内存结果。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+
+    /**
+     * 成功结果在内存中的保留时间（秒），0表示只合并并发请求不做缓存
+     */
+    int ttlSeconds() default 30;
+}
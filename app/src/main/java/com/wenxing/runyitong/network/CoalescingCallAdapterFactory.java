@@ -0,0 +1,407 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Converter;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * 请求合并CallAdapter工厂
+ * 对标注了{@link Coalesce}的接口，相同URL的并发异步请求共享同一次网络调用（single-flight），
+ * 成功结果在短时内存缓存中保留，用于消除挂号流程中各页面重复发出的医院、科室、医生查询。
+ * 成功结果以序列化后的字节保存，每个调用方拿到各自反序列化的对象，修改返回的列表不会影响其他调用方。
+ * 应注册在{@link RetryCallAdapterFactory}之后，使合并后的一次调用内部仍可重试。
+ */
+public class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+
+    private static final String TAG = "RequestCoalescer";
+
+    private static volatile CoalescingCallAdapterFactory instance;
+
+    // 进行中的请求：key -> 等待结果的调用方
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    // 内存缓存：key -> 成功结果
+    private final Map<String, CachedResponse> memoryCache = new ConcurrentHashMap<>();
+
+    private CoalescingCallAdapterFactory() {
+    }
+
+    public static CoalescingCallAdapterFactory getInstance() {
+        if (instance == null) {
+            synchronized (CoalescingCallAdapterFactory.class) {
+                if (instance == null) {
+                    instance = new CoalescingCallAdapterFactory();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Object> delegate =
+                (CallAdapter<Object, Object>) retrofit.nextCallAdapter(this, returnType, annotations);
+
+        Coalesce coalesce = null;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Coalesce) {
+                coalesce = (Coalesce) annotation;
+                break;
+            }
+        }
+        if (coalesce == null) {
+            return delegate;
+        }
+
+        final long ttlMs = coalesce.ttlSeconds() * 1000L;
+        // 同一URL可能被声明为不同的返回类型，合并键需包含类型
+        final String typeKey = delegate.responseType().toString();
+        final BodyCopier copier = new BodyCopier(retrofit, delegate.responseType(), annotations);
+        return new CallAdapter<Object, Object>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public Object adapt(Call<Object> call) {
+                return delegate.adapt(new CoalescingCall<>(call, typeKey, ttlMs, copier));
+            }
+        };
+    }
+
+    /**
+     * 清除内存中的合并结果，在用户退出登录、会话过期或切换用户时调用
+     */
+    public void clear() {
+        memoryCache.clear();
+    }
+
+    private static String keyOf(String typeKey, Request request) {
+        return request.method() + " " + request.url() + " -> " + typeKey;
+    }
+
+    /**
+     * 内存缓存的成功结果，响应体以序列化后的字节保存
+     */
+    private static final class CachedResponse {
+        final okhttp3.Response raw;
+        final byte[] body;
+        final long expiresAt;
+
+        CachedResponse(okhttp3.Response raw, byte[] body, long expiresAt) {
+            this.raw = raw;
+            this.body = body;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 通过Retrofit注册的转换器序列化、反序列化响应体，为每个调用方生成独立的对象
+     */
+    private static final class BodyCopier {
+        private final Converter<Object, RequestBody> writer;
+        private final Converter<ResponseBody, Object> reader;
+
+        BodyCopier(Retrofit retrofit, Type type, Annotation[] annotations) {
+            this.writer = retrofit.requestBodyConverter(type, new Annotation[0], annotations);
+            this.reader = retrofit.responseBodyConverter(type, annotations);
+        }
+
+        byte[] snapshot(Object body) throws IOException {
+            Buffer buffer = new Buffer();
+            writer.convert(body).writeTo(buffer);
+            return buffer.readByteArray();
+        }
+
+        Response<Object> restore(okhttp3.Response raw, byte[] body) throws IOException {
+            return Response.success(reader.convert(ResponseBody.create(null, body)), raw);
+        }
+    }
+
+    /**
+     * 一次进行中的网络调用及其所有等待方
+     */
+    private final class Flight {
+        final String key;
+        final Call<Object> call;
+        final long ttlMs;
+        final BodyCopier copier;
+        final List<Waiter> waiters = new ArrayList<>();
+        boolean completed;
+
+        Flight(String key, Call<Object> call, long ttlMs, BodyCopier copier) {
+            this.key = key;
+            this.call = call;
+            this.ttlMs = ttlMs;
+            this.copier = copier;
+        }
+
+        void start() {
+            call.enqueue(new Callback<Object>() {
+                @Override
+                public void onResponse(Call<Object> call, Response<Object> response) {
+                    List<Waiter> targets = finish();
+                    if (response.isSuccessful()) {
+                        deliverSuccess(targets, response);
+                        return;
+                    }
+                    // 错误响应体只能读取一次，先读出再为每个调用方各创建一份
+                    byte[] errorBytes = new byte[0];
+                    MediaType contentType = null;
+                    if (response.errorBody() != null) {
+                        contentType = response.errorBody().contentType();
+                        try {
+                            errorBytes = response.errorBody().bytes();
+                        } catch (IOException e) {
+                            Log.w(TAG, "Failed to read error body for " + key + ": " + e.getMessage());
+                        }
+                    }
+                    for (Waiter waiter : targets) {
+                        waiter.deliver(Response.error(ResponseBody.create(contentType, errorBytes), response.raw()));
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<Object> call, Throwable t) {
+                    for (Waiter waiter : finish()) {
+                        waiter.fail(t);
+                    }
+                }
+            });
+        }
+
+        /**
+         * 第一个调用方直接使用原始结果，其余调用方和内存缓存使用序列化副本
+         */
+        private void deliverSuccess(List<Waiter> targets, Response<Object> response) {
+            byte[] snapshot = null;
+            if (ttlMs > 0 || targets.size() > 1) {
+                try {
+                    snapshot = copier.snapshot(response.body());
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Failed to snapshot response for " + key + ": " + e.getMessage());
+                }
+            }
+            if (snapshot != null && ttlMs > 0) {
+                memoryCache.put(key, new CachedResponse(response.raw(), snapshot, System.currentTimeMillis() + ttlMs));
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                Waiter waiter = targets.get(i);
+                if (i == 0) {
+                    waiter.deliver(response);
+                    continue;
+                }
+                if (snapshot == null) {
+                    waiter.fail(new IOException("Failed to copy coalesced response"));
+                    continue;
+                }
+                try {
+                    waiter.deliver(copier.restore(response.raw(), snapshot));
+                } catch (IOException | RuntimeException e) {
+                    waiter.fail(e);
+                }
+            }
+        }
+
+        private List<Waiter> finish() {
+            synchronized (this) {
+                completed = true;
+                inFlight.remove(key, this);
+                return new ArrayList<>(waiters);
+            }
+        }
+
+        /**
+         * 加入等待队列，调用已结束时返回false
+         */
+        synchronized boolean join(Waiter waiter) {
+            if (completed) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        /**
+         * 等待方取消，全部取消时同时取消底层调用
+         */
+        void leave(Waiter waiter) {
+            boolean removed;
+            boolean cancelUnderlying;
+            synchronized (this) {
+                removed = !completed && waiters.remove(waiter);
+                cancelUnderlying = removed && waiters.isEmpty();
+            }
+            if (cancelUnderlying) {
+                // 等待方已移出队列，底层调用的失败回调不会再通知它
+                inFlight.remove(key, this);
+                call.cancel();
+            }
+            if (removed) {
+                // 与普通Call一致，被取消的调用方收到失败回调
+                waiter.fail(new IOException("Canceled"));
+            }
+        }
+    }
+
+    /**
+     * 等待结果的单个调用方
+     */
+    private static final class Waiter {
+        final CoalescingCall<?> owner;
+        final Callback<Object> callback;
+
+        Waiter(CoalescingCall<?> owner, Callback<Object> callback) {
+            this.owner = owner;
+            this.callback = callback;
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver(Response<?> response) {
+            callback.onResponse((Call<Object>) owner, (Response<Object>) response);
+        }
+
+        @SuppressWarnings("unchecked")
+        void fail(Throwable t) {
+            callback.onFailure((Call<Object>) owner, t);
+        }
+    }
+
+    /**
+     * 参与合并的Call包装类
+     */
+    final class CoalescingCall<T> implements Call<T> {
+        private final Call<T> delegate;
+        private final String typeKey;
+        private final long ttlMs;
+        private final BodyCopier copier;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+        private Flight flight;
+        private Waiter waiter;
+
+        CoalescingCall(Call<T> delegate, String typeKey, long ttlMs, BodyCopier copier) {
+            this.delegate = delegate;
+            this.typeKey = typeKey;
+            this.ttlMs = ttlMs;
+            this.copier = copier;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void enqueue(Callback<T> callback) {
+            executed = true;
+            String key = keyOf(typeKey, delegate.request());
+
+            CachedResponse cached = memoryCache.get(key);
+            if (cached != null) {
+                if (cached.expiresAt > System.currentTimeMillis()) {
+                    try {
+                        Response<T> copy = (Response<T>) (Response<?>) copier.restore(cached.raw, cached.body);
+                        Log.d(TAG, "Memory hit: " + key);
+                        callback.onResponse(this, copy);
+                        return;
+                    } catch (IOException | RuntimeException e) {
+                        Log.w(TAG, "Failed to restore cached response for " + key + ": " + e.getMessage());
+                    }
+                }
+                memoryCache.remove(key, cached);
+            }
+
+            Waiter newWaiter = new Waiter(this, (Callback<Object>) (Callback<?>) callback);
+            while (true) {
+                Flight existing = inFlight.get(key);
+                if (existing != null) {
+                    if (existing.join(newWaiter)) {
+                        Log.d(TAG, "Joined in-flight request: " + key);
+                        synchronized (this) {
+                            flight = existing;
+                            waiter = newWaiter;
+                        }
+                        return;
+                    }
+                    // 该调用刚刚结束，重新检查
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+                Flight created = new Flight(key, (Call<Object>) delegate, ttlMs, copier);
+                created.join(newWaiter);
+                if (inFlight.putIfAbsent(key, created) == null) {
+                    synchronized (this) {
+                        flight = created;
+                        waiter = newWaiter;
+                    }
+                    created.start();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            return delegate.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            Flight currentFlight;
+            Waiter currentWaiter;
+            synchronized (this) {
+                currentFlight = flight;
+                currentWaiter = waiter;
+            }
+            if (currentFlight != null) {
+                currentFlight.leave(currentWaiter);
+            } else {
+                delegate.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new CoalescingCall<>(delegate.clone(), typeKey, ttlMs, copier);
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
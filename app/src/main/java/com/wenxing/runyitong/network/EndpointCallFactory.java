@@ -0,0 +1,128 @@
+package com.wenxing.runyitong.network;
+
+import android.os.Process;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * 按接口类别分发请求的Call工厂
+ * 每个{@link EndpointProfile}派生一个OkHttpClient，共享基础客户端的拦截器和缓存，
+ * 覆盖超时、协议和连接池，并使用独立的Dispatcher作为调度通道。通过Retrofit.Builder.callFactory注册。
+ */
+public class EndpointCallFactory implements Call.Factory {
+
+    private final Map<EndpointProfile, OkHttpClient> clients = new EnumMap<>(EndpointProfile.class);
+
+    public EndpointCallFactory(OkHttpClient baseClient) {
+        for (EndpointProfile profile : EndpointProfile.values()) {
+            clients.put(profile, buildClient(baseClient, profile));
+        }
+    }
+
+    private static OkHttpClient buildClient(OkHttpClient baseClient, EndpointProfile profile) {
+        return baseClient.newBuilder()
+                .connectTimeout(profile.connectTimeoutSeconds, TimeUnit.SECONDS)
+                .readTimeout(profile.readTimeoutSeconds, TimeUnit.SECONDS)
+                .writeTimeout(profile.writeTimeoutSeconds, TimeUnit.SECONDS)
+                .callTimeout(profile.callTimeoutSeconds, TimeUnit.SECONDS)
+                .protocols(profile.protocols)
+                .connectionPool(new ConnectionPool(profile.maxIdleConnections, 5, TimeUnit.MINUTES))
+                .dispatcher(buildDispatcher(profile))
+                .build();
+    }
+
+    /**
+     * 每个通道独立的Dispatcher，线程按通道优先级运行
+     */
+    private static Dispatcher buildDispatcher(final EndpointProfile profile) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(profile.threadPriority);
+                runnable.run();
+            }, "OkHttp " + profile.name().toLowerCase(Locale.US) + " #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // 与OkHttp默认线程池相同：按需创建线程，空闲60秒回收，并发由Dispatcher限制
+        ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory);
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(profile.maxRequests);
+        dispatcher.setMaxRequestsPerHost(profile.maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    @Override
+    public Call newCall(Request request) {
+        return clientFor(profileOf(request)).newCall(request);
+    }
+
+    /**
+     * 获取指定类别使用的客户端
+     */
+    public OkHttpClient clientFor(EndpointProfile profile) {
+        return clients.get(profile);
+    }
+
+    /**
+     * 判断请求是否仍在某个通道中排队
+     */
+    public boolean isQueued(Request request) {
+        for (OkHttpClient client : clients.values()) {
+            for (Call call : client.dispatcher().queuedCalls()) {
+                if (call.request() == request) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 各通道运行中和排队中的请求数，用于调试
+     */
+    public String getLaneSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<EndpointProfile, OkHttpClient> entry : clients.entrySet()) {
+            Dispatcher dispatcher = entry.getValue().dispatcher();
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey().name()).append(" running=").append(dispatcher.runningCallsCount())
+                    .append(" queued=").append(dispatcher.queuedCallsCount());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 根据请求对应的ApiService方法注解确定接口类别
+     * @param request 请求
+     * @return 接口类别，未标注时返回INTERACTIVE
+     */
+    public static EndpointProfile profileOf(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            EndpointClass endpointClass = invocation.method().getAnnotation(EndpointClass.class);
+            if (endpointClass != null) {
+                return endpointClass.value();
+            }
+        }
+        return EndpointProfile.INTERACTIVE;
+    }
+}
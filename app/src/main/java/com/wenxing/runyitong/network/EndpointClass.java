@@ -0,0 +1,19 @@
+package com.wenxing.runyitong.network;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口类别注解
+ * 标注在ApiService方法上，决定该请求使用哪一组超时、协议和连接池配置。
+ * 未标注的方法按{@link EndpointProfile#INTERACTIVE}处理。
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface EndpointClass {
+    EndpointProfile value();
+}
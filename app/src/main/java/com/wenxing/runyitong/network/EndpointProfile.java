@@ -0,0 +1,71 @@
+package com.wenxing.runyitong.network;
+
+import android.os.Process;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Protocol;
+
+/**
+ * 接口类别及其网络参数
+ * 不同类别的接口使用各自的超时时间、协议和连接池，避免普通请求沿用大文件下载的超长超时。
+ * 超时单位均为秒，0表示不限制。
+ * 每个类别同时也是一条独立的调度通道：拥有自己的Dispatcher并发上限、单主机并发上限和线程优先级，
+ * 大文件上传下载排队时不会占用交互请求的并发名额。
+ */
+public enum EndpointProfile {
+
+    /**
+     * 普通交互请求：登录、列表、详情等，要求快速失败
+     */
+    INTERACTIVE(10, 30, 30, 60, 5, Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1),
+            32, 8, Process.THREAD_PRIORITY_DEFAULT),
+
+    /**
+     * AI分析请求：请求体小，但服务端推理耗时较长
+     */
+    AI_ANALYSIS(15, 120, 30, 180, 3, Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1),
+            4, 2, Process.THREAD_PRIORITY_DEFAULT),
+
+    /**
+     * 图片上传并分析：请求体大，写入和等待分析结果都需要较长时间
+     */
+    UPLOAD(15, 180, 600, 0, 3, Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1),
+            2, 2, Process.THREAD_PRIORITY_BACKGROUND),
+
+    /**
+     * 大文件下载：读超时是两次读取之间的空闲时间，整体不限时；固定使用HTTP/1.1，对大文件更稳定。
+     * ResumableDownloader的分段请求在自己的线程池中同步执行，并发数由其分段线程数限制。
+     */
+    BULK_DOWNLOAD(30, 120, 30, 0, 2, Collections.singletonList(Protocol.HTTP_1_1),
+            2, 2, Process.THREAD_PRIORITY_BACKGROUND);
+
+    public final int connectTimeoutSeconds;
+    public final int readTimeoutSeconds;
+    public final int writeTimeoutSeconds;
+    public final int callTimeoutSeconds;
+    public final int maxIdleConnections;
+    public final List<Protocol> protocols;
+    // 通道内异步请求的最大并发数
+    public final int maxRequests;
+    // 通道内同一主机的最大并发数，保证单个主机不会占满通道
+    public final int maxRequestsPerHost;
+    // 通道执行线程的优先级（android.os.Process）
+    public final int threadPriority;
+
+    EndpointProfile(int connectTimeoutSeconds, int readTimeoutSeconds, int writeTimeoutSeconds,
+                    int callTimeoutSeconds, int maxIdleConnections, List<Protocol> protocols,
+                    int maxRequests, int maxRequestsPerHost, int threadPriority) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+        this.readTimeoutSeconds = readTimeoutSeconds;
+        this.writeTimeoutSeconds = writeTimeoutSeconds;
+        this.callTimeoutSeconds = callTimeoutSeconds;
+        this.maxIdleConnections = maxIdleConnections;
+        this.protocols = protocols;
+        this.maxRequests = maxRequests;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.threadPriority = threadPriority;
+    }
+}
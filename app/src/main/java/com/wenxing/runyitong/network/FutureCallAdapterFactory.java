@@ -0,0 +1,130 @@
+package com.wenxing.runyitong.network;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * 让ApiService方法直接返回CompletableFuture
+ * 支持两种返回类型：
+ * 1. CompletableFuture&lt;T&gt;：HTTP非2xx时以HttpException异常完成；
+ * 2. CompletableFuture&lt;Response&lt;T&gt;&gt;：总是以Response完成，由调用方检查状态码。
+ * 底层仍通过后续的CallAdapter得到Call，重试、请求合并和主线程回调照常生效，
+ * 因此future在主线程完成，thenAccept等回调中可以直接更新界面。取消future会取消底层请求。
+ */
+public class FutureCallAdapterFactory extends CallAdapter.Factory {
+
+    public static FutureCallAdapterFactory create() {
+        return new FutureCallAdapterFactory();
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != CompletableFuture.class) {
+            return null;
+        }
+        if (!(returnType instanceof ParameterizedType)) {
+            throw new IllegalStateException("CompletableFuture return type must be parameterized"
+                    + " as CompletableFuture<Foo> or CompletableFuture<? extends Foo>");
+        }
+        Type innerType = getParameterUpperBound(0, (ParameterizedType) returnType);
+        final boolean wrapResponse = getRawType(innerType) == Response.class;
+        Type bodyType = innerType;
+        if (wrapResponse) {
+            if (!(innerType instanceof ParameterizedType)) {
+                throw new IllegalStateException("Response must be parameterized as Response<Foo> or Response<? extends Foo>");
+            }
+            bodyType = getParameterUpperBound(0, (ParameterizedType) innerType);
+        }
+
+        // 以Call<bodyType>向后续工厂申请适配器，保留默认的主线程回调
+        Type callType = TypeToken.getParameterized(Call.class, bodyType).getType();
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, callType, annotations);
+
+        return new CallAdapter<Object, CompletableFuture<Object>>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public CompletableFuture<Object> adapt(Call<Object> call) {
+                return enqueue(delegate.adapt(call), wrapResponse);
+            }
+        };
+    }
+
+    /**
+     * 将已创建的Call转换为future，供仍返回Call的接口使用
+     * @return 以Response完成的future
+     */
+    static <T> CompletableFuture<Response<T>> fromCall(final Call<T> call) {
+        final CancellableFuture<Response<T>> future = new CancellableFuture<>(call::cancel);
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> c, Response<T> response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Call<T> c, Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private static CompletableFuture<Object> enqueue(final Call<Object> call, final boolean wrapResponse) {
+        final CancellableFuture<Object> future = new CancellableFuture<>(call::cancel);
+        call.enqueue(new Callback<Object>() {
+            @Override
+            public void onResponse(Call<Object> c, Response<Object> response) {
+                if (wrapResponse) {
+                    future.complete(response);
+                } else if (response.isSuccessful()) {
+                    future.complete(response.body());
+                } else {
+                    future.completeExceptionally(new HttpException(response));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<Object> c, Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 取消时执行回调的CompletableFuture，用于把取消传递给底层请求
+     */
+    static class CancellableFuture<T> extends CompletableFuture<T> {
+        private final Runnable onCancel;
+
+        CancellableFuture(Runnable onCancel) {
+            this.onCancel = onCancel;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                onCancel.run();
+            }
+            return cancelled;
+        }
+    }
+}
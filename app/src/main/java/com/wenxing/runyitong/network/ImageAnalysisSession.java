@@ -0,0 +1,427 @@
+package com.wenxing.runyitong.network;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.model.FaceDiagnosisResult;
+import com.wenxing.runyitong.model.ImageUploadResult;
+import com.wenxing.runyitong.model.MedicalImageAnalysis;
+import com.wenxing.runyitong.model.OCRResult;
+import com.wenxing.runyitong.model.PrescriptionAnalysis;
+import com.wenxing.runyitong.model.TongueDiagnosisResult;
+import com.wenxing.runyitong.utils.ImageRequestBody;
+import com.wenxing.runyitong.utils.ImageUploadProfile;
+import com.wenxing.runyitong.utils.ImageUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 同一张图片的多次AI分析
+ * 图片通过uploadImage只上传一次，之后的分析按服务端返回的图片ID引用，不再重复上传图片。
+ * 已上传图片的编码参数不能满足后续分析时（例如先做OCR再做舌诊），按更严格的参数重新上传一次。
+ * 并发发起的多项分析共享同一次上传。
+ * CT、MRI、PET-CT等影像参数的图片通过{@link ChunkedImageUploader}分块上传，网络中断后可续传。
+ *
+ * 上传接口返回非2xx或未返回图片ID，或按ID分析返回404/410（图片已过期）时，
+ * 该次分析改为直接上传图片分析，与原有接口行为一致；上传接口不存在（404/405/501）或
+ * 成功但不返回图片ID时，本会话之后的分析都直接上传。
+ * 各分析方法返回普通的Call，可直接enqueue或通过{@link ApiFutures#from}组合并行执行。
+ */
+public class ImageAnalysisSession {
+    private static final String TAG = "ImageAnalysisSession";
+
+    private static final String PART_NAME = "image";
+
+    /**
+     * 按图片ID创建分析请求
+     */
+    private interface ByIdCall<T> {
+        Call<T> create(String imageId);
+    }
+
+    /**
+     * 直接上传图片创建分析请求
+     */
+    private interface DirectCall<T> {
+        Call<T> create(MultipartBody.Part imagePart);
+    }
+
+    /**
+     * 一次上传的结果
+     */
+    private static final class UploadedImage {
+        final ImageUploadProfile profile;
+        // 上传失败或服务端不支持按ID分析时为null
+        final String imageId;
+        // 服务端不支持按ID引用图片，本会话不再尝试上传
+        final boolean referenceUnsupported;
+
+        UploadedImage(ImageUploadProfile profile, String imageId, boolean referenceUnsupported) {
+            this.profile = profile;
+            this.imageId = imageId;
+            this.referenceUnsupported = referenceUnsupported;
+        }
+    }
+
+    private final Context context;
+    private final ApiService apiService;
+    private final Uri imageUri;
+    // 每种编码参数对应一个请求体，编码结果由摘要计算和上传共用
+    private final Map<ImageUploadProfile, ImageRequestBody> imageBodies = new EnumMap<>(ImageUploadProfile.class);
+
+    // 最近一次上传（可能仍在进行）及其编码参数；只在主线程访问
+    private CompletableFuture<UploadedImage> upload;
+    private ImageUploadProfile uploadProfile;
+    private boolean referenceUnsupported;
+    private ChunkedImageUploader.ProgressListener uploadProgressListener;
+
+    public ImageAnalysisSession(Context context, ApiService apiService, Uri imageUri) {
+        this.context = context.getApplicationContext();
+        this.apiService = apiService;
+        this.imageUri = imageUri;
+    }
+
+    public Uri getImageUri() {
+        return imageUri;
+    }
+
+    /**
+     * 设置分块上传的进度回调，在主线程执行；只有分块上传的影像图片会回调
+     */
+    public void setUploadProgressListener(ChunkedImageUploader.ProgressListener listener) {
+        this.uploadProgressListener = listener;
+    }
+
+    /**
+     * 按指定参数编码的图片请求体，同一参数总是返回同一个请求体
+     */
+    public synchronized ImageRequestBody getImageBody(ImageUploadProfile profile) {
+        ImageRequestBody body = imageBodies.get(profile);
+        if (body == null) {
+            body = ImageUtils.createImageBody(context, imageUri, profile);
+            imageBodies.put(profile, body);
+        }
+        return body;
+    }
+
+    public Call<ApiResponse<OCRResult>> ocrTextRecognition() {
+        return new ReferencedCall<>(ImageUploadProfile.OCR,
+                apiService::ocrTextRecognitionById, apiService::ocrTextRecognition);
+    }
+
+    public Call<ApiResponse<PrescriptionAnalysis>> analyzePrescriptionImage() {
+        return new ReferencedCall<>(ImageUploadProfile.PRESCRIPTION,
+                apiService::analyzePrescriptionImageById, apiService::analyzePrescriptionImage);
+    }
+
+    /**
+     * @param imageType 影像类型："xray", "ct", "ultrasound", "mri", "petct"
+     * @return 分析请求，不支持的影像类型返回null
+     */
+    public Call<ApiResponse<MedicalImageAnalysis>> analyzeMedicalImage(String imageType) {
+        DirectCall<ApiResponse<MedicalImageAnalysis>> direct;
+        switch (imageType) {
+            case "xray":
+                direct = apiService::analyzeXRayImage;
+                break;
+            case "ct":
+                direct = apiService::analyzeCTImage;
+                break;
+            case "ultrasound":
+                direct = apiService::analyzeUltrasoundImage;
+                break;
+            case "mri":
+                direct = apiService::analyzeMRIImage;
+                break;
+            case "petct":
+                direct = apiService::analyzePETCTImage;
+                break;
+            default:
+                return null;
+        }
+        return new ReferencedCall<>(ImageUploadProfile.forMedicalImageType(imageType),
+                imageId -> apiService.analyzeMedicalImageById(imageType, imageId), direct);
+    }
+
+    public Call<ApiResponse<TongueDiagnosisResult>> analyzeTongueImage() {
+        return new ReferencedCall<>(ImageUploadProfile.TONGUE,
+                apiService::analyzeTongueImageById, apiService::analyzeTongueImage);
+    }
+
+    public Call<ApiResponse<FaceDiagnosisResult>> analyzeFaceImage() {
+        return new ReferencedCall<>(ImageUploadProfile.FACE,
+                apiService::analyzeFaceImageById, apiService::analyzeFaceImage);
+    }
+
+    /**
+     * 并行执行多项分析，图片只上传一次，按满足全部分析的参数编码
+     * 结果顺序与输入一致，单项失败时对应位置为null，不影响其他分析
+     */
+    public CompletableFuture<List<Response<?>>> analyzeInParallel(List<? extends Call<?>> calls) {
+        ImageUploadProfile strictest = null;
+        for (Call<?> call : calls) {
+            if (call instanceof ReferencedCall) {
+                ImageUploadProfile profile = ((ReferencedCall<?>) call).profile;
+                if (strictest == null || profile.covers(strictest)) {
+                    strictest = profile;
+                } else if (!strictest.covers(profile)) {
+                    // 两者互不满足时使用满足所有分析的影像参数
+                    strictest = ImageUploadProfile.CT;
+                }
+            }
+        }
+        if (strictest != null && !referenceUnsupported) {
+            ensureUploaded(strictest);
+        }
+        List<CompletableFuture<? extends Response<?>>> futures = new ArrayList<>(calls.size());
+        for (Call<?> call : calls) {
+            futures.add(ApiFutures.from(call));
+        }
+        return ApiFutures.allSettled(futures);
+    }
+
+    /**
+     * 获取满足指定参数的上传，没有时发起上传；需在主线程调用
+     */
+    private CompletableFuture<UploadedImage> ensureUploaded(ImageUploadProfile profile) {
+        if (upload != null && uploadProfile.covers(profile)) {
+            return upload;
+        }
+        CompletableFuture<UploadedImage> started = startUpload(profile);
+        upload = started;
+        uploadProfile = profile;
+        // 上传失败时丢弃，下次分析重新上传
+        started.whenComplete((uploaded, error) -> {
+            boolean failed = error != null || (uploaded.imageId == null && !uploaded.referenceUnsupported);
+            if (failed && upload == started) {
+                upload = null;
+                uploadProfile = null;
+            }
+        });
+        return started;
+    }
+
+    private CompletableFuture<UploadedImage> startUpload(ImageUploadProfile profile) {
+        if (profile == ImageUploadProfile.CT) {
+            return startChunkedUpload(profile);
+        }
+        return startSingleUpload(profile);
+    }
+
+    /**
+     * 大图片分块上传，中断后可从已确认的分块继续；服务端不支持分块上传时改为一次性上传
+     */
+    private CompletableFuture<UploadedImage> startChunkedUpload(ImageUploadProfile profile) {
+        Log.d(TAG, "分块上传图片供后续分析引用: " + profile);
+        return ChunkedImageUploader.getInstance(context)
+                .upload(apiService, getImageBody(profile), uploadProgressListener)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(new UploadedImage(profile, result.getImageId(), false));
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof ResumableDownloader.HttpStatusException
+                            && isProtocolUnsupported(((ResumableDownloader.HttpStatusException) cause).getCode())) {
+                        Log.w(TAG, "服务端不支持分块上传，改为一次性上传");
+                        return startSingleUpload(profile);
+                    }
+                    CompletableFuture<UploadedImage> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                })
+                .thenCompose(future -> future);
+    }
+
+    private static boolean isProtocolUnsupported(int code) {
+        return code == 404 || code == 405 || code == 501;
+    }
+
+    private CompletableFuture<UploadedImage> startSingleUpload(ImageUploadProfile profile) {
+        Log.d(TAG, "上传图片供后续分析引用: " + profile);
+        MultipartBody.Part imagePart = ImageUtils.createImagePart(getImageBody(profile), PART_NAME);
+        return ApiFutures.from(apiService.uploadImage(imagePart)).thenApply(response -> {
+            if (!response.isSuccessful()) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                boolean unsupported = isProtocolUnsupported(response.code());
+                Log.w(TAG, "图片上传失败: HTTP " + response.code() + "，改为直接上传分析"
+                        + (unsupported ? "（服务端不支持）" : ""));
+                return new UploadedImage(profile, null, unsupported);
+            }
+            ApiResponse<ImageUploadResult> body = response.body();
+            String imageId = body != null && body.isSuccess() && body.getData() != null
+                    ? body.getData().getImageId() : null;
+            if (imageId == null) {
+                Log.w(TAG, "服务端未返回图片ID，改为直接上传分析");
+            }
+            return new UploadedImage(profile, imageId, imageId == null);
+        });
+    }
+
+    /**
+     * 图片已过期时丢弃该次上传
+     */
+    private void invalidate(UploadedImage uploaded) {
+        if (uploaded.profile == ImageUploadProfile.CT) {
+            ChunkedImageUploader.getInstance(context).discard(uploaded.imageId);
+        }
+        if (upload != null && upload.getNow(null) == uploaded) {
+            upload = null;
+            uploadProfile = null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * 引用已上传图片的分析请求
+     * 先等待共享的上传完成，再按图片ID发起分析；回调与普通Call一样在主线程调用
+     */
+    private final class ReferencedCall<T> implements Call<T> {
+        final ImageUploadProfile profile;
+        private final ByIdCall<T> byId;
+        private final DirectCall<T> direct;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+        private volatile Call<T> delegate;
+
+        ReferencedCall(ImageUploadProfile profile, ByIdCall<T> byId, DirectCall<T> direct) {
+            this.profile = profile;
+            this.byId = byId;
+            this.direct = direct;
+        }
+
+        @Override
+        public void enqueue(Callback<T> callback) {
+            executed = true;
+            if (referenceUnsupported) {
+                enqueueDirect(callback);
+                return;
+            }
+            ensureUploaded(profile).whenComplete((uploaded, error) -> {
+                if (canceled) {
+                    callback.onFailure(this, new IOException("Canceled"));
+                } else if (error != null) {
+                    callback.onFailure(this, unwrap(error));
+                } else if (uploaded.imageId == null) {
+                    if (uploaded.referenceUnsupported) {
+                        referenceUnsupported = true;
+                    }
+                    enqueueDirect(callback);
+                } else {
+                    enqueueById(uploaded, callback);
+                }
+            });
+        }
+
+        private void enqueueById(UploadedImage uploaded, Callback<T> callback) {
+            Call<T> call = byId.create(uploaded.imageId);
+            delegate = call;
+            call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> c, Response<T> response) {
+                    if ((response.code() == 404 || response.code() == 410) && !canceled) {
+                        Log.w(TAG, "图片ID已失效，改为直接上传分析: " + uploaded.imageId);
+                        invalidate(uploaded);
+                        enqueueDirect(callback);
+                        return;
+                    }
+                    callback.onResponse(ReferencedCall.this, response);
+                }
+
+                @Override
+                public void onFailure(Call<T> c, Throwable t) {
+                    callback.onFailure(ReferencedCall.this, t);
+                }
+            });
+        }
+
+        private void enqueueDirect(Callback<T> callback) {
+            Call<T> call = direct.create(ImageUtils.createImagePart(getImageBody(profile), PART_NAME));
+            delegate = call;
+            call.enqueue(new Callback<T>() {
+                @Override
+                public void onResponse(Call<T> c, Response<T> response) {
+                    callback.onResponse(ReferencedCall.this, response);
+                }
+
+                @Override
+                public void onFailure(Call<T> c, Throwable t) {
+                    callback.onFailure(ReferencedCall.this, t);
+                }
+            });
+        }
+
+        /**
+         * 同步执行时不经过共享上传，直接上传图片分析
+         */
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            Call<T> call = direct.create(ImageUtils.createImagePart(getImageBody(profile), PART_NAME));
+            delegate = call;
+            return call.execute();
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        /**
+         * 只取消本次分析，共享的上传可能仍被其他分析使用，不取消
+         */
+        @Override
+        public void cancel() {
+            canceled = true;
+            Call<T> call = delegate;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new ReferencedCall<>(profile, byId, direct);
+        }
+
+        @Override
+        public Request request() {
+            Call<T> call = delegate;
+            return call != null ? call.request() : byId.create("").request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            Call<T> call = delegate;
+            return call != null ? call.timeout() : Timeout.NONE;
+        }
+    }
+}
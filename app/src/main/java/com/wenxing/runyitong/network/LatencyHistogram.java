@@ -0,0 +1,92 @@
+package com.wenxing.runyitong.network;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定桶的耗时直方图
+ * 桶边界按1-2-5递增，内存占用固定，与采样数量无关；分位数按桶上界估算。
+ */
+public class LatencyHistogram {
+
+    // 各桶的上界（毫秒），最后一个桶收纳超过60秒的样本
+    private static final long[] BOUNDS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1000, 2000, 5000, 10000, 20000, 60000, Long.MAX_VALUE
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    public void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        int index = 0;
+        while (millis > BOUNDS_MS[index]) {
+            index++;
+        }
+        counts.incrementAndGet(index);
+        count.incrementAndGet();
+        sumMs.addAndGet(millis);
+        long max;
+        while (millis > (max = maxMs.get())) {
+            if (maxMs.compareAndSet(max, millis)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMs() {
+        long n = count.get();
+        return n == 0 ? 0 : sumMs.get() / n;
+    }
+
+    public long getMaxMs() {
+        return maxMs.get();
+    }
+
+    /**
+     * 估算分位数，返回样本所在桶的上界（不超过实际最大值）
+     * @param quantile 0到1之间，例如0.95
+     */
+    public long percentileMs(double quantile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(BOUNDS_MS[i], maxMs.get());
+            }
+        }
+        return maxMs.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BOUNDS_MS.length; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sumMs.set(0);
+        maxMs.set(0);
+    }
+
+    /**
+     * 单行摘要：次数、均值、p50、p95、p99、最大值
+     */
+    public String summary() {
+        return String.format(Locale.US, "n=%d avg=%dms p50=%dms p95=%dms p99=%dms max=%dms",
+                getCount(), getMeanMs(), percentileMs(0.50), percentileMs(0.95), percentileMs(0.99), getMaxMs());
+    }
+}
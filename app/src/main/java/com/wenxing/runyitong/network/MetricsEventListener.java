@@ -0,0 +1,138 @@
+package com.wenxing.runyitong.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 单次调用的分阶段计时
+ * 每个Call创建一个实例，事件按顺序在同一调用链上回调，无需同步。
+ * 复用连接时不会产生DNS/建连/TLS事件，对应阶段不记录样本。
+ */
+class MetricsEventListener extends EventListener {
+
+    private final NetworkMetrics metrics;
+    private final String endpoint;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+    private long requestStart;
+    private long requestEnd;
+    private long responseBodyStart;
+
+    MetricsEventListener(NetworkMetrics metrics, String endpoint) {
+        this.metrics = metrics;
+        this.endpoint = endpoint;
+    }
+
+    private static long now() {
+        return System.nanoTime();
+    }
+
+    private void record(NetworkMetrics.Phase phase, long startNanos) {
+        if (startNanos != 0) {
+            metrics.record(endpoint, phase, (now() - startNanos) / 1_000_000L);
+        }
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = now();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record(NetworkMetrics.Phase.DNS, dnsStart);
+        dnsStart = 0;
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = now();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = now();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        record(NetworkMetrics.Phase.TLS, secureConnectStart);
+        secureConnectStart = 0;
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        record(NetworkMetrics.Phase.CONNECT, connectStart);
+        connectStart = 0;
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol, IOException ioe) {
+        connectStart = 0;
+        secureConnectStart = 0;
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        requestStart = now();
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        requestEnd = now();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        requestEnd = now();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        if (requestStart != 0) {
+            metrics.record(endpoint, NetworkMetrics.Phase.REQUEST_WRITE, (requestEnd - requestStart) / 1_000_000L);
+            record(NetworkMetrics.Phase.TTFB, requestEnd);
+        }
+        requestStart = 0;
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        responseBodyStart = now();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        record(NetworkMetrics.Phase.BODY_READ, responseBodyStart);
+        responseBodyStart = 0;
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(NetworkMetrics.Phase.TOTAL, callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record(NetworkMetrics.Phase.TOTAL, callStart);
+        metrics.recordFailure(endpoint);
+    }
+}
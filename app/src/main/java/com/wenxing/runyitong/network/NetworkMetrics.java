@@ -0,0 +1,235 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import com.wenxing.runyitong.api.ApiClient;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import retrofit2.Invocation;
+
+/**
+ * 网络请求分阶段耗时统计
+ * 由MetricsEventListener按接口记录DNS、建连、TLS、写请求、首字节、读响应体和总耗时，
+ * 每个接口每个阶段一个固定桶直方图，接口数量有上限，超出部分归入"其他"，内存占用有界。
+ */
+public class NetworkMetrics {
+
+    private static final String TAG = "NetworkMetrics";
+
+    // 最多单独统计的接口数量
+    private static final int MAX_ENDPOINTS = 64;
+    private static final String OVERFLOW_KEY = "其他接口";
+
+    /**
+     * 统计的请求阶段
+     */
+    public enum Phase {
+        DNS("DNS解析"),
+        CONNECT("TCP建连"),
+        TLS("TLS握手"),
+        REQUEST_WRITE("写请求"),
+        TTFB("首字节"),
+        BODY_READ("读响应体"),
+        TOTAL("总耗时");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 单个接口的统计数据
+     */
+    public static class EndpointStats {
+        private final String key;
+        private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+        private final AtomicLong failures = new AtomicLong();
+
+        EndpointStats(String key) {
+            this.key = key;
+            for (Phase phase : Phase.values()) {
+                histograms.put(phase, new LatencyHistogram());
+            }
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public LatencyHistogram get(Phase phase) {
+            return histograms.get(phase);
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        void reset() {
+            for (LatencyHistogram histogram : histograms.values()) {
+                histogram.reset();
+            }
+            failures.set(0);
+        }
+    }
+
+    private static volatile NetworkMetrics instance;
+
+    private final ConcurrentHashMap<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final EventListener.Factory eventListenerFactory = call -> new MetricsEventListener(this, endpointKey(call.request()));
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    private NetworkMetrics() {
+    }
+
+    public static NetworkMetrics getInstance() {
+        if (instance == null) {
+            synchronized (NetworkMetrics.class) {
+                if (instance == null) {
+                    instance = new NetworkMetrics();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 供OkHttpClient.Builder.eventListenerFactory使用
+     */
+    public EventListener.Factory eventListenerFactory() {
+        return eventListenerFactory;
+    }
+
+    void record(String endpoint, Phase phase, long millis) {
+        stats(endpoint).get(phase).record(millis);
+    }
+
+    void recordFailure(String endpoint) {
+        stats(endpoint).failures.incrementAndGet();
+    }
+
+    private EndpointStats stats(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats != null) {
+            return stats;
+        }
+        if (endpoints.size() >= MAX_ENDPOINTS) {
+            endpoint = OVERFLOW_KEY;
+        }
+        return endpoints.computeIfAbsent(endpoint, EndpointStats::new);
+    }
+
+    /**
+     * 按总耗时均值从高到低排序的接口统计
+     */
+    public List<EndpointStats> snapshot() {
+        List<EndpointStats> list = new ArrayList<>(endpoints.values());
+        Collections.sort(list, (a, b) -> Long.compare(b.get(Phase.TOTAL).getMeanMs(), a.get(Phase.TOTAL).getMeanMs()));
+        return list;
+    }
+
+    public void reset() {
+        for (EndpointStats stats : endpoints.values()) {
+            stats.reset();
+        }
+        endpoints.clear();
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * 生成文本报告，用于调试页面显示和导出
+     */
+    public String buildReport() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
+        StringBuilder sb = new StringBuilder();
+        sb.append("网络耗时统计\n");
+        sb.append("统计开始: ").append(format.format(new Date(sinceMillis))).append('\n');
+        sb.append("生成时间: ").append(format.format(new Date())).append('\n');
+        sb.append(RetryEngine.getInstance().getStatsSummary()).append('\n');
+        sb.append("熔断拒绝次数: ").append(CircuitBreaker.getInstance().getRejectedCount()).append('\n');
+        sb.append("调度通道: ").append(ApiClient.getEndpointCallFactory().getLaneSummary()).append('\n');
+        List<EndpointStats> list = snapshot();
+        if (list.isEmpty()) {
+            sb.append("\n暂无请求记录\n");
+        }
+        for (EndpointStats stats : list) {
+            sb.append('\n').append("== ").append(stats.getKey())
+                    .append("  失败: ").append(stats.getFailures()).append('\n');
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = stats.get(phase);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                sb.append("  ").append(phase.getLabel()).append(": ").append(histogram.summary()).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 将报告导出到指定目录
+     * @return 导出的文件
+     */
+    public File exportReport(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        String name = "network_metrics_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date()) + ".txt";
+        File file = new File(dir, name);
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(buildReport());
+        }
+        Log.i(TAG, "Network metrics exported to " + file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * 接口标识：Retrofit请求使用ApiService方法名，其他请求使用去掉数字ID的路径
+     */
+    static String endpointKey(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation != null) {
+            return invocation.method().getName();
+        }
+        HttpUrl url = request.url();
+        StringBuilder sb = new StringBuilder(request.method()).append(' ');
+        for (String segment : url.pathSegments()) {
+            sb.append('/').append(isNumeric(segment) ? "{id}" : segment);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isNumeric(String segment) {
+        if (segment.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 离线缓存拦截器
+ * 声明了{@link CachePolicy}的GET请求在网络异常时，改为只读缓存并允许在maxStale内使用过期数据，
+ * 使列表页面在断网时仍可以展示上次加载的内容。
+ */
+public class OfflineCacheInterceptor implements Interceptor {
+
+    private static final String TAG = "OfflineCacheInterceptor";
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        CachePolicy policy = CacheControlInterceptor.policyOf(request);
+        // 请求要求不读缓存（例如缓存正在清空）时不回退到缓存
+        if (policy == null || request.cacheControl().noCache()) {
+            return chain.proceed(request);
+        }
+
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            Request cacheOnlyRequest = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .onlyIfCached()
+                            .maxStale(policy.maxStale(), TimeUnit.SECONDS)
+                            .build())
+                    .build();
+            Response cachedResponse = chain.proceed(cacheOnlyRequest);
+            // 504表示缓存中没有可用数据，抛出原始网络异常
+            if (cachedResponse.code() == 504) {
+                cachedResponse.close();
+                throw e;
+            }
+            Log.w(TAG, "Network unavailable, serving stale cache for " + request.url().encodedPath());
+            return cachedResponse;
+        }
+    }
+}
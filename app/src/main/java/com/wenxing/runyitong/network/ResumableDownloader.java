@@ -0,0 +1,634 @@
+package com.wenxing.runyitong.network;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * 可断点续传的分段下载器
+ * 1. 先发送Range: bytes=0-0探测请求，服务器支持Range时按文件大小切分为多个分段并行下载；
+ *    不支持时退化为单连接顺序下载。
+ * 2. 各分段通过FileChannel按偏移写入同一个.part临时文件，使用大块缓冲区。
+ * 3. 分段进度定期写入.part.state文件（写入前先force数据），网络中断或进程被杀后可从断点继续。
+ * 4. 全部分段完成后将临时文件重命名为目标文件，保证目标文件要么不存在要么完整。
+ */
+public class ResumableDownloader {
+
+    private static final String TAG = "ResumableDownloader";
+
+    // 最大并行分段数
+    private static final int MAX_SEGMENTS = 4;
+    // 每个分段的最小大小，小文件不切分
+    private static final long MIN_SEGMENT_SIZE = 2L * 1024 * 1024;
+    // 写入缓冲区大小
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // 每写入多少字节保存一次进度
+    private static final long CHECKPOINT_BYTES = 1024 * 1024;
+    // 单个分段的最大重试次数
+    private static final int MAX_SEGMENT_RETRIES = 3;
+    // 下载过程中服务器文件变化时从头重新下载的最大次数
+    private static final int MAX_RESTARTS = 2;
+    // 进度回调最小间隔
+    private static final long PROGRESS_INTERVAL_MS = 200;
+
+    private static volatile ResumableDownloader instance;
+
+    private final ExecutorService coordinatorExecutor;
+    private final ExecutorService segmentExecutor;
+    private final Handler mainHandler;
+    private final Gson gson = new Gson();
+
+    /**
+     * 下载回调，均在主线程执行；任务取消后不再回调
+     */
+    public interface Listener {
+        void onProgress(long downloadedBytes, long totalBytes);
+        void onComplete(File file);
+        void onError(Exception e);
+    }
+
+    /**
+     * 服务器返回非成功状态码时的异常
+     */
+    public static class HttpStatusException extends IOException {
+        private final int code;
+
+        public HttpStatusException(int code) {
+            super("HTTP " + code);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+
+    /**
+     * 下载过程中服务器上的文件已变化（If-Range不匹配返回200，或412），已保存的分段不能继续使用
+     */
+    static class FileChangedException extends IOException {
+        FileChangedException(int code) {
+            super("Remote file changed (HTTP " + code + ")");
+        }
+    }
+
+    /**
+     * 下载任务句柄
+     */
+    public static class DownloadTask {
+        private volatile boolean cancelled;
+        private final List<Call> activeCalls = new ArrayList<>();
+
+        /**
+         * 取消下载，已下载的分段进度会保留，下次下载同一文件时继续
+         */
+        public void cancel() {
+            cancelled = true;
+            synchronized (activeCalls) {
+                for (Call call : activeCalls) {
+                    call.cancel();
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void register(Call call) throws IOException {
+            synchronized (activeCalls) {
+                if (cancelled) {
+                    call.cancel();
+                    throw new IOException("Canceled");
+                }
+                activeCalls.add(call);
+            }
+        }
+
+        void unregister(Call call) {
+            synchronized (activeCalls) {
+                activeCalls.remove(call);
+            }
+        }
+
+        /**
+         * 中止当前进行中的请求但不标记任务取消，用于一个分段失败后停止其他分段
+         */
+        void abortActiveCalls() {
+            synchronized (activeCalls) {
+                for (Call call : activeCalls) {
+                    call.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 持久化的下载状态
+     */
+    static class DownloadState {
+        String url;
+        long totalLength = -1;
+        String etag;
+        String lastModified;
+        boolean rangeSupported;
+        List<Segment> segments = new ArrayList<>();
+
+        long downloadedBytes() {
+            long sum = 0;
+            for (Segment segment : segments) {
+                sum += segment.downloaded;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 文件分段，end为包含的结束偏移
+     */
+    static class Segment {
+        long start;
+        long end;
+        volatile long downloaded;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+
+        boolean isComplete() {
+            return downloaded >= length();
+        }
+    }
+
+    private ResumableDownloader() {
+        coordinatorExecutor = Executors.newSingleThreadExecutor();
+        segmentExecutor = Executors.newFixedThreadPool(MAX_SEGMENTS);
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static ResumableDownloader getInstance() {
+        if (instance == null) {
+            synchronized (ResumableDownloader.class) {
+                if (instance == null) {
+                    instance = new ResumableDownloader();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始或继续下载
+     * @param client 下载使用的OkHttpClient（应使用BULK_DOWNLOAD配置）
+     * @param url 下载地址
+     * @param target 目标文件
+     * @param listener 回调
+     * @return 下载任务句柄
+     */
+    public DownloadTask download(final OkHttpClient client, final String url, final File target, final Listener listener) {
+        final DownloadTask task = new DownloadTask();
+        // 回调在主线程执行时再检查取消状态，页面取消下载（包括销毁时）后不会再收到回调
+        final Listener callbacks = new Listener() {
+            @Override
+            public void onProgress(long downloadedBytes, long totalBytes) {
+                if (!task.isCancelled()) {
+                    listener.onProgress(downloadedBytes, totalBytes);
+                }
+            }
+
+            @Override
+            public void onComplete(File file) {
+                if (!task.isCancelled()) {
+                    listener.onComplete(file);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (!task.isCancelled()) {
+                    listener.onError(e);
+                }
+            }
+        };
+        coordinatorExecutor.execute(() -> {
+            try {
+                File result = runDownload(client, url, target, task, callbacks);
+                mainHandler.post(() -> callbacks.onComplete(result));
+            } catch (Exception e) {
+                if (task.isCancelled()) {
+                    Log.i(TAG, "Download cancelled, progress kept for resume: " + target.getName());
+                } else {
+                    Log.e(TAG, "Download failed: " + e.getMessage(), e);
+                }
+                mainHandler.post(() -> callbacks.onError(e));
+            }
+        });
+        return task;
+    }
+
+    /**
+     * 删除某个目标文件对应的未完成下载
+     */
+    public static void discardPartial(File target) {
+        partFile(target).delete();
+        stateFile(target).delete();
+    }
+
+    /**
+     * 下载过程中服务器文件发生变化时丢弃已保存的进度，从头重新规划分段
+     */
+    private File runDownload(OkHttpClient client, String url, File target, DownloadTask task, Listener listener) throws IOException {
+        int restarts = 0;
+        while (true) {
+            try {
+                return runSegmentedDownload(client, url, target, task, listener);
+            } catch (FileChangedException e) {
+                if (task.isCancelled() || ++restarts > MAX_RESTARTS) {
+                    discardPartial(target);
+                    throw e;
+                }
+                Log.w(TAG, "Remote file changed during download, restarting from scratch (" + restarts + "/" + MAX_RESTARTS + ")");
+                discardPartial(target);
+            }
+        }
+    }
+
+    private File runSegmentedDownload(OkHttpClient client, String url, File target, DownloadTask task, Listener listener) throws IOException {
+        File partFile = partFile(target);
+        File stateFile = stateFile(target);
+        DownloadState saved = loadState(stateFile, url);
+
+        // 探测请求：确认文件大小、校验信息以及服务器是否支持Range
+        Request probeRequest = new Request.Builder().url(url).header("Range", "bytes=0-0").build();
+        Call probeCall = client.newCall(probeRequest);
+        task.register(probeCall);
+        Response probe;
+        try {
+            probe = probeCall.execute();
+        } finally {
+            task.unregister(probeCall);
+        }
+
+        if (probe.code() != 206) {
+            if (!probe.isSuccessful()) {
+                probe.close();
+                throw new HttpStatusException(probe.code());
+            }
+            // 服务器不支持Range，只能用这次响应从头顺序下载
+            Log.w(TAG, "Server ignored Range header, falling back to single stream download");
+            discardPartial(target);
+            return downloadWholeBody(probe, partFile, target, task, listener);
+        }
+
+        long totalLength = parseTotalLength(probe.header("Content-Range"));
+        String etag = probe.header("ETag");
+        String lastModified = probe.header("Last-Modified");
+        probe.close();
+        if (totalLength <= 0) {
+            throw new IOException("Invalid Content-Range in probe response");
+        }
+
+        DownloadState state;
+        if (saved != null && partFile.exists() && partFile.length() == totalLength
+                && saved.totalLength == totalLength && sameValidator(saved.etag, etag)
+                && sameValidator(saved.lastModified, lastModified)) {
+            state = saved;
+            Log.i(TAG, "Resuming download at " + state.downloadedBytes() + "/" + totalLength + " bytes");
+        } else {
+            state = planSegments(url, totalLength, etag, lastModified);
+            try (RandomAccessFile file = new RandomAccessFile(partFile, "rw")) {
+                file.setLength(totalLength);
+            }
+            saveState(stateFile, state);
+        }
+
+        final AtomicLong downloaded = new AtomicLong(state.downloadedBytes());
+        final ProgressReporter reporter = new ProgressReporter(listener, totalLength);
+        reporter.report(downloaded.get(), true);
+
+        try (RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            List<Future<?>> futures = new ArrayList<>();
+            final AtomicBoolean aborted = new AtomicBoolean();
+            final AtomicInteger failures = new AtomicInteger();
+            final IOException[] firstError = new IOException[1];
+            for (final Segment segment : state.segments) {
+                if (segment.isComplete()) {
+                    continue;
+                }
+                final DownloadState finalState = state;
+                futures.add(segmentExecutor.submit(() -> {
+                    try {
+                        downloadSegment(client, url, channel, segment, finalState, stateFile, task, aborted, downloaded, reporter);
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                        synchronized (firstError) {
+                            if (firstError[0] == null) {
+                                firstError[0] = e;
+                            }
+                        }
+                        // 一个分段彻底失败后停止其他分段，进度已保存
+                        aborted.set(true);
+                        task.abortActiveCalls();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (Exception e) {
+                    throw new IOException("Segment worker failed", e);
+                }
+            }
+            channel.force(true);
+            if (failures.get() > 0) {
+                saveState(stateFile, state);
+                throw firstError[0];
+            }
+        }
+
+        return commit(partFile, stateFile, target);
+    }
+
+    /**
+     * 下载单个分段，失败后从已下载位置继续重试
+     */
+    private void downloadSegment(OkHttpClient client, String url, FileChannel channel, Segment segment,
+                                 DownloadState state, File stateFile, DownloadTask task, AtomicBoolean aborted,
+                                 AtomicLong downloaded, ProgressReporter reporter) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        int attempt = 0;
+        while (!segment.isComplete()) {
+            if (task.isCancelled() || aborted.get()) {
+                throw new IOException("Canceled");
+            }
+            long from = segment.start + segment.downloaded;
+            Request.Builder builder = new Request.Builder().url(url)
+                    .header("Range", "bytes=" + from + "-" + segment.end);
+            if (state.etag != null) {
+                builder.header("If-Range", state.etag);
+            }
+            Call call = client.newCall(builder.build());
+            task.register(call);
+            try (Response response = call.execute()) {
+                if (response.code() == 200 || response.code() == 412) {
+                    // If-Range校验失败时服务器返回200整文件，说明文件已变化
+                    throw new FileChangedException(response.code());
+                }
+                if (response.code() != 206) {
+                    throw new HttpStatusException(response.code());
+                }
+                ResponseBody body = response.body();
+                if (body == null) {
+                    throw new IOException("Empty response body");
+                }
+                BufferedSource source = body.source();
+                long sinceCheckpoint = 0;
+                while (!segment.isComplete()) {
+                    buffer.clear();
+                    long remaining = segment.length() - segment.downloaded;
+                    if (remaining < buffer.capacity()) {
+                        buffer.limit((int) remaining);
+                    }
+                    int read = source.read(buffer);
+                    if (read == -1) {
+                        throw new IOException("Unexpected end of stream at " + (segment.start + segment.downloaded));
+                    }
+                    buffer.flip();
+                    long position = segment.start + segment.downloaded;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    segment.downloaded += read;
+                    sinceCheckpoint += read;
+                    reporter.report(downloaded.addAndGet(read), false);
+                    if (sinceCheckpoint >= CHECKPOINT_BYTES) {
+                        sinceCheckpoint = 0;
+                        checkpoint(channel, stateFile, state);
+                    }
+                }
+                checkpoint(channel, stateFile, state);
+                attempt = 0;
+            } catch (IOException e) {
+                if (task.isCancelled() || aborted.get() || !isRetryable(e) || ++attempt > MAX_SEGMENT_RETRIES) {
+                    checkpoint(channel, stateFile, state);
+                    throw e;
+                }
+                Log.w(TAG, "Segment " + segment.start + "-" + segment.end + " interrupted at "
+                        + segment.downloaded + " bytes, retrying (" + attempt + "/" + MAX_SEGMENT_RETRIES + "): " + e.getMessage());
+                try {
+                    Thread.sleep(RetryEngine.backoffMillis(attempt - 1, true));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Download interrupted", ie);
+                }
+            } finally {
+                task.unregister(call);
+            }
+        }
+    }
+
+    /**
+     * 网络错误和服务器5xx、408、429可重试；文件变化和其他状态码重试无意义
+     */
+    private static boolean isRetryable(IOException e) {
+        if (e instanceof FileChangedException) {
+            return false;
+        }
+        if (e instanceof HttpStatusException) {
+            int code = ((HttpStatusException) e).getCode();
+            return code >= 500 || code == 408 || code == 429;
+        }
+        return true;
+    }
+
+    /**
+     * 服务器不支持Range时的顺序下载
+     */
+    private File downloadWholeBody(Response response, File partFile, File target, DownloadTask task, Listener listener) throws IOException {
+        try (Response closeable = response;
+             RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+             FileChannel channel = file.getChannel()) {
+            ResponseBody body = closeable.body();
+            if (body == null) {
+                throw new IOException("Empty response body");
+            }
+            file.setLength(0);
+            ProgressReporter reporter = new ProgressReporter(listener, body.contentLength());
+            BufferedSource source = body.source();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long total = 0;
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                if (task.isCancelled()) {
+                    throw new IOException("Canceled");
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+                total += read;
+                reporter.report(total, false);
+            }
+            channel.force(true);
+        }
+        return commit(partFile, stateFile(target), target);
+    }
+
+    /**
+     * 原子提交：临时文件重命名为目标文件
+     */
+    private File commit(File partFile, File stateFile, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace existing file " + target.getName());
+        }
+        if (!partFile.renameTo(target)) {
+            throw new IOException("Cannot rename " + partFile.getName() + " to " + target.getName());
+        }
+        stateFile.delete();
+        Log.i(TAG, "Download committed: " + target.getAbsolutePath() + " (" + target.length() + " bytes)");
+        return target;
+    }
+
+    private DownloadState planSegments(String url, long totalLength, String etag, String lastModified) {
+        DownloadState state = new DownloadState();
+        state.url = url;
+        state.totalLength = totalLength;
+        state.etag = etag;
+        state.lastModified = lastModified;
+        state.rangeSupported = true;
+        int count = (int) Math.max(1, Math.min(MAX_SEGMENTS, totalLength / MIN_SEGMENT_SIZE));
+        long segmentSize = totalLength / count;
+        long start = 0;
+        for (int i = 0; i < count; i++) {
+            long end = (i == count - 1) ? totalLength - 1 : start + segmentSize - 1;
+            state.segments.add(new Segment(start, end));
+            start = end + 1;
+        }
+        Log.d(TAG, "Planned " + count + " segments for " + totalLength + " bytes");
+        return state;
+    }
+
+    /**
+     * 先把数据刷到磁盘，再保存进度，保证进度文件不会超前于实际数据
+     */
+    private void checkpoint(FileChannel channel, File stateFile, DownloadState state) throws IOException {
+        channel.force(false);
+        saveState(stateFile, state);
+    }
+
+    private void saveState(File stateFile, DownloadState state) throws IOException {
+        synchronized (state) {
+            File tmp = new File(stateFile.getPath() + ".tmp");
+            try (Writer writer = new FileWriter(tmp)) {
+                gson.toJson(state, writer);
+            }
+            if (!tmp.renameTo(stateFile)) {
+                throw new IOException("Cannot save download state");
+            }
+        }
+    }
+
+    private DownloadState loadState(File stateFile, String url) {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(stateFile)) {
+            DownloadState state = gson.fromJson(reader, DownloadState.class);
+            if (state != null && url.equals(state.url) && state.segments != null && !state.segments.isEmpty()) {
+                return state;
+            }
+        } catch (IOException | JsonSyntaxException e) {
+            Log.w(TAG, "Discarding unreadable download state: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean sameValidator(String saved, String current) {
+        // 任一方没有校验信息时只依赖文件大小判断
+        return saved == null || current == null || saved.equals(current);
+    }
+
+    /**
+     * 解析 Content-Range: bytes 0-0/12345 中的总长度
+     */
+    private static long parseTotalLength(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || slash == contentRange.length() - 1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static File partFile(File target) {
+        return new File(target.getPath() + ".part");
+    }
+
+    static File stateFile(File target) {
+        return new File(target.getPath() + ".part.state");
+    }
+
+    /**
+     * 节流的进度回调
+     */
+    private class ProgressReporter {
+        private final Listener listener;
+        private final long total;
+        private volatile long lastReportTime;
+
+        ProgressReporter(Listener listener, long total) {
+            this.listener = listener;
+            this.total = total;
+        }
+
+        void report(final long current, boolean force) {
+            long now = System.currentTimeMillis();
+            if (!force && now - lastReportTime < PROGRESS_INTERVAL_MS && current < total) {
+                return;
+            }
+            lastReportTime = now;
+            mainHandler.post(() -> listener.onProgress(current, total));
+        }
+    }
+}
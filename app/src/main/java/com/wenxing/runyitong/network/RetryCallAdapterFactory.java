@@ -0,0 +1,215 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+
+import okhttp3.Request;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+/**
+ * 带重试功能的Retrofit CallAdapter工厂
+ * 异步请求失败后由{@link RetryEngine}延迟重新入队，等待期间不占用任何线程；
+ * 同步请求（execute）只执行一次，不做重试。
+ * 该工厂只包装底层Call，最终适配仍交给后续的CallAdapter（如默认的主线程回调适配器）。
+ */
+public class RetryCallAdapterFactory extends CallAdapter.Factory {
+
+    private final RetryEngine engine;
+
+    private RetryCallAdapterFactory(RetryEngine engine) {
+        this.engine = engine;
+    }
+
+    public static RetryCallAdapterFactory create() {
+        return new RetryCallAdapterFactory(RetryEngine.getInstance());
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        @SuppressWarnings("unchecked")
+        final CallAdapter<Object, Object> delegate =
+                (CallAdapter<Object, Object>) retrofit.nextCallAdapter(this, returnType, annotations);
+
+        return new CallAdapter<Object, Object>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public Object adapt(Call<Object> call) {
+                return delegate.adapt(new RetryingCall<>(call, engine));
+            }
+        };
+    }
+
+    /**
+     * 支持非阻塞重试的Call包装类
+     */
+    static final class RetryingCall<T> implements Call<T> {
+
+        private static final String TAG = "RetryingCall";
+
+        private final RetryEngine engine;
+        private volatile Call<T> delegate;
+        private volatile boolean canceled;
+        private volatile boolean executed;
+
+        RetryingCall(Call<T> delegate, RetryEngine engine) {
+            this.delegate = delegate;
+            this.engine = engine;
+        }
+
+        @Override
+        public Response<T> execute() throws IOException {
+            executed = true;
+            engine.recordCall();
+            return delegate.execute();
+        }
+
+        @Override
+        public void enqueue(final Callback<T> callback) {
+            executed = true;
+            engine.recordCall();
+            delegate.enqueue(new AttemptCallback(callback, 0));
+        }
+
+        /**
+         * 单次尝试的回调，决定是交给业务回调还是调度下一次重试
+         */
+        private final class AttemptCallback implements Callback<T> {
+            private final Callback<T> callback;
+            private final int attempt;
+
+            AttemptCallback(Callback<T> callback, int attempt) {
+                this.callback = callback;
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                if (attempt > 0) {
+                    engine.releaseRetry();
+                }
+                // 成功或客户端错误（4xx）直接返回
+                if (response.code() < 500 || !canRetry(call.request(), null)) {
+                    if (attempt > 0 && response.isSuccessful()) {
+                        engine.recordRecovered();
+                    }
+                    callback.onResponse(RetryingCall.this, response);
+                    return;
+                }
+                if (!scheduleRetry("HTTP " + response.code())) {
+                    callback.onResponse(RetryingCall.this, response);
+                    return;
+                }
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                if (attempt > 0) {
+                    engine.releaseRetry();
+                }
+                if (canceled || call.isCanceled() || !canRetry(call.request(), t)
+                        || !scheduleRetry(t.getMessage())) {
+                    callback.onFailure(RetryingCall.this, t);
+                }
+            }
+
+            /**
+             * 在预算允许时调度下一次重试
+             * @return 已调度返回true
+             */
+            private boolean scheduleRetry(String reason) {
+                if (canceled || attempt + 1 >= RetryEngine.MAX_ATTEMPTS || !engine.tryAcquireRetry()) {
+                    return false;
+                }
+                final Request request = delegate.request();
+                long delay = RetryEngine.backoffMillis(attempt, isDownloadRequest(request));
+                Log.w(TAG, "Request to " + request.url().encodedPath() + " failed (" + reason
+                        + "), retrying in " + delay + "ms (" + (attempt + 1) + "/" + (RetryEngine.MAX_ATTEMPTS - 1) + ")");
+                engine.schedule(() -> {
+                    if (canceled) {
+                        engine.releaseRetry();
+                        callback.onFailure(RetryingCall.this, new IOException("Canceled"));
+                        return;
+                    }
+                    Call<T> next = delegate.clone();
+                    delegate = next;
+                    next.enqueue(new AttemptCallback(callback, attempt + 1));
+                }, delay);
+                return true;
+            }
+        }
+
+        /**
+         * 判断请求是否允许重试
+         * 幂等请求在网络错误或5xx时重试；非幂等请求（POST）只在请求未到达服务器的连接错误时重试，
+         * 避免重复提交AI分析、下单等操作。熔断拒绝的请求不重试。
+         */
+        private static boolean canRetry(Request request, Throwable t) {
+            if (t instanceof CircuitBreaker.CircuitOpenException) {
+                return false;
+            }
+            String method = request.method();
+            boolean idempotent = "GET".equals(method) || "HEAD".equals(method)
+                    || "PUT".equals(method) || "DELETE".equals(method);
+            if (idempotent) {
+                return t == null || t instanceof IOException;
+            }
+            return t instanceof ConnectException
+                    || t instanceof UnknownHostException
+                    || t instanceof NoRouteToHostException;
+        }
+
+        private static boolean isDownloadRequest(Request request) {
+            return request.url().toString().contains("download")
+                    || request.header("Accept") != null && request.header("Accept").contains("application/octet-stream");
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+            delegate.cancel();
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled || delegate.isCanceled();
+        }
+
+        @Override
+        public Call<T> clone() {
+            return new RetryingCall<>(delegate.clone(), engine);
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非阻塞重试引擎
+ * 负责重试的延迟调度、全局重试预算控制以及重试放大统计。
+ * 重试通过独立的调度线程延后重新入队，不会占用OkHttp分发线程。
+ */
+public class RetryEngine {
+
+    private static final String TAG = "RetryEngine";
+
+    // 每个请求最多尝试次数（含首次请求）
+    public static final int MAX_ATTEMPTS = 3;
+    // 全局同时处于等待或执行中的重试数量上限
+    public static final int MAX_RETRIES_IN_FLIGHT = 8;
+
+    private static final long BASE_DELAY_MS = 1000;
+    private static final long MAX_DELAY_MS = 5000;
+    private static final long DOWNLOAD_BASE_DELAY_MS = 2000;
+    private static final long DOWNLOAD_MAX_DELAY_MS = 10000;
+
+    private static volatile RetryEngine instance;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger retriesInFlight = new AtomicInteger();
+
+    // 统计计数器
+    private final AtomicLong totalCalls = new AtomicLong();
+    private final AtomicLong totalRetries = new AtomicLong();
+    private final AtomicLong budgetRejections = new AtomicLong();
+    private final AtomicLong recoveredCalls = new AtomicLong();
+
+    private RetryEngine() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "api-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static RetryEngine getInstance() {
+        if (instance == null) {
+            synchronized (RetryEngine.class) {
+                if (instance == null) {
+                    instance = new RetryEngine();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 尝试占用一个重试名额
+     * @return 预算充足返回true，否则返回false
+     */
+    boolean tryAcquireRetry() {
+        while (true) {
+            int current = retriesInFlight.get();
+            if (current >= MAX_RETRIES_IN_FLIGHT) {
+                budgetRejections.incrementAndGet();
+                Log.w(TAG, "Retry budget exhausted (" + current + " in flight), failing fast");
+                return false;
+            }
+            if (retriesInFlight.compareAndSet(current, current + 1)) {
+                totalRetries.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放一个重试名额，在重试请求完成后调用
+     */
+    void releaseRetry() {
+        retriesInFlight.decrementAndGet();
+    }
+
+    /**
+     * 延迟执行重试任务
+     * @param task 重试任务
+     * @param delayMs 延迟毫秒数
+     */
+    void schedule(Runnable task, long delayMs) {
+        scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    void recordCall() {
+        totalCalls.incrementAndGet();
+    }
+
+    void recordRecovered() {
+        recoveredCalls.incrementAndGet();
+    }
+
+    /**
+     * 计算退避时间：指数退避加全抖动，下载请求使用更长的延迟
+     * @param retryCount 已重试次数（从0开始）
+     * @param isDownloadRequest 是否为下载请求
+     * @return 延迟毫秒数
+     */
+    static long backoffMillis(int retryCount, boolean isDownloadRequest) {
+        long baseDelay = isDownloadRequest ? DOWNLOAD_BASE_DELAY_MS : BASE_DELAY_MS;
+        long maxDelay = isDownloadRequest ? DOWNLOAD_MAX_DELAY_MS : MAX_DELAY_MS;
+        long cap = Math.min(baseDelay << Math.min(retryCount, 16), maxDelay);
+        // 保留一半固定延迟，另一半随机，避免大量请求同时重试
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    public long getTotalCalls() {
+        return totalCalls.get();
+    }
+
+    public long getTotalRetries() {
+        return totalRetries.get();
+    }
+
+    public long getBudgetRejections() {
+        return budgetRejections.get();
+    }
+
+    public long getRecoveredCalls() {
+        return recoveredCalls.get();
+    }
+
+    public int getRetriesInFlight() {
+        return retriesInFlight.get();
+    }
+
+    /**
+     * 重试放大系数：实际发出的请求数 / 业务发起的请求数
+     */
+    public double getAmplification() {
+        long calls = totalCalls.get();
+        if (calls == 0) {
+            return 1.0;
+        }
+        return (calls + totalRetries.get()) / (double) calls;
+    }
+
+    /**
+     * 获取统计信息摘要
+     */
+    public String getStatsSummary() {
+        return String.format(Locale.US,
+                "calls=%d, retries=%d, recovered=%d, budgetRejected=%d, inFlight=%d, amplification=%.2f, circuitRejected=%d",
+                getTotalCalls(), getTotalRetries(), getRecoveredCalls(), getBudgetRejections(),
+                getRetriesInFlight(), getAmplification(), CircuitBreaker.getInstance().getRejectedCount());
+    }
+}
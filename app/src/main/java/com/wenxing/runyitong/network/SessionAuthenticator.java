@@ -0,0 +1,90 @@
+package com.wenxing.runyitong.network;
+
+import android.util.Log;
+
+import com.wenxing.runyitong.utils.SessionStore;
+
+import java.io.IOException;
+
+import okhttp3.Authenticator;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+
+/**
+ * 401认证处理
+ * 多个并发请求同时收到401时只处理一次：第一个请求在锁内刷新token（或使会话过期），
+ * 其余请求拿到锁后发现token已变化，直接用新token重试或放弃，不会重复刷新。
+ */
+public class SessionAuthenticator implements Authenticator {
+
+    private static final String TAG = "SessionAuthenticator";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * token刷新接口，后端提供刷新接口后实现并通过setTokenRefresher接入
+     */
+    public interface TokenRefresher {
+        /**
+         * 同步刷新token
+         * @return 新token，无法刷新时返回null
+         */
+        String refresh(String expiredToken) throws IOException;
+    }
+
+    private final Object lock = new Object();
+    private volatile TokenRefresher tokenRefresher;
+
+    public void setTokenRefresher(TokenRefresher tokenRefresher) {
+        this.tokenRefresher = tokenRefresher;
+    }
+
+    @Override
+    public Request authenticate(Route route, Response response) throws IOException {
+        Request request = response.request();
+        String header = request.header("Authorization");
+        // 未携带token的请求（如登录接口）401表示凭证错误，交给调用方处理
+        if (header == null || !header.startsWith(BEARER_PREFIX) || !SessionStore.isInitialized()) {
+            return null;
+        }
+        // 已用新token重试过仍然401，不再继续
+        if (response.priorResponse() != null) {
+            return null;
+        }
+        String failedToken = header.substring(BEARER_PREFIX.length());
+        SessionStore store = SessionStore.getInstance();
+
+        synchronized (lock) {
+            String current = store.getAccessToken();
+            if (current == null) {
+                // 会话已被其他请求标记为过期
+                return null;
+            }
+            if (!current.equals(failedToken)) {
+                // 其他请求已刷新token或用户已重新登录
+                return withToken(request, current);
+            }
+
+            TokenRefresher refresher = tokenRefresher;
+            if (refresher != null) {
+                try {
+                    String refreshed = refresher.refresh(failedToken);
+                    if (refreshed != null && !refreshed.isEmpty()) {
+                        store.updateAccessToken(refreshed);
+                        Log.i(TAG, "Access token refreshed");
+                        return withToken(request, refreshed);
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Token refresh failed: " + e.getMessage());
+                }
+            }
+
+            store.expireSession(failedToken);
+            return null;
+        }
+    }
+
+    private static Request withToken(Request request, String token) {
+        return request.newBuilder().header("Authorization", BEARER_PREFIX + token).build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.wenxing.runyitong.pdf;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 按尺寸复用的Bitmap池
+ * PDF页面底图和图块的尺寸基本固定，从缓存淘汰的Bitmap放入池中，下次渲染同尺寸页面时直接复用，
+ * 避免滚动过程中反复分配大块内存引发GC。池按字节数限制总大小，超出时丢弃新放入的Bitmap。
+ * 线程安全：渲染线程取出，主线程放回。
+ */
+public class BitmapPool {
+
+    private final long maxBytes;
+    private final Map<Long, ArrayDeque<Bitmap>> buckets = new HashMap<>();
+    private long currentBytes = 0;
+
+    // 统计信息
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 取出指定尺寸的Bitmap，池中没有时新建；取出的Bitmap内容未清空，由调用方负责擦除
+     */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        synchronized (this) {
+            ArrayDeque<Bitmap> bucket = buckets.get(sizeKey(width, height, config));
+            while (bucket != null && !bucket.isEmpty()) {
+                Bitmap bitmap = bucket.pop();
+                currentBytes -= bitmap.getAllocationByteCount();
+                if (!bitmap.isRecycled()) {
+                    hitCount++;
+                    return bitmap;
+                }
+            }
+            missCount++;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * 放回不再使用的Bitmap，调用方之后不能再访问它
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (currentBytes + size > maxBytes) {
+            return; // 池已满，交给GC回收
+        }
+        long key = sizeKey(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(key, bucket);
+        }
+        bucket.push(bitmap);
+        currentBytes += size;
+    }
+
+    /**
+     * 清空池
+     */
+    public synchronized void clear() {
+        buckets.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized String getStatsSummary() {
+        return String.format(Locale.US, "复用池 %dKB/%dKB，复用 %d 次，新建 %d 次",
+                currentBytes / 1024, maxBytes / 1024, hitCount, missCount);
+    }
+
+    private static long sizeKey(int width, int height, Bitmap.Config config) {
+        int configIndex = config != null ? config.ordinal() : 0xFF;
+        return ((long) width << 32) | ((long) height << 8) | configIndex;
+    }
+}
@@ -0,0 +1,228 @@
+package com.wenxing.runyitong.pdf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.itextpdf.text.pdf.PdfReader;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 已下载书籍的后台全文索引
+ * 书籍下载完成后加入队列，在低优先级线程上分批提取文本：每批几页，批与批之间重新排队，
+ * 多本书轮流推进；每页写入即为检查点，进程被杀后从下一页继续。
+ * 阅读器正在渲染页面时暂停提取，避免和渲染争抢CPU造成滑动卡顿。
+ * 索引未完成时已提取的页面即可搜索。
+ */
+public class BookIndexer {
+    private static final String TAG = "BookIndexer";
+
+    // 每批提取的页数
+    private static final int BATCH_PAGES = 5;
+    // 渲染结束后再等待一段时间才继续，滑动时的渲染间隙不会被索引占用
+    private static final long RENDER_IDLE_MILLIS = 800;
+    private static final long PAUSE_POLL_MILLIS = 200;
+
+    /**
+     * 索引进度回调，在主线程调用
+     */
+    public interface Listener {
+        void onProgress(File pdfFile, int indexedPages, int totalPages);
+
+        void onCompleted(File pdfFile);
+
+        void onError(File pdfFile, Exception error);
+    }
+
+    private static volatile BookIndexer instance;
+
+    private final Context context;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 排队或正在索引的文件路径
+    private final Set<String> pendingPaths = Collections.synchronizedSet(new HashSet<>());
+
+    // 当前打开的PdfReader，只在索引线程访问；同一本书的多个批次复用
+    private String readerPath;
+    private PdfReader reader;
+
+    private BookIndexer(Context context) {
+        this.context = context;
+        this.executor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "book-indexer"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static BookIndexer getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BookIndexer.class) {
+                if (instance == null) {
+                    instance = new BookIndexer(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 将书籍加入索引队列，已完成或已在队列中时不做任何事
+     */
+    public void enqueue(File pdfFile) {
+        if (pdfFile == null || !pendingPaths.add(pdfFile.getAbsolutePath())) {
+            return;
+        }
+        executor.execute(() -> indexBatch(pdfFile));
+    }
+
+    /**
+     * 将多本书籍加入索引队列，用于恢复上次未完成的索引
+     */
+    public void enqueueAll(List<File> pdfFiles) {
+        for (File pdfFile : pdfFiles) {
+            enqueue(pdfFile);
+        }
+    }
+
+    /**
+     * 书籍是否在排队或正在建立索引
+     */
+    public boolean isIndexing(File pdfFile) {
+        return pendingPaths.contains(pdfFile.getAbsolutePath());
+    }
+
+    /**
+     * 停止索引并删除索引文件，删除书籍时调用
+     */
+    public void remove(File pdfFile) {
+        final String path = pdfFile.getAbsolutePath();
+        pendingPaths.remove(path);
+        executor.execute(() -> {
+            if (path.equals(readerPath)) {
+                closeReader();
+            }
+            PdfTextIndex.delete(context, pdfFile);
+        });
+    }
+
+    // 提取一批页面，未完成时重新排到队尾
+    private void indexBatch(File pdfFile) {
+        String path = pdfFile.getAbsolutePath();
+        if (!pendingPaths.contains(path)) {
+            return; // 已被移除
+        }
+        try {
+            if (!pdfFile.exists()) {
+                finish(path);
+                return;
+            }
+            PdfTextIndex index = PdfTextIndex.open(context, pdfFile);
+            if (index.isComplete()) {
+                finish(path);
+                return;
+            }
+            if (!path.equals(readerPath)) {
+                closeReader();
+                reader = index.openReader();
+                readerPath = path;
+            }
+
+            int pageCount = index.getPageCount();
+            for (int i = 0; i < BATCH_PAGES; i++) {
+                int page = index.getExtractedPageCount();
+                if (page >= pageCount || !pendingPaths.contains(path)) {
+                    break;
+                }
+                waitForRenderIdle();
+                index.appendPage(page, PdfTextIndex.extractPageText(reader, page));
+            }
+
+            int extracted = index.getExtractedPageCount();
+            notifyProgress(pdfFile, extracted, pageCount);
+            if (index.isComplete()) {
+                Log.d(TAG, pdfFile.getName() + " 索引完成，共 " + pageCount + " 页");
+                finish(path);
+                notifyCompleted(pdfFile);
+            } else if (pendingPaths.contains(path)) {
+                executor.execute(() -> indexBatch(pdfFile));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(path);
+        } catch (Exception e) {
+            Log.e(TAG, pdfFile.getName() + " 建立索引失败", e);
+            finish(path);
+            notifyError(pdfFile, e);
+        } catch (OutOfMemoryError e) {
+            Log.e(TAG, pdfFile.getName() + " 建立索引时内存不足", e);
+            finish(path);
+        }
+    }
+
+    private void waitForRenderIdle() throws InterruptedException {
+        while (PdfRenderScheduler.isRenderingActive(RENDER_IDLE_MILLIS)) {
+            Thread.sleep(PAUSE_POLL_MILLIS);
+        }
+    }
+
+    private void finish(String path) {
+        pendingPaths.remove(path);
+        if (path.equals(readerPath)) {
+            closeReader();
+        }
+    }
+
+    private void closeReader() {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+        readerPath = null;
+    }
+
+    private void notifyProgress(File pdfFile, int indexedPages, int totalPages) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onProgress(pdfFile, indexedPages, totalPages);
+            }
+        });
+    }
+
+    private void notifyCompleted(File pdfFile) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onCompleted(pdfFile);
+            }
+        });
+    }
+
+    private void notifyError(File pdfFile, Exception error) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onError(pdfFile, error);
+            }
+        });
+    }
+}
@@ -0,0 +1,518 @@
+package com.wenxing.runyitong.pdf;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.wenxing.runyitong.model.LibraryBook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 已下载书籍的书架索引
+ * 持久化记录每本书的路径、大小、页数、内容哈希、封面缩略图和阅读进度，书架直接按索引显示，
+ * 主线程不访问文件。下载、删除、阅读时更新索引；与下载目录的核对在后台线程进行，
+ * 只有新增或大小、修改时间变化的文件才重新打开校验。
+ */
+public class BookLibrary {
+    private static final String TAG = "BookLibrary";
+
+    private static final String LIBRARY_FILE = "book_library.json";
+    private static final String COVER_DIR = "book_covers";
+    private static final int FORMAT_VERSION = 1;
+    // 封面缩略图宽度（像素）
+    private static final int COVER_WIDTH = 160;
+    private static final int COVER_QUALITY = 80;
+    private static final int MAX_MEMORY_COVERS = 32;
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 书架变化回调，在主线程调用
+     */
+    public interface Listener {
+        void onLibraryChanged(List<LibraryBook> books);
+    }
+
+    /**
+     * 封面加载回调，在主线程调用
+     */
+    public interface CoverCallback {
+        /**
+         * @param cover 封面缩略图，没有封面时为null
+         */
+        void onCoverLoaded(LibraryBook book, Bitmap cover);
+    }
+
+    // 持久化格式
+    private static class LibraryFile {
+        int formatVersion;
+        List<LibraryBook> books;
+    }
+
+    private static volatile BookLibrary instance;
+
+    private final File libraryFile;
+    private final File coverDir;
+    private final Gson gson = new Gson();
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // 路径 -> 书籍，按加入书架的顺序排列；读写都需持有锁
+    private final Map<String, LibraryBook> books = new LinkedHashMap<>();
+    private final LruCache<String, Bitmap> coverCache = new LruCache<>(MAX_MEMORY_COVERS);
+    private final AtomicBoolean saveScheduled = new AtomicBoolean(false);
+    private volatile boolean loaded;
+
+    private BookLibrary(Context context) {
+        this.libraryFile = new File(context.getFilesDir(), LIBRARY_FILE);
+        this.coverDir = new File(context.getFilesDir(), COVER_DIR);
+        this.ioExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "book-library-io"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        ioExecutor.execute(this::loadFromDisk);
+    }
+
+    public static BookLibrary getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BookLibrary.class) {
+                if (instance == null) {
+                    instance = new BookLibrary(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 索引是否已从磁盘读入，未读入时getBooks返回空列表，读入后通知监听器
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 当前书架的快照，只读内存
+     */
+    public List<LibraryBook> getBooks() {
+        synchronized (books) {
+            return new ArrayList<>(books.values());
+        }
+    }
+
+    /**
+     * 书籍是否在书架中，只读内存
+     */
+    public LibraryBook getBook(File pdfFile) {
+        synchronized (books) {
+            return books.get(pdfFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 下载完成后加入书架：在后台校验文件、读取页数、计算哈希并生成封面
+     */
+    public void addBook(File pdfFile) {
+        ioExecutor.execute(() -> {
+            if (refresh(pdfFile)) {
+                scheduleSave();
+                notifyChanged();
+            }
+        });
+    }
+
+    /**
+     * 从书架移除并删除封面，删除书籍时调用
+     */
+    public void removeBook(File pdfFile) {
+        LibraryBook removed;
+        synchronized (books) {
+            removed = books.remove(pdfFile.getAbsolutePath());
+        }
+        if (removed == null) {
+            return;
+        }
+        ioExecutor.execute(() -> deleteCover(removed));
+        scheduleSave();
+        notifyChanged();
+    }
+
+    /**
+     * 记录打开书籍的时间
+     */
+    public void markOpened(File pdfFile) {
+        updateReadState(pdfFile, -1);
+    }
+
+    /**
+     * 记录阅读进度，阅读器翻页时调用，写盘在后台合并进行
+     * @param page 当前页码（从0开始）
+     */
+    public void setLastReadPage(File pdfFile, int page) {
+        updateReadState(pdfFile, page);
+    }
+
+    private void updateReadState(File pdfFile, int page) {
+        synchronized (books) {
+            LibraryBook book = books.get(pdfFile.getAbsolutePath());
+            if (book == null) {
+                return;
+            }
+            if (page >= 0) {
+                book.setLastReadPage(page);
+            }
+            book.setLastReadTime(System.currentTimeMillis());
+        }
+        scheduleSave();
+    }
+
+    /**
+     * 在后台与下载目录核对：移除已不存在的文件，加入新文件，重新校验大小或修改时间变化的文件。
+     * 核对结束后总会通知一次监听器
+     * @param onComplete 核对结束后在主线程执行，可为null
+     */
+    public void reconcile(File downloadDir, Runnable onComplete) {
+        ioExecutor.execute(() -> {
+            boolean changed = false;
+            if (!downloadDir.exists() && !downloadDir.mkdirs()) {
+                Log.e(TAG, "无法创建下载目录 " + downloadDir);
+            }
+            File[] files = downloadDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
+            Set<String> present = new HashSet<>();
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.isFile()) {
+                        continue;
+                    }
+                    present.add(file.getAbsolutePath());
+                    LibraryBook book = getBook(file);
+                    if (book == null || book.getFileSize() != file.length()
+                            || book.getLastModified() != file.lastModified()) {
+                        changed |= refresh(file);
+                    }
+                }
+            } else {
+                // 目录暂时不可读时保留原有记录
+                Log.w(TAG, "无法读取下载目录 " + downloadDir);
+                notifyChanged();
+                postIfNotNull(onComplete);
+                return;
+            }
+
+            String dirPath = downloadDir.getAbsolutePath();
+            List<LibraryBook> missing = new ArrayList<>();
+            synchronized (books) {
+                Iterator<LibraryBook> iterator = books.values().iterator();
+                while (iterator.hasNext()) {
+                    LibraryBook book = iterator.next();
+                    File file = new File(book.getPath());
+                    if (dirPath.equals(file.getParent()) ? !present.contains(book.getPath()) : !file.exists()) {
+                        iterator.remove();
+                        missing.add(book);
+                    }
+                }
+            }
+            for (LibraryBook book : missing) {
+                Log.d(TAG, "文件已不存在，移出书架: " + book.getPath());
+                deleteCover(book);
+                changed = true;
+            }
+
+            if (changed) {
+                saveNow();
+            }
+            notifyChanged();
+            postIfNotNull(onComplete);
+        });
+    }
+
+    /**
+     * 加载封面缩略图，内存未命中时在后台解码
+     */
+    public void loadCover(LibraryBook book, CoverCallback callback) {
+        String coverPath = book.getCoverPath();
+        if (coverPath == null) {
+            callback.onCoverLoaded(book, null);
+            return;
+        }
+        Bitmap cached = coverCache.get(coverPath);
+        if (cached != null) {
+            callback.onCoverLoaded(book, cached);
+            return;
+        }
+        ioExecutor.execute(() -> {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            Bitmap cover = BitmapFactory.decodeFile(coverPath, options);
+            mainHandler.post(() -> {
+                if (cover != null) {
+                    coverCache.put(coverPath, cover);
+                }
+                callback.onCoverLoaded(book, cover);
+            });
+        });
+    }
+
+    /**
+     * 只从内存获取封面
+     */
+    public Bitmap getCoverFromMemory(LibraryBook book) {
+        return book.getCoverPath() != null ? coverCache.get(book.getCoverPath()) : null;
+    }
+
+    // 在IO线程执行：重新校验文件并更新索引项，文件无效时移出书架，返回索引是否变化
+    private boolean refresh(File pdfFile) {
+        String path = pdfFile.getAbsolutePath();
+        LibraryBook previous = getBook(pdfFile);
+        LibraryBook book = inspect(pdfFile, previous);
+        synchronized (books) {
+            if (book == null) {
+                books.remove(path);
+            } else {
+                books.put(path, book);
+            }
+        }
+        if (previous != null) {
+            deleteCover(previous);
+        }
+        if (book == null) {
+            return previous != null;
+        }
+        Log.d(TAG, "已加入书架: " + book.getName() + "，" + book.getPageCount() + " 页");
+        return true;
+    }
+
+    // 在IO线程执行：读取文件信息、页数和内容哈希，生成封面；内容未变时保留阅读进度
+    private LibraryBook inspect(File pdfFile, LibraryBook previous) {
+        if (!pdfFile.isFile() || pdfFile.length() == 0 || !pdfFile.canRead()) {
+            Log.w(TAG, "跳过无效的PDF文件: " + pdfFile.getName());
+            return null;
+        }
+        LibraryBook book = new LibraryBook(pdfFile.getAbsolutePath());
+        book.setName(LibraryBook.displayName(pdfFile.getName()));
+        book.setFileSize(pdfFile.length());
+        book.setLastModified(pdfFile.lastModified());
+        book.setAddedTime(previous != null ? previous.getAddedTime() : pdfFile.lastModified());
+        try {
+            book.setContentHash(sha256(pdfFile));
+        } catch (IOException e) {
+            Log.w(TAG, "计算文件哈希失败: " + pdfFile.getName(), e);
+            return null;
+        }
+
+        if (previous != null && book.getContentHash().equals(previous.getContentHash())) {
+            // 内容未变（如只是修改时间变化），沿用页数、封面和阅读进度
+            book.setPageCount(previous.getPageCount());
+            book.setCoverPath(previous.getCoverPath());
+            book.setLastReadPage(previous.getLastReadPage());
+            book.setLastReadTime(previous.getLastReadTime());
+            return book;
+        }
+        try (ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(pdfFile, ParcelFileDescriptor.MODE_READ_ONLY);
+             PdfRenderer renderer = new PdfRenderer(descriptor)) {
+            book.setPageCount(renderer.getPageCount());
+            if (renderer.getPageCount() > 0) {
+                book.setCoverPath(writeCover(renderer, book.getContentHash()));
+            }
+        } catch (IOException | SecurityException e) {
+            Log.w(TAG, "无法打开PDF文件: " + pdfFile.getName() + " " + e.getMessage());
+            return null;
+        }
+        return book;
+    }
+
+    // 渲染第一页作为封面，失败时返回null，书架显示默认图标
+    private String writeCover(PdfRenderer renderer, String contentHash) {
+        if (!coverDir.isDirectory() && !coverDir.mkdirs()) {
+            return null;
+        }
+        File file = new File(coverDir, contentHash + ".webp");
+        if (file.exists()) {
+            return file.getPath(); // 同一内容的书已有封面
+        }
+        Bitmap cover;
+        try (PdfRenderer.Page page = renderer.openPage(0)) {
+            int height = Math.max(1, Math.round(COVER_WIDTH * (float) page.getHeight() / page.getWidth()));
+            Bitmap rendered = Bitmap.createBitmap(COVER_WIDTH, height, Bitmap.Config.ARGB_8888);
+            rendered.eraseColor(0xFFFFFFFF);
+            page.render(rendered, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            cover = PdfThumbnailCache.createThumbnail(rendered, 1);
+            rendered.recycle();
+        } catch (RuntimeException | OutOfMemoryError e) {
+            Log.w(TAG, "渲染封面失败", e);
+            return null;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!cover.compress(PdfThumbnailCache.webpFormat(), COVER_QUALITY, out)) {
+                throw new IOException("WebP编码失败");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "保存封面失败: " + e.getMessage());
+            tmp.delete();
+            return null;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return null;
+        }
+        coverCache.put(file.getPath(), cover);
+        return file.getPath();
+    }
+
+    private void deleteCover(LibraryBook book) {
+        String coverPath = book.getCoverPath();
+        if (coverPath == null) {
+            return;
+        }
+        // 内容相同的书共用封面，仍被引用时保留（包括重新校验后内容未变的同一本书）
+        synchronized (books) {
+            for (LibraryBook other : books.values()) {
+                if (coverPath.equals(other.getCoverPath())) {
+                    return;
+                }
+            }
+        }
+        coverCache.remove(coverPath);
+        new File(coverPath).delete();
+    }
+
+    // 在IO线程执行
+    private void loadFromDisk() {
+        Map<String, LibraryBook> restored = new HashMap<>();
+        List<LibraryBook> ordered = new ArrayList<>();
+        if (libraryFile.exists()) {
+            try (Reader reader = new FileReader(libraryFile)) {
+                LibraryFile file = gson.fromJson(reader, LibraryFile.class);
+                if (file != null && file.formatVersion == FORMAT_VERSION && file.books != null) {
+                    for (LibraryBook book : file.books) {
+                        if (book != null && book.getPath() != null && restored.put(book.getPath(), book) == null) {
+                            ordered.add(book);
+                        }
+                    }
+                }
+            } catch (IOException | JsonParseException e) {
+                // 索引损坏时从空书架开始，由核对重新建立
+                Log.w(TAG, "读取书架索引失败: " + e.getMessage());
+            }
+        }
+        synchronized (books) {
+            // 读入期间已加入的书籍以新记录为准
+            for (LibraryBook book : ordered) {
+                if (!books.containsKey(book.getPath())) {
+                    books.put(book.getPath(), book);
+                }
+            }
+        }
+        loaded = true;
+        Log.d(TAG, "书架索引已读入，共 " + ordered.size() + " 本");
+        notifyChanged();
+    }
+
+    // 合并短时间内的多次修改，只写一次盘
+    private void scheduleSave() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            ioExecutor.execute(this::saveNow);
+        }
+    }
+
+    // 在IO线程执行：先写临时文件再重命名
+    private void saveNow() {
+        saveScheduled.set(false);
+        LibraryFile file = new LibraryFile();
+        file.formatVersion = FORMAT_VERSION;
+        file.books = getBooks();
+        File tmp = new File(libraryFile.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            gson.toJson(file, writer);
+        } catch (IOException e) {
+            Log.e(TAG, "保存书架索引失败", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(libraryFile)) {
+            Log.e(TAG, "无法保存书架索引");
+            tmp.delete();
+        }
+    }
+
+    private void notifyChanged() {
+        mainHandler.post(() -> {
+            List<LibraryBook> snapshot = getBooks();
+            for (Listener listener : listeners) {
+                listener.onLibraryChanged(snapshot);
+            }
+        });
+    }
+
+    private void postIfNotNull(Runnable runnable) {
+        if (runnable != null) {
+            mainHandler.post(runnable);
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        byte[] hash = digest.digest();
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.wenxing.runyitong.pdf;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * PDF页面位图缓存
+ * 按(文档, 页码, 缩放档位)缓存页面底图和图块，总大小按设备内存等级以字节计算。
+ * 被淘汰的Bitmap放入BitmapPool供下次渲染复用；正在显示的页面需要pin，被淘汰时不会进入复用池，
+ * 避免屏幕上的内容被后台渲染覆盖。
+ * 可选对纯文字页面使用RGB_565存储，内存占用减半。
+ * get/put/pin在主线程调用；复用池与RGB_565转换可在渲染线程使用。
+ */
+public class PageBitmapCache {
+    private static final String TAG = "PageBitmapCache";
+
+    // 缓存占应用内存等级的1/6，复用池为缓存的1/4
+    private static final int CACHE_FRACTION = 6;
+    private static final int POOL_FRACTION = 4;
+
+    // 判断纯文字页面时的采样网格和灰度容差
+    private static final int SAMPLE_GRID = 24;
+    private static final int GRAYSCALE_TOLERANCE = 24;
+
+    private static volatile PageBitmapCache instance;
+
+    private final LruCache<String, Bitmap> cache;
+    private final BitmapPool bitmapPool;
+    // 正在显示的缓存项及其引用计数
+    private final Map<String, Integer> pinCounts = new HashMap<>();
+    private volatile boolean rgb565ForTextPages = false;
+
+    private PageBitmapCache(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager != null ? activityManager.getMemoryClass() : 64;
+        long cacheBytes = memoryClass * 1024L * 1024L / CACHE_FRACTION;
+
+        this.bitmapPool = new BitmapPool(cacheBytes / POOL_FRACTION);
+        this.cache = new LruCache<String, Bitmap>((int) cacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (oldValue != newValue && !isPinned(key)) {
+                    bitmapPool.put(oldValue);
+                }
+            }
+        };
+        Log.d(TAG, "页面缓存上限: " + (cacheBytes / 1024 / 1024) + "MB (memoryClass=" + memoryClass + "MB)");
+    }
+
+    public static PageBitmapCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PageBitmapCache.class) {
+                if (instance == null) {
+                    instance = new PageBitmapCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 响应系统内存回收，缓存尚未创建时不做任何事
+     */
+    public static void trimMemory(int level) {
+        PageBitmapCache cache = instance;
+        if (cache == null) {
+            return;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // 进程在后台且可能被杀，全部释放
+            cache.cache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                && level < ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)) {
+            cache.cache.trimToSize(cache.cache.maxSize() / 2);
+        }
+        // 复用池只是为了减少分配，任何内存压力下都先释放
+        cache.bitmapPool.clear();
+        Log.d(TAG, "内存回收 level=" + level + "，" + cache.getStatsSummary());
+    }
+
+    /**
+     * 页面底图的缓存键
+     * @param zoomBucket 缩放档位，底图使用渲染宽度
+     */
+    public static String pageKey(String documentKey, int page, int zoomBucket) {
+        return documentKey + "|" + page + "|z" + zoomBucket;
+    }
+
+    /**
+     * 图块的缓存键
+     * @param zoomBucket 缩放档位，图块使用渲染比例的千分值
+     */
+    public static String tileKey(String documentKey, int page, int zoomBucket, int col, int row) {
+        return documentKey + "|" + page + "|t" + zoomBucket + "_" + col + "_" + row;
+    }
+
+    public Bitmap get(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        if (key != null && bitmap != null && !bitmap.isRecycled()) {
+            cache.put(key, bitmap);
+        }
+    }
+
+    public void remove(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * 移除文档的所有缓存项和pin，文档关闭后调用
+     */
+    public void removeDocument(String documentKey) {
+        unpinDocument(documentKey);
+        String prefix = documentKey + "|";
+        for (String key : cache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 标记缓存项正在显示，被淘汰时不进入复用池
+     */
+    public synchronized void pin(String key) {
+        Integer count = pinCounts.get(key);
+        pinCounts.put(key, count == null ? 1 : count + 1);
+    }
+
+    public synchronized void unpin(String key) {
+        Integer count = pinCounts.get(key);
+        if (count == null) {
+            return;
+        }
+        if (count <= 1) {
+            pinCounts.remove(key);
+        } else {
+            pinCounts.put(key, count - 1);
+        }
+    }
+
+    /**
+     * 解除文档的所有pin，保留缓存内容以便重新打开时命中
+     */
+    public synchronized void unpinDocument(String documentKey) {
+        String prefix = documentKey + "|";
+        Iterator<String> iterator = pinCounts.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized boolean isPinned(String key) {
+        return pinCounts.containsKey(key);
+    }
+
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * 从复用池取出一张已擦除为白色的ARGB_8888位图，PdfRenderer只能渲染到ARGB_8888
+     */
+    public Bitmap acquireRenderTarget(int width, int height) {
+        Bitmap bitmap = bitmapPool.get(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.WHITE);
+        return bitmap;
+    }
+
+    /**
+     * 设置纯文字页面是否使用RGB_565存储
+     */
+    public void setRgb565ForTextPages(boolean enabled) {
+        this.rgb565ForTextPages = enabled;
+    }
+
+    public boolean isRgb565ForTextPages() {
+        return rgb565ForTextPages;
+    }
+
+    /**
+     * 开启RGB_565模式且页面为纯文字（无彩色内容）时转换为RGB_565，原位图放回复用池；否则原样返回
+     */
+    public Bitmap compactIfTextOnly(Bitmap rendered) {
+        if (!rgb565ForTextPages || rendered == null || !isGrayscale(rendered)) {
+            return rendered;
+        }
+        Bitmap compact = bitmapPool.get(rendered.getWidth(), rendered.getHeight(), Bitmap.Config.RGB_565);
+        new Canvas(compact).drawBitmap(rendered, 0, 0, null);
+        bitmapPool.put(rendered);
+        return compact;
+    }
+
+    // 按网格采样，所有采样点的RGB分量接近时视为纯文字页面
+    private static boolean isGrayscale(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        for (int i = 0; i < SAMPLE_GRID; i++) {
+            int y = (int) ((i + 0.5f) * height / SAMPLE_GRID);
+            for (int j = 0; j < SAMPLE_GRID; j++) {
+                int x = (int) ((j + 0.5f) * width / SAMPLE_GRID);
+                int pixel = bitmap.getPixel(x, y);
+                int r = Color.red(pixel);
+                int g = Color.green(pixel);
+                int b = Color.blue(pixel);
+                int spread = Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b));
+                if (spread > GRAYSCALE_TOLERANCE) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public String getStatsSummary() {
+        return String.format(Locale.US, "缓存 %dKB/%dKB，命中 %d，未命中 %d，淘汰 %d；",
+                cache.size() / 1024, cache.maxSize() / 1024,
+                cache.hitCount(), cache.missCount(), cache.evictionCount())
+                + bitmapPool.getStatsSummary();
+    }
+}
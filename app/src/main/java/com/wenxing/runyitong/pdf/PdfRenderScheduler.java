@@ -0,0 +1,294 @@
+package com.wenxing.runyitong.pdf;
+
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.wenxing.runyitong.network.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个PDF文档的渲染调度器
+ * PdfRenderer同一时间只能打开一页，所有打开页面的操作都由调度器的单个线程串行执行。
+ * 任务按优先级出队：可见页面预览 > 可见页面完整底图 > 可见区域图块 > 预加载 > 缩略图；同一优先级内后提交的先执行，
+ * 快速滑动时刚绑定的页面先渲染，已滑出屏幕的页面任务由调用方取消后直接丢弃。
+ * 所有调度器共同统计未完成的任务数，后台建索引等低优先级工作据此避开渲染。
+ */
+public class PdfRenderScheduler {
+    private static final String TAG = "PdfRenderScheduler";
+
+    /**
+     * 任务优先级，数值越小越先执行
+     */
+    public enum Priority {
+        VISIBLE,    // 屏幕上的页面，首次显示的低分辨率预览
+        REFINE,     // 屏幕上的页面完整底图，替换预览
+        TILE,       // 可见区域的高清图块
+        PREFETCH,   // 相邻页面预加载
+        THUMBNAIL   // 缩略图条中缺失的缩略图
+    }
+
+    /**
+     * 在已打开的页面上执行渲染，运行在调度线程，不能持有页面对象到方法返回之后
+     */
+    public interface PageRenderer<T> {
+        T render(PdfRenderer.Page page) throws Exception;
+    }
+
+    /**
+     * 渲染结果回调，在主线程调用；排队中被取消或调度器关闭后不会回调
+     */
+    public interface Callback<T> {
+        void onRendered(T result);
+
+        void onError(Throwable error);
+    }
+
+    /**
+     * 已提交的渲染任务，可用于取消
+     */
+    public final class RenderTask<T> implements Runnable, Comparable<RenderTask<?>> {
+        private final int pageIndex;
+        private final Priority priority;
+        private final long sequence;
+        private final long enqueueTime;
+        private final PageRenderer<T> renderer;
+        private final Callback<T> callback;
+        private volatile boolean cancelled = false;
+
+        RenderTask(int pageIndex, Priority priority, PageRenderer<T> renderer, Callback<T> callback) {
+            this.pageIndex = pageIndex;
+            this.priority = priority;
+            this.sequence = sequenceGenerator.incrementAndGet();
+            this.enqueueTime = SystemClock.elapsedRealtime();
+            this.renderer = renderer;
+            this.callback = callback;
+        }
+
+        public int getPageIndex() {
+            return pageIndex;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * 取消排队中的任务
+         * @return 任务已从队列移除时返回true；已开始执行的任务无法取消，结果照常回调
+         */
+        public boolean cancel() {
+            if (cancelled || !executor.remove(this)) {
+                return false;
+            }
+            cancelled = true;
+            cancelledCount.incrementAndGet();
+            finishActiveTask();
+            return true;
+        }
+
+        @Override
+        public int compareTo(RenderTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            // 同一优先级后提交的先执行
+            return Long.compare(other.sequence, sequence);
+        }
+
+        @Override
+        public void run() {
+            try {
+                renderPage();
+            } finally {
+                finishActiveTask();
+            }
+        }
+
+        private void renderPage() {
+            if (cancelled) {
+                return;
+            }
+            long startTime = SystemClock.elapsedRealtime();
+            long waitMillis = startTime - enqueueTime;
+
+            T result = null;
+            Throwable error = null;
+            try {
+                synchronized (pdfRenderer) {
+                    if (pageIndex < 0 || pageIndex >= pdfRenderer.getPageCount()) {
+                        throw new IllegalArgumentException("页面索引超出范围: " + pageIndex);
+                    }
+                    try (PdfRenderer.Page page = pdfRenderer.openPage(pageIndex)) {
+                        result = renderer.render(page);
+                    }
+                }
+            } catch (Exception | OutOfMemoryError e) {
+                error = e;
+            }
+
+            long renderMillis = SystemClock.elapsedRealtime() - startTime;
+            waitHistogram.record(waitMillis);
+            if (error == null) {
+                completedCount.incrementAndGet();
+                if (priority == Priority.TILE) {
+                    tileHistogram.record(renderMillis);
+                } else if (priority == Priority.THUMBNAIL) {
+                    thumbnailHistogram.record(renderMillis);
+                } else {
+                    pageHistogram.record(renderMillis);
+                    Log.d(TAG, String.format(Locale.US, "第%d页渲染耗时 %dms，排队 %dms，剩余队列 %d",
+                            pageIndex + 1, renderMillis, waitMillis, getQueueDepth()));
+                }
+            } else {
+                failedCount.incrementAndGet();
+                Log.w(TAG, "第" + (pageIndex + 1) + "页渲染失败", error);
+            }
+
+            final T finalResult = result;
+            final Throwable finalError = error;
+            mainHandler.post(() -> {
+                if (cancelled || callback == null || executor.isShutdown()) {
+                    return;
+                }
+                if (finalError == null) {
+                    callback.onRendered(finalResult);
+                } else {
+                    callback.onError(finalError);
+                }
+            });
+        }
+    }
+
+    // 所有文档尚未完成的渲染任务数，以及最近一次任务结束的时间
+    private static final AtomicInteger activeTaskCount = new AtomicInteger();
+    private static volatile long lastTaskFinishTime = 0;
+
+    private final PdfRenderer pdfRenderer;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler;
+    private final AtomicLong sequenceGenerator = new AtomicLong();
+
+    // 统计信息
+    private final LatencyHistogram pageHistogram = new LatencyHistogram();
+    private final LatencyHistogram tileHistogram = new LatencyHistogram();
+    private final LatencyHistogram thumbnailHistogram = new LatencyHistogram();
+    private final LatencyHistogram waitHistogram = new LatencyHistogram();
+    private final AtomicInteger completedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger cancelledCount = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+    public PdfRenderScheduler(PdfRenderer pdfRenderer) {
+        this.pdfRenderer = pdfRenderer;
+        // 单线程 + 优先级队列：execute直接把任务放入队列，RenderTask自身实现排序
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "pdf-render");
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        this.executor.prestartCoreThread();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * 提交渲染任务
+     * @param pageIndex 页码（从0开始）
+     * @param priority 优先级
+     * @param renderer 在打开的页面上执行的渲染逻辑
+     * @param callback 主线程回调，可为null
+     * @return 渲染任务，调度器已关闭时返回null
+     */
+    public <T> RenderTask<T> submit(int pageIndex, Priority priority,
+                                    PageRenderer<T> renderer, Callback<T> callback) {
+        if (executor.isShutdown()) {
+            return null;
+        }
+        RenderTask<T> task = new RenderTask<>(pageIndex, priority, renderer, callback);
+        activeTaskCount.incrementAndGet();
+        executor.execute(task);
+
+        int depth = getQueueDepth();
+        int max;
+        while (depth > (max = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 当前排队等待的任务数
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    /**
+     * 是否有页面正在渲染或排队，或者刚渲染完不久（滑动中的短暂间隙）
+     * @param idleMillis 最近一次任务结束后仍视为忙碌的时长
+     */
+    public static boolean isRenderingActive(long idleMillis) {
+        return activeTaskCount.get() > 0
+                || SystemClock.elapsedRealtime() - lastTaskFinishTime < idleMillis;
+    }
+
+    private static void finishActiveTask() {
+        lastTaskFinishTime = SystemClock.elapsedRealtime();
+        activeTaskCount.decrementAndGet();
+    }
+
+    /**
+     * 渲染统计摘要：页面、图块与缩略图的渲染耗时、排队耗时、队列深度与取消数
+     */
+    public String getStatsSummary() {
+        return "页面渲染: " + pageHistogram.summary()
+                + "\n图块渲染: " + tileHistogram.summary()
+                + "\n缩略图渲染: " + thumbnailHistogram.summary()
+                + "\n排队等待: " + waitHistogram.summary()
+                + String.format(Locale.US, "\n完成 %d，失败 %d，取消 %d，当前队列 %d，最大队列 %d",
+                completedCount.get(), failedCount.get(), cancelledCount.get(),
+                getQueueDepth(), maxQueueDepth.get());
+    }
+
+    /**
+     * 等待正在执行的任务结束，关闭PdfRenderer之前调用
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 关闭调度器，丢弃所有排队任务；正在执行的任务完成后不再回调。不会关闭PdfRenderer
+     */
+    public void shutdown() {
+        for (Runnable runnable : executor.getQueue()) {
+            if (runnable instanceof RenderTask) {
+                ((RenderTask<?>) runnable).cancelled = true;
+            }
+        }
+        for (int i = executor.shutdownNow().size(); i > 0; i--) {
+            finishActiveTask(); // 丢弃的排队任务不会再执行
+        }
+        Log.d(TAG, "渲染调度器已关闭\n" + getStatsSummary());
+    }
+}
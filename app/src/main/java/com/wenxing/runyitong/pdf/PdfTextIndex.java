@@ -0,0 +1,606 @@
+package com.wenxing.runyitong.pdf;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单本PDF的全文倒排索引
+ * 用iText逐页提取文本，规范化后追加到text.dat；页面按批写成索引段seg_N.dat（词条 -> 页码列表），
+ * 搜索时先用索引求出候选页，再读取候选页原文校验并截取上下文。
+ * 每页文本写入text.dat即为一个检查点：中断后从下一页继续，已提取但尚未写成索引段的页面
+ * 在恢复时重新分词，搜索时直接作为候选页参与匹配，因此未建完的索引也可以搜索。
+ * 索引按文件大小和修改时间区分版本，文件变化后自动重建。
+ * 同一文件只存在一个实例，所有方法都是同步的，需在后台线程调用。
+ */
+public class PdfTextIndex {
+    private static final String TAG = "PdfTextIndex";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_MAGIC = 0x50444958; // "PDIX"
+    // 每个索引段包含的页数，控制建索引时的内存占用
+    private static final int SEGMENT_PAGES = 50;
+
+    private static final String INDEX_ROOT = "pdf_index";
+    private static final String META_FILE = "meta.json";
+    private static final String TEXT_FILE = "text.dat";
+
+    private static final Map<String, PdfTextIndex> openIndexes = new HashMap<>();
+
+    /**
+     * 索引元数据，保存在meta.json
+     */
+    static class IndexMeta {
+        int formatVersion = FORMAT_VERSION;
+        long fileLength;
+        long fileLastModified;
+        int pageCount = -1;
+        int indexedPageCount = 0;
+        int segmentCount = 0;
+    }
+
+    /**
+     * 已加载到内存的索引段：有序词条数组 + 各词条在postings中的偏移
+     */
+    private static class Segment {
+        int[] terms;
+        int[] offsets;
+        byte[] postings;
+
+        int[] pagesFor(int term) {
+            int index = Arrays.binarySearch(terms, term);
+            if (index < 0) {
+                return null;
+            }
+            int[] pages = new int[countVarInts(postings, offsets[index], offsets[index + 1])];
+            int position = offsets[index];
+            int page = 0;
+            for (int i = 0; i < pages.length; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = postings[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                page += delta;
+                pages[i] = page;
+            }
+            return pages;
+        }
+    }
+
+    /**
+     * 可增长的int数组，避免建索引时装箱
+     */
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private final File pdfFile;
+    private final File indexDir;
+    private final Gson gson = new Gson();
+    private IndexMeta meta;
+    private final List<Segment> segments = new ArrayList<>();
+    // 各页文本在text.dat中的偏移，-1表示尚未提取
+    private long[] textOffsets = new long[0];
+    // 已提取文本的页数，[indexedPageCount, extractedPageCount)为尚未写入索引段的页面
+    private int extractedPageCount = 0;
+
+    private PdfTextIndex(File pdfFile, File indexDir) {
+        this.pdfFile = pdfFile;
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * 打开PDF文件的索引，索引不存在或文件已变化时创建空索引
+     */
+    public static PdfTextIndex open(Context context, File pdfFile) throws IOException {
+        File indexDir = getIndexDir(context, pdfFile);
+        synchronized (openIndexes) {
+            PdfTextIndex index = openIndexes.get(indexDir.getPath());
+            if (index == null) {
+                index = new PdfTextIndex(pdfFile, indexDir);
+                openIndexes.put(indexDir.getPath(), index);
+            }
+            index.load();
+            return index;
+        }
+    }
+
+    /**
+     * 删除PDF文件的索引，删除书籍文件时调用
+     */
+    public static void delete(Context context, File pdfFile) {
+        File indexDir = getIndexDir(context, pdfFile);
+        synchronized (openIndexes) {
+            openIndexes.remove(indexDir.getPath());
+            deleteDir(indexDir);
+        }
+    }
+
+    public static File getIndexDir(Context context, File pdfFile) {
+        return new File(new File(context.getFilesDir(), INDEX_ROOT), sha1(pdfFile.getAbsolutePath()));
+    }
+
+    public synchronized int getPageCount() {
+        return meta.pageCount;
+    }
+
+    public synchronized int getIndexedPageCount() {
+        return meta.indexedPageCount;
+    }
+
+    /**
+     * 已提取文本、可以搜索的页数
+     */
+    public synchronized int getExtractedPageCount() {
+        return extractedPageCount;
+    }
+
+    public synchronized boolean isComplete() {
+        return meta.pageCount >= 0 && meta.indexedPageCount >= meta.pageCount;
+    }
+
+    /**
+     * 打开用于提取文本的PdfReader，按需读取对象，不整本载入内存
+     */
+    public PdfReader openReader() throws IOException {
+        PdfReader reader = new PdfReader(pdfFile.getAbsolutePath(), null, true);
+        setPageCount(reader.getNumberOfPages());
+        return reader;
+    }
+
+    /**
+     * 为所有尚未索引的页面建立索引，耗时与页数成正比，会阻塞当前线程
+     */
+    public void buildRemaining() throws IOException {
+        if (isComplete()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        PdfReader reader = openReader();
+        try {
+            int page;
+            while ((page = getExtractedPageCount()) < getPageCount()) {
+                appendPage(page, extractPageText(reader, page));
+            }
+        } finally {
+            reader.close();
+        }
+        Log.d(TAG, pdfFile.getName() + " 索引完成，共 " + getPageCount() + " 页，耗时 "
+                + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * 提取单页文本，不访问索引，可在不持有索引锁时调用
+     * @param page 页码（从0开始）
+     */
+    public static String extractPageText(PdfReader reader, int page) {
+        try {
+            return TextTokenizer.normalize(PdfTextExtractor.getTextFromPage(reader, page + 1));
+        } catch (Exception e) {
+            // 单页解析失败（如字体缺失）不影响其他页面
+            Log.w(TAG, "第" + (page + 1) + "页文本提取失败: " + e.getMessage());
+            return "";
+        } finally {
+            reader.releasePage(page + 1);
+        }
+    }
+
+    /**
+     * 写入下一页的文本（检查点），攒够一个索引段或到达最后一页时写入索引段
+     * @param page 页码，必须等于getExtractedPageCount()
+     */
+    public synchronized void appendPage(int page, String text) throws IOException {
+        if (page != extractedPageCount) {
+            throw new IllegalStateException("页面需按顺序写入，期望第" + extractedPageCount + "页，实际第" + page + "页");
+        }
+        File textFile = new File(indexDir, TEXT_FILE);
+        long offset = textFile.length();
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(textFile, true)))) {
+            out.writeInt(page);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        ensureTextOffsets(page + 1);
+        textOffsets[page] = offset;
+        extractedPageCount = page + 1;
+
+        if (extractedPageCount - meta.indexedPageCount >= SEGMENT_PAGES
+                || (meta.pageCount >= 0 && extractedPageCount >= meta.pageCount)) {
+            flushSegment();
+        }
+    }
+
+    private synchronized void setPageCount(int pageCount) throws IOException {
+        if (meta.pageCount != pageCount) {
+            meta.pageCount = pageCount;
+            saveMeta();
+        }
+    }
+
+    /**
+     * 求包含所有词条的已索引页面
+     * @param terms TextTokenizer.queryTerms的结果，为空时返回所有已索引页面
+     * @return 升序页码（从0开始）
+     */
+    public synchronized int[] findCandidatePages(int[] terms) {
+        if (terms.length == 0) {
+            int[] all = new int[extractedPageCount];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        // 各段页码范围互不重叠，按段求交集后依次拼接即为有序结果
+        IntList result = new IntList();
+        for (Segment segment : segments) {
+            int[] pages = null;
+            for (int term : terms) {
+                int[] termPages = segment.pagesFor(term);
+                if (termPages == null) {
+                    pages = null;
+                    break;
+                }
+                pages = pages == null ? termPages : intersect(pages, termPages);
+                if (pages.length == 0) {
+                    break;
+                }
+            }
+            if (pages != null) {
+                for (int page : pages) {
+                    result.add(page);
+                }
+            }
+        }
+        // 尚未写入索引段的页面数量有限，全部作为候选页
+        for (int page = meta.indexedPageCount; page < extractedPageCount; page++) {
+            result.add(page);
+        }
+        return Arrays.copyOf(result.values, result.size);
+    }
+
+    /**
+     * 读取已提取的页面文本
+     * @return 页面文本，尚未提取时返回null
+     */
+    public synchronized String getPageText(int page) throws IOException {
+        if (page < 0 || page >= textOffsets.length || textOffsets[page] < 0) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(new File(indexDir, TEXT_FILE), "r")) {
+            file.seek(textOffsets[page]);
+            file.readInt(); // 页码
+            byte[] bytes = new byte[file.readInt()];
+            file.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // 把已提取但未索引的页面写成一个索引段
+    private void flushSegment() throws IOException {
+        int from = meta.indexedPageCount;
+        int to = extractedPageCount;
+        if (to <= from) {
+            return;
+        }
+        Map<Integer, IntList> postings = new HashMap<>();
+        for (int page = from; page < to; page++) {
+            String text = getPageText(page);
+            for (int term : distinctTerms(text != null ? text : "")) {
+                IntList pages = postings.get(term);
+                if (pages == null) {
+                    pages = new IntList();
+                    postings.put(term, pages);
+                }
+                pages.add(page);
+            }
+        }
+
+        segments.add(writeSegment(meta.segmentCount, postings));
+        meta.segmentCount++;
+        meta.indexedPageCount = to;
+        saveMeta();
+    }
+
+    private static int[] distinctTerms(String text) {
+        IntList terms = new IntList();
+        TextTokenizer.collectTerms(text, terms::add);
+        int[] sorted = Arrays.copyOf(terms.values, terms.size);
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    // 段文件格式：magic, 词条数, 有序词条[], 偏移[词条数+1], postings长度, postings（页码差值的varint编码）
+    private Segment writeSegment(int number, Map<Integer, IntList> postings) throws IOException {
+        Segment segment = new Segment();
+        segment.terms = new int[postings.size()];
+        int index = 0;
+        for (Integer term : postings.keySet()) {
+            segment.terms[index++] = term;
+        }
+        Arrays.sort(segment.terms);
+
+        segment.offsets = new int[segment.terms.length + 1];
+        byte[] buffer = new byte[1024];
+        int length = 0;
+        for (int i = 0; i < segment.terms.length; i++) {
+            segment.offsets[i] = length;
+            IntList pages = postings.get(segment.terms[i]);
+            int previous = 0;
+            for (int j = 0; j < pages.size; j++) {
+                if (length + 5 > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int delta = pages.values[j] - previous;
+                previous = pages.values[j];
+                while ((delta & ~0x7F) != 0) {
+                    buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                buffer[length++] = (byte) delta;
+            }
+        }
+        segment.offsets[segment.terms.length] = length;
+        segment.postings = Arrays.copyOf(buffer, length);
+
+        File file = segmentFile(number);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(SEGMENT_MAGIC);
+            out.writeInt(segment.terms.length);
+            for (int term : segment.terms) {
+                out.writeInt(term);
+            }
+            for (int offset : segment.offsets) {
+                out.writeInt(offset);
+            }
+            out.writeInt(segment.postings.length);
+            out.write(segment.postings);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("无法保存索引段 " + file.getName());
+        }
+        return segment;
+    }
+
+    private Segment readSegment(int number) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(segmentFile(number))))) {
+            if (in.readInt() != SEGMENT_MAGIC) {
+                throw new IOException("索引段格式错误");
+            }
+            Segment segment = new Segment();
+            segment.terms = new int[in.readInt()];
+            for (int i = 0; i < segment.terms.length; i++) {
+                segment.terms[i] = in.readInt();
+            }
+            segment.offsets = new int[segment.terms.length + 1];
+            for (int i = 0; i < segment.offsets.length; i++) {
+                segment.offsets[i] = in.readInt();
+            }
+            segment.postings = new byte[in.readInt()];
+            in.readFully(segment.postings);
+            return segment;
+        }
+    }
+
+    // 加载元数据和索引段；文件已变化或索引损坏时清空重建
+    private synchronized void load() throws IOException {
+        if (meta != null && isCurrent(meta)) {
+            return; // 已加载且文件未变化
+        }
+        IndexMeta saved = readMeta();
+        segments.clear();
+        textOffsets = new long[0];
+        extractedPageCount = 0;
+
+        if (saved != null && isCurrent(saved)) {
+            try {
+                meta = saved;
+                for (int i = 0; i < meta.segmentCount; i++) {
+                    segments.add(readSegment(i));
+                }
+                loadTextOffsets();
+                return;
+            } catch (IOException e) {
+                Log.w(TAG, "索引损坏，重新建立: " + e.getMessage());
+                segments.clear();
+                textOffsets = new long[0];
+                extractedPageCount = 0;
+            }
+        }
+
+        deleteDir(indexDir);
+        if (!indexDir.mkdirs() && !indexDir.isDirectory()) {
+            throw new IOException("无法创建索引目录 " + indexDir);
+        }
+        meta = new IndexMeta();
+        meta.fileLength = pdfFile.length();
+        meta.fileLastModified = pdfFile.lastModified();
+        textOffsets = new long[0];
+        saveMeta();
+    }
+
+    private boolean isCurrent(IndexMeta saved) {
+        return saved.formatVersion == FORMAT_VERSION
+                && saved.fileLength == pdfFile.length()
+                && saved.fileLastModified == pdfFile.lastModified();
+    }
+
+    // 扫描text.dat建立页面偏移，恢复到最后一个完整写入的页面，末尾写了一半的记录截断
+    private void loadTextOffsets() throws IOException {
+        ensureTextOffsets(Math.max(meta.pageCount, 0));
+        File textFile = new File(indexDir, TEXT_FILE);
+        long validLength = 0;
+        try (RandomAccessFile file = new RandomAccessFile(textFile, "rw")) {
+            long length = file.length();
+            long position = 0;
+            while (position + 8 <= length) {
+                file.seek(position);
+                int page = file.readInt();
+                int size = file.readInt();
+                long next = position + 8 + size;
+                if (page != extractedPageCount || size < 0 || next > length) {
+                    break;
+                }
+                ensureTextOffsets(page + 1);
+                textOffsets[page] = position;
+                extractedPageCount = page + 1;
+                position = next;
+                validLength = next;
+            }
+            if (validLength < length) {
+                file.setLength(validLength);
+            }
+        }
+        if (extractedPageCount < meta.indexedPageCount) {
+            throw new IOException("页面文本缺失，已索引 " + meta.indexedPageCount + " 页，文本只有 " + extractedPageCount + " 页");
+        }
+        if (extractedPageCount - meta.indexedPageCount >= SEGMENT_PAGES
+                || (meta.pageCount >= 0 && extractedPageCount >= meta.pageCount)) {
+            flushSegment(); // 上次在写索引段之前中断
+        } else if (extractedPageCount > meta.indexedPageCount) {
+            Log.d(TAG, pdfFile.getName() + " 从第" + (extractedPageCount + 1) + "页继续建立索引");
+        }
+    }
+
+    private void ensureTextOffsets(int pageCount) {
+        if (textOffsets.length < pageCount) {
+            int oldLength = textOffsets.length;
+            textOffsets = Arrays.copyOf(textOffsets, pageCount);
+            Arrays.fill(textOffsets, oldLength, pageCount, -1L);
+        }
+    }
+
+    private IndexMeta readMeta() {
+        File metaFile = new File(indexDir, META_FILE);
+        if (!metaFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(metaFile)) {
+            return gson.fromJson(reader, IndexMeta.class);
+        } catch (IOException | JsonSyntaxException e) {
+            Log.w(TAG, "无法读取索引元数据: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveMeta() throws IOException {
+        File metaFile = new File(indexDir, META_FILE);
+        File tmp = new File(metaFile.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(tmp)) {
+            gson.toJson(meta, writer);
+        }
+        if (!tmp.renameTo(metaFile)) {
+            throw new IOException("无法保存索引元数据");
+        }
+    }
+
+    private File segmentFile(int number) {
+        return new File(indexDir, "seg_" + number + ".dat");
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[count++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int countVarInts(byte[] bytes, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if ((bytes[i] & 0x80) == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDir(file);
+                } else if (!file.delete()) {
+                    Log.w(TAG, "无法删除 " + file);
+                }
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * 字符串的SHA-1十六进制摘要，用作由路径派生的文件名
+     */
+    public static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b & 0xFF));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.wenxing.runyitong.pdf;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PDF页面缩略图的磁盘缓存
+ * 每页一张WebP，按文件指纹（路径+大小+修改时间）分目录存放，重新打开同一本书时直接解码显示，
+ * 不需要PdfRenderer参与。缩略图来自阅读时渲染的页面预览，缩略图条缺失时再以最低优先级补渲染。
+ * 解码后的缩略图另有一个小的内存缓存；磁盘总大小超出上限时按最近使用时间删除整本书的缩略图。
+ * load/put/cancel在主线程调用，磁盘读写在单独的IO线程执行。
+ */
+public class PdfThumbnailCache {
+    private static final String TAG = "PdfThumbnailCache";
+
+    /** 缩略图条补渲染时使用的宽度（像素） */
+    public static final int THUMBNAIL_WIDTH = 240;
+
+    private static final String CACHE_DIR = "pdf_thumbnails";
+    private static final int WEBP_QUALITY = 75;
+    private static final long MAX_DISK_BYTES = 64L * 1024 * 1024;
+    // 每写入若干张检查一次磁盘占用
+    private static final int TRIM_CHECK_INTERVAL = 32;
+    // 内存缓存占应用内存等级的1/32
+    private static final int MEMORY_FRACTION = 32;
+
+    /**
+     * 缩略图加载回调，在主线程调用
+     */
+    public interface Callback {
+        /**
+         * @param thumbnail 缩略图，磁盘没有且无法渲染时为null
+         */
+        void onThumbnailLoaded(int page, Bitmap thumbnail);
+    }
+
+    private static volatile PdfThumbnailCache instance;
+
+    private final File rootDir;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler;
+    // 各文档磁盘上已有缩略图的页码，打开文档时扫描目录得到
+    private final Map<String, Set<Integer>> diskIndex = new ConcurrentHashMap<>();
+    // 正在加载的缩略图及等待的回调，只在主线程访问
+    private final Map<String, List<Callback>> pendingLoads = new HashMap<>();
+    private final Map<String, PdfRenderScheduler.RenderTask<Bitmap>> renderTasks = new HashMap<>();
+    private int writesSinceTrim = 0;
+
+    private PdfThumbnailCache(Context context) {
+        this.rootDir = new File(context.getCacheDir(), CACHE_DIR);
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = activityManager != null ? activityManager.getMemoryClass() : 64;
+        this.memoryCache = new LruCache<String, Bitmap>(memoryClass * 1024 * 1024 / MEMORY_FRACTION) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+        this.ioExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "pdf-thumbnail-io"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static PdfThumbnailCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PdfThumbnailCache.class) {
+                if (instance == null) {
+                    instance = new PdfThumbnailCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 文件指纹，作为缩略图的文档标识；文件被替换后大小或修改时间变化，旧缩略图自然失效
+     */
+    public static String fileKey(File pdfFile) {
+        return PdfTextIndex.sha1(pdfFile.getAbsolutePath() + "|" + pdfFile.length() + "|" + pdfFile.lastModified());
+    }
+
+    /**
+     * 打开文档时调用：扫描磁盘上已有的缩略图（只列目录，不读文件），之后hasThumbnail不再访问磁盘
+     */
+    public void openDocument(String fileKey) {
+        if (diskIndex.containsKey(fileKey)) {
+            return;
+        }
+        Set<Integer> pages = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        File dir = new File(rootDir, fileKey);
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(".webp")) {
+                    try {
+                        pages.add(Integer.parseInt(name.substring(0, name.length() - 5)));
+                    } catch (NumberFormatException ignored) {
+                        // 非缩略图文件
+                    }
+                }
+            }
+            // 记录最近使用时间，超出磁盘上限时最后删除
+            ioExecutor.execute(() -> dir.setLastModified(System.currentTimeMillis()));
+        }
+        diskIndex.put(fileKey, pages);
+        Log.d(TAG, "文档 " + fileKey.substring(0, 8) + " 已有 " + pages.size() + " 张缩略图");
+    }
+
+    /**
+     * 磁盘上是否已有该页缩略图（只查内存中的目录索引）
+     */
+    public boolean hasThumbnail(String fileKey, int page) {
+        Set<Integer> pages = diskIndex.get(fileKey);
+        return pages != null && pages.contains(page);
+    }
+
+    /**
+     * 只从内存缓存获取
+     */
+    public Bitmap getFromMemory(String fileKey, int page) {
+        return memoryCache.get(memoryKey(fileKey, page));
+    }
+
+    /**
+     * 依次从内存、磁盘加载缩略图，都没有时用scheduler以缩略图优先级渲染
+     * @param scheduler 文档的渲染调度器，为null时不渲染，回调null
+     */
+    public void load(String fileKey, int page, PdfRenderScheduler scheduler, Callback callback) {
+        String key = memoryKey(fileKey, page);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            callback.onThumbnailLoaded(page, cached);
+            return;
+        }
+        List<Callback> callbacks = pendingLoads.get(key);
+        if (callbacks != null) {
+            callbacks.add(callback);
+            return;
+        }
+        callbacks = new ArrayList<>();
+        callbacks.add(callback);
+        pendingLoads.put(key, callbacks);
+
+        if (!hasThumbnail(fileKey, page)) {
+            renderOrFail(fileKey, page, scheduler);
+            return;
+        }
+        ioExecutor.execute(() -> {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.RGB_565;
+            Bitmap bitmap = BitmapFactory.decodeFile(thumbnailFile(fileKey, page).getPath(), options);
+            mainHandler.post(() -> {
+                if (bitmap != null) {
+                    deliver(key, page, bitmap);
+                } else {
+                    Set<Integer> pages = diskIndex.get(fileKey);
+                    if (pages != null) {
+                        pages.remove(page); // 文件已被清理或损坏
+                    }
+                    renderOrFail(fileKey, page, scheduler);
+                }
+            });
+        });
+    }
+
+    /**
+     * 保存缩略图到内存和磁盘
+     * @param thumbnail 调用方不再使用且不会被复用池回收的位图
+     */
+    public void put(String fileKey, int page, Bitmap thumbnail) {
+        if (fileKey == null || thumbnail == null || thumbnail.isRecycled()) {
+            return;
+        }
+        memoryCache.put(memoryKey(fileKey, page), thumbnail);
+        Set<Integer> pages = diskIndex.get(fileKey);
+        if (pages != null && pages.contains(page)) {
+            return;
+        }
+        ioExecutor.execute(() -> writeThumbnail(fileKey, page, thumbnail));
+    }
+
+    /**
+     * 取消尚未开始的缩略图渲染，缩略图条的条目被回收时调用
+     */
+    public void cancel(String fileKey, int page) {
+        String key = memoryKey(fileKey, page);
+        PdfRenderScheduler.RenderTask<Bitmap> task = renderTasks.get(key);
+        if (task != null && task.cancel()) {
+            renderTasks.remove(key);
+            pendingLoads.remove(key);
+        }
+    }
+
+    /**
+     * 删除文档的全部缩略图，删除书籍时在文件删除之前调用
+     */
+    public void delete(File pdfFile) {
+        String fileKey = fileKey(pdfFile);
+        diskIndex.remove(fileKey);
+        String prefix = fileKey + "|";
+        for (String key : memoryCache.snapshot().keySet()) {
+            if (key.startsWith(prefix)) {
+                memoryCache.remove(key);
+            }
+        }
+        ioExecutor.execute(() -> deleteDir(new File(rootDir, fileKey)));
+    }
+
+    /**
+     * 把页面位图缩小成缩略图，返回的位图独立于复用池，可交给put保存
+     * @param scaleDivisor 缩小倍数，1表示原尺寸复制
+     */
+    public static Bitmap createThumbnail(Bitmap source, int scaleDivisor) {
+        int width = Math.max(1, source.getWidth() / scaleDivisor);
+        int height = Math.max(1, source.getHeight() / scaleDivisor);
+        Bitmap thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        new Canvas(thumbnail).drawBitmap(source, null, new Rect(0, 0, width, height),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        return thumbnail;
+    }
+
+    private void renderOrFail(String fileKey, int page, PdfRenderScheduler scheduler) {
+        String key = memoryKey(fileKey, page);
+        PdfRenderScheduler.RenderTask<Bitmap> task = scheduler == null ? null : scheduler.submit(page,
+                PdfRenderScheduler.Priority.THUMBNAIL,
+                PdfThumbnailCache::renderThumbnail,
+                new PdfRenderScheduler.Callback<Bitmap>() {
+                    @Override
+                    public void onRendered(Bitmap thumbnail) {
+                        renderTasks.remove(key);
+                        put(fileKey, page, thumbnail);
+                        deliver(key, page, thumbnail);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        renderTasks.remove(key);
+                        deliver(key, page, null);
+                    }
+                });
+        if (task != null) {
+            renderTasks.put(key, task);
+        } else {
+            deliver(key, page, null);
+        }
+    }
+
+    // 在渲染线程执行
+    private static Bitmap renderThumbnail(PdfRenderer.Page pdfPage) {
+        int width = THUMBNAIL_WIDTH;
+        int height = Math.max(1, Math.round(width * (float) pdfPage.getHeight() / pdfPage.getWidth()));
+        Bitmap rendered = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        rendered.eraseColor(0xFFFFFFFF);
+        pdfPage.render(rendered, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+        // PdfRenderer只能渲染到ARGB_8888，保存为RGB_565减少一半内存
+        Bitmap thumbnail = createThumbnail(rendered, 1);
+        rendered.recycle();
+        return thumbnail;
+    }
+
+    private void deliver(String key, int page, Bitmap thumbnail) {
+        List<Callback> callbacks = pendingLoads.remove(key);
+        if (thumbnail != null) {
+            memoryCache.put(key, thumbnail);
+        }
+        if (callbacks != null) {
+            for (Callback callback : callbacks) {
+                callback.onThumbnailLoaded(page, thumbnail);
+            }
+        }
+    }
+
+    // 在IO线程执行：先写临时文件再重命名，避免进程被杀时留下半张图
+    private void writeThumbnail(String fileKey, int page, Bitmap thumbnail) {
+        File dir = new File(rootDir, fileKey);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "无法创建缩略图目录 " + dir);
+            return;
+        }
+        File file = thumbnailFile(fileKey, page);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!thumbnail.compress(webpFormat(), WEBP_QUALITY, out)) {
+                throw new IOException("WebP编码失败");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "保存缩略图失败: 第" + (page + 1) + "页 " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        Set<Integer> pages = diskIndex.get(fileKey);
+        if (pages != null) {
+            pages.add(page);
+        }
+        if (++writesSinceTrim >= TRIM_CHECK_INTERVAL) {
+            writesSinceTrim = 0;
+            trimDisk();
+        }
+    }
+
+    // 超出磁盘上限时按最近使用时间删除整本书的缩略图，正在阅读的书最近使用，最后才会被删
+    private void trimDisk() {
+        File[] dirs = rootDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        long[] sizes = new long[dirs.length];
+        long total = 0;
+        for (int i = 0; i < dirs.length; i++) {
+            sizes[i] = dirSize(dirs[i]);
+            total += sizes[i];
+        }
+        if (total <= MAX_DISK_BYTES) {
+            return;
+        }
+        Integer[] order = new Integer[dirs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(dirs[a].lastModified(), dirs[b].lastModified()));
+        for (int i = 0; i < order.length - 1 && total > MAX_DISK_BYTES; i++) {
+            File dir = dirs[order[i]];
+            diskIndex.remove(dir.getName());
+            deleteDir(dir);
+            total -= sizes[order[i]];
+            Log.d(TAG, "缩略图超出磁盘上限，删除 " + dir.getName());
+        }
+    }
+
+    private File thumbnailFile(String fileKey, int page) {
+        return new File(new File(rootDir, fileKey), page + ".webp");
+    }
+
+    private static String memoryKey(String fileKey, int page) {
+        return fileKey + "|" + page;
+    }
+
+    @SuppressWarnings("deprecation")
+    static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    private static long dirSize(File dir) {
+        long size = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,177 @@
+package com.wenxing.runyitong.pdf;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.pdf.PdfRenderer;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * PDF页面分块渲染器
+ * 高倍缩放时把页面切成固定大小的图块，只渲染视口内的图块，单个图块的内存与缩放倍数无关。
+ * 图块按(文档, 页码, 渲染比例, 列, 行)存入共享的PageBitmapCache，与页面底图共用内存预算和复用池。
+ * 渲染通过文档的PdfRenderScheduler以图块优先级串行执行，优先级低于可见页面的底图。
+ */
+public class PdfTileRenderer {
+    private static final String TAG = "PdfTileRenderer";
+
+    /** 图块边长（像素） */
+    public static final int TILE_SIZE = 256;
+
+    /**
+     * 图块渲染完成回调，在主线程调用
+     */
+    public interface OnTileReadyListener {
+        void onTileReady(TileKey key);
+    }
+
+    /**
+     * 图块缓存键
+     */
+    public static final class TileKey {
+        public final int page;
+        final int scaleKey;
+        final int col;
+        final int row;
+
+        TileKey(int page, int scaleKey, int col, int row) {
+            this.page = page;
+            this.scaleKey = scaleKey;
+            this.col = col;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey other = (TileKey) o;
+            return page == other.page && scaleKey == other.scaleKey
+                    && col == other.col && row == other.row;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = page;
+            result = 31 * result + scaleKey;
+            result = 31 * result + col;
+            result = 31 * result + row;
+            return result;
+        }
+    }
+
+    private final PdfRenderScheduler scheduler;
+    private final PageBitmapCache bitmapCache;
+    private final String documentKey;
+    // 已提交但尚未完成的图块，只在主线程访问
+    private final Map<TileKey, PdfRenderScheduler.RenderTask<Bitmap>> pendingTiles = new HashMap<>();
+    private boolean released = false;
+
+    /**
+     * @param documentKey 文档标识，用于区分共享缓存中不同文档的图块
+     */
+    public PdfTileRenderer(PdfRenderScheduler scheduler, PageBitmapCache bitmapCache, String documentKey) {
+        this.scheduler = scheduler;
+        this.bitmapCache = bitmapCache;
+        this.documentKey = documentKey;
+    }
+
+    /**
+     * 获取图块，未命中时提交后台渲染并返回null，渲染完成后在主线程回调listener，只能在主线程调用
+     * @param page 页码（从0开始）
+     * @param scale 渲染比例，即每个PDF点对应的像素数
+     * @param col 图块列号
+     * @param row 图块行号
+     */
+    public Bitmap getTile(int page, float scale, int col, int row, OnTileReadyListener listener) {
+        if (released) {
+            return null;
+        }
+        TileKey key = new TileKey(page, Math.round(scale * 1000), col, row);
+        String cacheKey = PageBitmapCache.tileKey(documentKey, page, key.scaleKey, col, row);
+        Bitmap cached = bitmapCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        if (pendingTiles.containsKey(key)) {
+            return null;
+        }
+        PdfRenderScheduler.RenderTask<Bitmap> task = scheduler.submit(key.page, PdfRenderScheduler.Priority.TILE,
+                pdfPage -> renderTile(pdfPage, key, scale),
+                new PdfRenderScheduler.Callback<Bitmap>() {
+                    @Override
+                    public void onRendered(Bitmap tile) {
+                        pendingTiles.remove(key);
+                        if (released) {
+                            return;
+                        }
+                        bitmapCache.put(cacheKey, tile);
+                        if (listener != null) {
+                            listener.onTileReady(key);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        pendingTiles.remove(key);
+                        Log.w(TAG, "渲染图块失败: 第" + (key.page + 1) + "页 (" + key.col + "," + key.row + ")", error);
+                    }
+                });
+        if (task != null) {
+            pendingTiles.put(key, task);
+        }
+        return null;
+    }
+
+    /**
+     * 只从缓存获取图块，未命中时返回null且不提交渲染，缩放手势进行中使用
+     */
+    public Bitmap peekTile(int page, float scale, int col, int row) {
+        if (released) {
+            return null;
+        }
+        return bitmapCache.get(PageBitmapCache.tileKey(documentKey, page, Math.round(scale * 1000), col, row));
+    }
+
+    /**
+     * 取消指定页面所有尚未开始的图块渲染，页面滑出屏幕或被回收时调用
+     */
+    public void cancelPage(int page) {
+        Iterator<Map.Entry<TileKey, PdfRenderScheduler.RenderTask<Bitmap>>> iterator =
+                pendingTiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileKey, PdfRenderScheduler.RenderTask<Bitmap>> entry = iterator.next();
+            if (entry.getKey().page == page) {
+                entry.getValue().cancel();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 释放渲染器，取消未完成的图块，不会关闭调度器；已缓存的图块由文档统一清理
+     */
+    public void release() {
+        released = true;
+        for (PdfRenderScheduler.RenderTask<Bitmap> task : pendingTiles.values()) {
+            task.cancel();
+        }
+        pendingTiles.clear();
+    }
+
+    // 在调度线程执行，页面已由调度器打开
+    private Bitmap renderTile(PdfRenderer.Page pdfPage, TileKey key, float scale) {
+        // 图块尺寸固定，优先复用被淘汰的图块
+        Bitmap bitmap = bitmapCache.acquireRenderTarget(TILE_SIZE, TILE_SIZE);
+
+        // 先按比例缩放整页，再平移使本图块的左上角落在原点，PdfRenderer只绘制落在bitmap内的部分
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate(-key.col * TILE_SIZE, -key.row * TILE_SIZE);
+        pdfPage.render(bitmap, null, matrix, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+        return bitmap;
+    }
+}
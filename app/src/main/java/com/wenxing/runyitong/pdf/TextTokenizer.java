@@ -0,0 +1,144 @@
+package com.wenxing.runyitong.pdf;
+
+/**
+ * 全文索引分词
+ * 中文不做词典分词，按单字和相邻两字（二元组）建索引：单字查询直接命中单字词条，
+ * 多字查询取所有二元组的交集，再回到原文逐页校验。英文和数字按小写单词建索引。
+ * 词条统一编码为int：单字为字符本身，二元组为两个字符拼接，单词为小写形式的hashCode；
+ * 不同词条偶尔冲突只会多出候选页，校验时会被过滤掉。
+ */
+public final class TextTokenizer {
+
+    /**
+     * 词条接收回调
+     */
+    public interface TermSink {
+        void accept(int term);
+    }
+
+    private TextTokenizer() {
+    }
+
+    public static boolean isCjk(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) && !isCjk(c);
+    }
+
+    /**
+     * 规范化提取出的页面文本：合并连续空白，去掉汉字之间的空白。
+     * PDF中的中文排版常在字间或行尾断开，不去掉会导致跨行的词无法命中
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                builder.append(c);
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < length && Character.isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            boolean betweenCjk = builder.length() > 0 && end < length
+                    && isCjk(builder.charAt(builder.length() - 1)) && isCjk(text.charAt(end));
+            if (!betweenCjk && builder.length() > 0 && end < length) {
+                builder.append(' ');
+            }
+            i = end;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 提取文本中的所有索引词条（可能重复），文本需先经过normalize
+     */
+    public static void collectTerms(String text, TermSink sink) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                sink.accept(unigram(c));
+                if (i + 1 < length && isCjk(text.charAt(i + 1))) {
+                    sink.accept(bigram(c, text.charAt(i + 1)));
+                }
+                i++;
+            } else if (isWordChar(c)) {
+                int end = i;
+                while (end < length && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                sink.accept(word(text.substring(i, end)));
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * 查询语句对应的词条，候选页必须包含所有词条
+     * @param wholeWord 为true时英文单词也参与筛选；否则英文可能只是单词的一部分，只按中文筛选
+     * @return 词条数组，为空表示无法通过索引缩小范围，需要扫描全部页面
+     */
+    public static int[] queryTerms(String query, boolean wholeWord) {
+        String text = normalize(query);
+        int[] terms = new int[text.length() * 2];
+        int count = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int end = i;
+                while (end < length && isCjk(text.charAt(end))) {
+                    end++;
+                }
+                if (end - i == 1) {
+                    terms[count++] = unigram(c);
+                } else {
+                    for (int j = i; j + 1 < end; j++) {
+                        terms[count++] = bigram(text.charAt(j), text.charAt(j + 1));
+                    }
+                }
+                i = end;
+            } else if (isWordChar(c)) {
+                int end = i;
+                while (end < length && isWordChar(text.charAt(end))) {
+                    end++;
+                }
+                if (wholeWord) {
+                    terms[count++] = word(text.substring(i, end));
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(terms, 0, result, 0, count);
+        return result;
+    }
+
+    private static int unigram(char c) {
+        return c;
+    }
+
+    private static int bigram(char first, char second) {
+        return (first << 16) | second;
+    }
+
+    private static int word(String word) {
+        return word.toLowerCase().hashCode();
+    }
+}
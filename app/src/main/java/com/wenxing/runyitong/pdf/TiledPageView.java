@@ -0,0 +1,356 @@
+package com.wenxing.runyitong.pdf;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewTreeObserver;
+
+import com.wenxing.runyitong.utils.PDFZoomUtils;
+
+/**
+ * 分块显示的PDF页面视图
+ * 底层绘制一张低分辨率的整页位图，放大后在其上叠加视口内的高清图块，
+ * 图块未渲染完成时先显示底图，渲染完成后再替换为清晰内容。
+ * 底图也可以先用更小的预览图占位，完整底图渲染完成后直接替换，视图本身不重新布局。
+ * 视图宽度适应父容器，高度按页面宽高比计算；缩放大于1时可单指拖动查看页面其他区域。
+ * 缩放手势进行中只按新比例变换已有的底图和图块，不提交新的渲染，手势结束后按最终缩放补齐图块。
+ */
+public class TiledPageView extends View {
+    // 显示比例超过底图分辨率10%以上时才叠加图块
+    private static final float TILE_THRESHOLD = 1.1f;
+
+    private PdfTileRenderer tileRenderer;
+    private int pageIndex = -1;
+    private int pageWidth;   // PDF点
+    private int pageHeight;  // PDF点
+    private Bitmap baseBitmap;
+    // 底图是预览图时完整底图即将到达，此时不渲染图块
+    private boolean previewBase;
+    private float zoom = PDFZoomUtils.DEFAULT_ZOOM;
+    // 图块按此缩放选择渲染比例，只在缩放确定后更新
+    private float tileZoom = PDFZoomUtils.DEFAULT_ZOOM;
+    // 缩放手势进行中，只使用已缓存的图块
+    private boolean gestureZooming;
+    // 相对居中位置的平移量（像素）
+    private float panX;
+    private float panY;
+
+    private float lastTouchX;
+    private float lastTouchY;
+
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect visibleRect = new Rect();
+    private final RectF pageRect = new RectF();
+    private final RectF tileRect = new RectF();
+
+    private final PdfTileRenderer.OnTileReadyListener tileReadyListener = key -> {
+        if (key.page == pageIndex) {
+            invalidate();
+        }
+    };
+
+    // RecyclerView滚动时子视图不会重绘，需要监听滚动以补齐新露出区域的图块
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener = () -> {
+        if (needsTiles()) {
+            invalidate();
+        }
+    };
+
+    public TiledPageView(Context context) {
+        super(context);
+    }
+
+    public TiledPageView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public TiledPageView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+
+    /**
+     * 设置要显示的页面
+     * @param renderer 图块渲染器，为null时只显示底图
+     * @param pageIndex 页码（从0开始）
+     * @param pageWidth 页面宽度（PDF点）
+     * @param pageHeight 页面高度（PDF点）
+     */
+    public void setPage(PdfTileRenderer renderer, int pageIndex, int pageWidth, int pageHeight) {
+        if (this.pageIndex != pageIndex || this.tileRenderer != renderer) {
+            cancelPendingTiles();
+            panX = 0;
+            panY = 0;
+        }
+        boolean sizeChanged = this.pageWidth != pageWidth || this.pageHeight != pageHeight;
+        this.tileRenderer = renderer;
+        this.pageIndex = pageIndex;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        if (sizeChanged) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * 设置低分辨率底图
+     */
+    public void setBaseBitmap(Bitmap bitmap) {
+        setBaseBitmap(bitmap, false);
+    }
+
+    /**
+     * 设置底图
+     * @param preview 是否为临时的预览图，预览期间不渲染图块
+     */
+    public void setBaseBitmap(Bitmap bitmap, boolean preview) {
+        this.baseBitmap = bitmap;
+        this.previewBase = preview;
+        invalidate();
+    }
+
+    /**
+     * 设置确定的缩放级别，按新缩放渲染可见区域的图块
+     */
+    public void setZoom(float zoom) {
+        float clamped = PDFZoomUtils.clampZoomLevel(zoom);
+        boolean changed = clamped != this.zoom || clamped != tileZoom || gestureZooming;
+        gestureZooming = false;
+        tileZoom = clamped;
+        if (changed) {
+            applyZoom(clamped);
+        }
+    }
+
+    /**
+     * 设置缩放手势进行中的临时缩放：底图和已缓存的图块按新比例绘制，不提交新的图块渲染，
+     * 手势结束后需调用setZoom确定最终缩放
+     */
+    public void setGestureZoom(float zoom) {
+        float clamped = PDFZoomUtils.clampZoomLevel(zoom);
+        gestureZooming = true;
+        if (clamped != this.zoom) {
+            applyZoom(clamped);
+        }
+    }
+
+    public boolean isGestureZooming() {
+        return gestureZooming;
+    }
+
+    // 以视图中心为基准缩放，保持中心处的内容不动
+    private void applyZoom(float newZoom) {
+        float ratio = newZoom / this.zoom;
+        this.zoom = newZoom;
+        panX *= ratio;
+        panY *= ratio;
+        clampPan();
+        invalidate();
+    }
+
+    public float getZoom() {
+        return zoom;
+    }
+
+    /**
+     * 清除页面内容并取消未完成的图块渲染，ViewHolder回收时调用
+     */
+    public void clear() {
+        cancelPendingTiles();
+        baseBitmap = null;
+        previewBase = false;
+        gestureZooming = false;
+        tileRenderer = null;
+        pageIndex = -1;
+        panX = 0;
+        panY = 0;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        int height;
+        if (pageWidth > 0 && pageHeight > 0) {
+            height = Math.round(width * (float) pageHeight / pageWidth);
+        } else {
+            height = getSuggestedMinimumHeight();
+        }
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(scrollChangedListener);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(scrollChangedListener);
+        cancelPendingTiles();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (pageWidth <= 0 || pageHeight <= 0 || getWidth() == 0) {
+            return;
+        }
+
+        float scale = displayScale();
+        float left = (getWidth() - pageWidth * scale) / 2f + panX;
+        float top = (getHeight() - pageHeight * scale) / 2f + panY;
+        pageRect.set(left, top, left + pageWidth * scale, top + pageHeight * scale);
+
+        canvas.save();
+        canvas.clipRect(0, 0, getWidth(), getHeight());
+        if (baseBitmap != null && !baseBitmap.isRecycled()) {
+            canvas.drawBitmap(baseBitmap, null, pageRect, bitmapPaint);
+        }
+        if (needsTiles()) {
+            canvas.clipRect(pageRect);
+            drawTiles(canvas, scale, left, top);
+        }
+        canvas.restore();
+    }
+
+    /**
+     * 只绘制与屏幕可见区域相交的图块
+     */
+    private void drawTiles(Canvas canvas, float scale, float left, float top) {
+        if (!getLocalVisibleRect(visibleRect)) {
+            return; // 完全不可见
+        }
+
+        // 图块按预设缩放级别渲染，tileSpan为每个图块覆盖的PDF点数；
+        // 手势进行中沿用手势开始前的图块比例，由画布按当前缩放拉伸绘制
+        float tileScale = fitScale() * PDFZoomUtils.getTileZoomLevel(tileZoom);
+        float tileSpan = PdfTileRenderer.TILE_SIZE / tileScale;
+        int cols = (int) Math.ceil(pageWidth / tileSpan);
+        int rows = (int) Math.ceil(pageHeight / tileSpan);
+
+        int firstCol = clamp((int) Math.floor((visibleRect.left - left) / scale / tileSpan), cols);
+        int lastCol = clamp((int) Math.floor((visibleRect.right - left) / scale / tileSpan), cols);
+        int firstRow = clamp((int) Math.floor((visibleRect.top - top) / scale / tileSpan), rows);
+        int lastRow = clamp((int) Math.floor((visibleRect.bottom - top) / scale / tileSpan), rows);
+
+        float tileDisplaySize = tileSpan * scale;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                Bitmap tile = gestureZooming
+                        ? tileRenderer.peekTile(pageIndex, tileScale, col, row)
+                        : tileRenderer.getTile(pageIndex, tileScale, col, row, tileReadyListener);
+                if (tile == null) {
+                    continue; // 渲染中，暂时显示底图
+                }
+                float tileLeft = left + col * tileDisplaySize;
+                float tileTop = top + row * tileDisplaySize;
+                tileRect.set(tileLeft, tileTop, tileLeft + tileDisplaySize, tileTop + tileDisplaySize);
+                canvas.drawBitmap(tile, null, tileRect, bitmapPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (zoom <= 1.0f || pageWidth <= 0) {
+            return super.onTouchEvent(event);
+        }
+
+        ViewParent parent = getParent();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                lastTouchX = event.getX();
+                lastTouchY = event.getY();
+                if (parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(true);
+                }
+                return true;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                // 多指交给列表处理缩放手势
+                if (parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(false);
+                }
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (event.getPointerCount() > 1) {
+                    return true;
+                }
+                float dx = event.getX() - lastTouchX;
+                float dy = event.getY() - lastTouchY;
+                lastTouchX = event.getX();
+                lastTouchY = event.getY();
+
+                float oldPanY = panY;
+                panX += dx;
+                panY += dy;
+                clampPan();
+                // 纵向已拖到页面边缘时交还给列表滚动
+                if (panY == oldPanY && Math.abs(dy) > Math.abs(dx) && parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(false);
+                }
+                invalidate();
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                if (parent != null) {
+                    parent.requestDisallowInterceptTouchEvent(false);
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private boolean needsTiles() {
+        if (tileRenderer == null || pageIndex < 0 || pageWidth <= 0 || getWidth() == 0 || previewBase) {
+            return false;
+        }
+        if (baseBitmap == null) {
+            return true;
+        }
+        float baseScale = baseBitmap.getWidth() / (float) pageWidth;
+        return displayScale() > baseScale * TILE_THRESHOLD;
+    }
+
+    // 缩放为1时页面宽度正好铺满视图
+    private float fitScale() {
+        return getWidth() / (float) pageWidth;
+    }
+
+    private float displayScale() {
+        return fitScale() * zoom;
+    }
+
+    private void clampPan() {
+        if (pageWidth <= 0 || pageHeight <= 0 || getWidth() == 0) {
+            panX = 0;
+            panY = 0;
+            return;
+        }
+        float scale = displayScale();
+        float maxPanX = Math.max(0f, (pageWidth * scale - getWidth()) / 2f);
+        float maxPanY = Math.max(0f, (pageHeight * scale - getHeight()) / 2f);
+        panX = Math.max(-maxPanX, Math.min(maxPanX, panX));
+        panY = Math.max(-maxPanY, Math.min(maxPanY, panY));
+    }
+
+    private void cancelPendingTiles() {
+        if (tileRenderer != null && pageIndex >= 0) {
+            tileRenderer.cancelPage(pageIndex);
+        }
+    }
+
+    private static int clamp(int index, int count) {
+        return Math.max(0, Math.min(count - 1, index));
+    }
+}
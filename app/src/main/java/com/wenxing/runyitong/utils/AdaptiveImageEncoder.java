@@ -0,0 +1,191 @@
+package com.wenxing.runyitong.utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 按字节预算自适应编码图片
+ * 先以最高质量编码，超出预算时在[最低质量, 最高质量]之间二分查找预算内的最高质量；
+ * 最低质量仍超出预算时把分辨率缩小到原来的80%再查找，直到满足预算或达到缩小次数上限。
+ * 编码结果只保存在内存中，大小受预算限制，远小于位图本身。
+ */
+public class AdaptiveImageEncoder {
+    private static final String TAG = "AdaptiveImageEncoder";
+
+    private static final int MAX_QUALITY = 92;
+    // 二分查找的质量精度，差2以内的质量肉眼无法区分
+    private static final int QUALITY_STEP = 2;
+    private static final float RESIZE_FACTOR = 0.8f;
+    private static final int MAX_RESIZE_STEPS = 4;
+
+    /**
+     * 编码结果
+     */
+    public static class EncodedImage {
+        private final byte[] data;
+        private final int length;
+        public final String mimeType;
+        public final int width;
+        public final int height;
+        public final int quality;
+
+        EncodedImage(byte[] data, int length, String mimeType, int width, int height, int quality) {
+            this.data = data;
+            this.length = length;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(data, 0, length);
+        }
+
+        /**
+         * 编码结果的SHA-256十六进制摘要，同一图片按同一参数编码时结果相同
+         */
+        public String sha256() {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            digest.update(data, 0, length);
+            byte[] hash = digest.digest();
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        }
+    }
+
+    // 可直接访问内部数组，避免toByteArray复制
+    private static class EncodeBuffer extends ByteArrayOutputStream {
+        EncodeBuffer(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private AdaptiveImageEncoder() {
+    }
+
+    /**
+     * 服务端接受时使用WebP，否则使用JPEG
+     */
+    public static boolean usesWebp(ImageUploadProfile profile) {
+        return profile.webpAccepted;
+    }
+
+    public static String mimeType(ImageUploadProfile profile) {
+        return usesWebp(profile) ? "image/webp" : "image/jpeg";
+    }
+
+    public static String fileExtension(ImageUploadProfile profile) {
+        return usesWebp(profile) ? ".webp" : ".jpg";
+    }
+
+    /**
+     * 在预算内以尽可能高的质量编码，需在后台线程调用
+     * @param bitmap 已转正并缩小到profile.maxLongEdge以内的位图，调用方负责回收
+     */
+    public static EncodedImage encode(Bitmap bitmap, ImageUploadProfile profile) throws IOException {
+        Bitmap.CompressFormat format = compressFormat(profile);
+        String mimeType = mimeType(profile);
+        EncodeBuffer current = new EncodeBuffer(Math.min(profile.maxBytes, 256 * 1024));
+        EncodeBuffer best = new EncodeBuffer(Math.min(profile.maxBytes, 256 * 1024));
+        long startTime = System.currentTimeMillis();
+
+        Bitmap source = bitmap;
+        try {
+            for (int step = 0; ; step++) {
+                // 最高质量就在预算内时直接使用
+                compress(source, format, MAX_QUALITY, current);
+                if (current.size() <= profile.maxBytes) {
+                    return finish(current, mimeType, source, MAX_QUALITY, step, startTime);
+                }
+
+                int low = profile.minQuality;
+                int high = MAX_QUALITY - QUALITY_STEP;
+                int bestQuality = -1;
+                while (low <= high) {
+                    int quality = (low + high) >>> 1;
+                    compress(source, format, quality, current);
+                    if (current.size() <= profile.maxBytes) {
+                        bestQuality = quality;
+                        EncodeBuffer swap = best;
+                        best = current;
+                        current = swap;
+                        low = quality + QUALITY_STEP;
+                    } else {
+                        high = quality - QUALITY_STEP;
+                    }
+                }
+                if (bestQuality >= 0) {
+                    return finish(best, mimeType, source, bestQuality, step, startTime);
+                }
+
+                if (step >= MAX_RESIZE_STEPS) {
+                    // 已缩小到下限，以最低质量上传，由服务端决定是否接受
+                    compress(source, format, profile.minQuality, current);
+                    Log.w(TAG, profile + " 无法压缩到预算 " + profile.maxBytes + " 字节以内，实际 " + current.size());
+                    return finish(current, mimeType, source, profile.minQuality, step, startTime);
+                }
+                Bitmap scaled = Bitmap.createScaledBitmap(source,
+                        Math.max(1, Math.round(source.getWidth() * RESIZE_FACTOR)),
+                        Math.max(1, Math.round(source.getHeight() * RESIZE_FACTOR)), true);
+                if (source != bitmap) {
+                    source.recycle();
+                }
+                source = scaled;
+            }
+        } finally {
+            if (source != bitmap) {
+                source.recycle();
+            }
+        }
+    }
+
+    private static void compress(Bitmap bitmap, Bitmap.CompressFormat format, int quality, EncodeBuffer out)
+            throws IOException {
+        out.reset();
+        if (!bitmap.compress(format, quality, out)) {
+            throw new IOException("图片编码失败");
+        }
+    }
+
+    private static EncodedImage finish(EncodeBuffer buffer, String mimeType, Bitmap source, int quality,
+                                       int resizeSteps, long startTime) {
+        Log.d(TAG, String.format("编码完成: %dx%d 质量%d 缩小%d次 %s 耗时%dms",
+                source.getWidth(), source.getHeight(), quality, resizeSteps,
+                ImageUtils.formatFileSize(buffer.size()), System.currentTimeMillis() - startTime));
+        return new EncodedImage(buffer.buffer(), buffer.size(), mimeType,
+                source.getWidth(), source.getHeight(), quality);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat compressFormat(ImageUploadProfile profile) {
+        if (!usesWebp(profile)) {
+            return Bitmap.CompressFormat.JPEG;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+}
@@ -0,0 +1,317 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AI图片分析结果的磁盘缓存
+ * 以（编码后图片的SHA-256，分析类型，模型版本）为键保存服务端返回的分析结果，
+ * 同一张图片再次提交同一种分析时直接返回缓存结果，不再上传等待服务端分析。
+ * 每条结果一个文件，超过有效期的结果视为失效；总条数或总大小超限时按最近使用时间淘汰。
+ * 图片编码和摘要计算在单独的后台线程进行，文件读写在缓存IO线程进行，
+ * 编码较慢的大图不会阻塞其他缓存读写；回调在主线程调用。
+ * 退出登录、会话过期或切换用户时需调用{@link #clear()}，避免下一个用户看到上一个用户的分析结果。
+ */
+public class AnalysisResultCache {
+    private static final String TAG = "AnalysisResultCache";
+
+    private static final String CACHE_DIR = "analysis_results";
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final long TTL_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final int MAX_ENTRIES = 200;
+    private static final long MAX_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * 分析类型及其服务端模型版本
+     * 服务端升级某种分析的模型后，把对应的modelVersion加一，旧结果自然不再命中
+     */
+    public enum AnalysisType {
+        OCR("ocr", 1),
+        PRESCRIPTION("prescription", 1),
+        XRAY("xray", 1),
+        CT("ct", 1),
+        ULTRASOUND("ultrasound", 1),
+        MRI("mri", 1),
+        PETCT("petct", 1),
+        TONGUE("tongue", 1),
+        FACE("face", 1);
+
+        public final String id;
+        public final int modelVersion;
+
+        AnalysisType(String id, int modelVersion) {
+            this.id = id;
+            this.modelVersion = modelVersion;
+        }
+
+        /**
+         * @param imageType "xray", "ct", "ultrasound", "mri", "petct"
+         * @return 对应的分析类型，不支持的类型返回null
+         */
+        public static AnalysisType forMedicalImageType(String imageType) {
+            for (AnalysisType type : values()) {
+                if (type.id.equals(imageType)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 缓存查询回调，在主线程调用
+     */
+    public interface LookupCallback<T> {
+        /**
+         * @param cacheKey 缓存键，保存分析结果时使用；图片无法编码时为null
+         * @param cached 缓存的分析结果，未命中时为null
+         * @param cachedTime 结果的分析时间，未命中时为0
+         */
+        void onLookup(String cacheKey, T cached, long cachedTime);
+    }
+
+    // 持久化格式
+    private static class Entry {
+        String key;
+        long created_time;
+        JsonElement result;
+    }
+
+    private static volatile AnalysisResultCache instance;
+
+    private final File cacheDir;
+    private final Gson gson = new Gson();
+    private final ExecutorService ioExecutor;
+    // 图片解码、编码和摘要计算
+    private final ExecutorService digestExecutor;
+    private final Handler mainHandler;
+    // 文件名 -> 文件大小，按最近使用顺序排列；只在ioExecutor中访问
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    // 自上次clear以来lookup发出的缓存键；clear之前发起的分析在之后返回时不再写入；只在ioExecutor中访问
+    private final Set<String> issuedKeys = new HashSet<>();
+
+    private AnalysisResultCache(Context context) {
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR);
+        this.ioExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "analysis-cache-io"));
+        this.digestExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "analysis-cache-digest"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        ioExecutor.execute(this::loadIndex);
+    }
+
+    public static AnalysisResultCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AnalysisResultCache.class) {
+                if (instance == null) {
+                    instance = new AnalysisResultCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 计算图片摘要并查询缓存
+     * 摘要基于按上传参数编码后的图片，编码结果保留在请求体中，未命中时上传不会重复编码
+     * @param imageBody 待上传的图片请求体
+     * @param skipCached 为true时只计算缓存键，不读取缓存结果（用户要求重新分析）
+     */
+    public <T> void lookup(ImageRequestBody imageBody, AnalysisType type, Class<T> resultClass,
+                           boolean skipCached, LookupCallback<T> callback) {
+        digestExecutor.execute(() -> {
+            String cacheKey;
+            try {
+                cacheKey = keyOf(imageBody.sha256(), type);
+            } catch (IOException e) {
+                // 交给上传流程按原有方式报告错误
+                Log.w(TAG, "计算图片摘要失败: " + e.getMessage());
+                mainHandler.post(() -> callback.onLookup(null, null, 0));
+                return;
+            }
+            ioExecutor.execute(() -> readCached(cacheKey, resultClass, skipCached, callback));
+        });
+    }
+
+    /**
+     * 读取缓存结果，在ioExecutor中执行
+     */
+    private <T> void readCached(String cacheKey, Class<T> resultClass, boolean skipCached, LookupCallback<T> callback) {
+        Entry entry = skipCached ? null : readEntry(cacheKey);
+        T cached = null;
+        if (entry != null) {
+            try {
+                cached = gson.fromJson(entry.result, resultClass);
+            } catch (JsonParseException e) {
+                Log.w(TAG, "缓存结果格式不兼容，丢弃: " + cacheKey);
+                removeEntry(cacheKey);
+            }
+        }
+        T result = cached;
+        if (result == null) {
+            // 未命中时调用方会上传分析，并用该键保存结果
+            issuedKeys.add(cacheKey);
+        }
+        long cachedTime = result != null ? entry.created_time : 0;
+        mainHandler.post(() -> callback.onLookup(cacheKey, result, cachedTime));
+    }
+
+    /**
+     * 保存分析结果，只应保存服务端成功返回的结果
+     * @param cacheKey lookup回调给出的缓存键，为null时忽略
+     */
+    public void put(String cacheKey, Object result) {
+        if (cacheKey == null || result == null) {
+            return;
+        }
+        JsonElement tree = gson.toJsonTree(result);
+        ioExecutor.execute(() -> {
+            if (issuedKeys.remove(cacheKey)) {
+                writeEntry(cacheKey, tree);
+            }
+        });
+    }
+
+    /**
+     * 清空所有缓存结果
+     */
+    public void clear() {
+        ioExecutor.execute(() -> {
+            for (String fileName : new ArrayList<>(entries.keySet())) {
+                new File(cacheDir, fileName).delete();
+            }
+            entries.clear();
+            issuedKeys.clear();
+            totalBytes = 0;
+        });
+    }
+
+    /**
+     * 缓存键：图片摘要、分析类型和模型版本，同时用作文件名
+     */
+    private static String keyOf(String imageSha256, AnalysisType type) {
+        return imageSha256 + "_" + type.id + "_v" + type.modelVersion;
+    }
+
+    private void loadIndex() {
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        // 文件修改时间即最近使用时间，按时间从旧到新放入，保持最近使用顺序
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            // 最近使用时间不早于分析时间，超过有效期未使用的结果一定已失效
+            if (now - file.lastModified() > TTL_MS) {
+                file.delete();
+                continue;
+            }
+            entries.put(file.getName(), file.length());
+            totalBytes += file.length();
+        }
+        trimToSize();
+        Log.d(TAG, "分析结果缓存: " + entries.size() + " 条, " + ImageUtils.formatFileSize(totalBytes));
+    }
+
+    private Entry readEntry(String cacheKey) {
+        String fileName = cacheKey + ENTRY_SUFFIX;
+        if (!entries.containsKey(fileName)) {
+            return null;
+        }
+        File file = new File(cacheDir, fileName);
+        Entry entry;
+        try (Reader reader = new FileReader(file)) {
+            entry = gson.fromJson(reader, Entry.class);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "读取缓存结果失败: " + fileName, e);
+            removeEntry(cacheKey);
+            return null;
+        }
+        if (entry == null || entry.result == null
+                || System.currentTimeMillis() - entry.created_time > TTL_MS) {
+            removeEntry(cacheKey);
+            return null;
+        }
+        // 移到最近使用位置，同步更新文件时间供下次启动时排序
+        entries.get(fileName);
+        file.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    private void writeEntry(String cacheKey, JsonElement result) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            Log.w(TAG, "无法创建缓存目录: " + cacheDir);
+            return;
+        }
+        Entry entry = new Entry();
+        entry.key = cacheKey;
+        entry.created_time = System.currentTimeMillis();
+        entry.result = result;
+
+        String fileName = cacheKey + ENTRY_SUFFIX;
+        File file = new File(cacheDir, fileName);
+        File tmpFile = new File(cacheDir, fileName + ".tmp");
+        try (Writer writer = new FileWriter(tmpFile)) {
+            gson.toJson(entry, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "写入缓存结果失败: " + fileName, e);
+            tmpFile.delete();
+            return;
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            return;
+        }
+        Long previous = entries.put(fileName, file.length());
+        totalBytes += file.length() - (previous != null ? previous : 0);
+        trimToSize();
+    }
+
+    private void removeEntry(String cacheKey) {
+        String fileName = cacheKey + ENTRY_SUFFIX;
+        Long size = entries.remove(fileName);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        new File(cacheDir, fileName).delete();
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > MAX_ENTRIES || totalBytes > MAX_BYTES) && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            totalBytes -= eldest.getValue();
+            new File(cacheDir, eldest.getKey()).delete();
+            iterator.remove();
+        }
+    }
+}
@@ -2,30 +2,78 @@ package com.wenxing.runyitong.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.wenxing.runyitong.pdf.PdfTextIndex;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * PDF书签管理器
  * 负责书签的增删改查和持久化存储
+ * 每个文档的书签和批注保存在独立的追加日志中（filesDir/bookmarks/路径SHA-1.log），每次修改只追加一行，
+ * 无效记录过多时在后台重写压缩。文档在后台读入内存，之后按页码查询只查内存中的位图；
+ * 查询方法不访问磁盘，文档尚未读入时返回空结果并在后台开始读入。
  */
 public class BookmarkManager {
     private static final String TAG = "BookmarkManager";
+    private static final String BOOKMARK_DIR = "bookmarks";
+    // 旧版本保存在SharedPreferences中，首次打开文档时迁移
     private static final String PREF_NAME = "pdf_bookmarks";
     private static final String KEY_BOOKMARKS = "bookmarks_";
-    
-    private Context context;
-    private SharedPreferences sharedPreferences;
-    private Gson gson;
-    
+
+    private static final String OP_PUT = "put";
+    private static final String OP_REMOVE = "remove";
+    // 日志记录数超过此值且超过有效书签数的2倍时压缩
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    /**
+     * 书签加载回调，在主线程调用
+     */
+    public interface LoadCallback {
+        /**
+         * @param bookmarkedPages 有书签的页码，调用方持有的是副本
+         */
+        void onBookmarksLoaded(String pdfPath, BitSet bookmarkedPages);
+    }
+
+    private static volatile BookmarkManager instance;
+
+    private final File bookmarkDir;
+    private final SharedPreferences sharedPreferences;
+    private final Gson gson;
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler;
+    // 内存中的文档书签，键为PDF路径；日志是否已读入见DocumentBookmarks.loaded
+    private final Map<String, DocumentBookmarks> documents = new ConcurrentHashMap<>();
+
     /**
      * 书签数据模型
      */
@@ -35,9 +83,9 @@ public class BookmarkManager {
         private String title;
         private String note;
         private long timestamp;
-        
+
         public Bookmark() {}
-        
+
         public Bookmark(String pdfPath, int pageNumber, String title, String note) {
             this.pdfPath = pdfPath;
             this.pageNumber = pageNumber;
@@ -45,66 +93,147 @@ public class BookmarkManager {
             this.note = note;
             this.timestamp = System.currentTimeMillis();
         }
-        
+
         // Getters and Setters
         public String getPdfPath() { return pdfPath; }
         public void setPdfPath(String pdfPath) { this.pdfPath = pdfPath; }
-        
+
         public int getPageNumber() { return pageNumber; }
         public void setPageNumber(int pageNumber) { this.pageNumber = pageNumber; }
-        
+
         public String getTitle() { return title; }
         public void setTitle(String title) { this.title = title; }
-        
+
         public String getNote() { return note; }
         public void setNote(String note) { this.note = note; }
-        
+
         public long getTimestamp() { return timestamp; }
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
-        
+
         @Override
         public boolean equals(Object obj) {
             if (this == obj) return true;
             if (obj == null || getClass() != obj.getClass()) return false;
             Bookmark bookmark = (Bookmark) obj;
-            return pageNumber == bookmark.pageNumber && 
+            return pageNumber == bookmark.pageNumber &&
                    pdfPath != null && pdfPath.equals(bookmark.pdfPath);
         }
-        
+
         @Override
         public int hashCode() {
             return (pdfPath != null ? pdfPath.hashCode() : 0) * 31 + pageNumber;
         }
     }
-    
-    public BookmarkManager(Context context) {
-        this.context = context.getApplicationContext();
+
+    // 日志中的一行：put为新增或更新，remove为删除
+    private static class LogRecord {
+        String op;
+        int page;
+        String title;
+        String note;
+        long timestamp;
+
+        static LogRecord put(Bookmark bookmark) {
+            LogRecord record = new LogRecord();
+            record.op = OP_PUT;
+            record.page = bookmark.getPageNumber();
+            record.title = bookmark.getTitle();
+            record.note = bookmark.getNote();
+            record.timestamp = bookmark.getTimestamp();
+            return record;
+        }
+
+        static LogRecord remove(int page) {
+            LogRecord record = new LogRecord();
+            record.op = OP_REMOVE;
+            record.page = page;
+            return record;
+        }
+    }
+
+    // 一个文档在内存中的书签，读写需持有该对象的锁
+    private static class DocumentBookmarks {
+        final String pdfPath;
+        final File logFile;
+        final BitSet pages = new BitSet();
+        final TreeMap<Integer, Bookmark> bookmarks = new TreeMap<>();
+        // 日志中的记录数，包括已被覆盖或删除的
+        int recordCount;
+        // 日志已读入内存；查询方法先检查此标记，未读入时不等待锁
+        volatile boolean loaded;
+        // 已提交后台读入，避免列表绑定时重复提交
+        final AtomicBoolean loadRequested = new AtomicBoolean();
+
+        DocumentBookmarks(String pdfPath, File logFile) {
+            this.pdfPath = pdfPath;
+            this.logFile = logFile;
+        }
+
+        void apply(Bookmark bookmark) {
+            bookmarks.put(bookmark.getPageNumber(), bookmark);
+            pages.set(bookmark.getPageNumber());
+        }
+
+        boolean delete(int page) {
+            pages.clear(page);
+            return bookmarks.remove(page) != null;
+        }
+    }
+
+    private BookmarkManager(Context context) {
+        this.bookmarkDir = new File(context.getFilesDir(), BOOKMARK_DIR);
         this.sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         this.gson = new Gson();
+        this.ioExecutor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, "bookmark-io"));
+        this.mainHandler = new Handler(Looper.getMainLooper());
     }
-    
+
+    public static BookmarkManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BookmarkManager.class) {
+                if (instance == null) {
+                    instance = new BookmarkManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在后台读入文档的书签，之后的查询不再访问磁盘；打开文档时调用
+     */
+    public void loadAsync(String pdfPath, LoadCallback callback) {
+        ioExecutor.execute(() -> {
+            DocumentBookmarks document = getLoadedDocument(pdfPath);
+            BitSet pages;
+            synchronized (document) {
+                pages = (BitSet) document.pages.clone();
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onBookmarksLoaded(pdfPath, pages));
+            }
+        });
+    }
+
     /**
      * 添加书签
      */
     public boolean addBookmark(String pdfPath, int pageNumber, String title, String note) {
         try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            
-            // 检查是否已存在相同页面的书签
-            for (Bookmark bookmark : bookmarks) {
-                if (bookmark.getPageNumber() == pageNumber) {
+            DocumentBookmarks document = getLoadedDocument(pdfPath);
+            Bookmark newBookmark = new Bookmark(pdfPath, pageNumber, title, note);
+            synchronized (document) {
+                // 检查是否已存在相同页面的书签
+                if (document.pages.get(pageNumber)) {
                     Log.d(TAG, "书签已存在，页面: " + pageNumber);
                     return false;
                 }
+                document.apply(newBookmark);
+                append(document, LogRecord.put(newBookmark));
             }
-            
-            Bookmark newBookmark = new Bookmark(pdfPath, pageNumber, title, note);
-            bookmarks.add(newBookmark);
-            
-            // 按页码排序
-            Collections.sort(bookmarks, Comparator.comparingInt(Bookmark::getPageNumber));
-            
-            saveBookmarks(pdfPath, bookmarks);
             Log.d(TAG, "添加书签成功，页面: " + pageNumber);
             return true;
         } catch (Exception e) {
@@ -112,113 +241,123 @@ public class BookmarkManager {
             return false;
         }
     }
-    
+
     /**
      * 删除书签
      */
     public boolean removeBookmark(String pdfPath, int pageNumber) {
         try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            boolean removed = bookmarks.removeIf(bookmark -> bookmark.getPageNumber() == pageNumber);
-            
+            DocumentBookmarks document = getLoadedDocument(pdfPath);
+            boolean removed;
+            synchronized (document) {
+                removed = document.delete(pageNumber);
+                if (removed) {
+                    append(document, LogRecord.remove(pageNumber));
+                }
+            }
+
             if (removed) {
-                saveBookmarks(pdfPath, bookmarks);
                 Log.d(TAG, "删除书签成功，页面: " + pageNumber);
             } else {
                 Log.d(TAG, "书签不存在，页面: " + pageNumber);
             }
-            
+
             return removed;
         } catch (Exception e) {
             Log.e(TAG, "删除书签失败", e);
             return false;
         }
     }
-    
+
     /**
-     * 检查页面是否有书签
+     * 检查页面是否有书签，只查内存中的位图；文档尚未读入时返回false
      */
     public boolean hasBookmark(String pdfPath, int pageNumber) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return bookmarks.stream().anyMatch(bookmark -> bookmark.getPageNumber() == pageNumber);
-        } catch (Exception e) {
-            Log.e(TAG, "检查书签失败", e);
+        DocumentBookmarks document = peekDocument(pdfPath);
+        if (document == null) {
             return false;
         }
+        synchronized (document) {
+            return pageNumber >= 0 && document.pages.get(pageNumber);
+        }
+    }
+
+    /**
+     * 获取有书签的页码位图（副本），文档尚未读入时为空
+     */
+    public BitSet getBookmarkedPages(String pdfPath) {
+        DocumentBookmarks document = peekDocument(pdfPath);
+        if (document == null) {
+            return new BitSet();
+        }
+        synchronized (document) {
+            return (BitSet) document.pages.clone();
+        }
     }
-    
+
     /**
-     * 获取指定PDF的所有书签
+     * 获取指定PDF的所有书签，按页码排序；文档尚未读入时为空
      */
     public List<Bookmark> getBookmarks(String pdfPath) {
-        try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            String json = sharedPreferences.getString(key, null);
-            
-            if (json == null || json.isEmpty()) {
-                return new ArrayList<>();
-            }
-            
-            Type listType = new TypeToken<List<Bookmark>>(){}.getType();
-            List<Bookmark> bookmarks = gson.fromJson(json, listType);
-            return bookmarks != null ? bookmarks : new ArrayList<>();
-        } catch (Exception e) {
-            Log.e(TAG, "获取书签列表失败", e);
+        DocumentBookmarks document = peekDocument(pdfPath);
+        if (document == null) {
             return new ArrayList<>();
         }
+        synchronized (document) {
+            return new ArrayList<>(document.bookmarks.values());
+        }
     }
-    
+
     /**
-     * 获取书签详情
+     * 获取书签详情，文档尚未读入时返回null
      */
     public Bookmark getBookmark(String pdfPath, int pageNumber) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return bookmarks.stream()
-                    .filter(bookmark -> bookmark.getPageNumber() == pageNumber)
-                    .findFirst()
-                    .orElse(null);
-        } catch (Exception e) {
-            Log.e(TAG, "获取书签详情失败", e);
+        DocumentBookmarks document = peekDocument(pdfPath);
+        if (document == null) {
             return null;
         }
+        synchronized (document) {
+            return document.bookmarks.get(pageNumber);
+        }
     }
-    
+
     /**
      * 更新书签信息
      */
     public boolean updateBookmark(String pdfPath, int pageNumber, String title, String note) {
         try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            
-            for (Bookmark bookmark : bookmarks) {
-                if (bookmark.getPageNumber() == pageNumber) {
-                    bookmark.setTitle(title);
-                    bookmark.setNote(note);
-                    bookmark.setTimestamp(System.currentTimeMillis());
-                    
-                    saveBookmarks(pdfPath, bookmarks);
-                    Log.d(TAG, "更新书签成功，页面: " + pageNumber);
-                    return true;
+            DocumentBookmarks document = getLoadedDocument(pdfPath);
+            synchronized (document) {
+                Bookmark bookmark = document.bookmarks.get(pageNumber);
+                if (bookmark == null) {
+                    Log.d(TAG, "书签不存在，无法更新，页面: " + pageNumber);
+                    return false;
                 }
+                bookmark.setTitle(title);
+                bookmark.setNote(note);
+                bookmark.setTimestamp(System.currentTimeMillis());
+                append(document, LogRecord.put(bookmark));
             }
-            
-            Log.d(TAG, "书签不存在，无法更新，页面: " + pageNumber);
-            return false;
+            Log.d(TAG, "更新书签成功，页面: " + pageNumber);
+            return true;
         } catch (Exception e) {
             Log.e(TAG, "更新书签失败", e);
             return false;
         }
     }
-    
+
     /**
      * 清空指定PDF的所有书签
      */
     public boolean clearBookmarks(String pdfPath) {
         try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            sharedPreferences.edit().remove(key).apply();
+            DocumentBookmarks document = getLoadedDocument(pdfPath);
+            synchronized (document) {
+                document.bookmarks.clear();
+                document.pages.clear();
+                document.recordCount = 0;
+                ioExecutor.execute(document.logFile::delete);
+            }
             Log.d(TAG, "清空书签成功: " + pdfPath);
             return true;
         } catch (Exception e) {
@@ -226,58 +365,239 @@ public class BookmarkManager {
             return false;
         }
     }
-    
+
     /**
-     * 获取书签数量
+     * 获取书签数量，文档尚未读入时返回0
      */
     public int getBookmarkCount(String pdfPath) {
-        return getBookmarks(pdfPath).size();
-    }
-    
-    /**
-     * 保存书签列表到SharedPreferences
-     */
-    private void saveBookmarks(String pdfPath, List<Bookmark> bookmarks) {
-        try {
-            String key = KEY_BOOKMARKS + pdfPath.hashCode();
-            String json = gson.toJson(bookmarks);
-            sharedPreferences.edit().putString(key, json).apply();
-        } catch (Exception e) {
-            Log.e(TAG, "保存书签失败", e);
-            throw e;
+        DocumentBookmarks document = peekDocument(pdfPath);
+        if (document == null) {
+            return 0;
+        }
+        synchronized (document) {
+            return document.bookmarks.size();
         }
     }
-    
+
     /**
-     * 导出书签数据（用于备份）
+     * 导出书签数据（用于备份），逐条写出JSON数组，不在内存中拼接整个字符串；需在后台线程调用
      */
-    public String exportBookmarks(String pdfPath) {
-        try {
-            List<Bookmark> bookmarks = getBookmarks(pdfPath);
-            return gson.toJson(bookmarks);
-        } catch (Exception e) {
+    public boolean exportBookmarks(String pdfPath, Writer out) {
+        DocumentBookmarks document = getLoadedDocument(pdfPath);
+        List<Bookmark> bookmarks;
+        synchronized (document) {
+            bookmarks = new ArrayList<>(document.bookmarks.values());
+        }
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginArray();
+            for (Bookmark bookmark : bookmarks) {
+                gson.toJson(bookmark, Bookmark.class, writer);
+            }
+            writer.endArray();
+            return true;
+        } catch (IOException | JsonParseException e) {
             Log.e(TAG, "导出书签失败", e);
-            return null;
+            return false;
         }
     }
-    
+
     /**
-     * 导入书签数据（用于恢复）
+     * 导入书签数据（用于恢复），逐条读取JSON数组并替换该文档现有的书签
      */
-    public boolean importBookmarks(String pdfPath, String json) {
-        try {
-            Type listType = new TypeToken<List<Bookmark>>(){}.getType();
-            List<Bookmark> bookmarks = gson.fromJson(json, listType);
-            
-            if (bookmarks != null) {
-                saveBookmarks(pdfPath, bookmarks);
-                Log.d(TAG, "导入书签成功，数量: " + bookmarks.size());
-                return true;
+    public boolean importBookmarks(String pdfPath, Reader in) {
+        List<Bookmark> imported = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(in)) {
+            if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                return false;
             }
-            return false;
-        } catch (Exception e) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Bookmark bookmark = gson.fromJson(reader, Bookmark.class);
+                if (bookmark != null && bookmark.getPageNumber() >= 0) {
+                    bookmark.setPdfPath(pdfPath);
+                    imported.add(bookmark);
+                }
+            }
+            reader.endArray();
+        } catch (IOException | JsonParseException | IllegalStateException e) {
             Log.e(TAG, "导入书签失败", e);
             return false;
         }
+
+        DocumentBookmarks document = getLoadedDocument(pdfPath);
+        synchronized (document) {
+            document.bookmarks.clear();
+            document.pages.clear();
+            for (Bookmark bookmark : imported) {
+                document.apply(bookmark);
+            }
+            // 导入相当于整体替换，直接重写日志
+            compact(document);
+        }
+        Log.d(TAG, "导入书签成功，数量: " + imported.size());
+        return true;
+    }
+
+    // 取得文档的内存书签对象，不读日志
+    private DocumentBookmarks getDocument(String pdfPath) {
+        return documents.computeIfAbsent(pdfPath,
+                path -> new DocumentBookmarks(path, new File(bookmarkDir, PdfTextIndex.sha1(path) + ".log")));
+    }
+
+    // 查询用：已读入时返回文档，否则在后台开始读入并返回null，不访问磁盘也不等待读入
+    private DocumentBookmarks peekDocument(String pdfPath) {
+        DocumentBookmarks document = getDocument(pdfPath);
+        if (document.loaded) {
+            return document;
+        }
+        if (document.loadRequested.compareAndSet(false, true)) {
+            ioExecutor.execute(() -> ensureLoaded(document));
+        }
+        return null;
+    }
+
+    // 修改用：确保日志已读入后返回文档，只持有该文档的锁，不阻塞其他文档
+    private DocumentBookmarks getLoadedDocument(String pdfPath) {
+        DocumentBookmarks document = getDocument(pdfPath);
+        ensureLoaded(document);
+        return document;
+    }
+
+    private void ensureLoaded(DocumentBookmarks document) {
+        if (document.loaded) {
+            return;
+        }
+        synchronized (document) {
+            if (!document.loaded) {
+                readLog(document);
+                migrateFromPreferences(document);
+                document.loaded = true;
+            }
+        }
+    }
+
+    // 逐行重放日志，进程被杀时可能留下不完整的最后一行，忽略即可
+    private void readLog(DocumentBookmarks document) {
+        if (!document.logFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(document.logFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LogRecord record;
+                try {
+                    record = gson.fromJson(line, LogRecord.class);
+                } catch (JsonParseException e) {
+                    Log.w(TAG, "跳过损坏的书签记录: " + document.logFile.getName());
+                    continue;
+                }
+                if (record == null || record.page < 0) {
+                    continue;
+                }
+                document.recordCount++;
+                if (OP_PUT.equals(record.op)) {
+                    Bookmark bookmark = new Bookmark(document.pdfPath, record.page, record.title, record.note);
+                    bookmark.setTimestamp(record.timestamp);
+                    document.apply(bookmark);
+                } else if (OP_REMOVE.equals(record.op)) {
+                    document.delete(record.page);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "读取书签失败: " + document.pdfPath, e);
+        }
+    }
+
+    // 旧版本按pdfPath.hashCode()保存整个列表，不同路径可能共用一个键，只迁移属于本文档的书签
+    private void migrateFromPreferences(DocumentBookmarks document) {
+        String key = KEY_BOOKMARKS + document.pdfPath.hashCode();
+        String json = sharedPreferences.getString(key, null);
+        if (json == null || json.isEmpty()) {
+            return;
+        }
+        List<Bookmark> legacy;
+        try {
+            Type listType = new TypeToken<List<Bookmark>>(){}.getType();
+            legacy = gson.fromJson(json, listType);
+        } catch (JsonParseException e) {
+            Log.w(TAG, "旧书签数据损坏，放弃迁移: " + key);
+            sharedPreferences.edit().remove(key).apply();
+            return;
+        }
+        if (legacy == null) {
+            return;
+        }
+        int migrated = 0;
+        Iterator<Bookmark> iterator = legacy.iterator();
+        while (iterator.hasNext()) {
+            Bookmark bookmark = iterator.next();
+            if (bookmark != null && document.pdfPath.equals(bookmark.getPdfPath())) {
+                iterator.remove();
+                if (!document.pages.get(bookmark.getPageNumber())) {
+                    document.apply(bookmark);
+                    append(document, LogRecord.put(bookmark));
+                    migrated++;
+                }
+            }
+        }
+        if (legacy.isEmpty()) {
+            sharedPreferences.edit().remove(key).apply();
+        } else {
+            sharedPreferences.edit().putString(key, gson.toJson(legacy)).apply();
+        }
+        Log.d(TAG, "迁移旧书签 " + migrated + " 条: " + document.pdfPath);
+    }
+
+    // 持有document锁时调用：内存已更新，日志追加在后台按顺序进行
+    private void append(DocumentBookmarks document, LogRecord record) {
+        document.recordCount++;
+        String line = gson.toJson(record);
+        ioExecutor.execute(() -> {
+            if (!bookmarkDir.isDirectory() && !bookmarkDir.mkdirs()) {
+                Log.e(TAG, "无法创建书签目录");
+                return;
+            }
+            try (Writer writer = new BufferedWriter(new FileWriter(document.logFile, true))) {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                Log.e(TAG, "保存书签失败", e);
+            }
+        });
+        if (document.recordCount >= COMPACT_MIN_RECORDS
+                && document.recordCount > document.bookmarks.size() * 2) {
+            compact(document);
+        }
+    }
+
+    // 持有document锁时调用：按当前内容重写日志，先写临时文件再重命名；
+    // 之前排队的追加先执行，之后的追加写入新文件，顺序由单线程执行器保证
+    private void compact(DocumentBookmarks document) {
+        List<String> lines = new ArrayList<>(document.bookmarks.size());
+        for (Bookmark bookmark : document.bookmarks.values()) {
+            lines.add(gson.toJson(LogRecord.put(bookmark)));
+        }
+        document.recordCount = lines.size();
+        ioExecutor.execute(() -> {
+            if (!bookmarkDir.isDirectory() && !bookmarkDir.mkdirs()) {
+                Log.e(TAG, "无法创建书签目录");
+                return;
+            }
+            File tmp = new File(document.logFile.getPath() + ".tmp");
+            try (Writer writer = new BufferedWriter(new FileWriter(tmp))) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "压缩书签日志失败", e);
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(document.logFile)) {
+                Log.e(TAG, "无法替换书签日志");
+                tmp.delete();
+            }
+        });
     }
-}
\ No newline at end of file
+}
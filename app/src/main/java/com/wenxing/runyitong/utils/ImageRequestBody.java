@@ -0,0 +1,84 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * 按接口预算编码的图片上传请求体
+ * 在OkHttp发送请求时才解码图片：解码时直接缩小到接口的最长边并按EXIF方向转正，
+ * 再由AdaptiveImageEncoder编码到接口的字节预算以内，不生成临时文件。
+ * 编码结果在首次使用时生成并保留，请求重试时直接复用，不会重新解码编码；
+ * 上传前计算摘要时生成的编码结果也会被上传直接使用。
+ */
+public class ImageRequestBody extends RequestBody {
+
+    private final Context context;
+    private final Uri imageUri;
+    private final ImageUploadProfile profile;
+    private final MediaType mediaType;
+
+    private AdaptiveImageEncoder.EncodedImage encoded;
+
+    public ImageRequestBody(Context context, Uri imageUri, ImageUploadProfile profile) {
+        this.context = context.getApplicationContext();
+        this.imageUri = imageUri;
+        this.profile = profile;
+        this.mediaType = MediaType.parse(AdaptiveImageEncoder.mimeType(profile));
+    }
+
+    public Uri getImageUri() {
+        return imageUri;
+    }
+
+    public ImageUploadProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * 编码后图片的SHA-256摘要，需在后台线程调用
+     */
+    public String sha256() throws IOException {
+        return encode().sha256();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    /**
+     * OkHttp在网络线程先取长度再写入，此时完成编码，请求可以带上准确的Content-Length
+     */
+    @Override
+    public long contentLength() throws IOException {
+        return encode().length();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        encode().writeTo(sink.outputStream());
+    }
+
+    private synchronized AdaptiveImageEncoder.EncodedImage encode() throws IOException {
+        if (encoded != null) {
+            return encoded;
+        }
+        Bitmap bitmap = ImageUtils.decodeSampledUpright(context, imageUri, profile.maxLongEdge, profile.maxLongEdge);
+        if (bitmap == null) {
+            throw new IOException("无法解码图片: " + imageUri);
+        }
+        try {
+            encoded = AdaptiveImageEncoder.encode(bitmap, profile);
+        } finally {
+            bitmap.recycle();
+        }
+        return encoded;
+    }
+}
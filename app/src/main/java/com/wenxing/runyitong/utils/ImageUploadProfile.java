@@ -0,0 +1,83 @@
+package com.wenxing.runyitong.utils;
+
+/**
+ * 各上传接口的图片编码参数
+ * 按接口对图片细节的要求设定最长边、字节预算和最低质量：文字识别只需文字清晰，预算最小；
+ * CT、MRI等影像需要保留诊断细节，预算最大、最低质量最高。
+ * 编码器在预算内选择尽可能高的质量，低于最低质量仍超预算时才缩小分辨率。
+ */
+public enum ImageUploadProfile {
+
+    /** OCR文字识别 */
+    OCR(2048, 500 * 1024, 55, false),
+
+    /** 处方图片分析 */
+    PRESCRIPTION(2048, 700 * 1024, 60, false),
+
+    /** 舌诊：舌色舌苔依赖颜色，最低质量较高 */
+    TONGUE(1600, 900 * 1024, 75, false),
+
+    /** 面诊 */
+    FACE(1600, 900 * 1024, 75, false),
+
+    /** X光、B超 */
+    XRAY(2048, 1200 * 1024, 80, false),
+
+    /** CT、MRI、PET-CT：保留诊断细节 */
+    CT(2560, 2 * 1024 * 1024, 85, false),
+
+    /** 通用上传 */
+    GENERIC(1920, 1024 * 1024, 70, false);
+
+    /** 转正后的最长边（像素） */
+    public final int maxLongEdge;
+    /** 编码后的字节预算 */
+    public final int maxBytes;
+    /** 最低JPEG/WebP质量，低于此质量改为缩小分辨率 */
+    public final int minQuality;
+    /**
+     * 服务端该接口是否接受WebP
+     * 目前服务端的分析接口只接受.jpg/.jpeg/.png文件，全部为false；
+     * 只有确认服务端对应接口已支持WebP后才能开启
+     */
+    public final boolean webpAccepted;
+
+    ImageUploadProfile(int maxLongEdge, int maxBytes, int minQuality, boolean webpAccepted) {
+        this.maxLongEdge = maxLongEdge;
+        this.maxBytes = maxBytes;
+        this.minQuality = minQuality;
+        this.webpAccepted = webpAccepted;
+    }
+
+    /**
+     * 按本参数编码的图片能否代替按other编码的图片用于分析：
+     * 尺寸、预算、最低质量都不低于other，且other不接受WebP时本参数也不使用WebP
+     */
+    public boolean covers(ImageUploadProfile other) {
+        return maxLongEdge >= other.maxLongEdge
+                && maxBytes >= other.maxBytes
+                && minQuality >= other.minQuality
+                && (other.webpAccepted || !webpAccepted);
+    }
+
+    /**
+     * 医学影像类型对应的编码参数
+     * @param imageType "xray", "ct", "ultrasound", "mri", "petct"
+     */
+    public static ImageUploadProfile forMedicalImageType(String imageType) {
+        if (imageType == null) {
+            return GENERIC;
+        }
+        switch (imageType) {
+            case "ct":
+            case "mri":
+            case "petct":
+                return CT;
+            case "xray":
+            case "ultrasound":
+                return XRAY;
+            default:
+                return GENERIC;
+        }
+    }
+}
@@ -4,11 +4,10 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Matrix;
+import android.media.ExifInterface;
 import android.net.Uri;
 import android.util.Log;
-import okhttp3.MediaType;
 import okhttp3.MultipartBody;
-import okhttp3.RequestBody;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -46,67 +45,163 @@ public class ImageUtils {
         void onError(String error);
     }
     
+    /**
+     * 将Uri转换为MultipartBody.Part，使用通用上传的编码参数
+     * @see #createImagePart(Context, Uri, String, ImageUploadProfile)
+     */
+    public static MultipartBody.Part createImagePart(Context context, Uri imageUri, String partName) {
+        return createImagePart(context, imageUri, partName, ImageUploadProfile.GENERIC);
+    }
+    
     /**
      * 将Uri转换为MultipartBody.Part
+     * 图片在上传时才解码，并按接口的字节预算自适应选择质量和分辨率，不生成临时文件，调用方可在主线程调用
      * @param context 上下文
      * @param imageUri 图片Uri
      * @param partName 参数名称
+     * @param profile 目标接口的编码参数
      * @return MultipartBody.Part
      */
-    public static MultipartBody.Part createImagePart(Context context, Uri imageUri, String partName) {
-        try {
-            // 压缩图片
-            Bitmap compressedBitmap = compressImage(context, imageUri);
-            
-            // 创建临时文件
-            File tempFile = createTempImageFile(context, compressedBitmap);
-            
-            // 创建RequestBody
-            RequestBody requestBody = RequestBody.create(
-                MediaType.parse("image/jpeg"), 
-                tempFile
-            );
-            
-            // 创建MultipartBody.Part
-            return MultipartBody.Part.createFormData(
-                partName, 
-                tempFile.getName(), 
-                requestBody
-            );
-            
-        } catch (Exception e) {
-            e.printStackTrace();
+    public static MultipartBody.Part createImagePart(Context context, Uri imageUri, String partName,
+                                                     ImageUploadProfile profile) {
+        ImageRequestBody requestBody = createImageBody(context, imageUri, profile);
+        return requestBody != null ? createImagePart(requestBody, partName) : null;
+    }
+    
+    /**
+     * 创建按接口参数编码的图片请求体，需要先计算图片摘要再上传时使用
+     * @return 请求体，context或imageUri为空时返回null
+     */
+    public static ImageRequestBody createImageBody(Context context, Uri imageUri, ImageUploadProfile profile) {
+        if (context == null || imageUri == null) {
             return null;
         }
+        return new ImageRequestBody(context, imageUri, profile);
     }
     
     /**
-     * 压缩图片
-     * @param context 上下文
-     * @param imageUri 图片Uri
-     * @return 压缩后的Bitmap
+     * 用已创建的图片请求体生成MultipartBody.Part，已完成的编码结果会被直接复用
      */
-    private static Bitmap compressImage(Context context, Uri imageUri) throws IOException {
-        InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-        
-        // 获取图片尺寸
+    public static MultipartBody.Part createImagePart(ImageRequestBody requestBody, String partName) {
+        return MultipartBody.Part.createFormData(
+            partName,
+            "image_" + System.currentTimeMillis() + AdaptiveImageEncoder.fileExtension(requestBody.getProfile()),
+            requestBody
+        );
+    }
+    
+    /**
+     * 解码图片：解码时直接缩小到不超过目标尺寸，并按EXIF方向转正
+     * 先用inSampleSize按2的幂缩小，再用inDensity/inTargetDensity让解码器一次缩放到精确尺寸，
+     * 不会先解码出全尺寸位图；只有需要旋转时才会额外生成一张目标尺寸的位图。
+     * 需在后台线程调用
+     * @param maxWidth 转正后的最大宽度
+     * @param maxHeight 转正后的最大高度
+     * @return 转正后的位图，无法解码时返回null
+     */
+    public static Bitmap decodeSampledUpright(Context context, Uri imageUri, int maxWidth, int maxHeight) throws IOException {
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inJustDecodeBounds = true;
-        BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
+        try (InputStream inputStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (inputStream == null) {
+                return null;
+            }
+            BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
         
-        // 计算缩放比例
-        int inSampleSize = calculateInSampleSize(options, MAX_WIDTH, MAX_HEIGHT);
+        int orientation = readExifOrientation(context, imageUri);
+        boolean swapsSides = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+        // 旋转90度的照片，存储的宽高与显示的宽高相反
+        int boundWidth = swapsSides ? maxHeight : maxWidth;
+        int boundHeight = swapsSides ? maxWidth : maxHeight;
         
-        // 重新打开输入流
-        inputStream = context.getContentResolver().openInputStream(imageUri);
-        options.inJustDecodeBounds = false;
-        options.inSampleSize = inSampleSize;
+        int sampleSize = calculateInSampleSize(options, boundWidth, boundHeight);
+        int sampledWidth = options.outWidth / sampleSize;
+        int sampledHeight = options.outHeight / sampleSize;
+        float scale = Math.min(1f, Math.min(boundWidth / (float) sampledWidth, boundHeight / (float) sampledHeight));
         
-        Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
-        inputStream.close();
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        if (scale < 1f) {
+            // 解码器按inTargetDensity/inDensity缩放，直接得到目标尺寸
+            options.inScaled = true;
+            options.inDensity = sampledWidth;
+            options.inTargetDensity = Math.max(1, Math.round(sampledWidth * scale));
+        }
         
-        return bitmap;
+        Bitmap bitmap;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (inputStream == null) {
+                return null;
+            }
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (bitmap == null) {
+            return null;
+        }
+        bitmap.setDensity(Bitmap.DENSITY_NONE);
+        return applyExifOrientation(bitmap, orientation);
+    }
+    
+    /**
+     * 读取EXIF方向，无法读取时视为正常方向
+     */
+    private static int readExifOrientation(Context context, Uri imageUri) {
+        try (InputStream inputStream = context.getContentResolver().openInputStream(imageUri)) {
+            if (inputStream == null) {
+                return ExifInterface.ORIENTATION_NORMAL;
+            }
+            return new ExifInterface(inputStream).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "读取EXIF方向失败: " + e.getMessage());
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+    
+    /**
+     * 按EXIF方向转正，需要变换时回收原位图
+     */
+    private static Bitmap applyExifOrientation(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                return bitmap;
+        }
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) {
+            bitmap.recycle();
+        }
+        return rotated;
     }
     
     /**
@@ -134,29 +229,6 @@ public class ImageUtils {
         return inSampleSize;
     }
     
-    /**
-     * 创建临时图片文件
-     * @param context 上下文
-     * @param bitmap 图片Bitmap
-     * @return 临时文件
-     */
-    private static File createTempImageFile(Context context, Bitmap bitmap) throws IOException {
-        // 创建临时文件
-        File tempFile = File.createTempFile(
-            "temp_image_" + System.currentTimeMillis(), 
-            ".jpg", 
-            context.getCacheDir()
-        );
-        
-        // 将Bitmap保存到文件
-        FileOutputStream fos = new FileOutputStream(tempFile);
-        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, fos);
-        fos.flush();
-        fos.close();
-        
-        return tempFile;
-    }
-    
     /**
      * 获取图片文件大小
      * @param context 上下文
@@ -342,6 +414,7 @@ public class ImageUtils {
     
     /**
      * 清理缓存目录中的临时图片文件
+     * 上传已不再生成临时文件，这里清理旧版本遗留的文件
      * @param context 上下文
      */
     public static void cleanupTempFiles(Context context) {
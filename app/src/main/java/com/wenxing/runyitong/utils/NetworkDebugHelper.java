@@ -9,6 +9,8 @@ import com.wenxing.runyitong.api.ApiClient;
 import com.wenxing.runyitong.api.ApiResponse;
 import com.wenxing.runyitong.api.ApiService;
 import com.wenxing.runyitong.model.FaceDiagnosisResult;
+import com.wenxing.runyitong.network.RetryEngine;
+import com.wenxing.runyitong.network.NetworkMetrics;
 
 /**
  * 网络请求调试辅助类
@@ -222,6 +224,10 @@ public class NetworkDebugHelper {
                 Log.d(TAG, "基础URL: " + ApiClient.getRetrofitInstance().baseUrl());
             }
             
+            // 记录重试与熔断统计
+            Log.d(TAG, "重试统计: " + RetryEngine.getInstance().getStatsSummary());
+            Log.d(TAG, NetworkMetrics.getInstance().buildReport());
+            
         } catch (Exception e) {
             Log.e(TAG, "记录网络配置异常: " + e.getMessage(), e);
         }
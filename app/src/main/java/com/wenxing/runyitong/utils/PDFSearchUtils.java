@@ -1,8 +1,13 @@
 package com.wenxing.runyitong.utils;
 
-import android.graphics.pdf.PdfRenderer;
+import android.content.Context;
 import android.util.Log;
 
+import com.wenxing.runyitong.pdf.BookIndexer;
+import com.wenxing.runyitong.pdf.PdfTextIndex;
+import com.wenxing.runyitong.pdf.TextTokenizer;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -84,82 +89,54 @@ public class PDFSearchUtils {
     /**
      * 在PDF中搜索文本（简化版本）
      */
-    public static List<SearchResult> searchInPDF(PdfRenderer pdfRenderer, String query, boolean caseSensitive, boolean wholeWord) {
-        List<SearchResult> results = new ArrayList<>();
-        
-        if (pdfRenderer == null || query == null || query.trim().isEmpty()) {
-            return results;
-        }
-        
-        try {
-            int pageCount = pdfRenderer.getPageCount();
-            
-            for (int i = 0; i < pageCount; i++) {
-                // 模拟搜索结果（实际应用中需要真正的PDF文本提取）
-                if (mockSearchInPage(i, query, caseSensitive)) {
-                    String mockText = generateMockPageText(i);
-                    int startIndex = caseSensitive ? mockText.indexOf(query) : mockText.toLowerCase().indexOf(query.toLowerCase());
-                    if (startIndex >= 0) {
-                        String contextBefore = getContext(mockText, startIndex, 20, true);
-                        String contextAfter = getContext(mockText, startIndex + query.length(), 20, false);
-                        
-                        SearchResult result = new SearchResult(
-                            i,
-                            query,
-                            startIndex,
-                            startIndex + query.length(),
-                            contextBefore,
-                            contextAfter
-                        );
-                        results.add(result);
-                    }
-                }
-                
-                // 限制结果数量
-                if (results.size() >= 50) {
-                    break;
-                }
-            }
-            
-        } catch (Exception e) {
-            Log.e(TAG, "搜索过程中发生错误", e);
-        }
-        
-        return results;
+    public static List<SearchResult> searchInPDF(Context context, File pdfFile, String query,
+                                                 boolean caseSensitive, boolean wholeWord) {
+        return searchInPDF(context, pdfFile, query, new SearchOptions(caseSensitive, wholeWord));
     }
     
     /**
      * 在PDF中搜索文本（完整版本）
-     * 注意：由于Android PdfRenderer API限制，此方法主要用于演示
-     * 实际的PDF文本提取需要使用第三方库如PDFBox或iText
+     * 通过倒排索引求出候选页，再对候选页原文逐一匹配并截取上下文。
+     * 索引由BookIndexer在后台建立，尚未完成时只搜索已提取的页面，并把书籍加入索引队列。
+     * 需要在后台线程调用
      */
-    public static List<SearchResult> searchInPDF(PdfRenderer pdfRenderer, String query, SearchOptions options) {
+    public static List<SearchResult> searchInPDF(Context context, File pdfFile, String query, SearchOptions options) {
         List<SearchResult> results = new ArrayList<>();
         
-        if (pdfRenderer == null || query == null || query.trim().isEmpty()) {
+        if (pdfFile == null || !pdfFile.exists() || query == null || query.trim().isEmpty()) {
             return results;
         }
         
-        String cleanQuery = cleanSearchQuery(query);
+        // 页面文本建索引前已规范化，查询也按同样规则处理
+        String cleanQuery = TextTokenizer.normalize(cleanSearchQuery(query));
         if (cleanQuery.isEmpty()) {
             return results;
         }
         
         try {
-            int pageCount = pdfRenderer.getPageCount();
-            Log.d(TAG, "开始搜索，共 " + pageCount + " 页，关键词: " + cleanQuery);
+            PdfTextIndex index = PdfTextIndex.open(context, pdfFile);
+            if (!index.isComplete()) {
+                BookIndexer.getInstance(context).enqueue(pdfFile);
+                Log.d(TAG, "索引尚未完成，只搜索已提取的 " + index.getExtractedPageCount() + " 页");
+            }
+            
+            long startTime = System.currentTimeMillis();
+            int[] candidatePages = index.findCandidatePages(
+                    TextTokenizer.queryTerms(cleanQuery, options.isWholeWord()));
+            Pattern pattern = compileSearchPattern(cleanQuery, options);
             
-            for (int i = 0; i < pageCount && results.size() < options.getMaxResults(); i++) {
-                List<SearchResult> pageResults = searchInPage(i, cleanQuery, options);
-                results.addAll(pageResults);
-                
+            for (int page : candidatePages) {
+                String pageText = index.getPageText(page);
+                if (pageText != null) {
+                    searchInText(page, pageText, pattern, options, results);
+                }
                 if (results.size() >= options.getMaxResults()) {
-                    results = results.subList(0, options.getMaxResults());
                     break;
                 }
             }
             
-            Log.d(TAG, "搜索完成，找到 " + results.size() + " 个结果");
+            Log.d(TAG, "搜索完成，关键词: " + cleanQuery + "，候选 " + candidatePages.length + " 页，找到 "
+                    + results.size() + " 个结果，耗时 " + (System.currentTimeMillis() - startTime) + "ms");
             
         } catch (Exception e) {
             Log.e(TAG, "搜索过程中发生错误", e);
@@ -169,62 +146,30 @@ public class PDFSearchUtils {
     }
     
     /**
-     * 模拟页面搜索（实际应用中需要真正的PDF文本提取）
+     * 在单个页面的文本中搜索，结果追加到results，达到最大结果数时停止
      */
-    private static boolean mockSearchInPage(int pageIndex, String query, boolean caseSensitive) {
-        // 模拟一些页面包含搜索内容
-        String mockContent = generateMockPageText(pageIndex);
-        
-        if (caseSensitive) {
-            return mockContent.contains(query);
-        } else {
-            return mockContent.toLowerCase().contains(query.toLowerCase());
-        }
-    }
-    
-    /**
-     * 在单个页面中搜索文本
-     * 注意：这是一个模拟实现，实际需要PDF文本提取功能
-     */
-    private static List<SearchResult> searchInPage(int pageNumber, String query, SearchOptions options) {
-        List<SearchResult> results = new ArrayList<>();
-        
-        try {
-            // 模拟页面文本内容（实际应该从PDF页面提取文本）
-            String pageText = generateMockPageText(pageNumber);
-            
-            if (pageText.isEmpty()) {
-                return results;
-            }
+    private static void searchInText(int pageNumber, String pageText, Pattern pattern,
+                                     SearchOptions options, List<SearchResult> results) {
+        Matcher matcher = pattern.matcher(pageText);
+        
+        while (results.size() < options.getMaxResults() && matcher.find()) {
+            String matchedText = matcher.group();
+            int startIndex = matcher.start();
+            int endIndex = matcher.end();
             
-            // 构建搜索模式
-            String searchPattern = buildSearchPattern(query, options);
-            int flags = options.isCaseSensitive() ? 0 : Pattern.CASE_INSENSITIVE;
-            Pattern pattern = Pattern.compile(searchPattern, flags);
-            
-            Matcher matcher = pattern.matcher(pageText);
-            
-            while (matcher.find() && results.size() < options.getMaxResults()) {
-                String matchedText = matcher.group();
-                int startIndex = matcher.start();
-                int endIndex = matcher.end();
-                
-                // 获取上下文
-                String contextBefore = getContext(pageText, startIndex, options.getContextLength(), true);
-                String contextAfter = getContext(pageText, endIndex, options.getContextLength(), false);
-                
-                SearchResult result = new SearchResult(
-                    pageNumber, matchedText, startIndex, endIndex, contextBefore, contextAfter
-                );
-                
-                results.add(result);
-            }
+            // 获取上下文
+            String contextBefore = getContext(pageText, startIndex, options.getContextLength(), true);
+            String contextAfter = getContext(pageText, endIndex, options.getContextLength(), false);
             
-        } catch (Exception e) {
-            Log.e(TAG, "在页面 " + (pageNumber + 1) + " 搜索时发生错误", e);
+            results.add(new SearchResult(
+                pageNumber, matchedText, startIndex, endIndex, contextBefore, contextAfter
+            ));
         }
-        
-        return results;
+    }
+    
+    private static Pattern compileSearchPattern(String query, SearchOptions options) {
+        int flags = options.isCaseSensitive() ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        return Pattern.compile(buildSearchPattern(query, options), flags);
     }
     
     /**
@@ -253,27 +198,6 @@ public class PDFSearchUtils {
         }
     }
     
-    /**
-     * 生成模拟页面文本（用于演示）
-     * 实际应用中应该使用PDF文本提取库
-     */
-    private static String generateMockPageText(int pageNumber) {
-        // 模拟不同页面的文本内容
-        String[] mockTexts = {
-            "这是第一页的内容。包含医学相关的文本信息，用于演示搜索功能。医学研究表明，定期检查对健康很重要。",
-            "第二页讨论了医疗技术的发展。人工智能在医学诊断中的应用越来越广泛，提高了诊断的准确性。",
-            "第三页介绍了常见疾病的预防方法。预防胜于治疗，保持良好的生活习惯是关键。",
-            "第四页分析了医疗数据的重要性。大数据分析帮助医生做出更好的治疗决策。",
-            "第五页探讨了远程医疗的优势。特别是在偏远地区，远程医疗提供了重要的医疗服务。"
-        };
-        
-        if (pageNumber < mockTexts.length) {
-            return mockTexts[pageNumber];
-        } else {
-            return "第 " + (pageNumber + 1) + " 页的内容。这里包含了医学文档的相关信息，用于搜索功能的演示。";
-        }
-    }
-    
     /**
      * 高亮显示搜索结果
      */
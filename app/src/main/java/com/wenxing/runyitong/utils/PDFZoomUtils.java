@@ -97,6 +97,19 @@ public class PDFZoomUtils {
         return nearestZoom;
     }
     
+    /**
+     * 获取分块渲染使用的缩放级别：不小于当前缩放的最小预设值
+     * 图块按预设级别渲染，缩放在两个预设之间变化时可复用已渲染的图块
+     */
+    public static float getTileZoomLevel(float zoom) {
+        for (float preset : PRESET_ZOOM_LEVELS) {
+            if (preset >= zoom - 0.01f) {
+                return preset;
+            }
+        }
+        return MAX_ZOOM;
+    }
+
     /**
      * 计算适应宽度的缩放级别
      */
@@ -0,0 +1,264 @@
+package com.wenxing.runyitong.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.wenxing.runyitong.api.LoginResponse;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程级登录会话存储
+ * access_token、用户ID等登录信息常驻内存，读取无需访问SharedPreferences；
+ * 修改时先更新内存，再通过apply()异步落盘。仍直接写"user_login_state"的旧代码
+ * 通过SharedPreferences变更监听同步到内存，登录状态变化以监听器形式通知界面。
+ */
+public class SessionStore {
+
+    private static final String TAG = "SessionStore";
+
+    // 与LoginActivity等页面共用的SharedPreferences文件和键名
+    public static final String PREFS_NAME = "user_login_state";
+    private static final String KEY_IS_LOGGED_IN = "is_logged_in";
+    private static final String KEY_USERNAME = "username";
+    private static final String KEY_USER_ID = "user_id";
+    private static final String KEY_ACCESS_TOKEN = "access_token";
+    private static final String KEY_TOKEN_TYPE = "token_type";
+
+    /**
+     * 登录状态监听器，回调均在主线程执行
+     */
+    public interface SessionListener {
+        /**
+         * 登录、退出或用户切换时回调
+         */
+        void onLoginStateChanged(boolean isLoggedIn, int userId);
+
+        /**
+         * 服务器返回401且无法刷新token时回调，会话已被清除
+         */
+        default void onSessionExpired() {
+        }
+    }
+
+    private static volatile SessionStore instance;
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<SessionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean loggedIn;
+    private volatile int userId;
+    private volatile String username;
+    private volatile String accessToken;
+    private volatile String tokenType;
+
+    // 最近一次通知给监听器的状态，用于合并同一次修改触发的多次回调
+    private boolean notifiedLoggedIn;
+    private int notifiedUserId;
+
+    // SharedPreferences只弱引用监听器，需要保存为字段
+    private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener = (sharedPreferences, key) -> {
+        loadFromPrefs();
+        notifyIfChanged();
+    };
+
+    private SessionStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        loadFromPrefs();
+        notifiedLoggedIn = loggedIn;
+        notifiedUserId = userId;
+        prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+        Log.d(TAG, "Session loaded, logged in: " + loggedIn + ", user id: " + userId);
+    }
+
+    /**
+     * 在Application.onCreate中初始化
+     */
+    public static SessionStore init(Context context) {
+        if (instance == null) {
+            synchronized (SessionStore.class) {
+                if (instance == null) {
+                    instance = new SessionStore(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取实例，需先调用init
+     */
+    public static SessionStore getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("SessionStore not initialized, call init(context) first");
+        }
+        return instance;
+    }
+
+    /**
+     * 是否已初始化，供ApiClient在测试工具等无Application场景下判断
+     */
+    public static boolean isInitialized() {
+        return instance != null;
+    }
+
+    private synchronized void loadFromPrefs() {
+        loggedIn = prefs.getBoolean(KEY_IS_LOGGED_IN, false);
+        userId = prefs.getInt(KEY_USER_ID, -1);
+        username = prefs.getString(KEY_USERNAME, null);
+        String token = prefs.getString(KEY_ACCESS_TOKEN, null);
+        accessToken = (token == null || token.isEmpty()) ? null : token;
+        tokenType = prefs.getString(KEY_TOKEN_TYPE, null);
+    }
+
+    public boolean isLoggedIn() {
+        return loggedIn;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * 当前access_token，未登录或已过期时返回null
+     */
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public String getTokenType() {
+        return tokenType;
+    }
+
+    /**
+     * 登录成功后保存完整的用户信息
+     */
+    public void saveLogin(LoginResponse loginData) {
+        if (loginData == null) {
+            return;
+        }
+        synchronized (this) {
+            loggedIn = true;
+            userId = loginData.getUserId();
+            username = loginData.getUsername();
+            accessToken = loginData.getAccessToken();
+            tokenType = loginData.getTokenType();
+            prefs.edit()
+                    .putBoolean(KEY_IS_LOGGED_IN, true)
+                    .putInt(KEY_USER_ID, loginData.getUserId())
+                    .putString(KEY_USERNAME, loginData.getUsername())
+                    .putString("email", loginData.getEmail())
+                    .putString("full_name", loginData.getFullName())
+                    .putString("phone", loginData.getPhone())
+                    .putString("avatar_url", loginData.getAvatarUrl())
+                    .putString(KEY_ACCESS_TOKEN, loginData.getAccessToken())
+                    .putString(KEY_TOKEN_TYPE, loginData.getTokenType())
+                    .apply();
+        }
+        notifyIfChanged();
+        Log.d(TAG, "Login saved for user id: " + userId);
+    }
+
+    /**
+     * 更新登录标记和用户名
+     */
+    public synchronized void setLoginState(boolean isLoggedIn, String name) {
+        loggedIn = isLoggedIn;
+        username = name;
+        prefs.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, isLoggedIn)
+                .putString(KEY_USERNAME, name)
+                .apply();
+        notifyIfChanged();
+    }
+
+    /**
+     * 替换access_token，用于token刷新
+     */
+    public synchronized void updateAccessToken(String token) {
+        accessToken = token;
+        prefs.edit().putString(KEY_ACCESS_TOKEN, token).apply();
+    }
+
+    /**
+     * 退出登录，清除内存和磁盘中的会话
+     */
+    public void logout() {
+        synchronized (this) {
+            clearLocked();
+        }
+        notifyIfChanged();
+        Log.d(TAG, "Session cleared by logout");
+    }
+
+    /**
+     * 会话过期：仅当过期的token仍是当前token时清除，避免误清新登录的会话
+     * @return 是否执行了清除
+     */
+    public boolean expireSession(String expiredToken) {
+        synchronized (this) {
+            if (accessToken == null || !accessToken.equals(expiredToken)) {
+                return false;
+            }
+            clearLocked();
+        }
+        notifyIfChanged();
+        Log.w(TAG, "Session expired, token cleared");
+        mainHandler.post(() -> {
+            for (SessionListener listener : listeners) {
+                listener.onSessionExpired();
+            }
+        });
+        return true;
+    }
+
+    private void clearLocked() {
+        loggedIn = false;
+        userId = -1;
+        username = "";
+        accessToken = null;
+        prefs.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, false)
+                .putString(KEY_USERNAME, "")
+                .putInt(KEY_USER_ID, -1)
+                .remove(KEY_ACCESS_TOKEN)
+                .apply();
+    }
+
+    public void addListener(SessionListener listener) {
+        if (listener != null) {
+            listeners.addIfAbsent(listener);
+        }
+    }
+
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyIfChanged() {
+        final boolean state;
+        final int id;
+        synchronized (this) {
+            if (loggedIn == notifiedLoggedIn && userId == notifiedUserId) {
+                return;
+            }
+            state = loggedIn;
+            id = userId;
+            notifiedLoggedIn = state;
+            notifiedUserId = id;
+        }
+        mainHandler.post(() -> {
+            for (SessionListener listener : listeners) {
+                listener.onLoginStateChanged(state, id);
+            }
+        });
+    }
+}
@@ -0,0 +1,311 @@
+package com.wenxing.runyitong.network;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+
+import com.google.gson.Gson;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.model.ChunkedUploadStatus;
+import com.wenxing.runyitong.model.ImageUploadResult;
+import com.wenxing.runyitong.utils.ImageRequestBody;
+import com.wenxing.runyitong.utils.ImageUploadProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * ChunkedImageUploader的分块读取、进度恢复和失败后续传
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+public class ChunkedImageUploaderTest {
+
+    private static final String UPLOADS = "/api/v1/prescriptions/chunked-uploads";
+    private static final Pattern CHUNK_PATH = Pattern.compile(UPLOADS + "/u1/chunks/(\\d+)");
+    // 服务端指定的分块大小，使很小的测试图片也分成多个分块
+    private static final int SERVER_CHUNK_SIZE = 8;
+
+    // 1x1 PNG
+    private static final String PNG_BASE64 =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ApiService apiService;
+
+    // 模拟的服务端状态
+    private final Set<Integer> receivedChunks = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, AtomicInteger> chunkPuts = new ConcurrentHashMap<>();
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger statusQueries = new AtomicInteger();
+    private volatile int failingChunk = -1;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+        server.start();
+
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(GsonConverterFactory.create())
+                .callbackExecutor(mainHandler::post)
+                .build()
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void readChunkReturnsShortLastChunk() throws IOException {
+        File data = temp.newFile("data.bin");
+        try (FileOutputStream out = new FileOutputStream(data)) {
+            out.write(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+        }
+        ChunkedImageUploader.UploadState state = newState(10, 4);
+
+        assertArrayEquals(new byte[]{0, 1, 2, 3}, ChunkedImageUploader.readChunk(data, state, 0));
+        assertArrayEquals(new byte[]{4, 5, 6, 7}, ChunkedImageUploader.readChunk(data, state, 1));
+        assertArrayEquals(new byte[]{8, 9}, ChunkedImageUploader.readChunk(data, state, 2));
+    }
+
+    @Test
+    public void applyReceivedIgnoresInvalidIndexes() {
+        ChunkedImageUploader.UploadState state = newState(10, 4);
+        ChunkedUploadStatus status = new Gson().fromJson(
+                "{\"upload_id\":\"u1\",\"received_chunks\":[0,2,3,-1,null]}", ChunkedUploadStatus.class);
+
+        ChunkedImageUploader.applyReceived(state, status);
+
+        assertArrayEquals(new boolean[]{true, false, true}, state.confirmed);
+        assertEquals(2, state.confirmedCount());
+    }
+
+    @Test
+    public void applyReceivedWithoutListKeepsProgress() {
+        ChunkedImageUploader.UploadState state = newState(10, 4);
+        state.confirmed[1] = true;
+
+        ChunkedImageUploader.applyReceived(state, new ChunkedUploadStatus());
+
+        assertArrayEquals(new boolean[]{false, true, false}, state.confirmed);
+    }
+
+    @Test
+    public void loadStateReadsSavedProgress() throws IOException {
+        ChunkedImageUploader.UploadState saved = newState(10, 4);
+        saved.confirmed[0] = true;
+        File stateFile = write("saved.state", new Gson().toJson(saved));
+
+        ChunkedImageUploader.UploadState loaded = ChunkedImageUploader.loadState(stateFile);
+
+        assertNotNull(loaded);
+        assertEquals("u1", loaded.upload_id);
+        assertEquals(3, loaded.total_chunks);
+        assertArrayEquals(new boolean[]{true, false, false}, loaded.confirmed);
+    }
+
+    @Test
+    public void loadStateRejectsMissingOrInvalidFiles() throws IOException {
+        assertNull(ChunkedImageUploader.loadState(new File(temp.getRoot(), "missing.state")));
+        assertNull(ChunkedImageUploader.loadState(write("corrupt.state", "{\"sha256\":")));
+
+        ChunkedImageUploader.UploadState mismatched = newState(10, 4);
+        mismatched.confirmed = new boolean[2];
+        assertNull(ChunkedImageUploader.loadState(write("mismatched.state", new Gson().toJson(mismatched))));
+    }
+
+    @Test
+    public void resumesAfterFailureWithoutReadingImageAgain() throws Exception {
+        Context context = RuntimeEnvironment.getApplication();
+        File image = new File(context.getCacheDir(), "ct_scan.png");
+        try (FileOutputStream out = new FileOutputStream(image)) {
+            out.write(Base64.decode(PNG_BASE64, Base64.DEFAULT));
+        }
+        Uri imageUri = Uri.fromFile(image);
+        ChunkedImageUploader uploader = ChunkedImageUploader.getInstance(context);
+
+        // 第一次上传：分块1被服务端拒绝
+        failingChunk = 1;
+        try {
+            await(uploader.upload(apiService, new ImageRequestBody(context, imageUri, ImageUploadProfile.CT), null));
+            fail("分块1失败时上传应失败");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof ResumableDownloader.HttpStatusException);
+        }
+        assertFalse(receivedChunks.contains(1));
+
+        // 原图已不可读（相当于相册授权失效），续传只使用已保存的数据
+        assertTrue(image.delete());
+        failingChunk = -1;
+        List<int[]> progress = Collections.synchronizedList(new ArrayList<>());
+        ImageUploadResult result = await(uploader.upload(apiService,
+                new ImageRequestBody(context, imageUri, ImageUploadProfile.CT),
+                (confirmed, total) -> progress.add(new int[]{confirmed, total})));
+
+        assertEquals("img-ct", result.getImageId());
+        assertEquals(1, creates.get());
+        assertEquals(1, statusQueries.get());
+        int totalChunks = receivedChunks.size();
+        assertTrue(totalChunks > 1);
+        for (int i = 0; i < totalChunks; i++) {
+            assertTrue("缺少分块" + i, receivedChunks.contains(i));
+        }
+        // 第一次已确认的分块不再重传
+        for (Map.Entry<Integer, AtomicInteger> entry : chunkPuts.entrySet()) {
+            int expected = entry.getKey() == 1 ? 2 : 1;
+            assertEquals("分块" + entry.getKey() + "的上传次数", expected, entry.getValue().get());
+        }
+        assertFalse(progress.isEmpty());
+        assertArrayEquals(new int[]{totalChunks, totalChunks}, progress.get(progress.size() - 1));
+
+        // 已提交的图片直接返回图片ID，不再请求服务端
+        int requests = server.getRequestCount();
+        ImageUploadResult again = await(uploader.upload(apiService,
+                new ImageRequestBody(context, imageUri, ImageUploadProfile.CT), null));
+        assertEquals("img-ct", again.getImageId());
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        String path = request.getPath();
+        if (path.equals(UPLOADS) && request.getMethod().equals("POST")) {
+            creates.incrementAndGet();
+            return json("{\"success\":true,\"data\":{\"upload_id\":\"u1\",\"chunk_size\":" + SERVER_CHUNK_SIZE
+                    + ",\"received_chunks\":[]}}");
+        }
+        if (path.equals(UPLOADS + "/u1") && request.getMethod().equals("GET")) {
+            statusQueries.incrementAndGet();
+            List<Integer> received = new ArrayList<>(receivedChunks);
+            return json("{\"success\":true,\"data\":{\"upload_id\":\"u1\",\"chunk_size\":" + SERVER_CHUNK_SIZE
+                    + ",\"received_chunks\":" + received + "}}");
+        }
+        if (path.equals(UPLOADS + "/u1/commit")) {
+            return json("{\"success\":true,\"data\":{\"image_id\":\"img-ct\"}}");
+        }
+        Matcher matcher = CHUNK_PATH.matcher(path);
+        if (matcher.matches()) {
+            int index = Integer.parseInt(matcher.group(1));
+            chunkPuts.computeIfAbsent(index, key -> new AtomicInteger()).incrementAndGet();
+            if (index == failingChunk) {
+                return new MockResponse().setResponseCode(400);
+            }
+            byte[] chunk = request.getBody().readByteArray();
+            if (!sha256Hex(chunk).equals(request.getHeader("X-Chunk-SHA256"))) {
+                return new MockResponse().setResponseCode(422);
+            }
+            receivedChunks.add(index);
+            return json("{\"success\":true,\"data\":{\"upload_id\":\"u1\"}}");
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+
+    private static ChunkedImageUploader.UploadState newState(long fileSize, int chunkSize) {
+        ChunkedImageUploader.UploadState state = new ChunkedImageUploader.UploadState();
+        state.sha256 = "abc";
+        state.upload_id = "u1";
+        state.file_size = fileSize;
+        state.chunk_size = chunkSize;
+        state.total_chunks = (int) ((fileSize + chunkSize - 1) / chunkSize);
+        state.confirmed = new boolean[state.total_chunks];
+        return state;
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = temp.newFile(name);
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return file;
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 在测试线程（即主线程）上执行主线程消息，直到future完成
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!future.isDone()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待上传超时");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+        return future.get();
+    }
+}
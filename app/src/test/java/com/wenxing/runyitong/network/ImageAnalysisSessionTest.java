@@ -0,0 +1,238 @@
+package com.wenxing.runyitong.network;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Base64;
+
+import com.wenxing.runyitong.api.ApiResponse;
+import com.wenxing.runyitong.api.ApiService;
+import com.wenxing.runyitong.model.OCRResult;
+import com.wenxing.runyitong.model.PrescriptionAnalysis;
+import com.wenxing.runyitong.model.TongueDiagnosisResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+/**
+ * ImageAnalysisSession按图片ID引用与回退直接上传的行为，服务端由本地MockWebServer模拟
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class)
+public class ImageAnalysisSessionTest {
+
+    private static final String PREFIX = "/api/v1/prescriptions/";
+    private static final String OK_EMPTY = "{\"success\":true,\"data\":{}}";
+    private static final String UPLOADED = "{\"success\":true,\"data\":{\"image_id\":\"img-1\"}}";
+
+    // 1x1 PNG
+    private static final String PNG_BASE64 =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    private MockWebServer server;
+    private ApiService apiService;
+    private Context context;
+    private Uri imageUri;
+
+    // 路径 -> 响应；未配置的路径返回404
+    private final Map<String, MockResponse> routes = new ConcurrentHashMap<>();
+    private final List<String> requestedPaths = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        File image = new File(context.getCacheDir(), "session_test.png");
+        try (FileOutputStream out = new FileOutputStream(image)) {
+            out.write(Base64.decode(PNG_BASE64, Base64.DEFAULT));
+        }
+        imageUri = Uri.fromFile(image);
+
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                requestedPaths.add(path);
+                MockResponse response = routes.get(path);
+                return response != null ? response : new MockResponse().setResponseCode(404);
+            }
+        });
+        server.start();
+
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        apiService = new Retrofit.Builder()
+                .baseUrl(server.url("/"))
+                .client(new OkHttpClient())
+                .addConverterFactory(GsonConverterFactory.create())
+                // 与Android平台一致，回调在主线程执行
+                .callbackExecutor(mainHandler::post)
+                .build()
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsOnceThenAnalyzesById() throws Exception {
+        route("upload-image", 200, UPLOADED);
+        route("analyze-tongue/by-id", 200, OK_EMPTY);
+        ImageAnalysisSession session = new ImageAnalysisSession(context, apiService, imageUri);
+
+        Response<ApiResponse<TongueDiagnosisResult>> first = await(ApiFutures.from(session.analyzeTongueImage()));
+        Response<ApiResponse<TongueDiagnosisResult>> second = await(ApiFutures.from(session.analyzeTongueImage()));
+
+        assertTrue(first.isSuccessful());
+        assertTrue(second.isSuccessful());
+        assertEquals(Arrays.asList(PREFIX + "upload-image",
+                PREFIX + "analyze-tongue/by-id",
+                PREFIX + "analyze-tongue/by-id"), requestedPaths);
+        server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("image_id=img-1", server.takeRequest(1, TimeUnit.SECONDS).getBody().readUtf8());
+    }
+
+    @Test
+    public void fallsBackToDirectWhenImageIdNotFound() throws Exception {
+        assertFallsBackWhenImageIdRejected(404);
+    }
+
+    @Test
+    public void fallsBackToDirectWhenImageIdGone() throws Exception {
+        assertFallsBackWhenImageIdRejected(410);
+    }
+
+    private void assertFallsBackWhenImageIdRejected(int code) throws Exception {
+        route("upload-image", 200, UPLOADED);
+        route("analyze-tongue/by-id", code, "{\"detail\":\"image expired\"}");
+        route("analyze-tongue", 200, OK_EMPTY);
+        ImageAnalysisSession session = new ImageAnalysisSession(context, apiService, imageUri);
+
+        Response<ApiResponse<TongueDiagnosisResult>> response = await(ApiFutures.from(session.analyzeTongueImage()));
+
+        assertTrue(response.isSuccessful());
+        assertEquals(Arrays.asList(PREFIX + "upload-image",
+                PREFIX + "analyze-tongue/by-id",
+                PREFIX + "analyze-tongue"), requestedPaths);
+
+        // 失效的上传已丢弃，下一次分析重新上传
+        requestedPaths.clear();
+        await(ApiFutures.from(session.analyzeTongueImage()));
+        assertEquals(PREFIX + "upload-image", requestedPaths.get(0));
+    }
+
+    @Test
+    public void fallsBackToDirectWhenUploadEndpointMissing() throws Exception {
+        // upload-image未配置，返回404
+        route("analyze-tongue", 200, OK_EMPTY);
+        ImageAnalysisSession session = new ImageAnalysisSession(context, apiService, imageUri);
+
+        Response<ApiResponse<TongueDiagnosisResult>> first = await(ApiFutures.from(session.analyzeTongueImage()));
+        Response<ApiResponse<TongueDiagnosisResult>> second = await(ApiFutures.from(session.analyzeTongueImage()));
+
+        assertTrue(first.isSuccessful());
+        assertTrue(second.isSuccessful());
+        // 上传接口不存在时本会话不再尝试上传
+        assertEquals(Arrays.asList(PREFIX + "upload-image",
+                PREFIX + "analyze-tongue",
+                PREFIX + "analyze-tongue"), requestedPaths);
+    }
+
+    @Test
+    public void fallsBackToDirectWhenUploadFailsTransiently() throws Exception {
+        route("upload-image", 503, "");
+        route("analyze-tongue", 200, OK_EMPTY);
+        ImageAnalysisSession session = new ImageAnalysisSession(context, apiService, imageUri);
+
+        Response<ApiResponse<TongueDiagnosisResult>> response = await(ApiFutures.from(session.analyzeTongueImage()));
+        assertTrue(response.isSuccessful());
+
+        // 临时失败不影响之后的分析再次尝试上传
+        route("upload-image", 200, UPLOADED);
+        route("analyze-tongue/by-id", 200, OK_EMPTY);
+        await(ApiFutures.from(session.analyzeTongueImage()));
+        assertEquals(Arrays.asList(PREFIX + "upload-image",
+                PREFIX + "analyze-tongue",
+                PREFIX + "upload-image",
+                PREFIX + "analyze-tongue/by-id"), requestedPaths);
+    }
+
+    @Test
+    public void parallelAnalysesShareOneUpload() throws Exception {
+        route("upload-image", 200, UPLOADED);
+        route("ocr-text-recognition/by-id", 200, OK_EMPTY);
+        route("analyze-prescription-image/by-id", 200, OK_EMPTY);
+        ImageAnalysisSession session = new ImageAnalysisSession(context, apiService, imageUri);
+
+        Call<ApiResponse<OCRResult>> ocr = session.ocrTextRecognition();
+        Call<ApiResponse<PrescriptionAnalysis>> prescription = session.analyzePrescriptionImage();
+        List<Response<?>> results = await(session.analyzeInParallel(Arrays.asList(ocr, prescription)));
+
+        assertEquals(2, results.size());
+        for (Response<?> result : results) {
+            assertNotNull(result);
+            assertTrue(result.isSuccessful());
+        }
+        assertEquals(3, requestedPaths.size());
+        assertEquals(1, Collections.frequency(requestedPaths, PREFIX + "upload-image"));
+        assertTrue(requestedPaths.contains(PREFIX + "ocr-text-recognition/by-id"));
+        assertTrue(requestedPaths.contains(PREFIX + "analyze-prescription-image/by-id"));
+    }
+
+    private void route(String path, int code, String body) {
+        routes.put(PREFIX + path, new MockResponse()
+                .setResponseCode(code)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body));
+    }
+
+    /**
+     * 在测试线程（即主线程）上执行主线程消息，直到future完成
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!future.isDone()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待请求超时");
+            }
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(10);
+        }
+        return future.get();
+    }
+}